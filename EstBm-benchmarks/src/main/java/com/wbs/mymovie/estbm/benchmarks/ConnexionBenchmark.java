@@ -0,0 +1,116 @@
+package com.wbs.mymovie.estbm.benchmarks;
+
+import com.wbs.mymovie.estbm.config.LoginExecutorConfig;
+import com.wbs.mymovie.estbm.service.LoginService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempête de connexions (user-002) : 32 clients enchaînent des logins pendant qu'un client
+ * appelle un endpoint léger. JMH donne la distribution des temps de chaque méthode du
+ * groupe ; le p0.99 de {@link #autreEndpoint} est la latence vue par le reste de l'application.
+ *
+ * Les requêtes passent par un pool de {@code travailleurs} threads qui tient le rôle des
+ * threads Tomcat. inline : BCrypt (coût 10) sur le thread de la requête ; pooled : LoginService
+ * rend la main aussitôt (réponse asynchrone) et BCrypt tourne sur le pool loginExecutor
+ * (un thread par cœur, file bornée).
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConnexionBenchmark {
+
+    private static final String EMAIL = "etudiant@estbm.ma";
+    private static final String MOT_DE_PASSE = "motDePasse!2026";
+
+    @Param({"inline", "pooled"})
+    public String mode;
+
+    @Param("16")
+    public int travailleurs;
+
+    private ExecutorService threadsRequetes;
+    private ThreadPoolTaskExecutor loginExecutor;
+    private LoginService loginService;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        BCryptPasswordEncoder encodeur = new BCryptPasswordEncoder(10);
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(new InMemoryUserDetailsManager(
+                User.withUsername(EMAIL).password(encodeur.encode(MOT_DE_PASSE)).roles("ETUDIANT").build()));
+        provider.setPasswordEncoder(encodeur);
+
+        LoginExecutorConfig config = new LoginExecutorConfig();
+        ReflectionTestUtils.setField(config, "poolSize", 0);
+        ReflectionTestUtils.setField(config, "queueCapacity", 200);
+        loginExecutor = config.loginExecutor();
+        loginExecutor.initialize();
+
+        loginService = new LoginService();
+        ReflectionTestUtils.setField(loginService, "authenticationManager", new ProviderManager(provider));
+        ReflectionTestUtils.setField(loginService, "loginExecutor", loginExecutor);
+        ReflectionTestUtils.setField(loginService, "mode", mode);
+
+        threadsRequetes = Executors.newFixedThreadPool(travailleurs);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        threadsRequetes.shutdownNow();
+        loginExecutor.shutdown();
+    }
+
+    @Benchmark
+    @Group("tempete")
+    @GroupThreads(32)
+    public Object connexion() throws Exception {
+        try {
+            // Le thread de requête est libéré dès que LoginService a rendu son CompletableFuture
+            return threadsRequetes.submit(() -> loginService.authenticate(EMAIL, MOT_DE_PASSE)).get().get();
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof TaskRejectedException) {
+                return "503";
+            }
+            throw e;
+        }
+    }
+
+    @Benchmark
+    @Group("tempete")
+    @GroupThreads(1)
+    public Object autreEndpoint() throws Exception {
+        return threadsRequetes.submit(() -> {
+            Blackhole.consumeCPU(20_000);
+            return "200";
+        }).get();
+    }
+}
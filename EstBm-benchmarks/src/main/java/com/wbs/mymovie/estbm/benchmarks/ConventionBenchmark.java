@@ -0,0 +1,74 @@
+package com.wbs.mymovie.estbm.benchmarks;
+
+import com.wbs.mymovie.estbm.model.Etudiant;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.service.ConventionGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conventions de stage par seconde (user-015) : génération complète du document (avant)
+ * contre estampillage du gabarit pré-rendu (après). Avec {@code -prof gc},
+ * gc.alloc.rate.norm donne les octets alloués par convention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConventionBenchmark {
+
+    private ConventionGeneratorService generateur;
+    private MethodHandle genererComplet;
+    private Stage stage;
+
+    @Setup
+    public void preparer() throws Exception {
+        generateur = new ConventionGeneratorService();
+        // Chemin de repli du service (mise en page fluide), identique à l'ancienne génération
+        Method complet = ConventionGeneratorService.class.getDeclaredMethod("genererComplet", Stage.class);
+        complet.setAccessible(true);
+        genererComplet = MethodHandles.lookup().unreflect(complet);
+
+        Etudiant etudiant = new Etudiant();
+        etudiant.setNom("El Amrani");
+        etudiant.setPrenom("Yasmine");
+        etudiant.setCodeApogee("20231234");
+        stage = new Stage();
+        stage.setId(42L);
+        stage.setEtudiant(etudiant);
+        stage.setEntreprise("Atlas Numérique SARL");
+        stage.setAdresseEntreprise("12 avenue Hassan II, Béni Mellal");
+        stage.setTelephoneEntreprise("0523 48 12 34");
+        stage.setRepresentantEntreprise("M. Karim Bennani");
+        stage.setFiliere("Génie Informatique");
+        stage.setSujet("Refonte du suivi des stages");
+        stage.setDateDebut(LocalDate.of(2026, 2, 2));
+        stage.setDateFin(LocalDate.of(2026, 5, 29));
+    }
+
+    @Benchmark
+    public byte[] avantGenerationComplete() throws Throwable {
+        return (byte[]) genererComplet.invoke(generateur, stage);
+    }
+
+    @Benchmark
+    public byte[] apresGabaritEstampille() throws Exception {
+        return generateur.generateConventionPdf(stage);
+    }
+}
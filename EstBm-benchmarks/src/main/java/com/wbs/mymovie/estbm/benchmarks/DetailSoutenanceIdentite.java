@@ -0,0 +1,37 @@
+package com.wbs.mymovie.estbm.benchmarks;
+
+import com.wbs.mymovie.estbm.model.Etudiant;
+import com.wbs.mymovie.estbm.model.PlanificationSoutenance;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DetailSoutenance tel qu'il était mappé avant user-023 (clé IDENTITY), sur une table jumelle
+ * de detail_soutenance : Hibernate doit lire chaque id généré, donc un INSERT par aller-retour.
+ */
+@Entity
+@Table(name = "detail_soutenance_identite")
+public class DetailSoutenanceIdentite {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    String sujet;
+    LocalDate dateSoutenance;
+    LocalTime heureDebut;
+    LocalTime heureFin;
+
+    @ManyToOne
+    Etudiant etudiant;
+
+    @ManyToOne
+    PlanificationSoutenance planification;
+}
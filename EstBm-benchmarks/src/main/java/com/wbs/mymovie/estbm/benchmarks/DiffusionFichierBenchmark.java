@@ -0,0 +1,174 @@
+package com.wbs.mymovie.estbm.benchmarks;
+
+import com.wbs.mymovie.estbm.service.FichierDiffusionService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Téléchargement d'un fichier de 5 Mo de bout en bout (user-013) : Tomcat embarqué
+ * (connecteur NIO par défaut, sendfile actif) et client HTTP sur la boucle locale.
+ *
+ * Avant : ResponseEntity&lt;UrlResource&gt; du contrôleur d'origine, tel que Spring MVC le rend
+ * (ResourceHttpMessageConverter, ou ResourceRegionHttpMessageConverter quand un en-tête
+ * Range est présent) ; sans ETag, une revalidation renvoie tout le fichier.
+ * Après : FichierDiffusionService (ETag, 304, plages, sendfile de Tomcat).
+ *
+ * Octets par seconde = ops/s × octets du scénario (5 Mo, 1 Mo, 2 × 512 Ko, 0).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffusionFichierBenchmark {
+
+    private static final int TAILLE = 5 * 1024 * 1024;
+
+    /** complet ; plage (1 Mo au milieu) ; multiplage (deux plages de 512 Ko) ; revalidation (If-None-Match). */
+    @Param({"complet", "plage", "multiplage", "revalidation"})
+    public String scenario;
+
+    private Path dossier;
+    private Path fichier;
+    private Tomcat tomcat;
+    private HttpClient client;
+    private URI avant;
+    private URI apres;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void demarrer() throws Exception {
+        dossier = Files.createTempDirectory("estbm-bench-diffusion");
+        byte[] contenu = new byte[TAILLE];
+        new Random(13).nextBytes(contenu);
+        fichier = Files.write(dossier.resolve("convention.pdf"), contenu);
+
+        Resource ressource = new UrlResource(fichier.toUri());
+        ResourceHttpMessageConverter convertisseur = new ResourceHttpMessageConverter();
+        ResourceRegionHttpMessageConverter convertisseurPlages = new ResourceRegionHttpMessageConverter();
+        FichierDiffusionService diffusion = new FichierDiffusionService();
+
+        tomcat = new Tomcat();
+        tomcat.setPort(0);
+        tomcat.setBaseDir(dossier.toString());
+        tomcat.getConnector();
+        Context contexte = tomcat.addContext("", dossier.toString());
+        Tomcat.addServlet(contexte, "avant", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                ServletServerHttpResponse sortie = new ServletServerHttpResponse(resp);
+                sortie.getHeaders().set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"convention.pdf\"");
+                String range = req.getHeader(HttpHeaders.RANGE);
+                if (range == null) {
+                    convertisseur.write(ressource, null, sortie);
+                } else {
+                    // Ce que fait Spring MVC pour un corps Resource accompagné d'un en-tête Range
+                    List<ResourceRegion> regions = HttpRange.toResourceRegions(HttpRange.parseRanges(range), ressource);
+                    sortie.setStatusCode(HttpStatus.PARTIAL_CONTENT);
+                    if (regions.size() == 1) {
+                        convertisseurPlages.write(regions.get(0), null, sortie);
+                    } else {
+                        convertisseurPlages.write(regions, null, sortie);
+                    }
+                }
+                sortie.flush();
+            }
+        });
+        contexte.addServletMappingDecoded("/avant", "avant");
+        Tomcat.addServlet(contexte, "apres", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                diffusion.servirFichier(req, resp, fichier, "convention.pdf", "application/pdf", null);
+            }
+        });
+        contexte.addServletMappingDecoded("/apres", "apres");
+        tomcat.start();
+
+        String base = "http://localhost:" + tomcat.getConnector().getLocalPort();
+        avant = URI.create(base + "/avant");
+        apres = URI.create(base + "/apres");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        // ETag que le client a reçu au premier téléchargement
+        etag = client.send(HttpRequest.newBuilder(apres).build(), HttpResponse.BodyHandlers.discarding())
+                .headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() throws LifecycleException, IOException {
+        tomcat.stop();
+        tomcat.destroy();
+        try (var fichiers = Files.walk(dossier)) {
+            fichiers.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private long telecharger(URI uri) throws IOException, InterruptedException {
+        HttpRequest.Builder requete = HttpRequest.newBuilder(uri);
+        switch (scenario) {
+            case "plage" -> requete.header(HttpHeaders.RANGE, "bytes=2097152-3145727");
+            case "multiplage" -> requete.header(HttpHeaders.RANGE, "bytes=0-524287,4194304-4718591");
+            case "revalidation" -> requete.header(HttpHeaders.IF_NONE_MATCH, etag);
+            default -> {
+            }
+        }
+        HttpResponse<InputStream> reponse = client.send(requete.build(), HttpResponse.BodyHandlers.ofInputStream());
+        long octets = 0;
+        byte[] tampon = new byte[64 * 1024];
+        try (InputStream in = reponse.body()) {
+            int n;
+            while ((n = in.read(tampon)) > 0) {
+                octets += n;
+            }
+        }
+        return octets;
+    }
+
+    @Benchmark
+    public long avantUrlResource() throws Exception {
+        return telecharger(avant);
+    }
+
+    @Benchmark
+    public long apresDiffusionService() throws Exception {
+        return telecharger(apres);
+    }
+}
@@ -0,0 +1,146 @@
+package com.wbs.mymovie.estbm.benchmarks;
+
+import com.wbs.mymovie.estbm.model.DetailSoutenance;
+import com.wbs.mymovie.estbm.model.Etudiant;
+import com.wbs.mymovie.estbm.util.ExportWriter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export Excel des créneaux d'une planification (user-008), 10 000 créneaux par défaut.
+ *
+ * Avant : XSSFWorkbook complet, écrit dans un ByteArrayOutputStream puis recopié dans un
+ * ByteArrayInputStream renvoyé au contrôleur (code d'origine de exportPlanificationDetailsToExcel).
+ * Après : ExportWriter xlsx (SXSSF, fenêtre de 100 lignes) écrit directement dans le flux de réponse.
+ *
+ * Les lignes sont déjà en mémoire des deux côtés : la requête SQL n'est pas mesurée ici
+ * (voir BudgetsRequetesTest pour le nombre de requêtes). Avec {@code -prof gc},
+ * gc.alloc.rate.norm donne les octets alloués par export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class ExportBenchmark {
+
+    private static final String[] COLONNES = {"Id", "Date", "Heure Debut", "Heure Fin", "Sujet", "Etudiant Id", "Etudiant Nom"};
+
+    @Param("10000")
+    public int creneaux;
+
+    private List<DetailSoutenance> details;
+    private List<Object[]> lignes;
+
+    /** Réponse HTTP : les octets sont comptés puis oubliés. */
+    private static final class Evier extends OutputStream {
+        long octets;
+
+        @Override
+        public void write(int b) {
+            octets++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            octets += len;
+        }
+    }
+
+    @Setup
+    public void preparer() {
+        details = new ArrayList<>(creneaux);
+        lignes = new ArrayList<>(creneaux);
+        for (int i = 0; i < creneaux; i++) {
+            Etudiant etudiant = new Etudiant();
+            etudiant.setId((long) i);
+            etudiant.setNom("Nom" + i);
+            etudiant.setPrenom("Prenom" + i);
+            DetailSoutenance d = new DetailSoutenance();
+            d.setId((long) i);
+            d.setDateSoutenance(LocalDate.of(2026, 6, 1).plusDays(i % 20));
+            d.setHeureDebut(LocalTime.of(8, 0).plusMinutes(30L * (i % 18)));
+            d.setHeureFin(d.getHeureDebut().plusMinutes(30));
+            d.setSujet("Sujet de soutenance " + i);
+            d.setEtudiant(etudiant);
+            details.add(d);
+            // Ligne telle que la renvoie la requête à projection du service
+            lignes.add(new Object[]{d.getId(), d.getDateSoutenance(), d.getHeureDebut(), d.getHeureFin(),
+                    d.getSujet(), etudiant.getId(), etudiant.getPrenom() + " " + etudiant.getNom()});
+        }
+    }
+
+    @Benchmark
+    public long avantXssfEnMemoire() throws IOException {
+        Evier reponse = new Evier();
+        try (InputStream in = exportAvant(details)) {
+            in.transferTo(reponse);
+        }
+        return reponse.octets;
+    }
+
+    @Benchmark
+    public long apresSxssfEnFlux() throws IOException {
+        Evier reponse = new Evier();
+        try (ExportWriter writer = ExportWriter.pour("xlsx", "Créneaux Planif 1", reponse, 100, 200)) {
+            writer.entete(COLONNES);
+            for (Object[] ligne : lignes) {
+                writer.ligne(ligne);
+            }
+            writer.terminer();
+        }
+        return reponse.octets;
+    }
+
+    /** Copie de l'ancien PlanificationSoutenanceService.exportPlanificationDetailsToExcel (avant user-008). */
+    private static ByteArrayInputStream exportAvant(List<DetailSoutenance> details) throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Créneaux Planif 1");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < COLONNES.length; i++) {
+                header.createCell(i).setCellValue(COLONNES[i]);
+            }
+
+            int rowIdx = 1;
+            for (DetailSoutenance d : details) {
+                Row r = sheet.createRow(rowIdx++);
+                r.createCell(0).setCellValue(d.getId());
+                r.createCell(1).setCellValue(d.getDateSoutenance().toString());
+                r.createCell(2).setCellValue(d.getHeureDebut().toString());
+                r.createCell(3).setCellValue(d.getHeureFin().toString());
+                r.createCell(4).setCellValue(d.getSujet());
+                r.createCell(5).setCellValue(d.getEtudiant() != null ? d.getEtudiant().getId() : null);
+                r.createCell(6).setCellValue(d.getEtudiant() != null ? d.getEtudiant().getPrenom() + " " + d.getEtudiant().getNom() : "");
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+    }
+}
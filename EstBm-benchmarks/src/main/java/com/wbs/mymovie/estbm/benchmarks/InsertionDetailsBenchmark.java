@@ -0,0 +1,158 @@
+package com.wbs.mymovie.estbm.benchmarks;
+
+import com.wbs.mymovie.estbm.config.MigrationsSchema;
+import com.wbs.mymovie.estbm.model.DetailSoutenance;
+import com.wbs.mymovie.estbm.model.Etudiant;
+import com.wbs.mymovie.estbm.model.PlanificationSoutenance;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.Entity;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Insertion de 50 000 créneaux de soutenance en une transaction (user-023), sur PostgreSQL
+ * embarqué au schéma des migrations, avec les réglages Hibernate de application.properties
+ * (batch_size=50, order_inserts, pooled-lo).
+ *
+ * Avant : clé IDENTITY (DetailSoutenanceIdentite, table jumelle) : un aller-retour par ligne.
+ * Après : DetailSoutenance, séquence pooled-lo (pas de 50) : un nextval et un lot JDBC par 50 lignes.
+ * Le contexte de persistance est vidé toutes les 1 000 lignes des deux côtés.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InsertionDetailsBenchmark {
+
+    @Param("50000")
+    public int lignes;
+
+    private EmbeddedPostgres postgres;
+    private JdbcTemplate jdbc;
+    private SessionFactory sessionFactory;
+
+    @Setup(Level.Trial)
+    public void demarrer() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        jdbc = new JdbcTemplate(dataSource);
+
+        MigrationsSchema migrations = new MigrationsSchema();
+        ReflectionTestUtils.setField(migrations, "dataSource", dataSource);
+        ReflectionTestUtils.setField(migrations, "emplacement", "classpath:db/migration/");
+        migrations.migrer();
+
+        jdbc.execute("CREATE TABLE detail_soutenance_identite (LIKE detail_soutenance INCLUDING ALL)");
+        jdbc.execute("ALTER TABLE detail_soutenance_identite ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY");
+        jdbc.execute("ALTER TABLE detail_soutenance_identite ADD FOREIGN KEY (etudiant_id) REFERENCES etudiants, "
+                + "ADD FOREIGN KEY (planification_id) REFERENCES planification_soutenance");
+        jdbc.update("INSERT INTO etudiants (id, date_naissance, code_apogee, code_massar, nom, prenom) "
+                + "VALUES (1, DATE '2004-03-01', 'A1', 'M1', 'Nom', 'Prenom')");
+        jdbc.update("INSERT INTO planification_soutenance (id, date_soutenance) VALUES (1, DATE '2026-06-15')");
+
+        StandardServiceRegistry registre = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "none")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, 50)
+                .applySetting(AvailableSettings.ORDER_INSERTS, true)
+                .applySetting(AvailableSettings.ORDER_UPDATES, true)
+                .applySetting(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo")
+                // Mêmes stratégies de nommage que Spring Boot (detail_soutenance, date_soutenance…)
+                .applySetting(AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName())
+                .applySetting(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName())
+                .build();
+        MetadataSources sources = new MetadataSources(registre);
+        ClassPathScanningCandidateComponentProvider scan = new ClassPathScanningCandidateComponentProvider(false);
+        scan.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        for (BeanDefinition entite : scan.findCandidateComponents("com.wbs.mymovie.estbm.model")) {
+            sources.addAnnotatedClass(Class.forName(entite.getBeanClassName()));
+        }
+        sources.addAnnotatedClass(DetailSoutenanceIdentite.class);
+        sessionFactory = sources.buildMetadata().buildSessionFactory();
+    }
+
+    @Setup(Level.Iteration)
+    public void vider() {
+        jdbc.execute("TRUNCATE detail_soutenance, detail_soutenance_identite");
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() throws Exception {
+        sessionFactory.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public void avantIdentite() {
+        inserer((session, i) -> {
+            DetailSoutenanceIdentite d = new DetailSoutenanceIdentite();
+            d.sujet = "Sujet " + i;
+            d.dateSoutenance = LocalDate.of(2026, 6, 15);
+            d.heureDebut = LocalTime.of(8, 0).plusMinutes(i % 600);
+            d.heureFin = d.heureDebut.plusMinutes(30);
+            d.etudiant = session.getReference(Etudiant.class, 1L);
+            d.planification = session.getReference(PlanificationSoutenance.class, 1L);
+            return d;
+        });
+    }
+
+    @Benchmark
+    public void apresSequencePooledLo() {
+        inserer((session, i) -> {
+            DetailSoutenance d = new DetailSoutenance();
+            d.setSujet("Sujet " + i);
+            d.setDateSoutenance(LocalDate.of(2026, 6, 15));
+            d.setHeureDebut(LocalTime.of(8, 0).plusMinutes(i % 600));
+            d.setHeureFin(d.getHeureDebut().plusMinutes(30));
+            d.setEtudiant(session.getReference(Etudiant.class, 1L));
+            d.setPlanification(session.getReference(PlanificationSoutenance.class, 1L));
+            return d;
+        });
+    }
+
+    private void inserer(BiFunction<Session, Integer, Object> creer) {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (int i = 0; i < lignes; i++) {
+                session.persist(creer.apply(session, i));
+                if ((i + 1) % 1000 == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.getTransaction().commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.wbs.mymovie.estbm.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Pool d'écriture des fichiers d'un dépôt multiple (copie + empreinte + validation).
+ * File bornée ; quand elle est pleine, le thread de la requête fait le travail
+ * lui-même (CallerRuns) : le dépôt ralentit au lieu d'échouer.
+ */
+@Configuration
+public class DocumentIngestExecutorConfig {
+
+    @Value("${document.ingest.pool-size:4}")
+    private int poolSize;
+
+    @Value("${document.ingest.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Bean(name = "documentIngestExecutor")
+    public ThreadPoolTaskExecutor documentIngestExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("document-ingest-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
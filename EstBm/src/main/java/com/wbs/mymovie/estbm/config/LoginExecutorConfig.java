@@ -0,0 +1,34 @@
+package com.wbs.mymovie.estbm.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pool dédié à la vérification BCrypt des connexions.
+ * Taille = nombre de cœurs, file bornée : quand elle est pleine la soumission
+ * est rejetée immédiatement (TaskRejectedException → 503) au lieu de bloquer
+ * les threads Tomcat des autres endpoints.
+ */
+@Configuration
+public class LoginExecutorConfig {
+
+    @Value("${auth.login.pool-size:0}")
+    private int poolSize;
+
+    @Value("${auth.login.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Bean(name = "loginExecutor")
+    public ThreadPoolTaskExecutor loginExecutor() {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("login-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
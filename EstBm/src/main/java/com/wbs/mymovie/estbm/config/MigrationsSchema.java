@@ -0,0 +1,140 @@
+package com.wbs.mymovie.estbm.config;
+
+import com.wbs.mymovie.estbm.util.Empreintes;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Migrations versionnées du schéma : scripts classpath:db/migration/V&lt;n&gt;__&lt;description&gt;.sql,
+ * appliqués dans l'ordre avant la création de l'EntityManagerFactory (ddl-auto=none).
+ *
+ * - table schema_version : version, description, empreinte SHA-256, date, durée ;
+ * - chaque script dans sa transaction, sous verrou consultatif PostgreSQL (plusieurs nœuds),
+ *   envoyé en une fois au pilote : pas de découpage sur « ; », les blocs DO $$ … $$ passent ;
+ * - un script déjà appliqué puis modifié fait échouer le démarrage ;
+ * - base existante sans schema_version (créée par ddl-auto=update) : enregistrée en V1 sans l'exécuter ;
+ *   V1 est donc exactement ce schéma-là, et tout ajout au modèle passe par V2 et suivants.
+ *   Ce constat et la création de schema_version se font sous le même verrou : deux nœuds qui
+ *   démarrent ensemble ne peuvent pas les entrelacer.
+ */
+@Component
+public class MigrationsSchema {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationsSchema.class);
+
+    private static final Pattern NOM_SCRIPT = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final long VERROU = 0x45535442_4d494752L;
+
+    private record Script(int version, String description, Resource resource, String contenu, String empreinte) {}
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${schema.migrations.emplacement:classpath:db/migration/}")
+    private String emplacement;
+
+    /** L'EntityManagerFactory attend la fin des migrations. */
+    @Component
+    static class DependanceJpa extends EntityManagerFactoryDependsOnPostProcessor {
+        DependanceJpa() {
+            super(MigrationsSchema.class);
+        }
+    }
+
+    @PostConstruct
+    public void migrer() throws IOException {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        List<Script> scripts = scripts();
+
+        tx.executeWithoutResult(status -> {
+            jdbc.queryForList("SELECT pg_advisory_xact_lock(?)", VERROU);
+            boolean baseExistante = Boolean.TRUE.equals(jdbc.queryForObject(
+                    "SELECT to_regclass('utilisateurs') IS NOT NULL AND to_regclass('schema_version') IS NULL", Boolean.class));
+            jdbc.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version integer PRIMARY KEY,
+                        description varchar(200) NOT NULL,
+                        empreinte varchar(64),
+                        date_application timestamp NOT NULL,
+                        duree_ms bigint NOT NULL
+                    )""");
+            if (baseExistante && !scripts.isEmpty()) {
+                Script v1 = scripts.get(0);
+                jdbc.update("INSERT INTO schema_version VALUES (?, ?, NULL, ?, 0)",
+                        v1.version(), v1.description() + " (base existante)", Timestamp.valueOf(LocalDateTime.now()));
+                log.info("Schéma existant enregistré en V{} sans exécution", v1.version());
+            }
+        });
+
+        for (Script script : scripts) {
+            tx.executeWithoutResult(status -> {
+                jdbc.queryForList("SELECT pg_advisory_xact_lock(?)", VERROU);
+                List<Map<String, Object>> appliquee = jdbc.queryForList(
+                        "SELECT empreinte FROM schema_version WHERE version = ?", script.version());
+                if (!appliquee.isEmpty()) {
+                    Object empreinte = appliquee.get(0).get("empreinte");
+                    if (empreinte != null && !empreinte.equals(script.empreinte())) {
+                        throw new IllegalStateException("Migration V" + script.version()
+                                + " modifiée après son application : " + script.resource().getFilename());
+                    }
+                    return;
+                }
+                long debut = System.currentTimeMillis();
+                jdbc.execute(script.contenu());
+                long duree = System.currentTimeMillis() - debut;
+                jdbc.update("INSERT INTO schema_version VALUES (?, ?, ?, ?, ?)", script.version(), script.description(),
+                        script.empreinte(), Timestamp.valueOf(LocalDateTime.now()), duree);
+                log.info("Migration V{} appliquée ({}) en {} ms", script.version(), script.description(), duree);
+            });
+        }
+    }
+
+    private List<Script> scripts() throws IOException {
+        Resource[] ressources = new PathMatchingResourcePatternResolver().getResources(emplacement + "V*__*.sql");
+        List<Script> scripts = Arrays.stream(ressources)
+                .map(r -> {
+                    Matcher m = NOM_SCRIPT.matcher(r.getFilename());
+                    if (!m.matches()) {
+                        throw new IllegalStateException("Nom de migration invalide : " + r.getFilename());
+                    }
+                    try {
+                        String contenu = r.getContentAsString(StandardCharsets.UTF_8);
+                        return new Script(Integer.parseInt(m.group(1)), m.group(2).replace('_', ' '), r, contenu, Empreintes.sha256Hex(contenu));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Migration illisible : " + r.getFilename(), e);
+                    }
+                })
+                .sorted(Comparator.comparingInt(Script::version))
+                .toList();
+        for (int i = 1; i < scripts.size(); i++) {
+            if (scripts.get(i).version() == scripts.get(i - 1).version()) {
+                throw new IllegalStateException("Plusieurs migrations en V" + scripts.get(i).version());
+            }
+        }
+        return scripts;
+    }
+}
@@ -0,0 +1,33 @@
+package com.wbs.mymovie.estbm.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pool des envois de rapports vers le stockage.
+ * Peu de threads (chacun emprunte brièvement une connexion du pool Hikari)
+ * et file bornée : au-delà, l'envoi est refusé (503) plutôt que mis en attente sans fin.
+ */
+@Configuration
+public class RapportIngestExecutorConfig {
+
+    @Value("${rapport.ingest.pool-size:2}")
+    private int poolSize;
+
+    @Value("${rapport.ingest.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Bean(name = "rapportIngestExecutor")
+    public ThreadPoolTaskExecutor rapportIngestExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("rapport-ingest-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -1,6 +1,7 @@
 package com.wbs.mymovie.estbm.config;
 
 import io.jsonwebtoken.io.Decoders;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,6 +17,7 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -44,6 +46,10 @@ public class SecurityConfig {
     @Value("${jwt.secret}")
     private String jwtSecretKey;
 
+    // Facteur de coût BCrypt ; les hash plus faibles sont ré-encodés à la connexion suivante
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
     @Autowired @Lazy
     private JwtRequestFilter jwtRequestFilter;
 
@@ -57,6 +63,10 @@ public class SecurityConfig {
 
 
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // Renvoi interne vers /error (sendError, @ResponseStatus) : garder le statut d'origine.
+                        // Reprise asynchrone (StreamingResponseBody) : autorisée au premier passage,
+                        // JwtRequestFilter ne ré-authentifie pas ce second passage
+                        .dispatcherTypeMatchers(DispatcherType.ERROR, DispatcherType.ASYNC).permitAll()
 
                         // 1) Auth public
                         .requestMatchers(HttpMethod.POST, "/stages/auth/**").permitAll()
@@ -99,9 +109,11 @@ public class SecurityConfig {
 
     @Bean
     public AuthenticationManager authenticationManager(UserDetailsService uds,
+                                                       UserDetailsPasswordService udps,
                                                        PasswordEncoder pe) {
         DaoAuthenticationProvider p = new DaoAuthenticationProvider();
         p.setUserDetailsService(uds);
+        p.setUserDetailsPasswordService(udps);
         p.setPasswordEncoder(pe);
         return new ProviderManager(p);
     }
@@ -117,7 +129,7 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -128,7 +140,7 @@ public class SecurityConfig {
         c.setAllowedHeaders(Arrays.asList("Authorization","Content-Type"));
 
 
-        c.setExposedHeaders(Arrays.asList("Authorization", "Location"));
+        c.setExposedHeaders(Arrays.asList("Authorization", "Location", "Link", "X-Lot-Id"));
 
         c.setAllowCredentials(true);
 
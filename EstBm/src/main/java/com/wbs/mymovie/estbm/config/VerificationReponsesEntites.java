@@ -0,0 +1,186 @@
+package com.wbs.mymovie.estbm.config;
+
+import jakarta.persistence.Entity;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Sans open-session-in-view, une entité sérialisée par Jackson déclencherait ses
+ * chargements paresseux hors transaction : les contrôleurs ne renvoient que des DTO.
+ *
+ * Au démarrage, le type de retour de chaque endpoint (et les champs des DTO qu'il
+ * contient) est parcouru : une entité JPA fait échouer le démarrage.
+ *
+ * Les retours non typés ({@code ResponseEntity<?>}) et les génériques effacés
+ * ({@code PageCurseurDto.elements}) sont vérifiés à l'exécution par le même
+ * parcours, appliqué aux valeurs (premier élément de chaque collection). Ce contrôle
+ * n'est actif qu'hors production ({@code reponses.verification.active}, profil dev).
+ */
+@ControllerAdvice
+public class VerificationReponsesEntites implements ResponseBodyAdvice<Object> {
+
+    private static final String PACKAGE_APPLI = "com.wbs.mymovie.estbm.";
+
+    @Value("${reponses.verification.active:false}")
+    private boolean verificationActive;
+
+    @EventListener
+    public void verifier(ContextRefreshedEvent event) {
+        Map<String, RequestMappingHandlerMapping> mappings =
+                event.getApplicationContext().getBeansOfType(RequestMappingHandlerMapping.class);
+        List<String> fautifs = new ArrayList<>();
+        for (RequestMappingHandlerMapping mapping : mappings.values()) {
+            mapping.getHandlerMethods().forEach((info, handler) -> {
+                Class<?> entite = chercherEntite(ResolvableType.forMethodReturnType(handler.getMethod()), new HashSet<>());
+                if (entite != null) {
+                    fautifs.add(handler.getShortLogMessage() + " -> " + entite.getSimpleName());
+                }
+            });
+        }
+        if (!fautifs.isEmpty()) {
+            throw new IllegalStateException("Entités JPA renvoyées par des contrôleurs : " + fautifs);
+        }
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return verificationActive;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        Class<?> entite = chercherEntiteValeur(body, Collections.newSetFromMap(new IdentityHashMap<>()));
+        if (entite != null) {
+            throw new IllegalStateException("Entité " + entite.getSimpleName()
+                    + " renvoyée par " + returnType.getExecutable().toGenericString());
+        }
+        return body;
+    }
+
+    // Première entité atteinte depuis ce type, ou null
+    private static Class<?> chercherEntite(ResolvableType type, Set<Class<?>> vus) {
+        Class<?> classe = type.resolve();
+        if (classe == null) {
+            return null;
+        }
+        if (estEntite(classe)) {
+            return classe;
+        }
+        if (classe.isArray()) {
+            return chercherEntite(type.getComponentType(), vus);
+        }
+        if (ResponseEntity.class.isAssignableFrom(classe) || Optional.class.equals(classe)
+                || CompletionStage.class.isAssignableFrom(classe)) {
+            return chercherEntite(type.getGeneric(0), vus);
+        }
+        if (Collection.class.isAssignableFrom(classe)) {
+            return chercherEntite(type.asCollection().getGeneric(0), vus);
+        }
+        if (Map.class.isAssignableFrom(classe)) {
+            return chercherEntite(type.asMap().getGeneric(1), vus);
+        }
+        if (!classe.getName().startsWith(PACKAGE_APPLI) || !vus.add(classe)) {
+            return null;
+        }
+        // DTO de l'application : ses champs, génériques résolus (PageCurseurDto<T>...)
+        for (Class<?> c = classe; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field champ : c.getDeclaredFields()) {
+                if (Modifier.isStatic(champ.getModifiers())) {
+                    continue;
+                }
+                Class<?> trouvee = chercherEntite(ResolvableType.forField(champ, type), vus);
+                if (trouvee != null) {
+                    return trouvee;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Même parcours sur les valeurs : les génériques effacés sont résolus par la classe réelle
+    private static Class<?> chercherEntiteValeur(Object valeur, Set<Object> vus) {
+        if (valeur == null) {
+            return null;
+        }
+        Class<?> classe = valeur.getClass();
+        if (estEntite(classe)) {
+            return classe;
+        }
+        if (!Hibernate.isInitialized(valeur)) {
+            // Collection paresseuse : la parcourir la chargerait hors session
+            return null;
+        }
+        if (valeur instanceof Object[] tableau) {
+            return tableau.length > 0 ? chercherEntiteValeur(tableau[0], vus) : null;
+        }
+        if (valeur instanceof ResponseEntity<?> r) {
+            return chercherEntiteValeur(r.getBody(), vus);
+        }
+        if (valeur instanceof Optional<?> o) {
+            return chercherEntiteValeur(o.orElse(null), vus);
+        }
+        if (valeur instanceof Collection<?> c) {
+            return c.isEmpty() ? null : chercherEntiteValeur(c.iterator().next(), vus);
+        }
+        if (valeur instanceof Map<?, ?> m) {
+            return m.isEmpty() ? null : chercherEntiteValeur(m.values().iterator().next(), vus);
+        }
+        if (!classe.getName().startsWith(PACKAGE_APPLI) || !vus.add(valeur)) {
+            return null;
+        }
+        for (Class<?> c = classe; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field champ : c.getDeclaredFields()) {
+                if (Modifier.isStatic(champ.getModifiers()) || !champ.trySetAccessible()) {
+                    continue;
+                }
+                Class<?> trouvee;
+                try {
+                    trouvee = chercherEntiteValeur(champ.get(valeur), vus);
+                } catch (IllegalAccessException e) {
+                    continue;
+                }
+                if (trouvee != null) {
+                    return trouvee;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Remonte les sous-classes de proxy Hibernate jusqu'à la classe annotée
+    private static boolean estEntite(Class<?> classe) {
+        for (Class<?> c = classe; c != null; c = c.getSuperclass()) {
+            if (c.isAnnotationPresent(Entity.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -94,24 +94,36 @@
 package com.wbs.mymovie.estbm.controller;
 
 import com.wbs.mymovie.estbm.dto.*;
+import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
 import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Utilisateur;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
 import com.wbs.mymovie.estbm.model.enums.Role;
 import com.wbs.mymovie.estbm.repository.EncadrantRepository;
 import com.wbs.mymovie.estbm.repository.EtudiantRepository;
 import com.wbs.mymovie.estbm.service.AdminService;
+import com.wbs.mymovie.estbm.service.BlobCompactageService;
+import com.wbs.mymovie.estbm.service.ConventionCacheService;
+import com.wbs.mymovie.estbm.service.ConventionLotService;
 import com.wbs.mymovie.estbm.service.EtudiantService;
+import com.wbs.mymovie.estbm.service.ReferenceCacheService;
 import com.wbs.mymovie.estbm.service.StageService;
+import com.wbs.mymovie.estbm.service.RapportFichierService;
+import com.wbs.mymovie.estbm.service.StageStatistiquesService;
 import com.wbs.mymovie.estbm.service.UtilisateurService;
+import com.wbs.mymovie.estbm.util.JwtClaimsCache;
+import com.wbs.mymovie.estbm.util.Pagination;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
@@ -140,6 +152,27 @@ public class AdminController {
 
     @Autowired private EncadrantRepository encadrantRepository ;
 
+    @Autowired
+    private JwtClaimsCache jwtClaimsCache;
+
+    @Autowired
+    private Pagination pagination;
+
+    @Autowired
+    private StageStatistiquesService stageStatistiquesService;
+
+    @Autowired
+    private RapportFichierService rapportFichierService;
+
+    @Autowired
+    private BlobCompactageService blobCompactageService;
+
+    @Autowired
+    private ConventionCacheService conventionCacheService;
+
+    @Autowired
+    private ConventionLotService conventionLotService;
+
 //    @PostMapping("/encadrants")
 //    public ResponseEntity<?> creerEncadrant(@RequestBody RegisterRequest req) {
 //        return ResponseEntity.ok(utilisateurService.creerCompteEncadrant(req));
@@ -234,15 +267,57 @@ public class AdminController {
     // StageController.java
     @GetMapping("/statistiques")
     public ResponseEntity<Map<String, Object>> getStatistiques() {
-        Map<String, Object> stats = stageService.getStatistiques();
-        // Add totalEtudiants if needed
-        stats.put("totalEtudiants", etudiantRepository.count());
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(stageService.getStatistiques());
     }
-    /** Exporter les listes */
+
+    /** Répartition des stages par état et par groupe (département / classe / année) */
+    @GetMapping("/statistiques/repartition")
+    public ResponseEntity<List<StatistiqueGroupeDto>> getRepartition(
+            @RequestParam(required = false) Long departementId,
+            @RequestParam(required = false) Long classeGroupeId,
+            @RequestParam(required = false) Long anneeScolaireId) {
+        return ResponseEntity.ok(stageStatistiquesService.getRepartition(departementId, classeGroupeId, anneeScolaireId));
+    }
+    /** Métriques du cache de vérification JWT (hits / misses / temps de vérification) */
+    @GetMapping("/metrics/jwt")
+    public ResponseEntity<Map<String, Object>> getJwtMetrics() {
+        return ResponseEntity.ok(jwtClaimsCache.getStatistiques());
+    }
+
+    /** Métriques du cache disque des rapports (hits / misses / évictions / taille) */
+    @GetMapping("/metrics/rapports")
+    public ResponseEntity<Map<String, Object>> getRapportCacheMetrics() {
+        return ResponseEntity.ok(rapportFichierService.getStatistiques());
+    }
+
+    /** Métriques du cache des conventions (mémoire / disque / générations) */
+    @GetMapping("/metrics/conventions")
+    public ResponseEntity<Map<String, Object>> getConventionCacheMetrics() {
+        return ResponseEntity.ok(conventionCacheService.getStatistiques());
+    }
+
+    /** Métriques du stockage dédupliqué (dépôts, doublons, octets économisés, dernier compactage) */
+    @GetMapping("/metrics/stockage")
+    public ResponseEntity<Map<String, Object>> getStockageMetrics() {
+        return ResponseEntity.ok(blobCompactageService.getStatistiques());
+    }
+
+    /** Lance immédiatement le compactage (suppression des fichiers plus référencés) */
+    @PostMapping("/stockage/compactage")
+    public ResponseEntity<Map<String, Object>> compacterStockage() {
+        try {
+            return ResponseEntity.ok(blobCompactageService.compacter());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** Exporter les listes (type = stages, etudiants, affectations ou rapports ; format = csv, xlsx ou pdf) */
     @GetMapping("/export")
-    public ResponseEntity<?> exporterListes(@RequestParam String format) {
-        return stageService.exporterListes(format);
+    public ResponseEntity<?> exporterListes(@RequestParam String format,
+                                            @RequestParam(defaultValue = "stages") String type) {
+        return stageService.exporterListes(type, format);
     }
 
     /** Générer automatiquement la convention d’un stage */
@@ -251,6 +326,27 @@ public class AdminController {
         return stageService.genererConventionAuto(idStage);
     }
 
+    /**
+     * Conventions de tous les stages acceptés d'un groupe, en flux (format = zip ou pdf).
+     * L'en-tête X-Lot-Id permet de suivre l'avancement via /conventions/lots/{lotId}.
+     */
+    @GetMapping("/conventions/lot")
+    public ResponseEntity<StreamingResponseBody> genererConventionsEnLot(@RequestParam(defaultValue = "zip") String format,
+                                                                         @RequestParam(required = false) Long departementId,
+                                                                         @RequestParam(required = false) Long classeGroupeId,
+                                                                         @RequestParam(required = false) Long anneeScolaireId) {
+        return conventionLotService.exporter(format, departementId, classeGroupeId, anneeScolaireId);
+    }
+
+    @GetMapping("/conventions/lots/{lotId}")
+    public ResponseEntity<ConventionLotStatusDto> suivreLotConventions(@PathVariable String lotId) {
+        try {
+            return ResponseEntity.ok(conventionLotService.getStatut(lotId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     /**
      * Attribuer un encadrant à un étudiant
      */
@@ -283,14 +379,23 @@ public class AdminController {
             @RequestPart("types") List<String> types
     ) throws IOException {
         // files.size()==types.size()==2
-        stageService.ajouterDocuments(stageId, files, types);
+        try {
+            stageService.ajouterDocuments(stageId, files, types);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok("Documents ajoutés avec succès");
     }
 
 
     @GetMapping("/users")
-    public ResponseEntity<List<Utilisateur>> getAllUsers() {
-        return ResponseEntity.ok(utilisateurService.getAllUsers());
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String curseur,
+                                         @RequestParam(required = false) Integer taille) {
+        return pagination.lister(curseur, taille,
+                () -> utilisateurService.getAllUsers().stream().map(utilisateurService::toDto).toList(),
+                (apres, limite) -> utilisateurService.getAllUsers(apres, limite).stream()
+                        .map(utilisateurService::toDto).toList(),
+                UtilisateurDto::getId);
     }
 
 //    @GetMapping("/stages")
@@ -298,14 +403,30 @@ public class AdminController {
 //        return ResponseEntity.ok(stageService.getAllStages());
 //    }
 
+    /** Liste des stages par pages (curseur opaque), filtres facultatifs. */
     @GetMapping("/stages")
-    public List<StageDto> getAllStages() {
-        return stageService.findAllDtos();
+    public ResponseEntity<?> getAllStages(
+            @RequestParam(required = false) EtatStage etat,
+            @RequestParam(required = false) String filiere,
+            @RequestParam(required = false) Long encadrantId,
+            @RequestParam(required = false) Long departementId,
+            @RequestParam(required = false) Long classeGroupeId,
+            @RequestParam(required = false) Long anneeScolaireId,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
+        try {
+            return Pagination.repondre(stageService.listerStagesAdmin(etat, filiere, encadrantId,
+                    departementId, classeGroupeId, anneeScolaireId, curseur, taille));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/users/role/{role}")
-    public ResponseEntity<List<Utilisateur>> getUsersByRole(
-            @PathVariable("role") String roleStr) {
+    public ResponseEntity<?> getUsersByRole(
+            @PathVariable("role") String roleStr,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
 
         Role role;
         try {
@@ -313,7 +434,11 @@ public class AdminController {
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(utilisateurService.getByRole(role));
+        return pagination.lister(curseur, taille,
+                () -> utilisateurService.getByRole(role).stream().map(utilisateurService::toDto).toList(),
+                (apres, limite) -> utilisateurService.getByRole(role, apres, limite).stream()
+                        .map(utilisateurService::toDto).toList(),
+                UtilisateurDto::getId);
     }
 
 
@@ -337,6 +462,18 @@ public class AdminController {
     }
 
 
+    /**
+     * Affectation de plusieurs groupes en une requête (rentrée).
+     * dryRun=true : aperçu des étudiants et stages concernés, sans écriture.
+     */
+    @PostMapping("/assigner-encadrant-groupes")
+    public ResponseEntity<List<GroupAssignmentResult>> assignerEncadrantGroupes(
+            @RequestBody List<GroupAssignmentRequest> requests,
+            @RequestParam(defaultValue = "false") boolean dryRun) {
+        return ResponseEntity.ok(adminService.assignerEncadrantsParGroupes(requests, dryRun));
+    }
+
+
 //    @PostMapping("/assigner-encadrant-groupe")
 //    public ResponseEntity<?> assignerEncadrantGroupe(
 //            @RequestParam Long encadrantId,
@@ -369,6 +506,16 @@ public class AdminController {
 
 
 
+    /** Départements, classes / groupes et années scolaires en un appel ; 304 si If-None-Match correspond. */
+    @GetMapping("/references")
+    public ResponseEntity<ReferencesDto> references() {
+        ReferenceCacheService.Instantane references = adminService.references();
+        return ResponseEntity.ok()
+                .eTag(references.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(references.donnees());
+    }
+
     @GetMapping("/departements")
     public ResponseEntity<List<ReferenceDto>> listDepartements() {
         List<ReferenceDto> deps = adminService.listDepartements();
@@ -444,20 +591,25 @@ public class AdminController {
     // GET /encadrants -> renvoyer liste d'EncadrantDto (UTILE côté front)
     @GetMapping("/encadrants")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<EncadrantDto>> listEncadrants() {
-        List<EncadrantDto> list = encadrantRepository.findAll().stream()
-                .map(e -> {
-                    EncadrantDto d = new EncadrantDto();
-                    d.setId(e.getId());
-                    if (e.getUtilisateur() != null) d.setUtilisateurId(e.getUtilisateur().getId());
-                    d.setEmail(e.getEmail());
-                    d.setNom(e.getNom());
-                    d.setPrenom(e.getPrenom());
-                    d.setTelephone(e.getTelephone());
-                    d.setSpecialite(e.getSpecialite());
-                    return d;
-                }).toList();
-        return ResponseEntity.ok(list);
+    public ResponseEntity<?> listEncadrants(@RequestParam(required = false) String curseur,
+                                            @RequestParam(required = false) Integer taille) {
+        return pagination.lister(curseur, taille,
+                () -> encadrantRepository.findAll().stream().map(this::toEncadrantListeDto).toList(),
+                (apres, limite) -> encadrantRepository.findByIdGreaterThanOrderByIdAsc(apres, limite).stream()
+                        .map(this::toEncadrantListeDto).toList(),
+                EncadrantDto::getId);
+    }
+
+    private EncadrantDto toEncadrantListeDto(Encadrant e) {
+        EncadrantDto d = new EncadrantDto();
+        d.setId(e.getId());
+        if (e.getUtilisateur() != null) d.setUtilisateurId(e.getUtilisateur().getId());
+        d.setEmail(e.getEmail());
+        d.setNom(e.getNom());
+        d.setPrenom(e.getPrenom());
+        d.setTelephone(e.getTelephone());
+        d.setSpecialite(e.getSpecialite());
+        return d;
     }
 
 
@@ -6,8 +6,10 @@ import com.wbs.mymovie.estbm.model.*;
 import com.wbs.mymovie.estbm.model.enums.Role;
 import com.wbs.mymovie.estbm.service.*;
 import com.wbs.mymovie.estbm.util.JwtUtil;
+import com.wbs.mymovie.estbm.util.UtilisateurPrincipal;
 import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.*;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
@@ -18,19 +20,23 @@ import org.springframework.web.multipart.MultipartFile;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/stages/auth")
 public class AuthController {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
     @Autowired
     private EtudiantService etudiantService;
     @Autowired
     private UtilisateurService utilisateurService;
     @Autowired
     private JwtUtil jwtUtil;
+    @Autowired
+    private LoginService loginService;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
 
 
 
@@ -38,28 +44,41 @@ public class AuthController {
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
         String email = authentication.getName();
         Utilisateur user = utilisateurService.findByEmail(email);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok(utilisateurService.toDto(user));
     }
 
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest) {
+        CompletableFuture<Authentication> auth;
         try {
-            Authentication auth = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword())
-            );
+            // La vérification BCrypt tourne sur le pool "loginExecutor", pas sur le thread Tomcat
+            auth = loginService.authenticate(loginRequest.getEmail(), loginRequest.getPassword());
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Trop de connexions simultanées, réessayez"));
+        }
 
-            SecurityContextHolder.getContext().setAuthentication(auth);
+        return auth.<ResponseEntity<?>>thenApply(a -> {
+            // Le principal transporte le compte chargé par loadUserByUsername : pas de relecture
+            UtilisateurPrincipal.Compte user = ((UtilisateurPrincipal) a.getPrincipal()).getCompte();
 
             // Generate both tokens
-            String token = jwtUtil.generateToken(loginRequest.getEmail());
-            String refreshToken = jwtUtil.createRefreshToken(loginRequest.getEmail());
-
-            Utilisateur user = utilisateurService.findByEmail(loginRequest.getEmail());
-            return ResponseEntity.ok(new JwtResponse(token, refreshToken, user.getRole().name(), user));
-        } catch (BadCredentialsException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Email ou mot de passe invalide");
-        }
+            String token = jwtUtil.generateToken(user);
+            String refreshToken = refreshTokenService.emettre(user.email());
+
+            return ResponseEntity.ok(new JwtResponse(token, refreshToken, user.role().name(), utilisateurService.toDto(user)));
+        }).exceptionally(ex -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof BadCredentialsException) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Email ou mot de passe invalide");
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new CompletionException(cause);
+        });
     }
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody RegisterRequest registerRequest) {
@@ -109,25 +128,36 @@ public class AuthController {
         try {
             String refreshToken = request.getRefreshToken();
 
-            // Validate the refresh token
-            if (!jwtUtil.validateJwtToken(refreshToken)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-
-            // Extract claims from refresh token
+            // Validate + extract claims en un seul parsing (JwtException -> 401)
             Claims claims = jwtUtil.extractAllClaims(refreshToken);
             String email = claims.getSubject();
 
+            // Rotation : l'ancien refresh token est consommé et le nouveau émis dans la même transaction
+            String newRefreshToken = refreshTokenService.rotation(claims);
+
+            // Une seule lecture (ou aucune si l'utilisateur est dans le cache principal)
+            UtilisateurPrincipal.Compte user = utilisateurService.loadCached(email);
+
             // Generate new tokens
-            String newToken = jwtUtil.generateToken(email);
-            String newRefreshToken = jwtUtil.createRefreshToken(email);
+            String newToken = jwtUtil.generateToken(user);
 
-            Utilisateur user = utilisateurService.findByEmail(email);
-            return ResponseEntity.ok(new JwtResponse(newToken, newRefreshToken, user.getRole().name(), user));
+            return ResponseEntity.ok(new JwtResponse(newToken, newRefreshToken, user.role().name(), utilisateurService.toDto(user)));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
     }
+    /** Déconnexion : révoque toute la famille du refresh token présenté. */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody RefreshTokenRequest request) {
+        try {
+            Claims claims = jwtUtil.extractAllClaims(request.getRefreshToken());
+            refreshTokenService.revoquerFamille(claims);
+        } catch (Exception e) {
+            // token invalide ou expiré : rien à révoquer
+        }
+        return ResponseEntity.noContent().build();
+    }
+
 //    static class JwtResponse {
 //        private String token;
 //        private String role;
@@ -1,22 +1,26 @@
 package com.wbs.mymovie.estbm.controller;
 
+import com.wbs.mymovie.estbm.dto.DocumentDto;
 import com.wbs.mymovie.estbm.model.Document;
 import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.repository.DocumentRepository;
 import com.wbs.mymovie.estbm.repository.EncadrantRepository;
 import com.wbs.mymovie.estbm.service.DocumentService;
+import com.wbs.mymovie.estbm.service.FichierDiffusionService;
+import com.wbs.mymovie.estbm.util.Pagination;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 
 @RestController
@@ -32,15 +36,21 @@ public class DocumentController {
     @Autowired
     private EncadrantRepository encadrantRepository;
 
+    @Autowired
+    private FichierDiffusionService fichierDiffusionService;
+
+    @Autowired
+    private Pagination pagination;
+
     // Admin upload un document pour un étudiant
     @PostMapping("/admin/upload")
-    public ResponseEntity<Document> uploadDocument(
+    public ResponseEntity<DocumentDto> uploadDocument(
             @RequestParam Long etudiantId,
             @RequestParam String type,
             @RequestParam("file") MultipartFile file) {
         try {
             Document doc = documentService.uploadDocument(file, etudiantId, type);
-            return ResponseEntity.ok(doc);
+            return ResponseEntity.ok(documentService.toDto(doc));
         } catch (IOException e) {
             return ResponseEntity.status(500).build();
         }
@@ -48,38 +58,47 @@ public class DocumentController {
 
     // Étudiant récupère ses documents
     @GetMapping("/etudiant/mes-documents")
-    public ResponseEntity<List<Document>> getMesDocuments(Authentication authentication) {
+    public ResponseEntity<List<DocumentDto>> getMesDocuments(Authentication authentication) {
         String email = authentication.getName();
-        List<Document> documents = documentService.getDocumentsByStudentEmail(email);
+        List<DocumentDto> documents = documentService.getDocumentsByStudentEmail(email);
         return ResponseEntity.ok(documents);
     }
 
-    // Télécharger un document
+    // Télécharger un document (plages, ETag / 304, envoi sans copie)
     @GetMapping("/download/{id}")
-    public ResponseEntity<Resource> downloadDocument(@PathVariable Long id) {
+    public void downloadDocument(@PathVariable Long id,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
         Document document = documentService.getDocumentById(id);
+        String contentType = MediaTypeFactory.getMediaType(document.getNom())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
         try {
-            Path filePath = Paths.get(document.getCheminFichier());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + document.getNom() + "\"")
-                    .body(resource);
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            Path local = documentService.cheminLocal(document);
+            if (local != null) {
+                fichierDiffusionService.servirFichier(request, response, local, document.getNom(),
+                        contentType, documentService.empreinte(document));
+            } else {
+                fichierDiffusionService.servirFlux(response, documentService.ouvrirFlux(document),
+                        document.getNom(), contentType);
+            }
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
 
     // DocumentController.java
     @GetMapping("/encadrant/mes-documents")
-    public ResponseEntity<List<Document>> getMesDocumentsEncadrant(Authentication authentication) {
+    public ResponseEntity<?> getMesDocumentsEncadrant(Authentication authentication,
+                                                      @RequestParam(required = false) String curseur,
+                                                      @RequestParam(required = false) Integer taille) {
         String email = authentication.getName();
         Encadrant encadrant = encadrantRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Encadrant non trouvé"));
 
-        List<Document> documents = documentRepository.findByEncadrantId(encadrant.getId());
-        return ResponseEntity.ok(documents);
+        return pagination.lister(curseur, taille,
+                () -> documentRepository.findDtosByEncadrantId(encadrant.getId()),
+                (apres, limite) -> documentRepository.findDtosByEncadrantId(encadrant.getId(), apres, limite),
+                DocumentDto::getId);
     }
 }
\ No newline at end of file
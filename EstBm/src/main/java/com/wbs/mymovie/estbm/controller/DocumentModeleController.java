@@ -1,14 +1,24 @@
 package com.wbs.mymovie.estbm.controller;
 
 
+import com.itextpdf.text.DocumentException;
+import com.wbs.mymovie.estbm.dto.DocumentModeleDto;
+import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
 import com.wbs.mymovie.estbm.model.DocumentModele;
 import com.wbs.mymovie.estbm.service.DocumentModeleService;
+import com.wbs.mymovie.estbm.service.GenerationDocumentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/stages/documents")
@@ -17,10 +27,62 @@ public class DocumentModeleController {
     @Autowired
     private DocumentModeleService documentModeleService;
 
+    @Autowired
+    private GenerationDocumentService generationDocumentService;
+
     @GetMapping("/{type}")
-    public ResponseEntity<DocumentModele> getDocByType(@PathVariable String type) {
+    public ResponseEntity<DocumentModeleDto> getDocByType(@PathVariable String type) {
         return documentModeleService.getParType(type)
-                .map(ResponseEntity::ok)
+                .map(m -> ResponseEntity.ok(new DocumentModeleDto(m.getId(), m.getType())))
                 .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    // Admin dépose / remplace le fichier modèle d'un type
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/modeles/{type}")
+    public ResponseEntity<DocumentModeleDto> uploadModele(@PathVariable String type,
+                                                          @RequestParam("file") MultipartFile file) {
+        try {
+            DocumentModele modele = documentModeleService.enregistrer(type, file);
+            return ResponseEntity.ok(new DocumentModeleDto(modele.getId(), modele.getType()));
+        } catch (IOException e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    // Document d'un stage produit à partir du modèle (Convention, Attestation, Convocation...)
+    @GetMapping("/modeles/{type}/generer")
+    public ResponseEntity<?> genererDocument(@PathVariable String type,
+                                             @RequestParam Long stageId,
+                                             @RequestParam(defaultValue = "pdf") String format) {
+        try {
+            GenerationDocumentService.DocumentGenere doc = generationDocumentService.generer(type, stageId, format);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=" + type.toLowerCase() + "_" + stageId + "." + doc.extension())
+                    .contentType(MediaType.parseMediaType(doc.contentType()))
+                    .body(new ByteArrayResource(doc.contenu()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(404).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException | DocumentException e) {
+            return ResponseEntity.status(500).body("Erreur de génération : " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/modeles/{type}/fichier")
+    public ResponseEntity<Resource> downloadModele(@PathVariable String type) {
+        DocumentModele modele = documentModeleService.getParType(type).orElse(null);
+        if (modele == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + type + "\"")
+                    .body(new InputStreamResource(documentModeleService.ouvrir(modele)));
+        } catch (IOException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
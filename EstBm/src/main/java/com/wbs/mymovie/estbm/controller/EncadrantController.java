@@ -13,6 +13,7 @@ import com.wbs.mymovie.estbm.service.CommentaireRapportService;
 import com.wbs.mymovie.estbm.service.EncadrantService;
 import com.wbs.mymovie.estbm.service.StageService;
 import com.wbs.mymovie.estbm.service.UtilisateurService;
+import com.wbs.mymovie.estbm.util.Pagination;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
@@ -44,13 +45,19 @@ public class EncadrantController {
 
     @Autowired private CommentaireRapportService service;
     @Autowired private UtilisateurService utilisateurService;
+    @Autowired private Pagination pagination;
 
     @Autowired
     private Cloudinary cloudinary;
 
     @GetMapping("/{id}/stages")
-    public ResponseEntity<List<Stage>> getStagesByEncadrant(@PathVariable Long id) {
-        return ResponseEntity.ok(stageService.getStagesParEncadrant(id));
+    public ResponseEntity<?> getStagesByEncadrant(@PathVariable Long id,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
+        return pagination.lister(curseur, taille,
+                () -> stageService.getStagesParEncadrant(id),
+                (apres, limite) -> stageService.getStagesParEncadrant(id, apres, limite),
+                StageDto::getId);
     }
 
     @PutMapping("/{idEncadrant}/stage/{idStage}/valider")
@@ -157,12 +164,16 @@ public class EncadrantController {
 
 
     @GetMapping("/me/demandes")
-    public ResponseEntity<List<Stage>> getMesDemandes(Authentication authentication) {
+    public ResponseEntity<?> getMesDemandes(Authentication authentication,
+                                            @RequestParam(required = false) String curseur,
+                                            @RequestParam(required = false) Integer taille) {
         String email = authentication.getName();
         Encadrant enc = encadrantRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Encadrant non trouvé"));
-        List<Stage> demandes = stageService.getDemandesParEncadrant(enc.getId());
-        return ResponseEntity.ok(demandes);
+        return pagination.lister(curseur, taille,
+                () -> stageService.getDemandesParEncadrant(enc.getId()),
+                (apres, limite) -> stageService.getDemandesParEncadrant(enc.getId(), apres, limite),
+                StageDto::getId);
     }
 
 
@@ -188,20 +199,24 @@ public class EncadrantController {
 
 
     @GetMapping("/me/commentaires")
-    public ResponseEntity<List<CommentaireRapport>> listComments(
+    public ResponseEntity<?> listComments(
             Authentication auth,
-            @RequestParam(required = false) String etudiant) {
+            @RequestParam(required = false) String etudiant,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
 
         String email = auth.getName();
         Utilisateur user = utilisateurService.findByEmail(email);
         Encadrant enc = encadrantRepository.findByUtilisateur(user)
                 .orElseThrow(() -> new RuntimeException("Encadrant non trouvé"));
-        List<CommentaireRapport> comments = service.listComments(enc.getId(), etudiant);
-        return ResponseEntity.ok(comments);
+        return pagination.lister(curseur, taille,
+                () -> service.listComments(enc.getId(), etudiant),
+                (apres, limite) -> service.listComments(enc.getId(), etudiant, apres, limite),
+                CommentaireRapportDto::getId);
     }
 
     @PostMapping("/{rapportId}/commentaire")
-    public ResponseEntity<CommentaireRapport> addComment(
+    public ResponseEntity<CommentaireRapportDto> addComment(
             Authentication auth,
             @PathVariable Long rapportId,
             @RequestBody Map<String, String> body) {
@@ -212,7 +227,7 @@ public class EncadrantController {
                 .orElseThrow(() -> new RuntimeException("Encadrant non trouvé"));
 
         String texte = body.get("texte");
-        CommentaireRapport c = service.addComment(rapportId, enc.getId(), texte);
+        CommentaireRapportDto c = service.addComment(rapportId, enc.getId(), texte);
         return ResponseEntity.ok(c);
     }
 
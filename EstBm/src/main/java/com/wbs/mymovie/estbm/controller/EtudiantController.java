@@ -1,6 +1,7 @@
 package com.wbs.mymovie.estbm.controller;
 
 import com.wbs.mymovie.estbm.dto.DemandeStageDto;
+import com.wbs.mymovie.estbm.dto.EtudiantProfileDto;
 import com.wbs.mymovie.estbm.dto.RapportDto;
 import com.wbs.mymovie.estbm.dto.StageDto;
 import com.wbs.mymovie.estbm.dto.UpdateProfileDto;
@@ -41,7 +42,7 @@ public class EtudiantController {
 
 
     @GetMapping("/{id}")
-    public ResponseEntity<Etudiant> getEtudiant(@PathVariable Long id) {
+    public ResponseEntity<EtudiantProfileDto> getEtudiant(@PathVariable Long id) {
         return etudiantService.getById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -50,7 +51,7 @@ public class EtudiantController {
     @PutMapping("/{id}/profile")
     public ResponseEntity<?> updateProfile(@PathVariable Long id, @ModelAttribute UpdateProfileDto dto) {
         Etudiant updated = etudiantService.updateProfile(id, dto);
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok(etudiantService.map(updated));
     }
 
 
@@ -67,7 +68,7 @@ public class EtudiantController {
 
 
     @PostMapping("/demande")
-    public ResponseEntity<Stage> creerDemande(@RequestBody DemandeStageDto dto, Authentication authentication) {
+    public ResponseEntity<StageDto> creerDemande(@RequestBody DemandeStageDto dto, Authentication authentication) {
         // Récupérer l'étudiant authentifié
         String email = authentication.getName();
         Etudiant etudiant = etudiantRepository.findByEmail(email)
@@ -1,24 +1,25 @@
 package com.wbs.mymovie.estbm.controller;
 
+import com.wbs.mymovie.estbm.dto.DetailSoutenanceDto;
+import com.wbs.mymovie.estbm.dto.EtudiantProfileDto;
 import com.wbs.mymovie.estbm.dto.PlanificationRequest;
 import com.wbs.mymovie.estbm.dto.PlanificationSoutenanceResponse;
 import com.wbs.mymovie.estbm.dto.SoutenanceEtudiantSlotDto;
 import com.wbs.mymovie.estbm.model.DetailSoutenance;
-import com.wbs.mymovie.estbm.model.Etudiant;
 import com.wbs.mymovie.estbm.model.PlanificationSoutenance;
 import com.wbs.mymovie.estbm.repository.DetailSoutenanceRepository;
 import com.wbs.mymovie.estbm.repository.EtudiantRepository;
+import com.wbs.mymovie.estbm.service.EtudiantService;
 import com.wbs.mymovie.estbm.service.PlanificationSoutenanceService;
+import com.wbs.mymovie.estbm.util.Pagination;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -29,6 +30,8 @@ public class PlanificationSoutenanceController {
     private final PlanificationSoutenanceService service;
     private final EtudiantRepository etudiantRepository;
     private final DetailSoutenanceRepository detailSoutenanceRepository;
+    private final EtudiantService etudiantService;
+    private final Pagination pagination;
 
     // ADMIN crée une planification
     @PostMapping("/create")
@@ -41,8 +44,12 @@ public class PlanificationSoutenanceController {
 
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<PlanificationSoutenanceResponse>> all() {
-        return ResponseEntity.ok(service.getAll());
+    public ResponseEntity<?> all(@RequestParam(required = false) String curseur,
+                                 @RequestParam(required = false) Integer taille) {
+        return pagination.lister(curseur, taille,
+                service::getAll,
+                service::getAll,
+                PlanificationSoutenanceResponse::getId);
     }
 
 
@@ -99,9 +106,8 @@ public class PlanificationSoutenanceController {
 
 
     @GetMapping("/planifications/encadrant/{id}/export")
-    public ResponseEntity<InputStreamResource> exportToExcel(@PathVariable Long id) throws IOException {
-        List<PlanificationSoutenance> planifs = service.getPlanificationsByEncadrant(id);
-        ByteArrayInputStream in = service.exportPlanificationsToExcel(planifs);
+    public ResponseEntity<StreamingResponseBody> exportToExcel(@PathVariable Long id) {
+        StreamingResponseBody body = service.exportPlanificationsToExcel(id);
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Disposition", "attachment; filename=planifications.xlsx");
@@ -110,7 +116,7 @@ public class PlanificationSoutenanceController {
                 .ok()
                 .headers(headers)
                 .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(in));
+                .body(body);
     }
 
 
@@ -118,34 +124,36 @@ public class PlanificationSoutenanceController {
     // export all planifs for an encadrant
     @GetMapping("/encadrant/{id}/export")
     @PreAuthorize("hasRole('ENCADRANT') or hasRole('ADMIN')")
-    public ResponseEntity<InputStreamResource> exportPlanifsForEncadrant(@PathVariable Long id) throws IOException {
-        ByteArrayInputStream in = service.exportPlanificationsForEncadrantToExcel(id);
+    public ResponseEntity<StreamingResponseBody> exportPlanifsForEncadrant(@PathVariable Long id) {
+        StreamingResponseBody body = service.exportPlanificationsForEncadrantToExcel(id);
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Disposition", "attachment; filename=planifications_encadrant_" + id + ".xlsx");
         return ResponseEntity.ok()
                 .headers(headers)
                 .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(in));
+                .body(body);
     }
 
     // export single planification details
     @GetMapping("/{planifId}/export")
     @PreAuthorize("hasRole('ENCADRANT') or hasRole('ADMIN')")
-    public ResponseEntity<InputStreamResource> exportPlanifDetails(@PathVariable Long planifId) throws IOException {
-        ByteArrayInputStream in = service.exportPlanificationDetailsToExcel(planifId);
+    public ResponseEntity<StreamingResponseBody> exportPlanifDetails(@PathVariable Long planifId) {
+        StreamingResponseBody body = service.exportPlanificationDetailsToExcel(planifId);
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Disposition", "attachment; filename=planification_" + planifId + ".xlsx");
         return ResponseEntity.ok()
                 .headers(headers)
                 .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .body(new InputStreamResource(in));
+                .body(body);
     }
 
 
     @GetMapping("/admin/class-groups/{classGroupId}/etudiants")
     @PreAuthorize("hasRole('ADMIN') or hasRole('ENCADRANT')")
-    public ResponseEntity<List<Etudiant>> getEtudiantsByClassGroup(@PathVariable Long classGroupId) {
-        return ResponseEntity.ok(etudiantRepository.findByClasseGroupeId(classGroupId));
+    public ResponseEntity<List<EtudiantProfileDto>> getEtudiantsByClassGroup(@PathVariable Long classGroupId) {
+        return ResponseEntity.ok(etudiantRepository.findByClasseGroupeId(classGroupId).stream()
+                .map(etudiantService::map)
+                .toList());
     }
 
 
@@ -160,7 +168,7 @@ public class PlanificationSoutenanceController {
 
     @PutMapping("/details/{id}")
     @PreAuthorize("hasRole('ENCADRANT')")
-    public ResponseEntity<DetailSoutenance> updateDetail(@PathVariable Long id, @RequestBody DetailSoutenance detail) {
+    public ResponseEntity<DetailSoutenanceDto> updateDetail(@PathVariable Long id, @RequestBody DetailSoutenance detail) {
         return ResponseEntity.ok(service.updateDetail(id, detail));
     }
 
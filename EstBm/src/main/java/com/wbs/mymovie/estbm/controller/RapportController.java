@@ -32,27 +32,30 @@
 package com.wbs.mymovie.estbm.controller;
 
 import com.wbs.mymovie.estbm.dto.RapportDetailsDto;
+import com.wbs.mymovie.estbm.dto.RapportIngestStatusDto;
 import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
 import com.wbs.mymovie.estbm.model.Etudiant;
 import com.wbs.mymovie.estbm.model.Rapport;
 import com.wbs.mymovie.estbm.model.Stage;
 import com.wbs.mymovie.estbm.repository.RapportRepository;
+import com.wbs.mymovie.estbm.service.RapportFichierService;
+import com.wbs.mymovie.estbm.service.RapportIngestService;
 import com.wbs.mymovie.estbm.service.RapportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.*;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.wbs.mymovie.estbm.service.StageService;
 
+import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 
@@ -70,6 +73,12 @@ public class RapportController {
     @Autowired
     private RapportService rapportService;
 
+    @Autowired
+    private RapportFichierService rapportFichierService;
+
+    @Autowired
+    private RapportIngestService rapportIngestService;
+
     /**
      * Soumettre un rapport pour un stage donné.
      */
@@ -93,90 +102,52 @@ public class RapportController {
 
 
 
+    /**
+     * Dépôt asynchrone : le fichier est mis en attente sur disque et traité par le
+     * pipeline d'ingestion. Répond 202 avec l'identifiant du job à suivre.
+     */
     @PostMapping("/{idStage}")
-    public ResponseEntity<String> uploadRapport(
+    public ResponseEntity<?> uploadRapport(
             @PathVariable Long idStage,
             @RequestParam("file") MultipartFile file) {
 
-        // Validation du fichier
-        if (file.isEmpty()) {
-            return ResponseEntity.badRequest().body("Fichier vide");
-        }
-
-        if (!"application/pdf".equals(file.getContentType())) {
-            return ResponseEntity.badRequest().body("Seuls les PDF sont acceptés");
+        try {
+            RapportIngestStatusDto job = rapportIngestService.soumettre(idStage, file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/stages/rapports/ingest/" + job.getJobId()))
+                    .body(job);
+        } catch (IllegalArgumentException e) {
+            // Fichier vide ou non PDF
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body("Trop de dépôts en cours, réessayez");
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Erreur: " + e.getMessage());
         }
+    }
 
+    /** Suivi d'un dépôt (statut, étape, tentatives), réservé à l'étudiant et à l'encadrant du stage. */
+    @GetMapping("/ingest/{jobId}")
+    public ResponseEntity<RapportIngestStatusDto> getIngestStatus(@PathVariable String jobId,
+                                                                  Authentication authentication) {
         try {
-            String result = stageService.soumettreRapport(idStage, file);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("Erreur: " + e.getMessage());
+            return ResponseEntity.ok(rapportIngestService.getStatut(jobId, authentication.getName()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
     }
 
 
 //
 //    @GetMapping("/{idStage}/download")
-//    @PreAuthorize("hasRole('ENCADRANT') or hasRole('ETUDIANT')")
-//    public ResponseEntity<Resource> downloadRapport(@PathVariable Long idStage) {
-//        Rapport rapport = rapportRepository.findByStageId(idStage)
-//                .orElseThrow(() -> new ResourceNotFoundException("Rapport non trouvé"));
-//
-//        // Nouvelle approche : décoder l'URL si elle est en base64
-//        String decodedUrl = decodeCloudinaryUrl(rapport.getCloudinaryUrl());
-//
-//        RestTemplate restTemplate = new RestTemplate();
-//        ResponseEntity<byte[]> response = restTemplate.exchange(
-//                decodedUrl,
-//                HttpMethod.GET,
-//                null,
-//                byte[].class
-//        );
-//
-//        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
-//            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-//        }
-//
-//        ByteArrayResource resource = new ByteArrayResource(response.getBody());
-//
-//        // Générer un nom de fichier valide avec extension .pdf
-//        String fileName = rapport.getNomFichier();
-//        if (fileName == null || fileName.isEmpty()) {
-//            fileName = "rapport_stage";
-//        }
-//
-//        // Supprimer l'extension existante si présente
-//        fileName = fileName.replaceAll("\\.(pdf|docx?|txt)$", "");
-//
-//        // Ajouter systématiquement l'extension .pdf
-//        fileName += ".pdf";
-//
-//        // Nettoyer le nom de fichier
-//        fileName = fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
-//
-//        return ResponseEntity.ok()
-//                .header(HttpHeaders.CONTENT_DISPOSITION,
-//                        "attachment; filename=\"" + fileName + "\"")
-//                .contentType(MediaType.APPLICATION_PDF)
-//                .contentLength(response.getBody().length)
-//                .body(resource);
-//    }
-//
-//    private String decodeCloudinaryUrl(String url) {
-//        if (url.startsWith("data:application/pdf;base64,")) {
-//            String base64Data = url.substring(url.indexOf(",") + 1);
-//            byte[] decodedBytes = Base64.getDecoder().decode(base64Data);
-//            return new String(decodedBytes, StandardCharsets.UTF_8);
-//        }
-//        return url;
-//    }
-
-
-
-    @GetMapping("/{idStage}/download")
     @PreAuthorize("hasRole('ENCADRANT') or hasRole('ETUDIANT')")
-    public ResponseEntity<Resource> downloadRapport(@PathVariable Long idStage) {
+    public void downloadRapport(@PathVariable Long idStage,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
         // 1. Load the Rapport and its Stage → Etudiant
         Rapport rapport = rapportRepository.findByStageId(idStage)
                 .orElseThrow(() -> new ResourceNotFoundException("Rapport non trouvé"));
@@ -185,39 +156,21 @@ public class RapportController {
         String studentName = (etu.getNom() + "_" + etu.getPrenom())
                 .replaceAll("[^a-zA-Z0-9_]", "_");
 
-        // 2. Decode URL if base64-encoded, otherwise use as-is
-        String decodedUrl = decodeCloudinaryUrl(rapport.getCloudinaryUrl());
-
-        // 3. Fetch the file bytes from Cloudinary (or wherever)
-        RestTemplate rest = new RestTemplate();
-        ResponseEntity<byte[]> response = rest.exchange(
-                decodedUrl, HttpMethod.GET, null, byte[].class
-        );
-        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
-
-        ByteArrayResource resource = new ByteArrayResource(response.getBody());
-
-        // 4. Build the download filename
+        // 2. Build the download filename
         String baseName = "Rapport_" + studentName;
         String filename = baseName + ".pdf";
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_PDF)
-                .contentLength(response.getBody().length)
-                .body(resource);
-    }
-
-    // unchanged helper
-    private String decodeCloudinaryUrl(String url) {
-        if (url.startsWith("data:application/pdf;base64,")) {
-            String base64Data = url.substring(url.indexOf(",") + 1);
-            byte[] decodedBytes = Base64.getDecoder().decode(base64Data);
-            return new String(decodedBytes, StandardCharsets.UTF_8);
+        // 3. Disk cache, or streamed from Cloudinary while the cache fills on a miss
+        //    (Range → 206, If-None-Match → 304)
+        try {
+            rapportFichierService.servir(rapport, filename, request, response);
+        } catch (IOException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.reset();
+            response.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
         }
-        return url;
     }
 
     @GetMapping("/{idStage}/url")
@@ -1,14 +1,28 @@
 package com.wbs.mymovie.estbm.controller;
 
 import com.wbs.mymovie.estbm.dto.DemandeStageDto;
+import com.wbs.mymovie.estbm.dto.DocumentDto;
+import com.wbs.mymovie.estbm.dto.RapportIngestStatusDto;
+import com.wbs.mymovie.estbm.dto.StageDto;
 import com.wbs.mymovie.estbm.model.Document;
 import com.wbs.mymovie.estbm.model.Etudiant;
 import com.wbs.mymovie.estbm.model.Stage;
 import com.wbs.mymovie.estbm.repository.EtudiantRepository;
 import com.wbs.mymovie.estbm.repository.StageRepository;
+import com.itextpdf.text.DocumentException;
+import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
+import com.wbs.mymovie.estbm.service.ConventionCacheService;
+import com.wbs.mymovie.estbm.service.FichierDiffusionService;
+import com.wbs.mymovie.estbm.service.RapportIngestService;
 import com.wbs.mymovie.estbm.service.StageService;
+import com.wbs.mymovie.estbm.util.Pagination;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -16,6 +30,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -31,17 +46,31 @@ public class StageController {
     @Autowired
     private EtudiantRepository etudiantRepository;
 
+    @Autowired
+    private RapportIngestService rapportIngestService;
+
+    @Autowired
+    private FichierDiffusionService fichierDiffusionService;
+
+    @Autowired
+    private Pagination pagination;
+
 
 
 
     @GetMapping("/etudiant/{id}")
-    public List<Stage> getStagesByEtudiant(@PathVariable Long id) {
+    public List<StageDto> getStagesByEtudiant(@PathVariable Long id) {
         return stageService.getStagesParEtudiant(id);
     }
 
     @GetMapping("/encadrant/{id}")
-    public List<Stage> getStagesByEncadrant(@PathVariable Long id) {
-        return stageService.getStagesParEncadrant(id);
+    public ResponseEntity<?> getStagesByEncadrant(@PathVariable Long id,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
+        return pagination.lister(curseur, taille,
+                () -> stageService.getStagesParEncadrant(id),
+                (apres, limite) -> stageService.getStagesParEncadrant(id, apres, limite),
+                StageDto::getId);
     }
 
 
@@ -51,20 +80,47 @@ public class StageController {
     }
 
     @GetMapping("/convention")
-    public ResponseEntity<Resource> telechargerConvention(@RequestParam Long idStage) {
-        return stageService.genererEtTelechargerConvention(idStage);
+    public void telechargerConvention(@RequestParam Long idStage,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        try {
+            // 304 décidé sur la révision (champs du stage) avant toute lecture de cache ou génération
+            ConventionCacheService.Convention convention = stageService.genererConvention(idStage,
+                    revision -> fichierDiffusionService.repondreSiNonModifie(request, response, revision));
+            if (convention == null) {
+                return;
+            }
+            fichierDiffusionService.servirOctets(request, response, convention.contenu(),
+                    "convention_" + idStage + ".pdf", MediaType.APPLICATION_PDF_VALUE, null, convention.revision());
+        } catch (ResourceNotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        } catch (DocumentException e) {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Erreur de génération PDF");
+        }
     }
 
 
     @PostMapping("/rapport")
-    public ResponseEntity<String> soumettreRapport(@RequestParam Long idStage,
-                                                   @RequestParam MultipartFile rapport) {
-        return ResponseEntity.ok(stageService.soumettreRapport(idStage, rapport));
+    public ResponseEntity<?> soumettreRapport(@RequestParam Long idStage,
+                                              @RequestParam MultipartFile rapport) throws IOException {
+        // Même pipeline asynchrone et mêmes réponses que POST /stages/rapports/{idStage}
+        try {
+            RapportIngestStatusDto job = rapportIngestService.soumettre(idStage, rapport);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/stages/rapports/ingest/" + job.getJobId()))
+                    .body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body("Trop de dépôts en cours, réessayez");
+        }
     }
 
     // Nouveaux endpoints pour la gestion des documents
     @GetMapping("/{stageId}/documents")
-    public ResponseEntity<List<Document>> getDocumentsDuStage(@PathVariable Long stageId) {
+    public ResponseEntity<List<DocumentDto>> getDocumentsDuStage(@PathVariable Long stageId) {
         return ResponseEntity.ok(stageService.getDocumentsByStageId(stageId));
     }
 
@@ -79,7 +135,11 @@ public class StageController {
             @RequestPart("files") List<MultipartFile> files,
             @RequestPart("types") List<String> types
     ) throws IOException {
-        stageService.ajouterDocuments(stageId, files, types);
+        try {
+            stageService.ajouterDocuments(stageId, files, types);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok("Documents ajoutés");
     }
 
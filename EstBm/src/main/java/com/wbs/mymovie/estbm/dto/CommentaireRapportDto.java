@@ -0,0 +1,55 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Commentaire d'un rapport, avec juste ce qu'affiche le front :
+ * rapport → stage → étudiant (nom, prénom) et encadrant (id, nom, prénom).
+ */
+@Data
+@NoArgsConstructor
+public class CommentaireRapportDto {
+    private Long id;
+    private String texte;
+    private LocalDateTime dateCreation;
+    private RapportRef rapport;
+    private Personne encadrant;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Personne {
+        private Long id;
+        private String nom;
+        private String prenom;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class StageRef {
+        private Personne etudiant;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RapportRef {
+        private Long id;
+        private StageRef stage;
+    }
+
+    public CommentaireRapportDto(Long id, String texte, LocalDateTime dateCreation, Long rapportId,
+                                 Long etudiantId, String etudiantNom, String etudiantPrenom,
+                                 Long encadrantId, String encadrantNom, String encadrantPrenom) {
+        this.id = id;
+        this.texte = texte;
+        this.dateCreation = dateCreation;
+        this.rapport = new RapportRef(rapportId, new StageRef(new Personne(etudiantId, etudiantNom, etudiantPrenom)));
+        this.encadrant = new Personne(encadrantId, encadrantNom, encadrantPrenom);
+    }
+}
@@ -0,0 +1,17 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ConventionLotStatusDto {
+    private String lotId;
+    private String format;                // zip ou pdf
+    private String statut;                // EN_COURS, TERMINE, ECHEC
+    private int total;
+    private int generees;
+    private String message;
+    private LocalDateTime dateDebut;
+    private LocalDateTime dateMaj;
+}
@@ -0,0 +1,19 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DetailSoutenanceDto {
+    private Long id;
+    private String sujet;
+    private LocalDate dateSoutenance;
+    private LocalTime heureDebut;
+    private LocalTime heureFin;
+}
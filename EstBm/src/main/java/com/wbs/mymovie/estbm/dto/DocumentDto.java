@@ -0,0 +1,19 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Métadonnées d'un document (sans chemin ni référence de stockage).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DocumentDto {
+    private Long id;
+    private String nom;
+    private String type;
+    private Long stageId;
+    private Long etudiantId;
+}
@@ -0,0 +1,13 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DocumentModeleDto {
+    private Long id;
+    private String type;
+}
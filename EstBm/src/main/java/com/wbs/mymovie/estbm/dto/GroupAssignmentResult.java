@@ -0,0 +1,19 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GroupAssignmentResult {
+    private Long encadrantId;
+    private Long departementId;
+    private Long classeGroupeId;
+    private Long anneeScolaireId;
+
+    private boolean dryRun;
+    private int etudiantsConcernes;      // étudiants du groupe
+    private long etudiantsDejaAffectes;  // déjà rattachés à cet encadrant (aperçu)
+    private long stagesOuverts;          // stages ouverts dont l'encadrant change
+    private List<Long> etudiantIds;
+}
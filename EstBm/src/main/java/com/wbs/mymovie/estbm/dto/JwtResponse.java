@@ -1,14 +1,13 @@
 package com.wbs.mymovie.estbm.dto;
 
-import com.wbs.mymovie.estbm.model.Utilisateur;
 
 public class JwtResponse {
     private String token;
     private String refreshToken; // Add this
     private String role;
-    private Utilisateur user;
+    private UtilisateurDto user;
 
-    public JwtResponse(String token, String refreshToken, String role, Utilisateur user) {
+    public JwtResponse(String token, String refreshToken, String role, UtilisateurDto user) {
         this.token = token;
         this.refreshToken = refreshToken;
         this.role = role;
@@ -23,5 +22,5 @@ public class JwtResponse {
     // Existing getters...
     public String getToken() { return token; }
     public String getRole() { return role; }
-    public Utilisateur getUser() { return user; }
+    public UtilisateurDto getUser() { return user; }
 }
\ No newline at end of file
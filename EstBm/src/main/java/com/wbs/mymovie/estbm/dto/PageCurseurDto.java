@@ -0,0 +1,20 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page d'une liste parcourue par curseur : curseurSuivant est opaque,
+ * à renvoyer tel quel pour obtenir la page suivante (null en fin de liste).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PageCurseurDto<T> {
+    private List<T> elements;
+    private String curseurSuivant;
+    private boolean suite;
+}
@@ -0,0 +1,20 @@
+package com.wbs.mymovie.estbm.dto;
+
+import com.wbs.mymovie.estbm.model.enums.StatutIngestRapport;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class RapportIngestStatusDto {
+    private String jobId;
+    private Long stageId;
+    private String nomFichier;
+    private StatutIngestRapport statut;
+    private String etape;                 // SPOOL, UPLOAD, ENREGISTREMENT, NETTOYAGE
+    private int tentatives;
+    private String message;
+    private LocalDateTime prochaineTentative;
+    private LocalDateTime dateCreation;
+    private LocalDateTime dateMaj;
+}
@@ -0,0 +1,19 @@
+package com.wbs.mymovie.estbm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/** Instantané des données de référence, servi en un seul appel (ETag fort). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReferencesDto {
+    private List<ReferenceDto> departements;
+    private List<ReferenceDto> classesGroupes;
+    private Map<Long, List<ReferenceDto>> classesParDepartement;
+    private List<ReferenceDto> anneesScolaires;
+}
@@ -23,6 +23,7 @@ public class StageDto {
     private LocalDate dateFin;
     private EtatStage etat;
     private LocalDateTime dateCreation;
+    private String note;
     private RapportDto rapport;
 
 
@@ -52,6 +53,33 @@ public class StageDto {
         this.dateCreation = dateCreation;
     }
 
+    /** Projection complète : note et rapport joint dans la même requête (rapport null si aucun). */
+    public StageDto(
+            Long id,
+            String sujet,
+            String entreprise,
+            String adresseEntreprise,
+            String telephoneEntreprise,
+            String representantEntreprise,
+            String filiere,
+            LocalDate dateDebut,
+            LocalDate dateFin,
+            EtatStage etat,
+            LocalDateTime dateCreation,
+            String note,
+            Long rapportId,
+            String rapportNom,
+            LocalDate rapportDateDepot,
+            String rapportUrl
+    ) {
+        this(id, sujet, entreprise, adresseEntreprise, telephoneEntreprise, representantEntreprise,
+                filiere, dateDebut, dateFin, etat, dateCreation);
+        this.note = note;
+        if (rapportId != null) {
+            this.rapport = new RapportDto(rapportId, rapportNom, rapportDateDepot, id, rapportUrl);
+        }
+    }
+
 
 }
 
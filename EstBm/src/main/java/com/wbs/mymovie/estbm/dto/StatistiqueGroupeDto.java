@@ -0,0 +1,19 @@
+package com.wbs.mymovie.estbm.dto;
+
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatistiqueGroupeDto {
+    private Long departementId;
+    private Long classeGroupeId;
+    private Long anneeScolaireId;
+    private Map<EtatStage, Long> parEtat;
+    private long total;
+}
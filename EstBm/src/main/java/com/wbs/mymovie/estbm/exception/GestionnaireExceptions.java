@@ -0,0 +1,23 @@
+package com.wbs.mymovie.estbm.exception;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Traduction commune des exceptions métier en réponses HTTP, pour que les
+ * contrôleurs gardent leur signature typée sans try/catch.
+ */
+@RestControllerAdvice
+public class GestionnaireExceptions {
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> requeteInvalide(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<String> introuvable(ResourceNotFoundException e) {
+        return ResponseEntity.status(404).body(e.getMessage());
+    }
+}
@@ -1,6 +1,10 @@
 // src/main/java/com/wbs/mymovie/estbm/exception/ResourceNotFoundException.java
 package com.wbs.mymovie.estbm.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
 public class ResourceNotFoundException extends RuntimeException {
     public ResourceNotFoundException(String message) {
         super(message);
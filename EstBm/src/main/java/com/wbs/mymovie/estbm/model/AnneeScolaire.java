@@ -11,7 +11,8 @@ import java.util.List;
 @NoArgsConstructor @AllArgsConstructor
 public class AnneeScolaire {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "annees_scolaires_seq")
+    @SequenceGenerator(name = "annees_scolaires_seq", sequenceName = "annees_scolaires_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -12,7 +12,8 @@ import java.util.List;
 @NoArgsConstructor @AllArgsConstructor
 public class ClasseGroupe {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "classes_groupes_seq")
+    @SequenceGenerator(name = "classes_groupes_seq", sequenceName = "classes_groupes_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
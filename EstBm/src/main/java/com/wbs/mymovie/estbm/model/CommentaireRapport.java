@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CommentaireRapport {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "commentaires_rapport_seq")
+    @SequenceGenerator(name = "commentaires_rapport_seq", sequenceName = "commentaires_rapport_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
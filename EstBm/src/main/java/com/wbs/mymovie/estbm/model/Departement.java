@@ -38,7 +38,8 @@ import java.time.LocalDateTime;
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 public class Departement {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "departements_seq")
+    @SequenceGenerator(name = "departements_seq", sequenceName = "departements_seq", allocationSize = 50)
     private Long id;
     @Column(nullable = false, unique = true)
     private String nom;
@@ -19,7 +19,8 @@ import java.time.LocalTime;
 public class DetailSoutenance {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detail_soutenance_seq")
+    @SequenceGenerator(name = "detail_soutenance_seq", sequenceName = "detail_soutenance_seq", allocationSize = 50)
     private Long id;
 
     private String sujet;
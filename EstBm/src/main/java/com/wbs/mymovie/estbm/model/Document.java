@@ -8,12 +8,14 @@ import lombok.Setter;
 @Getter @Setter
 public class Document {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_seq")
+    @SequenceGenerator(name = "document_seq", sequenceName = "document_seq", allocationSize = 50)
     private Long id;
 
     private String nom;
     private String type; // CONVENTION, ASSURANCE, DEMANDE
-    private String cheminFichier;
+    private String cheminFichier; // anciens documents (chemin disque direct)
+    private String blobRef;       // référence de stockage "backend:clé" (BlobStorageService)
 
     @ManyToOne
     @JoinColumn(name = "stage_id")
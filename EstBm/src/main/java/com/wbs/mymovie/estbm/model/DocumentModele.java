@@ -15,10 +15,13 @@ import lombok.Setter;
 public class DocumentModele {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documents_modeles_seq")
+    @SequenceGenerator(name = "documents_modeles_seq", sequenceName = "documents_modeles_seq", allocationSize = 50)
     private Long id;
 
     private String type; // Convention, Attestation
 
-    private String templatePath;
+    private String templatePath; // anciens modèles (chemin disque direct)
+
+    private String blobRef;      // référence de stockage "backend:clé" (BlobStorageService)
 }
@@ -20,7 +20,8 @@ import java.util.List;
 public class Encadrant {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "encadrants_seq")
+    @SequenceGenerator(name = "encadrants_seq", sequenceName = "encadrants_seq", allocationSize = 50)
     private Long id;
 
     private String nom;
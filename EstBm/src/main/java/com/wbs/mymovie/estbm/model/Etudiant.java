@@ -21,7 +21,8 @@ import com.wbs.mymovie.estbm.model.Document;
 public class Etudiant {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "etudiants_seq")
+    @SequenceGenerator(name = "etudiants_seq", sequenceName = "etudiants_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -19,7 +19,8 @@ import java.util.List;
 public class PlanificationSoutenance {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "planification_soutenance_seq")
+    @SequenceGenerator(name = "planification_soutenance_seq", sequenceName = "planification_soutenance_seq", allocationSize = 50)
     private Long id;
 
     private LocalDate dateSoutenance;
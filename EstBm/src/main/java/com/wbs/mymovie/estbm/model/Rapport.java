@@ -45,13 +45,15 @@ import java.time.LocalDate;
 @NoArgsConstructor
 public class Rapport {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rapport_seq")
+    @SequenceGenerator(name = "rapport_seq", sequenceName = "rapport_seq", allocationSize = 50)
     private Long id;
 
     private String nomFichier;
     private LocalDate dateDepot;
     private String cloudinaryUrl; // Stocke l'URL Cloudinary
     private String publicId; // ID unique Cloudinary
+    private String blobRef;  // référence de stockage "backend:clé" (BlobStorageService)
 
     @OneToOne
     @JoinColumn(name = "stage_id")
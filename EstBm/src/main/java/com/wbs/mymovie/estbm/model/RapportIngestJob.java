@@ -0,0 +1,96 @@
+package com.wbs.mymovie.estbm.model;
+
+import com.wbs.mymovie.estbm.model.enums.StatutIngestRapport;
+import com.wbs.mymovie.estbm.service.BlobStorageService;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Job d'ingestion d'un rapport : lu par l'endpoint de statut, écrit par le worker à chaque
+ * changement d'étape. Le fichier en attente (spool) reste sur le disque du nœud qui l'a reçu.
+ */
+@Entity
+@Table(name = "rapport_ingest_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class RapportIngestJob {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "stage_id", nullable = false)
+    private Long stageId;
+
+    @Column(name = "nom_fichier")
+    private String nomFichier;
+
+    @Column(nullable = false, length = 1024)
+    private String spool;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private StatutIngestRapport statut;
+
+    @Column(nullable = false, length = 32)
+    private String etape;
+
+    @Column(nullable = false)
+    private int tentatives;
+
+    @Column(columnDefinition = "text")
+    private String message;
+
+    @Column(name = "prochaine_tentative")
+    private LocalDateTime prochaineTentative;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_maj", nullable = false)
+    private LocalDateTime dateMaj;
+
+    @Column(name = "blob_ref")
+    private String blobRef;
+
+    @Column(name = "blob_url", length = 1024)
+    private String blobUrl;
+
+    @Column(name = "blob_taille")
+    private Long blobTaille;
+
+    public RapportIngestJob(Long stageId, String nomFichier, String spool) {
+        this.id = UUID.randomUUID().toString();
+        this.stageId = stageId;
+        this.nomFichier = nomFichier;
+        this.spool = spool;
+        this.statut = StatutIngestRapport.EN_ATTENTE;
+        this.etape = "SPOOL";
+        this.dateCreation = LocalDateTime.now();
+        this.dateMaj = this.dateCreation;
+    }
+
+    public void maj(StatutIngestRapport statut, String etape, String message) {
+        this.statut = statut;
+        this.etape = etape;
+        this.message = message;
+        this.dateMaj = LocalDateTime.now();
+    }
+
+    /** Fichier envoyé au stockage par une tentative précédente, null s'il reste à envoyer. */
+    public BlobStorageService.Stocke getFichierStocke() {
+        return blobRef == null ? null : new BlobStorageService.Stocke(blobRef, blobUrl, blobTaille);
+    }
+
+    public void setFichierStocke(BlobStorageService.Stocke stocke) {
+        this.blobRef = stocke.ref();
+        this.blobUrl = stocke.url();
+        this.blobTaille = stocke.taille();
+    }
+}
@@ -0,0 +1,47 @@
+package com.wbs.mymovie.estbm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Refresh token émis : chaque rotation crée une nouvelle ligne dans la même famille.
+ * La date de consommation, posée par un UPDATE conditionnel, garantit qu'un token
+ * ne sert qu'une fois quel que soit le nœud qui le reçoit.
+ */
+@Entity
+@Table(name = "refresh_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_tokens_seq")
+    @SequenceGenerator(name = "refresh_tokens_seq", sequenceName = "refresh_tokens_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 36)
+    private String jti;
+
+    @Column(name = "famille_id", nullable = false, length = 36)
+    private String familleId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(name = "date_emission", nullable = false)
+    private LocalDateTime dateEmission;
+
+    @Column(name = "date_expiration", nullable = false)
+    private LocalDateTime dateExpiration;
+
+    // Null tant que le token n'a pas servi à une rotation (ni été révoqué avec sa famille)
+    @Column(name = "date_consommation")
+    private LocalDateTime dateConsommation;
+}
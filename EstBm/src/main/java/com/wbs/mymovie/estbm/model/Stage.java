@@ -22,7 +22,8 @@ import java.time.LocalDateTime;
 public class Stage {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stages_seq")
+    @SequenceGenerator(name = "stages_seq", sequenceName = "stages_seq", allocationSize = 50)
     private Long id;
 
     private String sujet;
@@ -11,7 +11,8 @@ import lombok.*;
 public class Utilisateur {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "utilisateurs_seq")
+    @SequenceGenerator(name = "utilisateurs_seq", sequenceName = "utilisateurs_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
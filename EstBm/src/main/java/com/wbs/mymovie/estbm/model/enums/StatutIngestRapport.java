@@ -0,0 +1,9 @@
+package com.wbs.mymovie.estbm.model.enums;
+
+public enum StatutIngestRapport {
+    EN_ATTENTE,
+    EN_COURS,
+    NOUVELLE_TENTATIVE,
+    TERMINE,
+    ECHEC
+}
@@ -1,25 +1,58 @@
 package com.wbs.mymovie.estbm.repository;
 
+import com.wbs.mymovie.estbm.dto.CommentaireRapportDto;
 import com.wbs.mymovie.estbm.model.CommentaireRapport;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CommentaireRapportRepository extends JpaRepository<CommentaireRapport, Long> {
-    List<CommentaireRapport> findByRapportStageEncadrantId(Long encId);
-    @Query("""
-    SELECT c FROM CommentaireRapport c
+    // Plan de chargement des réponses : une ligne par commentaire, étudiant et encadrant joints
+    String SELECT_DTO = """
+    SELECT new com.wbs.mymovie.estbm.dto.CommentaireRapportDto(
+      c.id, c.texte, c.dateCreation, r.id,
+      e.id, e.nom, e.prenom,
+      enc.id, enc.nom, enc.prenom)
+    FROM CommentaireRapport c
      JOIN c.rapport r
      JOIN r.stage s
      JOIN s.etudiant e
+     JOIN c.encadrant enc
     WHERE s.encadrant.id = :encId
-      AND (LOWER(e.nom) LIKE LOWER(CONCAT('%',:search,'%'))
+      AND c.id > :apresId
+      AND (:search IS NULL
+        OR LOWER(e.nom) LIKE LOWER(CONCAT('%',:search,'%'))
         OR LOWER(e.prenom) LIKE LOWER(CONCAT('%',:search,'%')))
+    ORDER BY c.id
+  """;
+
+    /** search null : tous les commentaires de l'encadrant. */
+    @Query(SELECT_DTO)
+    List<CommentaireRapportDto> findDtosByEncadrant(@Param("encId") Long encadrantId,
+                                                    @Param("search") String search,
+                                                    @Param("apresId") Long apresId);
+
+    @Query(SELECT_DTO)
+    List<CommentaireRapportDto> findDtosByEncadrant(@Param("encId") Long encadrantId,
+                                                    @Param("search") String search,
+                                                    @Param("apresId") Long apresId,
+                                                    Pageable pageable);
+
+    @Query("""
+    SELECT new com.wbs.mymovie.estbm.dto.CommentaireRapportDto(
+      c.id, c.texte, c.dateCreation, r.id,
+      e.id, e.nom, e.prenom,
+      enc.id, enc.nom, enc.prenom)
+    FROM CommentaireRapport c
+     JOIN c.rapport r
+     JOIN r.stage s
+     JOIN s.etudiant e
+     JOIN c.encadrant enc
+    WHERE c.id = :id
   """)
-    List<CommentaireRapport> findByEncadrantAndEtudiantNameContains(
-            @Param("encId") Long encadrantId,
-            @Param("search") String search
-    );
+    Optional<CommentaireRapportDto> findDtoById(@Param("id") Long id);
 }
@@ -1,8 +1,10 @@
 package com.wbs.mymovie.estbm.repository;
 
+import com.wbs.mymovie.estbm.dto.DetailSoutenanceDto;
 import com.wbs.mymovie.estbm.model.DetailSoutenance;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +12,14 @@ import java.util.List;
 @Repository
 public interface DetailSoutenanceRepository extends JpaRepository<DetailSoutenance, Long> {
     List<DetailSoutenance> findByPlanificationId(Long planificationId);
+
+    @Query("""
+      SELECT new com.wbs.mymovie.estbm.dto.DetailSoutenanceDto(d.id, d.sujet, d.dateSoutenance, d.heureDebut, d.heureFin)
+      FROM DetailSoutenance d
+      WHERE d.planification.id = :planificationId
+      ORDER BY d.heureDebut, d.id
+    """)
+    List<DetailSoutenanceDto> findDtosByPlanificationId(@Param("planificationId") Long planificationId);
     List<DetailSoutenance> findByEtudiantId(Long etudiantId);
 
     @Query("SELECT d FROM DetailSoutenance d JOIN FETCH d.planification WHERE d.etudiant.id = :etudiantId")
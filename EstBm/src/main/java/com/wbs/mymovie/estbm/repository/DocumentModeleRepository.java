@@ -2,9 +2,15 @@ package com.wbs.mymovie.estbm.repository;
 
 import com.wbs.mymovie.estbm.model.DocumentModele;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface DocumentModeleRepository extends JpaRepository<DocumentModele, Long> {
     Optional<DocumentModele> findByType(String type);
+
+    @Query("SELECT DISTINCT d.blobRef FROM DocumentModele d WHERE d.blobRef LIKE :prefixe")
+    List<String> findBlobRefsByPrefixe(@Param("prefixe") String prefixe);
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.wbs.mymovie.estbm.repository;
 
+import com.wbs.mymovie.estbm.dto.DocumentDto;
 import com.wbs.mymovie.estbm.model.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,8 +10,27 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface DocumentRepository extends JpaRepository<Document, Long> {
+    // Plan de chargement des réponses : métadonnées seules, sans entité sérialisée
+    String SELECT_DTO = "SELECT new com.wbs.mymovie.estbm.dto.DocumentDto(d.id, d.nom, d.type, st.id, et.id) "
+            + "FROM Document d LEFT JOIN d.stage st LEFT JOIN d.etudiant et ";
+
     List<Document> findByEtudiantId(Long etudiantId);
+
+    @Query(SELECT_DTO + "WHERE et.id = :etudiantId ORDER BY d.id")
+    List<DocumentDto> findDtosByEtudiantId(@Param("etudiantId") Long etudiantId);
+
+    @Query(SELECT_DTO + "WHERE st.id = :stageId ORDER BY d.id")
+    List<DocumentDto> findDtosByStageId(@Param("stageId") Long stageId);
     List<Document> findByStageId(Long stageId);
-    @Query("SELECT d FROM Document d JOIN d.stage s WHERE s.encadrant.id = :encadrantId")
-    List<Document> findByEncadrantId(@Param("encadrantId") Long encadrantId);
+    @Query(SELECT_DTO + "WHERE st.encadrant.id = :encadrantId ORDER BY d.id")
+    List<DocumentDto> findDtosByEncadrantId(@Param("encadrantId") Long encadrantId);
+
+    @Query(SELECT_DTO + "WHERE st.encadrant.id = :encadrantId AND d.id > :apresId ORDER BY d.id")
+    List<DocumentDto> findDtosByEncadrantId(@Param("encadrantId") Long encadrantId,
+                                            @Param("apresId") Long apresId,
+                                            Pageable pageable);
+
+    // Références de stockage d'un backend (compactage), prefixe = "cas:%"
+    @Query("SELECT DISTINCT d.blobRef FROM Document d WHERE d.blobRef LIKE :prefixe")
+    List<String> findBlobRefsByPrefixe(@Param("prefixe") String prefixe);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.wbs.mymovie.estbm.repository;
 
 import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Utilisateur;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -21,5 +22,8 @@ public interface EncadrantRepository extends JpaRepository<Encadrant, Long> {
 
     Optional<Encadrant> findByUtilisateurId(Long utilisateurId);
 
+    // Pages par id croissant (Pagination)
+    List<Encadrant> findByIdGreaterThanOrderByIdAsc(Long apresId, Pageable pageable);
+
 
 }
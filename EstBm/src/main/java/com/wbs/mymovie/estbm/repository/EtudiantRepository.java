@@ -1,7 +1,12 @@
 package com.wbs.mymovie.estbm.repository;
 
+import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Etudiant;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -19,13 +24,57 @@ public interface EtudiantRepository extends JpaRepository<Etudiant, Long> {
     Optional<Etudiant> findByCodeApogeeAndCodeMassarAndDateNaissance(String codeApogee, String codeMassar, LocalDate dateNaissance);
     Optional<Etudiant> findByUtilisateurEmail(String email);
     Optional<Etudiant> findByEmail(String email);
+
+    // Affectations : l'encadrant est lu pour chaque ligne
+    @EntityGraph(attributePaths = "encadrant")
     List<Etudiant> findByEncadrantIsNotNull();
 
     // Nouvelles méthodes
     List<Etudiant> findByDepartementId(Long departementId);
+    // Réponses EtudiantProfileDto : département, classe et année chargés avec l'étudiant
+    @EntityGraph(attributePaths = {"departement", "classeGroupe", "anneeScolaire"})
     List<Etudiant> findByClasseGroupeId(Long classeId);
+
+    @EntityGraph(attributePaths = {"departement", "classeGroupe", "anneeScolaire"})
+    Optional<Etudiant> findAvecGroupeById(Long id);
     List<Etudiant> findByAnneeScolaireId(Long anneeId);
 
     Optional<Etudiant> findByUtilisateurId(Long utilisateurId);
 
+    // Affectation d'encadrant par groupe : projection des ids + UPDATE ensembliste
+    @Query("""
+      SELECT e.id FROM Etudiant e
+      WHERE e.departement.id = :depId
+        AND e.classeGroupe.id = :classeId
+        AND e.anneeScolaire.id = :anneeId
+      ORDER BY e.id
+    """)
+    List<Long> findIdsByGroupe(@Param("depId") Long departementId,
+                               @Param("classeId") Long classeGroupeId,
+                               @Param("anneeId") Long anneeScolaireId);
+
+    @Query("""
+      SELECT COUNT(e) FROM Etudiant e
+      WHERE e.departement.id = :depId
+        AND e.classeGroupe.id = :classeId
+        AND e.anneeScolaire.id = :anneeId
+        AND e.encadrant.id = :encId
+    """)
+    long countByGroupeAndEncadrant(@Param("depId") Long departementId,
+                                   @Param("classeId") Long classeGroupeId,
+                                   @Param("anneeId") Long anneeScolaireId,
+                                   @Param("encId") Long encadrantId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+      UPDATE Etudiant e SET e.encadrant = :enc
+      WHERE e.departement.id = :depId
+        AND e.classeGroupe.id = :classeId
+        AND e.anneeScolaire.id = :anneeId
+    """)
+    int assignerEncadrantParGroupe(@Param("enc") Encadrant encadrant,
+                                   @Param("depId") Long departementId,
+                                   @Param("classeId") Long classeGroupeId,
+                                   @Param("anneeId") Long anneeScolaireId);
+
 }
@@ -1,6 +1,8 @@
 package com.wbs.mymovie.estbm.repository;
 
 import com.wbs.mymovie.estbm.model.PlanificationSoutenance;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -10,7 +12,17 @@ import java.util.Optional;
 
 @Repository
 public interface PlanificationSoutenanceRepository extends JpaRepository<PlanificationSoutenance, Long> {
+    // Plan de chargement de PlanificationSoutenanceResponse : tout ce que lit mapToResponseDto
+    @EntityGraph(attributePaths = {"encadrant.departement", "departement", "classeGroupe", "anneeScolaire"})
     List<PlanificationSoutenance> findByEncadrantId(Long encadrantId);
+
+    @EntityGraph(attributePaths = {"encadrant.departement", "departement", "classeGroupe", "anneeScolaire"})
+    List<PlanificationSoutenance> findAllByOrderByIdAsc();
+
+    // Pages par id croissant (Pagination)
+    @EntityGraph(attributePaths = {"encadrant.departement", "departement", "classeGroupe", "anneeScolaire"})
+    List<PlanificationSoutenance> findByIdGreaterThanOrderByIdAsc(Long apresId, Pageable pageable);
+    boolean existsByEncadrantId(Long encadrantId);
     List<PlanificationSoutenance> findByClasseGroupeId(Long classeGroupeId);
     @Query("SELECT p FROM PlanificationSoutenance p " +
             "LEFT JOIN FETCH p.encadrant e " +
@@ -22,6 +34,7 @@ public interface PlanificationSoutenanceRepository extends JpaRepository<Planifi
     Optional<PlanificationSoutenance> findByIdWithAssociations(Long id);
 
 
+    @EntityGraph(attributePaths = {"encadrant.departement", "departement", "classeGroupe", "anneeScolaire"})
     List<PlanificationSoutenance> findByClasseGroupeIdAndDepartementIdAndAnneeScolaireId(
             Long classeGroupeId, Long departementId, Long anneeScolaireId);
 }
@@ -0,0 +1,23 @@
+package com.wbs.mymovie.estbm.repository;
+
+import com.wbs.mymovie.estbm.model.RapportIngestJob;
+import com.wbs.mymovie.estbm.model.enums.StatutIngestRapport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RapportIngestJobRepository extends JpaRepository<RapportIngestJob, String> {
+
+    // Jobs interrompus par un arrêt du serveur, repris au démarrage
+    List<RapportIngestJob> findByStatutIn(List<StatutIngestRapport> statuts);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RapportIngestJob j WHERE j.statut IN :statuts AND j.dateMaj < :limite")
+    int deleteTermines(@Param("statuts") List<StatutIngestRapport> statuts, @Param("limite") LocalDateTime limite);
+}
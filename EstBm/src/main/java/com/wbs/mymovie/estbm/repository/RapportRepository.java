@@ -57,6 +57,9 @@ public interface RapportRepository extends JpaRepository<Rapport, Long> {
     @Query("SELECT r.cloudinaryUrl FROM Rapport r WHERE r.stage.id = :stageId")
     Optional<String> findCloudinaryUrlByStageId(@Param("stageId") Long stageId);
 
+    @Query("SELECT DISTINCT r.blobRef FROM Rapport r WHERE r.blobRef LIKE :prefixe")
+    List<String> findBlobRefsByPrefixe(@Param("prefixe") String prefixe);
+
 
     @Query("""
     SELECT new com.wbs.mymovie.estbm.dto.RapportDetailsDto(
@@ -0,0 +1,30 @@
+package com.wbs.mymovie.estbm.repository;
+
+import com.wbs.mymovie.estbm.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // 1 si le token est consommé par cet appel, 0 s'il l'était déjà (réutilisation) ou est inconnu
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.dateConsommation = :now WHERE t.jti = :jti AND t.dateConsommation IS NULL")
+    int consommer(@Param("jti") String jti, @Param("now") LocalDateTime now);
+
+    // Révocation d'une famille : son token encore valide est refusé sur tous les nœuds
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.dateConsommation = :now WHERE t.familleId = :famille AND t.dateConsommation IS NULL")
+    int consommerFamille(@Param("famille") String famille, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.dateExpiration <= :now")
+    int deleteExpires(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,22 @@
+package com.wbs.mymovie.estbm.repository;
+
+import com.wbs.mymovie.estbm.dto.StageDto;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import com.wbs.mymovie.estbm.util.Curseur;
+
+import java.util.List;
+
+/**
+ * Liste admin paginée par clé (date de création, id), du plus récent au plus ancien,
+ * les stages sans date de création en dernier.
+ */
+public interface StagePageAdmin {
+
+    /**
+     * @param apres position du dernier stage de la page précédente, null pour la première page
+     * @param limite nombre de lignes lues au plus
+     */
+    List<StageDto> findPageAdmin(EtatStage etat, String filiere, Long encadrantId,
+                                 Long departementId, Long classeGroupeId, Long anneeScolaireId,
+                                 Curseur.Position apres, int limite);
+}
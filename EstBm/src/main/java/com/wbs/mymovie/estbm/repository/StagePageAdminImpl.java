@@ -0,0 +1,66 @@
+package com.wbs.mymovie.estbm.repository;
+
+import com.wbs.mymovie.estbm.dto.StageDto;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import com.wbs.mymovie.estbm.util.Curseur;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * La requête ne porte que les filtres fournis : avec des « (:x IS NULL OR ...) » le plan
+ * préparé est le même pour toutes les combinaisons et n'utilise aucun des index
+ * (etat | filiere | encadrant_id, date_creation, id) de V9.
+ */
+class StagePageAdminImpl implements StagePageAdmin {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<StageDto> findPageAdmin(EtatStage etat, String filiere, Long encadrantId,
+                                        Long departementId, Long classeGroupeId, Long anneeScolaireId,
+                                        Curseur.Position apres, int limite) {
+        StringBuilder jpql = new StringBuilder(StageRepository.SELECT_DTO);
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (departementId != null || classeGroupeId != null || anneeScolaireId != null) {
+            jpql.append(" LEFT JOIN s.etudiant e");
+        }
+        jpql.append(" WHERE 1 = 1");
+        filtrer(jpql, params, "s.etat", "etat", etat);
+        filtrer(jpql, params, "s.filiere", "filiere", filiere);
+        filtrer(jpql, params, "s.encadrant.id", "encadrantId", encadrantId);
+        filtrer(jpql, params, "e.departement.id", "depId", departementId);
+        filtrer(jpql, params, "e.classeGroupe.id", "classeId", classeGroupeId);
+        filtrer(jpql, params, "e.anneeScolaire.id", "anneeId", anneeScolaireId);
+        if (apres != null) {
+            // Suite de l'ordre (date DESC NULLS LAST, id DESC) après la position lue
+            if (apres.date() != null) {
+                jpql.append(" AND (s.dateCreation < :apresDate"
+                        + " OR (s.dateCreation = :apresDate AND s.id < :apresId)"
+                        + " OR s.dateCreation IS NULL)");
+                params.put("apresDate", apres.date());
+            } else {
+                jpql.append(" AND s.dateCreation IS NULL AND s.id < :apresId");
+            }
+            params.put("apresId", apres.id());
+        }
+        jpql.append(" ORDER BY s.dateCreation DESC NULLS LAST, s.id DESC");
+
+        TypedQuery<StageDto> requete = entityManager.createQuery(jpql.toString(), StageDto.class);
+        params.forEach(requete::setParameter);
+        return requete.setMaxResults(limite).getResultList();
+    }
+
+    private static void filtrer(StringBuilder jpql, Map<String, Object> params,
+                                String chemin, String nom, Object valeur) {
+        if (valeur != null) {
+            jpql.append(" AND ").append(chemin).append(" = :").append(nom);
+            params.put(nom, valeur);
+        }
+    }
+}
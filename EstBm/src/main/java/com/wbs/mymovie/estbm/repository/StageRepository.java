@@ -2,9 +2,12 @@ package com.wbs.mymovie.estbm.repository;
 
 import com.wbs.mymovie.estbm.dto.DemandeStageDto;
 import com.wbs.mymovie.estbm.dto.StageDto;
+import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Stage;
 import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -12,12 +15,13 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
-public interface StageRepository extends JpaRepository<Stage, Long> {
+public interface StageRepository extends JpaRepository<Stage, Long>, StagePageAdmin {
 
-
-
-        // Projection DTO pour éviter de charger les BLOBs
-        @Query("""
+        /**
+         * Plan de chargement des réponses : une ligne StageDto par stage, rapport joint
+         * dans la même requête (pas d'entité sérialisée, pas de chargement paresseux).
+         */
+        String SELECT_DTO = """
       SELECT new com.wbs.mymovie.estbm.dto.StageDto(
         s.id,
         s.sujet,
@@ -29,11 +33,19 @@ public interface StageRepository extends JpaRepository<Stage, Long> {
         s.dateDebut,
         s.dateFin,
         s.etat,
-        s.dateCreation
+        s.dateCreation,
+        s.note,
+        r.id,
+        r.nomFichier,
+        r.dateDepot,
+        r.cloudinaryUrl
       )
       FROM Stage s
-      WHERE s.etudiant.id = :etudiantId
-    """)
+      LEFT JOIN s.rapport r
+    """;
+
+        // Projection DTO pour éviter de charger les BLOBs
+        @Query(SELECT_DTO + "WHERE s.etudiant.id = :etudiantId ORDER BY s.id")
         List<StageDto> findDtosByEtudiantId(@Param("etudiantId") Long etudiantId);
 
         // Trouver les stages par étudiant
@@ -42,11 +54,24 @@ public interface StageRepository extends JpaRepository<Stage, Long> {
         // Trouver les stages par encadrant
         List<Stage> findByEncadrantId(Long encadrantId);
 
-        // Trouver les stages par état
-        List<Stage> findByEtat(EtatStage etat);
+        // Pages par id croissant (Pagination)
+        @Query(SELECT_DTO + "WHERE s.encadrant.id = :encadrantId AND s.id > :apresId ORDER BY s.id")
+        List<StageDto> findDtosByEncadrantId(@Param("encadrantId") Long encadrantId,
+                                             @Param("apresId") Long apresId,
+                                             Pageable pageable);
 
-        // Trouver les stages par filière et état
-        List<Stage> findByFiliereAndEtat(String filiere, EtatStage etat);
+        @Query(SELECT_DTO + "WHERE s.encadrant.id = :encadrantId AND s.etat IN :etats ORDER BY s.id")
+        List<StageDto> findDtosByEncadrantIdAndEtatIn(@Param("encadrantId") Long encadrantId,
+                                                      @Param("etats") List<EtatStage> etats);
+
+        @Query(SELECT_DTO + "WHERE s.encadrant.id = :encadrantId AND s.etat IN :etats AND s.id > :apresId ORDER BY s.id")
+        List<StageDto> findDtosByEncadrantIdAndEtatIn(@Param("encadrantId") Long encadrantId,
+                                                      @Param("etats") List<EtatStage> etats,
+                                                      @Param("apresId") Long apresId,
+                                                      Pageable pageable);
+
+        @Query(SELECT_DTO + "WHERE s.etat = :etat AND (:filiere IS NULL OR s.filiere = :filiere) ORDER BY s.id")
+        List<StageDto> findDtosByEtat(@Param("etat") EtatStage etat, @Param("filiere") String filiere);
 
         // Trouver le dernier stage d'un étudiant (retourne Optional)
         Optional<Stage> findTopByEtudiantIdOrderByDateCreationDesc(Long idEtudiant);
@@ -77,34 +102,94 @@ public interface StageRepository extends JpaRepository<Stage, Long> {
         @Query("SELECT s.filiere, COUNT(s) FROM Stage s GROUP BY s.filiere")
         List<Object[]> countStagesByFiliere();
 
-        // Trouver les demandes pour un encadrant
-        List<Stage> findByEncadrantIdAndEtatIn(Long encadrantId, List<EtatStage> etats);
+        // Statistiques : un seul agrégat par état et par groupe (département / classe / année)
+        @Query("""
+      SELECT s.etat, d.id, cg.id, a.id, COUNT(s)
+      FROM Stage s
+      LEFT JOIN s.etudiant e
+      LEFT JOIN e.departement d
+      LEFT JOIN e.classeGroupe cg
+      LEFT JOIN e.anneeScolaire a
+      GROUP BY s.etat, d.id, cg.id, a.id
+    """)
+        List<Object[]> countByEtatAndGroupe();
+
+        // Statistiques : xid de la transaction courante et instantané de lecture (pg_snapshot)
+        @Query(value = "SELECT CAST(pg_current_xact_id() AS text)", nativeQuery = true)
+        String transactionCourante();
 
+        @Query(value = "SELECT CAST(pg_current_snapshot() AS text)", nativeQuery = true)
+        String instantaneCourant();
+
+        // Stages d'un groupe (département / classe / année) pour la génération des conventions en lot
         @Query("""
-  SELECT new com.wbs.mymovie.estbm.dto.StageDto(
-    s.id,
-    s.sujet,
-    s.entreprise,
-    s.adresseEntreprise,
-    s.telephoneEntreprise,
-    s.representantEntreprise,
-    s.filiere,
-    s.dateDebut,
-    s.dateFin,
-    s.etat,
-    s.dateCreation
-  )
-  FROM Stage s
-  WHERE s.encadrant.id = :encadrantId
-""")
+      SELECT s FROM Stage s
+      JOIN FETCH s.etudiant e
+      WHERE s.etat IN :etats
+        AND (:depId IS NULL OR e.departement.id = :depId)
+        AND (:classeId IS NULL OR e.classeGroupe.id = :classeId)
+        AND (:anneeId IS NULL OR e.anneeScolaire.id = :anneeId)
+      ORDER BY e.nom, e.prenom, s.id
+    """)
+        List<Stage> findPourConventions(@Param("etats") List<EtatStage> etats,
+                                        @Param("depId") Long departementId,
+                                        @Param("classeId") Long classeGroupeId,
+                                        @Param("anneeId") Long anneeScolaireId);
+
+        // Trouver les demandes pour un encadrant
+        @Query(SELECT_DTO + "WHERE s.encadrant.id = :encadrantId ORDER BY s.id")
         List<StageDto> findDtosByEncadrantId(@Param("encadrantId") Long encadrantId);
 
 
         boolean existsByIdAndEtudiantId(Long id, Long etudiantId);
 
+        // Stage dont l'utilisateur connecté est l'étudiant ou l'encadrant (suivi des dépôts de rapport)
+        @Query("""
+      SELECT COUNT(s) > 0 FROM Stage s
+      LEFT JOIN s.etudiant e
+      LEFT JOIN s.encadrant enc
+      WHERE s.id = :id AND (e.email = :email OR enc.email = :email)
+    """)
+        boolean estConcerne(@Param("id") Long id, @Param("email") String email);
+
 
         boolean existsByEncadrantId(Long encadrantId);
 
+        // Stages encore ouverts d'un groupe dont l'encadrant changerait (aperçu de l'affectation par groupe) :
+        // même filtre que assignerEncadrantOuvertsParGroupe
+        @Query("""
+      SELECT COUNT(s) FROM Stage s
+      WHERE s.etat IN :etats
+        AND (s.encadrant IS NULL OR s.encadrant <> :enc)
+        AND s.etudiant.id IN (
+          SELECT e.id FROM Etudiant e
+          WHERE e.departement.id = :depId
+            AND e.classeGroupe.id = :classeId
+            AND e.anneeScolaire.id = :anneeId)
+    """)
+        long countOuvertsByGroupe(@Param("enc") Encadrant encadrant,
+                                  @Param("depId") Long departementId,
+                                  @Param("classeId") Long classeGroupeId,
+                                  @Param("anneeId") Long anneeScolaireId,
+                                  @Param("etats") List<EtatStage> etats);
+
+        @Modifying(flushAutomatically = true, clearAutomatically = true)
+        @Query("""
+      UPDATE Stage s SET s.encadrant = :enc
+      WHERE s.etat IN :etats
+        AND (s.encadrant IS NULL OR s.encadrant <> :enc)
+        AND s.etudiant.id IN (
+          SELECT e.id FROM Etudiant e
+          WHERE e.departement.id = :depId
+            AND e.classeGroupe.id = :classeId
+            AND e.anneeScolaire.id = :anneeId)
+    """)
+        int assignerEncadrantOuvertsParGroupe(@Param("enc") Encadrant encadrant,
+                                              @Param("depId") Long departementId,
+                                              @Param("classeId") Long classeGroupeId,
+                                              @Param("anneeId") Long anneeScolaireId,
+                                              @Param("etats") List<EtatStage> etats);
+
 
 
 
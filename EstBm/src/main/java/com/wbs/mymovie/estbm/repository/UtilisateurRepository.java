@@ -2,6 +2,7 @@ package com.wbs.mymovie.estbm.repository;
 
 import com.wbs.mymovie.estbm.model.Utilisateur;
 import com.wbs.mymovie.estbm.model.enums.Role;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -13,4 +14,9 @@ public interface UtilisateurRepository extends JpaRepository<Utilisateur, Long>
     boolean existsByEmail(String email);
     List<Utilisateur> findByRole(Role role);
 
+    // Pages par id croissant (Pagination)
+    List<Utilisateur> findByIdGreaterThanOrderByIdAsc(Long apresId, Pageable pageable);
+
+    List<Utilisateur> findByRoleAndIdGreaterThanOrderByIdAsc(Role role, Long apresId, Pageable pageable);
+
 }
\ No newline at end of file
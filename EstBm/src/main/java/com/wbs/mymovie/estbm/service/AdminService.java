@@ -4,6 +4,7 @@ import com.wbs.mymovie.estbm.dto.*;
 import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Etudiant;
 import com.wbs.mymovie.estbm.model.Utilisateur;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
 import com.wbs.mymovie.estbm.model.enums.Role;
 import com.wbs.mymovie.estbm.repository.*;
 import jakarta.persistence.EntityNotFoundException;
@@ -32,6 +33,12 @@ public class AdminService {
 
     @Autowired private StageRepository stageRepository; // si tu as
 
+    @Autowired
+    private UtilisateurService utilisateurService;
+
+    @Autowired
+    private StageStatistiquesService stageStatistiquesService;
+
     public Encadrant creerCompteEncadrant(@Valid CreateEncadrantRequest request) {
         if (utilisateurRepository.findByEmail(request.getEmail()).isPresent()) {
             throw new RuntimeException("Email déjà utilisé");
@@ -51,7 +58,9 @@ public class AdminService {
         e.setEmail(saved.getEmail());
         e.setNom(saved.getNom());
         e.setPrenom(saved.getPrenom());
-        return encadrantRepository.save(e);
+        Encadrant savedEnc = encadrantRepository.save(e);
+        stageStatistiquesService.encadrantAjoute(1);
+        return savedEnc;
     }
 
     public Utilisateur creerCompteAdmin(RegisterRequest request) {
@@ -70,6 +79,15 @@ public class AdminService {
 
     @Autowired private EncadrantRepository encRepo;
 
+    // Stages dont l'encadrant suit encore l'affectation de l'étudiant
+    private static final List<EtatStage> ETATS_OUVERTS = List.of(
+            EtatStage.DEMANDE,
+            EtatStage.EN_ATTENTE_VALIDATION,
+            EtatStage.VALIDATION_EN_COURS,
+            EtatStage.ACCEPTE,
+            EtatStage.EN_COURS
+    );
+
     /**
      * Assigne l'encadrant donné à tous les étudiants
      * du département, de la classe et de l'année scolaire spécifiés.
@@ -79,59 +97,87 @@ public class AdminService {
                                           Long departementId,
                                           Long classeGroupeId,
                                           Long anneeScolaireId) {
-        Encadrant enc = encRepo.findByUtilisateurId(utilisateurIdEncadrant)
+        GroupAssignmentRequest req = new GroupAssignmentRequest();
+        req.setEncadrantId(utilisateurIdEncadrant);
+        req.setDepartementId(departementId);
+        req.setClasseGroupeId(classeGroupeId);
+        req.setAnneeScolaireId(anneeScolaireId);
+        return affecterGroupe(req, false).getEtudiantsConcernes(); // nombre d'étudiants affectés
+    }
+
+    /**
+     * Affectation de rentrée : plusieurs couples (groupe → encadrant) en une seule transaction.
+     * Chaque couple coûte un UPDATE ensembliste sur les étudiants et un sur les stages ouverts ;
+     * en dryRun rien n'est écrit, seuls les comptes sont retournés.
+     */
+    @Transactional
+    public List<GroupAssignmentResult> assignerEncadrantsParGroupes(List<GroupAssignmentRequest> requests,
+                                                                    boolean dryRun) {
+        return requests.stream()
+                .map(req -> affecterGroupe(req, dryRun))
+                .toList();
+    }
+
+    private GroupAssignmentResult affecterGroupe(GroupAssignmentRequest req, boolean dryRun) {
+        // encadrantId = utilisateur.id (convention du front)
+        Encadrant enc = encRepo.findByUtilisateurId(req.getEncadrantId())
                 .orElseThrow(() -> new RuntimeException("Encadrant introuvable"));
-        // Récupère les étudiants matching les 3 filtres
-        List<Etudiant> liste = etudiantRepository.findAll().stream()
-                .filter(e -> e.getDepartement() != null && e.getDepartement().getId().equals(departementId))
-                .filter(e -> e.getClasseGroupe() != null && e.getClasseGroupe().getId().equals(classeGroupeId))
-                .filter(e -> e.getAnneeScolaire() != null && e.getAnneeScolaire().getId().equals(anneeScolaireId))
-                .collect(Collectors.toList());
-
-        // Affecte l'encadrant et sauve
-        for (Etudiant e : liste) {
-            e.setEncadrant(enc);
+
+        List<Long> ids = etudiantRepository.findIdsByGroupe(
+                req.getDepartementId(), req.getClasseGroupeId(), req.getAnneeScolaireId());
+
+        GroupAssignmentResult result = new GroupAssignmentResult();
+        result.setEncadrantId(req.getEncadrantId());
+        result.setDepartementId(req.getDepartementId());
+        result.setClasseGroupeId(req.getClasseGroupeId());
+        result.setAnneeScolaireId(req.getAnneeScolaireId());
+        result.setDryRun(dryRun);
+        result.setEtudiantIds(ids);
+        result.setEtudiantsConcernes(ids.size());
+
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        if (dryRun) {
+            result.setEtudiantsDejaAffectes(etudiantRepository.countByGroupeAndEncadrant(
+                    req.getDepartementId(), req.getClasseGroupeId(), req.getAnneeScolaireId(), enc.getId()));
+            result.setStagesOuverts(stageRepository.countOuvertsByGroupe(
+                    enc, req.getDepartementId(), req.getClasseGroupeId(), req.getAnneeScolaireId(), ETATS_OUVERTS));
+            return result;
         }
-        etudiantRepository.saveAll(liste);
-        return liste.size(); // nombre d'étudiants affectés
+
+        etudiantRepository.assignerEncadrantParGroupe(
+                enc, req.getDepartementId(), req.getClasseGroupeId(), req.getAnneeScolaireId());
+        result.setStagesOuverts(stageRepository.assignerEncadrantOuvertsParGroupe(
+                enc, req.getDepartementId(), req.getClasseGroupeId(), req.getAnneeScolaireId(), ETATS_OUVERTS));
+        return result;
     }
 
 
     @Autowired
-    private DepartementRepository departementRepo;
-    @Autowired
-    private ClasseGroupeRepository classeGroupeRepo;
-    @Autowired
-    private AnneeScolaireRepository anneeRepo;
+    private ReferenceCacheService referenceCache;
 
     public List<ReferenceDto> listDepartements() {
-        return departementRepo.findAll()
-                .stream()
-                .map(d -> new ReferenceDto(d.getId(), d.getNom(), null))
-                .toList();
+        return referenceCache.departements();
     }
 
     // Méthode existante (filtre par département)
     public List<ReferenceDto> listClassGroupsByDepartment(Long depId) { // Renommez
-        return classeGroupeRepo.findByDepartement_Id(depId)
-                .stream()
-                .map(g -> new ReferenceDto(g.getId(), g.getNom(), null))
-                .toList();
+        return referenceCache.classesGroupes(depId);
     }
 
     // Nouvelle méthode (tous groupes)
     public List<ReferenceDto> listAllClassGroups() { // Nouveau nom
-        return classeGroupeRepo.findAll()
-                .stream()
-                .map(g -> new ReferenceDto(g.getId(), g.getNom(), null))
-                .toList();
+        return referenceCache.classesGroupes();
     }
 
     public List<ReferenceDto> listAnneesScolaires() {
-        return anneeRepo.findAll()
-                .stream()
-                .map(a -> new ReferenceDto(a.getId(), null, a.getLibelle()))
-                .toList();
+        return referenceCache.anneesScolaires();
+    }
+
+    public ReferenceCacheService.Instantane references() {
+        return referenceCache.instantane();
     }
 
 
@@ -178,7 +224,11 @@ public class AdminService {
 
         Utilisateur user = enc.getUtilisateur();
         encadrantRepository.delete(enc);
-        if (user != null) utilisateurRepository.delete(user);
+        stageStatistiquesService.encadrantAjoute(-1);
+        if (user != null) {
+            utilisateurRepository.delete(user);
+            utilisateurService.evictPrincipal(user.getEmail());
+        }
         return hasStages;
     }
 
@@ -255,6 +305,7 @@ public class AdminService {
         enc.setPrenom(savedUser.getPrenom());
         enc.setSpecialite(req.getSpecialite());
         Encadrant savedEnc = encadrantRepository.save(enc);
+        stageStatistiquesService.encadrantAjoute(1);
 
         // Map to DTO
         EncadrantDto dto = new EncadrantDto();
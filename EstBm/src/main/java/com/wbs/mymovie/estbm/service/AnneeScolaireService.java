@@ -13,13 +13,16 @@ import java.util.stream.Collectors;
 public class AnneeScolaireService {
     @Autowired
     private AnneeScolaireRepository repo;
+    @Autowired
+    private ReferenceCacheService referenceCache;
     public AnneeScolaireDto create(String libelle) {
         AnneeScolaire a = new AnneeScolaire(); a.setLibelle(libelle);
         a = repo.save(a);
+        referenceCache.modifiees();
         return new AnneeScolaireDto(a.getId(), a.getLibelle());
     }
     public List<AnneeScolaireDto> list() {
-        return repo.findAll().stream()
+        return referenceCache.anneesScolaires().stream()
                 .map(a -> new AnneeScolaireDto(a.getId(), a.getLibelle()))
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,85 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.repository.DocumentModeleRepository;
+import com.wbs.mymovie.estbm.repository.DocumentRepository;
+import com.wbs.mymovie.estbm.repository.RapportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compactage du stockage adressé par contenu.
+ *
+ * Le compteur de références d'un blob est le nombre de lignes (Document, DocumentModele,
+ * Rapport) qui portent sa référence : il est relu en base à chaque passage plutôt que
+ * tenu dans une colonne, il ne peut donc pas dériver. Un blob à zéro référence est supprimé.
+ */
+@Service
+public class BlobCompactageService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobCompactageService.class);
+
+    @Autowired
+    private ContentAddressedBlobStore casStore;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentModeleRepository documentModeleRepository;
+
+    @Autowired
+    private RapportRepository rapportRepository;
+
+    @Value("${storage.cas.grace-ms:3600000}")
+    private long graceMs;
+
+    private volatile Map<String, Object> dernierCompactage = Map.of();
+
+    @Scheduled(initialDelayString = "${storage.cas.compaction-ms:21600000}",
+            fixedDelayString = "${storage.cas.compaction-ms:21600000}")
+    public void compactagePlanifie() {
+        try {
+            compacter();
+        } catch (IOException e) {
+            log.error("Compactage du stockage échoué", e);
+        }
+    }
+
+    public synchronized Map<String, Object> compacter() throws IOException {
+        String prefixe = ContentAddressedBlobStore.NOM + ":";
+        Set<String> referencees = new HashSet<>();
+        for (String ref : documentRepository.findBlobRefsByPrefixe(prefixe + "%")) {
+            referencees.add(ref.substring(prefixe.length()));
+        }
+        for (String ref : documentModeleRepository.findBlobRefsByPrefixe(prefixe + "%")) {
+            referencees.add(ref.substring(prefixe.length()));
+        }
+        for (String ref : rapportRepository.findBlobRefsByPrefixe(prefixe + "%")) {
+            referencees.add(ref.substring(prefixe.length()));
+        }
+
+        Map<String, Object> resultat = new HashMap<>(casStore.compacter(referencees, graceMs));
+        resultat.put("blobsReferences", referencees.size());
+        resultat.put("date", LocalDateTime.now());
+        dernierCompactage = resultat;
+        log.info("Compactage du stockage : {}", resultat);
+        return resultat;
+    }
+
+    public Map<String, Object> getStatistiques() {
+        Map<String, Object> stats = new HashMap<>(casStore.getStatistiques());
+        stats.put("dernierCompactage", dernierCompactage);
+        return stats;
+    }
+}
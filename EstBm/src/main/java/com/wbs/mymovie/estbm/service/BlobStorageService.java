@@ -0,0 +1,151 @@
+package com.wbs.mymovie.estbm.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Point d'entrée du stockage de fichiers.
+ *
+ * Chaque usage (rapport, document, modèle) a son backend, choisi par
+ * {@code storage.backend.<usage>} (défaut : {@code storage.backend.default}).
+ * Les entités gardent une référence "backend:clé" ; changer de backend ne
+ * concerne donc que les nouveaux fichiers, et {@link #migrer} déplace les anciens.
+ */
+@Service
+public class BlobStorageService {
+
+    public static final String RAPPORT = "rapport";
+    public static final String DOCUMENT = "document";
+    public static final String MODELE = "modele";
+
+    /** Fichier stocké : référence à enregistrer en base, URL publique éventuelle, taille. */
+    public record Stocke(String ref, String url, long taille) {}
+
+    private final Map<String, BlobStore> stores;
+    private final Environment env;
+
+    @Value("${storage.backend.default:local}")
+    private String backendParDefaut;
+
+    public BlobStorageService(List<BlobStore> stores, Environment env) {
+        this.stores = stores.stream().collect(Collectors.toMap(BlobStore::nom, Function.identity()));
+        this.env = env;
+    }
+
+    public Stocke put(String usage, String cle, InputStream contenu, String contentType) throws IOException {
+        BlobStore store = storePourUsage(usage);
+        return stocke(store, store.put(cle, contenu, contentType));
+    }
+
+    public Stocke put(String usage, String cle, Path fichier, String contentType) throws IOException {
+        BlobStore store = storePourUsage(usage);
+        return stocke(store, store.put(cle, fichier, contentType));
+    }
+
+    /** Référence qu'aura un fichier publié plus tard par {@link #publier} (enregistrement en base avant publication). */
+    public String refPrevue(String usage, String cle, String empreinte) {
+        BlobStore store = storePourUsage(usage);
+        return ref(store.nom(), store.clePrevue(cle, empreinte));
+    }
+
+    /** Met en place un fichier préparé sous une référence obtenue par {@link #refPrevue}. */
+    public Stocke publier(String ref, Path fichier, String contentType) throws IOException {
+        BlobStore store = store(ref);
+        return stocke(store, store.publier(cle(ref), fichier, contentType));
+    }
+
+    public InputStream ouvrir(String ref) throws IOException {
+        return store(ref).get(cle(ref));
+    }
+
+    public InputStream ouvrirPlage(String ref, long debut, long longueur) throws IOException {
+        return store(ref).getRange(cle(ref), debut, longueur);
+    }
+
+    public long taille(String ref) throws IOException {
+        return store(ref).taille(cle(ref));
+    }
+
+    public boolean existe(String ref) throws IOException {
+        return store(ref).exists(cle(ref));
+    }
+
+    public boolean supprimer(String ref) throws IOException {
+        return store(ref).delete(cle(ref));
+    }
+
+    /** Fichier local si le backend de la référence en fournit un (lecture directe), sinon null. */
+    public Path cheminLocal(String ref) {
+        return store(ref).cheminLocal(cle(ref));
+    }
+
+    /**
+     * Copie le fichier vers un autre backend puis supprime l'original.
+     * @return la nouvelle référence à enregistrer
+     */
+    public Stocke migrer(String ref, String backendCible, String contentType) throws IOException {
+        BlobStore cible = storeParNom(backendCible);
+        if (cible == store(ref)) {
+            return new Stocke(ref, null, taille(ref));
+        }
+        Stocke copie;
+        try (InputStream in = ouvrir(ref)) {
+            copie = stocke(cible, cible.put(cle(ref), in, contentType));
+        }
+        supprimer(ref);
+        return copie;
+    }
+
+    /** Construit une clé à partir de segments, en neutralisant les caractères non sûrs. */
+    public static String cle(Object... segments) {
+        StringBuilder sb = new StringBuilder();
+        for (Object s : segments) {
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(String.valueOf(s).replaceAll("[^a-zA-Z0-9._-]", "_").replaceAll("^\\.+", "_"));
+        }
+        return sb.toString();
+    }
+
+    public static String ref(String backend, String cle) {
+        return backend + ":" + cle;
+    }
+
+    private BlobStore storePourUsage(String usage) {
+        return storeParNom(env.getProperty("storage.backend." + usage, backendParDefaut));
+    }
+
+    private BlobStore storeParNom(String nom) {
+        BlobStore store = stores.get(nom);
+        if (store == null) {
+            throw new IllegalArgumentException("Backend de stockage inconnu : " + nom);
+        }
+        return store;
+    }
+
+    private BlobStore store(String ref) {
+        int i = ref.indexOf(':');
+        if (i <= 0) {
+            throw new IllegalArgumentException("Référence de stockage invalide : " + ref);
+        }
+        return storeParNom(ref.substring(0, i));
+    }
+
+    private static String cle(String ref) {
+        return ref.substring(ref.indexOf(':') + 1);
+    }
+
+    private static Stocke stocke(BlobStore store, BlobStore.Blob blob) {
+        return new Stocke(ref(store.nom(), blob.cle()), blob.url(), blob.taille());
+    }
+}
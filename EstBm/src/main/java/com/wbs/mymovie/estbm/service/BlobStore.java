@@ -0,0 +1,60 @@
+package com.wbs.mymovie.estbm.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Backend de stockage de fichiers (local, Cloudinary...).
+ *
+ * Les clés sont des chemins relatifs ("documents/12/convention.pdf").
+ * Toutes les lectures / écritures se font en flux : aucun backend ne charge
+ * un fichier entier en mémoire. Une clé absente lève {@link java.nio.file.NoSuchFileException}.
+ */
+public interface BlobStore {
+
+    /** Résultat d'une écriture : clé effective, taille, URL publique éventuelle. */
+    record Blob(String cle, long taille, String url) {}
+
+    /** Nom du backend, utilisé dans les références stockées en base ("local", "cloudinary"). */
+    String nom();
+
+    Blob put(String cle, InputStream contenu, String contentType) throws IOException;
+
+    default Blob put(String cle, Path fichier, String contentType) throws IOException {
+        try (InputStream in = Files.newInputStream(fichier)) {
+            return put(cle, in, contentType);
+        }
+    }
+
+    InputStream get(String cle) throws IOException;
+
+    /** Lit {@code longueur} octets à partir de {@code debut}. */
+    InputStream getRange(String cle, long debut, long longueur) throws IOException;
+
+    long taille(String cle) throws IOException;
+
+    boolean exists(String cle) throws IOException;
+
+    /** @return false si la clé n'existait pas */
+    boolean delete(String cle) throws IOException;
+
+    /**
+     * Clé sous laquelle {@link #publier} rangera un fichier dont l'empreinte SHA-256 est connue ;
+     * permet d'enregistrer la référence en base avant que le fichier soit en place.
+     */
+    default String clePrevue(String cle, String empreinte) {
+        return cle;
+    }
+
+    /** Range un fichier déjà préparé sur disque (le fichier source peut être déplacé). */
+    default Blob publier(String cle, Path fichier, String contentType) throws IOException {
+        return put(cle, fichier, contentType);
+    }
+
+    /** Fichier local correspondant à la clé, si le backend en a un (sinon null). */
+    default Path cheminLocal(String cle) {
+        return null;
+    }
+}
@@ -13,13 +13,16 @@ import java.util.stream.Collectors;
 public class ClasseGroupeService {
     @Autowired
     private ClasseGroupeRepository repo;
+    @Autowired
+    private ReferenceCacheService referenceCache;
     public ClasseGroupeDto create(String nom) {
         ClasseGroupe c = new ClasseGroupe(); c.setNom(nom);
         c = repo.save(c);
+        referenceCache.modifiees();
         return new ClasseGroupeDto(c.getId(), c.getNom());
     }
     public List<ClasseGroupeDto> list() {
-        return repo.findAll().stream()
+        return referenceCache.classesGroupes().stream()
                 .map(c -> new ClasseGroupeDto(c.getId(), c.getNom()))
                 .collect(Collectors.toList());
     }
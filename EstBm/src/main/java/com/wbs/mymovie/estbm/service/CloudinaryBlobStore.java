@@ -0,0 +1,168 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Stockage Cloudinary (ressources "raw"). La clé est le public_id.
+ * Les lectures passent par un client HTTP partagé (connexions réutilisées, timeouts).
+ */
+@Service
+public class CloudinaryBlobStore implements BlobStore {
+
+    @Autowired
+    private Cloudinary cloudinary;
+
+    @Value("${storage.cloudinary.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${storage.cloudinary.read-timeout-ms:60000}")
+    private long readTimeoutMs;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public String nom() {
+        return "cloudinary";
+    }
+
+    // Le SDK n'envoie que des fichiers ou des byte[] : un flux est d'abord écrit sur disque
+    @Override
+    public Blob put(String cle, InputStream contenu, String contentType) throws IOException {
+        Path tmp = Files.createTempFile("cloudinary-", ".upload");
+        try {
+            Files.copy(contenu, tmp, StandardCopyOption.REPLACE_EXISTING);
+            return put(cle, tmp, contentType);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public Blob put(String cle, Path fichier, String contentType) throws IOException {
+        Map<?, ?> result = cloudinary.uploader().upload(fichier.toFile(), ObjectUtils.asMap(
+                "resource_type", "raw",
+                "public_id", cle,
+                "overwrite", true,
+                "invalidate", true,
+                "type", "upload",
+                "access_mode", "public"
+        ));
+        long taille = result.get("bytes") instanceof Number n ? n.longValue() : Files.size(fichier);
+        return new Blob((String) result.get("public_id"), taille, (String) result.get("secure_url"));
+    }
+
+    @Override
+    public InputStream get(String cle) throws IOException {
+        return ouvrirUrl(url(cle));
+    }
+
+    @Override
+    public InputStream getRange(String cle, long debut, long longueur) throws IOException {
+        HttpResponse<InputStream> response = envoyer(HttpRequest.newBuilder(URI.create(url(cle)))
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header("Range", "bytes=" + debut + "-" + (debut + longueur - 1))
+                .GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        verifier(response, cle);
+        InputStream in = response.body();
+        if (response.statusCode() == 200) {
+            // L'origine a ignoré le Range : on saute le début nous-mêmes
+            in.skipNBytes(debut);
+        }
+        return new LocalBlobStore.PlageInputStream(in, longueur);
+    }
+
+    @Override
+    public long taille(String cle) throws IOException {
+        HttpResponse<Void> response = head(cle);
+        verifier(response, cle);
+        return response.headers().firstValueAsLong("Content-Length")
+                .orElseThrow(() -> new IOException("Taille inconnue pour " + cle));
+    }
+
+    @Override
+    public boolean exists(String cle) throws IOException {
+        return head(cle).statusCode() == 200;
+    }
+
+    @Override
+    public boolean delete(String cle) throws IOException {
+        Map<?, ?> result = cloudinary.uploader().destroy(cle, ObjectUtils.asMap(
+                "resource_type", "raw",
+                "invalidate", true
+        ));
+        return "ok".equals(result.get("result"));
+    }
+
+    /** Lecture d'une URL Cloudinary déjà connue (rapports enregistrés avant le stockage par clé). */
+    public InputStream ouvrirUrl(String url) throws IOException {
+        HttpResponse<InputStream> response = envoyer(HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        verifier(response, url);
+        return response.body();
+    }
+
+    private String url(String cle) {
+        return cloudinary.url().resourceType("raw").generate(cle);
+    }
+
+    private HttpResponse<Void> head(String cle) throws IOException {
+        return envoyer(HttpRequest.newBuilder(URI.create(url(cle)))
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private <T> HttpResponse<T> envoyer(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Requête interrompue", e);
+        }
+    }
+
+    private static void verifier(HttpResponse<?> response, String cle) throws IOException {
+        int status = response.statusCode();
+        if (status == 404) {
+            fermer(response);
+            throw new NoSuchFileException(cle);
+        }
+        if (status != 200 && status != 206) {
+            fermer(response);
+            throw new IOException("Cloudinary HTTP " + status + " pour " + cle);
+        }
+    }
+
+    private static void fermer(HttpResponse<?> response) throws IOException {
+        if (response.body() instanceof InputStream in) {
+            in.close();
+        }
+    }
+}
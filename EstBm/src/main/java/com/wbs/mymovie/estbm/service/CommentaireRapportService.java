@@ -1,5 +1,6 @@
 package com.wbs.mymovie.estbm.service;
 
+import com.wbs.mymovie.estbm.dto.CommentaireRapportDto;
 import com.wbs.mymovie.estbm.model.CommentaireRapport;
 import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Rapport;
@@ -7,6 +8,7 @@ import com.wbs.mymovie.estbm.repository.CommentaireRapportRepository;
 import com.wbs.mymovie.estbm.repository.EncadrantRepository;
 import com.wbs.mymovie.estbm.repository.RapportRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -18,7 +20,7 @@ public class CommentaireRapportService {
     private RapportRepository rapportRepo;
     @Autowired private EncadrantRepository encRepo;
 
-    public CommentaireRapport addComment(Long rapportId, Long encId, String texte) {
+    public CommentaireRapportDto addComment(Long rapportId, Long encId, String texte) {
         Rapport r = rapportRepo.findByStageId(rapportId)
                 .orElseThrow(() -> new RuntimeException("Rapport introuvable"));
         Encadrant enc = encRepo.findById(encId)
@@ -27,13 +29,18 @@ public class CommentaireRapportService {
         c.setRapport(r);
         c.setEncadrant(enc);
         c.setTexte(texte);
-        return repo.save(c);
+        return repo.findDtoById(repo.save(c).getId()).orElseThrow();
     }
 
-    public List<CommentaireRapport> listComments(Long encId, String search) {
-        if (search == null || search.isBlank()) {
-            return repo.findByRapportStageEncadrantId(encId);
-        }
-        return repo.findByEncadrantAndEtudiantNameContains(encId, search);
+    public List<CommentaireRapportDto> listComments(Long encId, String search) {
+        return repo.findDtosByEncadrant(encId, recherche(search), 0L);
+    }
+
+    public List<CommentaireRapportDto> listComments(Long encId, String search, Long apresId, Pageable pageable) {
+        return repo.findDtosByEncadrant(encId, recherche(search), apresId, pageable);
+    }
+
+    private static String recherche(String search) {
+        return search == null || search.isBlank() ? null : search;
     }
 }
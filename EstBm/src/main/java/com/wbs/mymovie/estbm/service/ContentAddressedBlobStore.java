@@ -0,0 +1,235 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.util.Empreintes;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Stockage adressé par contenu ("cas") : la clé est le SHA-256 du fichier,
+ * calculé pendant l'écriture, rangé sous {@code ab/cd/abcd...}.
+ *
+ * Un fichier déjà présent n'est pas réécrit : le dépôt d'un doublon se réduit
+ * à l'insertion de la ligne en base. Un blob peut donc être partagé par plusieurs
+ * lignes ; {@link #delete} ne supprime rien et les blobs qui ne sont plus
+ * référencés sont retirés par {@link #compacter} (voir BlobCompactageService).
+ */
+@Service
+public class ContentAddressedBlobStore implements BlobStore {
+
+    public static final String NOM = "cas";
+
+    @Value("${storage.cas.root:${upload.directory}/cas}")
+    private String root;
+
+    private Path racine;
+    private Path tmpDir;
+
+    // Lecture : dépôts concurrents ; écriture : suppression d'un blob par le compactage
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private final LongAdder depots = new LongAdder();
+    private final LongAdder doublons = new LongAdder();
+    private final LongAdder octetsEconomises = new LongAdder();
+
+    @PostConstruct
+    public void init() throws IOException {
+        racine = Paths.get(root).toAbsolutePath().normalize();
+        tmpDir = racine.resolve(".tmp");
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public String nom() {
+        return NOM;
+    }
+
+    /** La clé proposée est ignorée : seule l'empreinte du contenu compte. */
+    @Override
+    public Blob put(String cle, InputStream contenu, String contentType) throws IOException {
+        Path tmp = Files.createTempFile(tmpDir, "put-", ".tmp");
+        try {
+            MessageDigest md = Empreintes.sha256();
+            long taille = 0;
+            byte[] buf = new byte[64 * 1024];
+            try (OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING)) {
+                int n;
+                while ((n = contenu.read(buf)) > 0) {
+                    md.update(buf, 0, n);
+                    out.write(buf, 0, n);
+                    taille += n;
+                }
+            }
+            String cleCas = clePrevue(cle, Empreintes.hex(md));
+            ranger(tmp, cleCas, taille);
+            return new Blob(cleCas, taille, null);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public String clePrevue(String cle, String empreinte) {
+        return empreinte.substring(0, 2) + "/" + empreinte.substring(2, 4) + "/" + empreinte;
+    }
+
+    /** Fichier déjà haché par l'appelant : {@code cle} vient de {@link #clePrevue}. */
+    @Override
+    public Blob publier(String cle, Path fichier, String contentType) throws IOException {
+        long taille = Files.size(fichier);
+        Path source = fichier;
+        if (!Files.getFileStore(fichier).equals(Files.getFileStore(tmpDir))) {
+            // Autre système de fichiers : copie locale d'abord pour garder un déplacement atomique
+            source = Files.createTempFile(tmpDir, "pub-", ".tmp");
+            Files.copy(fichier, source, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            ranger(source, cle, taille);
+        } finally {
+            if (source != fichier) {
+                Files.deleteIfExists(source);
+            }
+        }
+        return new Blob(cle, taille, null);
+    }
+
+    private void ranger(Path source, String cleCas, long taille) throws IOException {
+        Path cible = resoudre(cleCas);
+        depots.increment();
+        verrou.readLock().lock();
+        try {
+            if (Files.isRegularFile(cible)) {
+                // Doublon : on rafraîchit la date pour le protéger du compactage en cours
+                Files.setLastModifiedTime(cible, FileTime.from(Instant.now()));
+                doublons.increment();
+                octetsEconomises.add(taille);
+            } else {
+                Files.createDirectories(cible.getParent());
+                Files.move(source, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    @Override
+    public InputStream get(String cle) throws IOException {
+        return Files.newInputStream(resoudre(cle));
+    }
+
+    @Override
+    public InputStream getRange(String cle, long debut, long longueur) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(resoudre(cle), StandardOpenOption.READ);
+        try {
+            channel.position(debut);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new LocalBlobStore.PlageInputStream(Channels.newInputStream(channel), longueur);
+    }
+
+    @Override
+    public long taille(String cle) throws IOException {
+        return Files.size(resoudre(cle));
+    }
+
+    @Override
+    public boolean exists(String cle) {
+        return Files.isRegularFile(resoudre(cle));
+    }
+
+    /** Sans effet : le blob peut être partagé, le compactage le retire quand plus rien ne le référence. */
+    @Override
+    public boolean delete(String cle) {
+        return false;
+    }
+
+    @Override
+    public Path cheminLocal(String cle) {
+        Path p = resoudre(cle);
+        return Files.isRegularFile(p) ? p : null;
+    }
+
+    /**
+     * Supprime les blobs absents de {@code referencees} et non modifiés depuis {@code graceMs}
+     * (un dépôt en cours a écrit son blob mais pas encore sa ligne en base).
+     */
+    public Map<String, Object> compacter(Set<String> referencees, long graceMs) throws IOException {
+        Instant limite = Instant.now().minusMillis(graceMs);
+        long supprimes = 0;
+        long octetsLiberes = 0;
+        long conserves = 0;
+
+        try (Stream<Path> fichiers = Files.walk(racine)) {
+            for (Path p : (Iterable<Path>) fichiers.filter(Files::isRegularFile)::iterator) {
+                if (p.startsWith(tmpDir)) {
+                    continue;
+                }
+                String cle = racine.relativize(p).toString().replace('\\', '/');
+                if (referencees.contains(cle)) {
+                    conserves++;
+                    continue;
+                }
+                verrou.writeLock().lock();
+                try {
+                    // Date relue sous verrou : un doublon déposé entre-temps l'a rafraîchie
+                    if (Files.getLastModifiedTime(p).toInstant().isBefore(limite)) {
+                        long taille = Files.size(p);
+                        if (Files.deleteIfExists(p)) {
+                            supprimes++;
+                            octetsLiberes += taille;
+                        }
+                    } else {
+                        conserves++;
+                    }
+                } finally {
+                    verrou.writeLock().unlock();
+                }
+            }
+        }
+
+        Map<String, Object> resultat = new HashMap<>();
+        resultat.put("blobsSupprimes", supprimes);
+        resultat.put("octetsLiberes", octetsLiberes);
+        resultat.put("blobsConserves", conserves);
+        return resultat;
+    }
+
+    public Map<String, Object> getStatistiques() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("depots", depots.sum());
+        stats.put("doublons", doublons.sum());
+        stats.put("octetsEconomises", octetsEconomises.sum());
+        return stats;
+    }
+
+    private Path resoudre(String cle) {
+        Path p = racine.resolve(cle).normalize();
+        if (!p.startsWith(racine) || p.equals(racine) || p.startsWith(tmpDir)) {
+            throw new IllegalArgumentException("Clé de stockage invalide : " + cle);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,138 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.itextpdf.text.DocumentException;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.util.DiskLruCache;
+import com.wbs.mymovie.estbm.util.LruMemoire;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache des conventions générées, sur deux niveaux : mémoire (LRU borné en octets)
+ * puis disque (DiskLruCache).
+ *
+ * La clé est la révision du stage ({@link ConventionGeneratorService#revision}) :
+ * une modification des données imprimées donne une nouvelle clé, l'ancienne
+ * convention n'est plus jamais servie et finit évincée. La révision sert aussi d'ETag.
+ */
+@Service
+public class ConventionCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConventionCacheService.class);
+
+    /** Convention prête à servir. */
+    public record Convention(String revision, byte[] contenu) {}
+
+    @Autowired
+    private ConventionGeneratorService conventionGeneratorService;
+
+    @Value("${convention.cache.memory-max-bytes:16777216}")
+    private long memoireMaxBytes;
+
+    @Value("${convention.cache.dir:${java.io.tmpdir}/estbm-conventions}")
+    private String cacheDir;
+
+    @Value("${convention.cache.disk-max-bytes:268435456}")
+    private long disqueMaxBytes;
+
+    private LruMemoire<String, byte[]> memoire;
+
+    private DiskLruCache disque;
+
+    private final LongAdder hitsMemoire = new LongAdder();
+    private final LongAdder hitsDisque = new LongAdder();
+    private final LongAdder generations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        memoire = new LruMemoire<>(memoireMaxBytes, contenu -> contenu.length);
+        disque = new DiskLruCache(Paths.get(cacheDir), disqueMaxBytes);
+    }
+
+    public String revision(Stage stage) {
+        return conventionGeneratorService.revision(stage);
+    }
+
+    public Convention obtenir(Stage stage) throws DocumentException {
+        String revision = revision(stage);
+
+        byte[] contenu = memoire.get(revision);
+        if (contenu != null) {
+            hitsMemoire.increment();
+            return new Convention(revision, contenu);
+        }
+
+        contenu = lireDisque(revision);
+        if (contenu != null) {
+            hitsDisque.increment();
+            memoire.put(revision, contenu);
+            return new Convention(revision, contenu);
+        }
+
+        contenu = conventionGeneratorService.generateConventionPdf(stage);
+        generations.increment();
+        memoire.put(revision, contenu);
+        ecrireDisque(revision, contenu);
+        return new Convention(revision, contenu);
+    }
+
+    public Map<String, Object> getStatistiques() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("memoireEntrees", memoire.taille());
+        stats.put("memoireBytes", memoire.poidsTotal());
+        stats.put("hitsMemoire", hitsMemoire.sum());
+        stats.put("hitsDisque", hitsDisque.sum());
+        stats.put("generations", generations.sum());
+        stats.put("disque", disque.getStatistiques());
+        return stats;
+    }
+
+    private byte[] lireDisque(String revision) {
+        try (FileChannel canal = disque.ouvrir(nomFichier(revision))) {
+            if (canal == null) {
+                return null;
+            }
+            ByteBuffer contenu = ByteBuffer.allocate((int) canal.size());
+            while (contenu.hasRemaining() && canal.read(contenu) >= 0) {
+                // lecture jusqu'à la fin du fichier
+            }
+            return contenu.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Le cache disque est un complément : son échec ne fait pas échouer le téléchargement
+    private void ecrireDisque(String revision, byte[] contenu) {
+        try {
+            Path tmp = disque.fichierTemporaire();
+            try {
+                Files.write(tmp, contenu);
+                disque.put(nomFichier(revision), tmp);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("Convention {} non écrite dans le cache disque : {}", revision, e.getMessage());
+        }
+    }
+
+    private static String nomFichier(String revision) {
+        return "convention-" + revision + ".pdf";
+    }
+}
@@ -2,27 +2,209 @@ package com.wbs.mymovie.estbm.service;
 
 import com.itextpdf.text.*;
 import com.itextpdf.text.Font;
+import com.itextpdf.text.pdf.ColumnText;
+import com.itextpdf.text.pdf.PdfContentByte;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
 import com.itextpdf.text.pdf.PdfWriter;
 import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.util.Empreintes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 
+/**
+ * Génération de la convention de stage.
+ *
+ * La mise en page fixe (titres, cellule de l'école, libellés, signatures) est rendue
+ * une seule fois dans un PDF gabarit ; chaque convention ne fait qu'estampiller les
+ * champs du stage dans des zones réservées. Si un champ ne tient pas dans sa zone
+ * (sujet très long...), la convention est construite entièrement comme avant.
+ */
 @Service
 public class ConventionGeneratorService {
 
+    private static final Logger log = LoggerFactory.getLogger(ConventionGeneratorService.class);
+
     private static final Font TITLE_FONT = new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD);
     private static final Font HEADER_FONT = new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD);
     private static final Font NORMAL_FONT = new Font(Font.FontFamily.HELVETICA, 10);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    // Mise en page du gabarit (A4 : 595 x 842, marges 36)
+    private static final float GAUCHE = 36f;
+    private static final float DROITE = 559f;
+    private static final float MILIEU = (GAUCHE + DROITE) / 2;
+    private static final float PADDING = 10f;
+    private static final float PARTIES_HAUT = 720f;
+    private static final float PARTIES_BAS = 600f;
+    private static final float DETAILS_TITRE = 578f;
+    private static final float LIBELLE_DROITE = 150f;
+    private static final float VALEUR_GAUCHE = 155f;
+    private static final String[] LIBELLES = {"Étudiant(e):", "N° Apogée:", "Filière:", "Sujet:", "Période:", "Durée:"};
+    // Hauteur de chaque ligne de détail ; le sujet a droit à trois lignes
+    private static final float[] HAUTEURS = {18f, 18f, 18f, 42f, 18f, 18f};
+    private static final float DETAILS_HAUT = 565f;
+    private static final String[] SIGNATAIRES = {
+            "Le Représentant de l'Établissement", "Le Représentant de l'Entreprise", "L'Étudiant(e)"};
+
+    // À incrémenter à chaque changement de mise en page : invalide les conventions en cache
+    private static final String VERSION_GABARIT = "2";
+
+    private final byte[] gabarit = construireGabarit();
+
+    /**
+     * Révision de la convention d'un stage : empreinte de tous les champs imprimés.
+     * Elle change dès qu'une donnée de l'entreprise, du stage ou de l'étudiant change.
+     */
+    public String revision(Stage stage) {
+        MessageDigest md = Empreintes.sha256();
+        md.update(VERSION_GABARIT.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        md.update(sousTitre(stage).getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        md.update(detailsEntreprise(stage).getBytes(StandardCharsets.UTF_8));
+        for (String valeur : valeursDetails(stage)) {
+            md.update((byte) 0);
+            md.update(String.valueOf(valeur).getBytes(StandardCharsets.UTF_8));
+        }
+        return Empreintes.hex(md);
+    }
+
     public byte[] generateConventionPdf(Stage stage) throws DocumentException {
+        try {
+            byte[] pdf = estampiller(stage);
+            if (pdf != null) {
+                return pdf;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        log.debug("Convention du stage {} : champ trop long pour le gabarit, génération complète", stage.getId());
+        return genererComplet(stage);
+    }
+
+    /** Remplit les zones variables du gabarit ; null si un champ déborde de sa zone. */
+    private byte[] estampiller(Stage stage) throws IOException, DocumentException {
+        String[] valeurs = valeursDetails(stage);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(gabarit.length + 4096);
+        PdfReader reader = new PdfReader(gabarit);
+        try {
+            PdfStamper stamper = new PdfStamper(reader, baos);
+            PdfContentByte cb = stamper.getOverContent(1);
+
+            boolean ok = poser(cb, new Phrase(sousTitre(stage), HEADER_FONT), GAUCHE, 735f, DROITE, 775f, Element.ALIGN_CENTER);
+
+            ColumnText entreprise = new ColumnText(cb);
+            entreprise.setSimpleColumn(MILIEU + PADDING, PARTIES_BAS + PADDING, DROITE - PADDING, PARTIES_HAUT - PADDING);
+            Paragraph nom = new Paragraph(stage.getEntreprise(), HEADER_FONT);
+            nom.setSpacingAfter(5f);
+            entreprise.addElement(nom);
+            entreprise.addElement(new Paragraph(detailsEntreprise(stage), NORMAL_FONT));
+            ok &= !ColumnText.hasMoreText(entreprise.go());
+
+            float haut = DETAILS_HAUT;
+            for (int i = 0; i < valeurs.length; i++) {
+                ok &= poser(cb, new Phrase(valeurs[i], NORMAL_FONT), VALEUR_GAUCHE, haut - HAUTEURS[i], DROITE, haut, Element.ALIGN_LEFT);
+                haut -= HAUTEURS[i];
+            }
+
+            stamper.close();
+            return ok ? baos.toByteArray() : null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean poser(PdfContentByte cb, Phrase texte, float llx, float lly, float urx, float ury,
+                                 int alignement) throws DocumentException {
+        ColumnText ct = new ColumnText(cb);
+        ct.setSimpleColumn(texte, llx, lly, urx, ury, texte.getFont().getSize() * 1.2f, alignement);
+        return !ColumnText.hasMoreText(ct.go());
+    }
+
+    /** Rendu unique de toute la partie fixe de la convention. */
+    private static byte[] construireGabarit() {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            Document document = new Document(PageSize.A4);
+            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            document.open();
+            PdfContentByte cb = writer.getDirectContent();
+
+            ColumnText.showTextAligned(cb, Element.ALIGN_CENTER, new Phrase("CONVENTION DE STAGE", TITLE_FONT), MILIEU, 790f, 0);
+
+            // Cadres des deux parties
+            cb.rectangle(GAUCHE, PARTIES_BAS, DROITE - GAUCHE, PARTIES_HAUT - PARTIES_BAS);
+            cb.moveTo(MILIEU, PARTIES_BAS);
+            cb.lineTo(MILIEU, PARTIES_HAUT);
+            cb.stroke();
+
+            ColumnText ecole = new ColumnText(cb);
+            ecole.setSimpleColumn(GAUCHE + PADDING, PARTIES_BAS + PADDING, MILIEU - PADDING, PARTIES_HAUT - PADDING);
+            Paragraph nomEcole = new Paragraph("ÉCOLE SUPÉRIEURE DE TECHNOLOGIE DE BÉNI MELLAL", HEADER_FONT);
+            nomEcole.setSpacingAfter(5f);
+            ecole.addElement(nomEcole);
+            ecole.addElement(new Paragraph(
+                    "Adresse: Avenue Mohammed VI, Béni Mellal\nTéléphone: +212 523 485 000\nEmail: contact@estbm.ac.ma",
+                    NORMAL_FONT));
+            ecole.go();
+
+            ColumnText.showTextAligned(cb, Element.ALIGN_LEFT, new Phrase("DÉTAILS DU STAGE", HEADER_FONT), GAUCHE, DETAILS_TITRE, 0);
+            float haut = DETAILS_HAUT;
+            for (int i = 0; i < LIBELLES.length; i++) {
+                poser(cb, new Phrase(LIBELLES[i], HEADER_FONT), GAUCHE, haut - HAUTEURS[i], LIBELLE_DROITE, haut, Element.ALIGN_LEFT);
+                haut -= HAUTEURS[i];
+            }
+
+            ColumnText.showTextAligned(cb, Element.ALIGN_CENTER, new Phrase("Signatures", HEADER_FONT), MILIEU, haut - 40f, 0);
+            float largeur = (DROITE - GAUCHE) / SIGNATAIRES.length;
+            for (int i = 0; i < SIGNATAIRES.length; i++) {
+                float x = GAUCHE + i * largeur;
+                poser(cb, new Phrase(SIGNATAIRES[i], NORMAL_FONT), x, haut - 100f, x + largeur, haut - 60f, Element.ALIGN_CENTER);
+                ColumnText.showTextAligned(cb, Element.ALIGN_CENTER, new Phrase("________________________"),
+                        x + largeur / 2, haut - 140f, 0);
+            }
+
+            document.close();
+            return baos.toByteArray();
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("Gabarit de convention invalide", e);
+        }
+    }
+
+    private static String sousTitre(Stage stage) {
+        return "Entre l'École Supérieure de Technologie de Béni Mellal et " + stage.getEntreprise();
+    }
+
+    private static String detailsEntreprise(Stage stage) {
+        return "Adresse: " + (stage.getAdresseEntreprise() != null ? stage.getAdresseEntreprise() : "Non spécifiée") +
+                "\nTéléphone: " + (stage.getTelephoneEntreprise() != null ? stage.getTelephoneEntreprise() : "Non spécifié") +
+                "\nReprésentant: " + (stage.getRepresentantEntreprise() != null ? stage.getRepresentantEntreprise() : "Non spécifié");
+    }
+
+    private String[] valeursDetails(Stage stage) {
+        return new String[]{
+                stage.getEtudiant().getNom() + " " + stage.getEtudiant().getPrenom(),
+                stage.getEtudiant().getCodeApogee(),
+                stage.getFiliere(),
+                stage.getSujet(),
+                stage.getDateDebut().format(DATE_FORMATTER) + " au " + stage.getDateFin().format(DATE_FORMATTER),
+                calculateDuration(stage.getDateDebut(), stage.getDateFin()) + " semaines"
+        };
+    }
+
+    /** Construction complète (mise en page fluide), utilisée quand un champ ne tient pas dans le gabarit. */
+    private byte[] genererComplet(Stage stage) throws DocumentException {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
             Document document = new Document(PageSize.A4);
             PdfWriter.getInstance(document, baos);
@@ -46,10 +228,7 @@ public class ConventionGeneratorService {
         title.setSpacingAfter(20f);
         document.add(title);
 
-        Paragraph subtitle = new Paragraph(
-                "Entre l'École Supérieure de Technologie de Béni Mellal et " + stage.getEntreprise(),
-                HEADER_FONT
-        );
+        Paragraph subtitle = new Paragraph(sousTitre(stage), HEADER_FONT);
         subtitle.setAlignment(Element.ALIGN_CENTER);
         subtitle.setSpacingAfter(30f);
         document.add(subtitle);
@@ -66,11 +245,7 @@ public class ConventionGeneratorService {
                 "Adresse: Avenue Mohammed VI, Béni Mellal\nTéléphone: +212 523 485 000\nEmail: contact@estbm.ac.ma");
 
         // Entreprise - utilise les nouveaux champs
-        String entrepriseDetails = "Adresse: " + (stage.getAdresseEntreprise() != null ? stage.getAdresseEntreprise() : "Non spécifiée") +
-                "\nTéléphone: " + (stage.getTelephoneEntreprise() != null ? stage.getTelephoneEntreprise() : "Non spécifié") +
-                "\nReprésentant: " + (stage.getRepresentantEntreprise() != null ? stage.getRepresentantEntreprise() : "Non spécifié");
-
-        addPartyCell(table, stage.getEntreprise(), entrepriseDetails);
+        addPartyCell(table, stage.getEntreprise(), detailsEntreprise(stage));
 
         document.add(table);
     }
@@ -99,16 +274,10 @@ public class ConventionGeneratorService {
         detailsTable.setSpacingBefore(10f);
         detailsTable.setSpacingAfter(20f);
 
-        addDetailRow(detailsTable, "Étudiant(e):",
-                stage.getEtudiant().getNom() + " " + stage.getEtudiant().getPrenom());
-        addDetailRow(detailsTable, "N° Apogée:", stage.getEtudiant().getCodeApogee());
-        addDetailRow(detailsTable, "Filière:", stage.getFiliere());
-        addDetailRow(detailsTable, "Sujet:", stage.getSujet());
-        addDetailRow(detailsTable, "Période:",
-                stage.getDateDebut().format(DATE_FORMATTER) + " au " +
-                        stage.getDateFin().format(DATE_FORMATTER));
-        addDetailRow(detailsTable, "Durée:",
-                calculateDuration(stage.getDateDebut(), stage.getDateFin()) + " semaines");
+        String[] valeurs = valeursDetails(stage);
+        for (int i = 0; i < LIBELLES.length; i++) {
+            addDetailRow(detailsTable, LIBELLES[i], valeurs[i]);
+        }
 
         document.add(detailsTable);
     }
@@ -137,9 +306,9 @@ public class ConventionGeneratorService {
         signatureTable.setWidthPercentage(100);
         signatureTable.setSpacingBefore(20f);
 
-        addSignatureCell(signatureTable, "Le Représentant de l'Établissement");
-        addSignatureCell(signatureTable, "Le Représentant de l'Entreprise");
-        addSignatureCell(signatureTable, "L'Étudiant(e)");
+        for (String signataire : SIGNATAIRES) {
+            addSignatureCell(signatureTable, signataire);
+        }
 
         document.add(signatureTable);
     }
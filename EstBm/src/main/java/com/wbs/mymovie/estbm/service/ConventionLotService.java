@@ -0,0 +1,246 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfCopy;
+import com.itextpdf.text.pdf.PdfReader;
+import com.wbs.mymovie.estbm.dto.ConventionLotStatusDto;
+import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import com.wbs.mymovie.estbm.repository.StageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Conventions de tout un groupe (département / classe / année) en un seul téléchargement :
+ * archive ZIP ou PDF unique (PdfCopy).
+ *
+ * Les conventions sont générées en parallèle sur un pool fork-join, mais écrites dans
+ * l'ordre et au fil de l'eau : seule une fenêtre de quelques documents est en mémoire.
+ * L'avancement est consultable pendant le téléchargement (en-tête X-Lot-Id).
+ */
+@Service
+public class ConventionLotService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConventionLotService.class);
+
+    /** États à partir desquels le stage a une convention. */
+    private static final List<EtatStage> ETATS_ACCEPTES =
+            List.of(EtatStage.ACCEPTE, EtatStage.EN_COURS, EtatStage.TERMINE, EtatStage.RAPPORT_SOUMIS);
+
+    private static final class Lot {
+        final String id = UUID.randomUUID().toString();
+        final String format;
+        final int total;
+        final AtomicInteger generees = new AtomicInteger();
+        final LocalDateTime dateDebut = LocalDateTime.now();
+        volatile String statut = "EN_COURS";
+        volatile String message;
+        volatile LocalDateTime dateMaj = LocalDateTime.now();
+
+        Lot(String format, int total) {
+            this.format = format;
+            this.total = total;
+        }
+    }
+
+    @Autowired
+    private StageRepository stageRepository;
+
+    @Autowired
+    private ConventionCacheService conventionCacheService;
+
+    @Value("${convention.lot.parallelism:0}")
+    private int parallelism;
+
+    @Value("${convention.lot.job-ttl-ms:3600000}")
+    private long lotTtlMs;
+
+    private ForkJoinPool pool;
+    private int fenetre;
+
+    private final Map<String, Lot> lots = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+        fenetre = threads * 2;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * format = zip | pdf ; filtres facultatifs.
+     * @throws IllegalArgumentException format non supporté
+     * @throws ResourceNotFoundException aucun stage accepté pour ces critères
+     */
+    public ResponseEntity<StreamingResponseBody> exporter(String format, Long departementId, Long classeGroupeId, Long anneeScolaireId) {
+        String fmt = format == null ? "" : format.toLowerCase();
+        if (!fmt.equals("zip") && !fmt.equals("pdf")) {
+            throw new IllegalArgumentException("Format non supporté : " + format);
+        }
+
+        List<Stage> stages = stageRepository.findPourConventions(ETATS_ACCEPTES, departementId, classeGroupeId, anneeScolaireId);
+        if (stages.isEmpty()) {
+            throw new ResourceNotFoundException("Aucun stage accepté pour ces critères");
+        }
+
+        Lot lot = new Lot(fmt, stages.size());
+        lots.put(lot.id, lot);
+        StreamingResponseBody body = out -> ecrire(lot, stages, out);
+
+        return ResponseEntity.ok()
+                .header("X-Lot-Id", lot.id)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=conventions." + fmt)
+                .contentType(fmt.equals("zip") ? MediaType.parseMediaType("application/zip") : MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
+    public ConventionLotStatusDto getStatut(String lotId) {
+        Lot lot = lots.get(lotId);
+        if (lot == null) {
+            throw new ResourceNotFoundException("Lot introuvable : " + lotId);
+        }
+        ConventionLotStatusDto dto = new ConventionLotStatusDto();
+        dto.setLotId(lot.id);
+        dto.setFormat(lot.format);
+        dto.setStatut(lot.statut);
+        dto.setTotal(lot.total);
+        dto.setGenerees(lot.generees.get());
+        dto.setMessage(lot.message);
+        dto.setDateDebut(lot.dateDebut);
+        dto.setDateMaj(lot.dateMaj);
+        return dto;
+    }
+
+    /** Oublie les lots terminés depuis plus de job-ttl-ms. */
+    @Scheduled(fixedDelayString = "${convention.lot.purge-ms:600000}")
+    public void purger() {
+        LocalDateTime limite = LocalDateTime.now().minusNanos(lotTtlMs * 1_000_000);
+        lots.values().removeIf(l -> !l.statut.equals("EN_COURS") && l.dateMaj.isBefore(limite));
+    }
+
+    private void ecrire(Lot lot, List<Stage> stages, OutputStream out) throws IOException {
+        Deque<ForkJoinTask<ConventionCacheService.Convention>> enCours = new ArrayDeque<>();
+        Iterator<Stage> suivants = stages.iterator();
+        try {
+            Sortie sortie = lot.format.equals("zip") ? new SortieZip(out) : new SortiePdf(out);
+            for (Stage stage : stages) {
+                // Fenêtre glissante : au plus "fenetre" conventions générées d'avance
+                while (enCours.size() < fenetre && suivants.hasNext()) {
+                    Stage s = suivants.next();
+                    enCours.addLast(pool.submit(() -> conventionCacheService.obtenir(s)));
+                }
+                ConventionCacheService.Convention convention = enCours.removeFirst().join();
+                sortie.ajouter(stage, convention.contenu());
+                lot.generees.incrementAndGet();
+                lot.dateMaj = LocalDateTime.now();
+            }
+            sortie.terminer();
+            lot.statut = "TERMINE";
+        } catch (IOException | RuntimeException e) {
+            // Client déconnecté ou génération en échec : on abandonne le reste
+            enCours.forEach(f -> f.cancel(true));
+            lot.statut = "ECHEC";
+            lot.message = e.getMessage();
+            log.warn("Lot de conventions {} interrompu après {}/{} : {}", lot.id, lot.generees.get(), lot.total, e.getMessage());
+            throw e;
+        } finally {
+            lot.dateMaj = LocalDateTime.now();
+        }
+    }
+
+    private interface Sortie {
+        void ajouter(Stage stage, byte[] pdf) throws IOException;
+
+        void terminer() throws IOException;
+    }
+
+    private static final class SortieZip implements Sortie {
+        private final ZipOutputStream zip;
+
+        SortieZip(OutputStream out) {
+            zip = new ZipOutputStream(out);
+        }
+
+        @Override
+        public void ajouter(Stage stage, byte[] pdf) throws IOException {
+            String nom = "convention_" + stage.getId() + "_"
+                    + (stage.getEtudiant().getNom() + "_" + stage.getEtudiant().getPrenom()).replaceAll("[^\\p{L}0-9._-]", "_")
+                    + ".pdf";
+            zip.putNextEntry(new ZipEntry(nom));
+            zip.write(pdf);
+            zip.closeEntry();
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            zip.finish();
+            zip.flush();
+        }
+    }
+
+    private static final class SortiePdf implements Sortie {
+        private final com.itextpdf.text.Document document = new com.itextpdf.text.Document();
+        private final PdfCopy copy;
+
+        SortiePdf(OutputStream out) throws IOException {
+            try {
+                copy = new PdfCopy(document, out);
+            } catch (DocumentException e) {
+                throw new IOException(e);
+            }
+            copy.setCloseStream(false);
+            document.open();
+        }
+
+        @Override
+        public void ajouter(Stage stage, byte[] pdf) throws IOException {
+            PdfReader reader = new PdfReader(pdf);
+            try {
+                copy.addDocument(reader);
+                // Pages écrites : le lecteur peut être libéré
+                copy.freeReader(reader);
+            } catch (DocumentException e) {
+                throw new IOException(e);
+            } finally {
+                reader.close();
+            }
+        }
+
+        @Override
+        public void terminer() {
+            document.close();
+        }
+    }
+}
@@ -11,13 +11,15 @@ import java.util.stream.Collectors;
 @Service
 public class DepartementService {
     @Autowired private DepartementRepository repo;
+    @Autowired private ReferenceCacheService referenceCache;
     public DepartementDto create(String nom) {
         Departement d = new Departement(); d.setNom(nom);
         d = repo.save(d);
+        referenceCache.modifiees();
         return new DepartementDto(d.getId(), d.getNom());
     }
     public List<DepartementDto> list() {
-        return repo.findAll().stream()
+        return referenceCache.departements().stream()
                 .map(d -> new DepartementDto(d.getId(), d.getNom()))
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,256 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.model.Document;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.repository.DocumentRepository;
+import com.wbs.mymovie.estbm.util.Empreintes;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Dépôt de plusieurs documents d'un stage, en tout ou rien.
+ *
+ * 1) chaque fichier est copié en parallèle dans un répertoire de préparation, haché
+ *    (SHA-256) et validé (taille, extension, signature PDF) ;
+ * 2) toutes les lignes Document sont insérées dans une seule transaction ;
+ * 3) les fichiers sont publiés avant le commit : si une publication échoue, la
+ *    transaction est annulée.
+ * Au moindre échec (publication ou commit) rien n'est enregistré, les fichiers
+ * déjà publiés sont supprimés, ainsi que les fichiers préparés.
+ */
+@Service
+public class DocumentIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentIngestService.class);
+
+    private static final byte[] SIGNATURE_PDF = {'%', 'P', 'D', 'F'};
+    // Les lecteurs PDF tolèrent des octets avant l'en-tête : on le cherche dans le premier kilo-octet
+    private static final int ZONE_SIGNATURE_PDF = 1024;
+
+    /** Fichier préparé, prêt à être publié. */
+    private record Piece(String nom, String type, String contentType, Path fichier, String ref) {}
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    @Qualifier("documentIngestExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${document.ingest.staging-dir:${upload.directory}/.staging}")
+    private String stagingDir;
+
+    @Value("${document.ingest.max-file-bytes:5242880}")
+    private long maxFileBytes;
+
+    @Value("${document.ingest.extensions:pdf,doc,docx,odt,png,jpg,jpeg}")
+    private String extensions;
+
+    private Path staging;
+    private Set<String> extensionsAutorisees;
+
+    @PostConstruct
+    public void init() throws IOException {
+        staging = Paths.get(stagingDir).toAbsolutePath().normalize();
+        Files.createDirectories(staging);
+        extensionsAutorisees = Arrays.stream(extensions.split(","))
+                .map(e -> e.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @throws IllegalArgumentException si un fichier est refusé (aucun document n'est alors enregistré)
+     */
+    public List<Document> ingerer(Stage stage, List<MultipartFile> fichiers, List<String> types) throws IOException {
+        if (types.size() < fichiers.size()) {
+            throw new IllegalArgumentException("Un type est attendu pour chaque fichier");
+        }
+
+        List<CompletableFuture<Piece>> preparations = new ArrayList<>();
+        for (int i = 0; i < fichiers.size(); i++) {
+            MultipartFile fichier = fichiers.get(i);
+            if (fichier == null || fichier.isEmpty()) continue;
+            String type = types.get(i);
+            preparations.add(CompletableFuture.supplyAsync(() -> preparer(stage.getId(), fichier, type), executor));
+        }
+
+        List<Piece> pieces = attendre(preparations);
+        if (pieces.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> publies = new ArrayList<>(pieces.size());
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                List<Document> docs = new ArrayList<>(pieces.size());
+                for (Piece p : pieces) {
+                    Document doc = new Document();
+                    doc.setNom(p.nom());
+                    doc.setType(p.type());
+                    doc.setBlobRef(p.ref());
+                    doc.setStage(stage);
+                    docs.add(doc);
+                }
+                List<Document> saved = documentRepository.saveAll(docs);
+                // Les lignes ne sont visibles qu'au commit : un fichier publié sans ligne
+                // est retiré ci-dessous, une ligne sans fichier n'existe jamais
+                publier(pieces, publies);
+                return saved;
+            });
+        } catch (UncheckedIOException e) {
+            retirer(publies);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            retirer(publies);
+            throw e;
+        } finally {
+            nettoyer(pieces);
+        }
+    }
+
+    private Piece preparer(Long stageId, MultipartFile fichier, String type) {
+        String nom = fichier.getOriginalFilename() != null ? fichier.getOriginalFilename() : "document";
+        if (fichier.getSize() > maxFileBytes) {
+            throw new IllegalArgumentException("Fichier trop volumineux : " + nom);
+        }
+        String extension = nom.contains(".") ? nom.substring(nom.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT) : "";
+        if (!extensionsAutorisees.contains(extension)) {
+            throw new IllegalArgumentException("Type de fichier non autorisé : " + nom);
+        }
+
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(staging, "doc-", ".part");
+            MessageDigest md = Empreintes.sha256();
+            byte[] debut = new byte[ZONE_SIGNATURE_PDF];
+            int lus = 0;
+            try (InputStream in = fichier.getInputStream();
+                 OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING)) {
+                byte[] buf = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    if (lus < debut.length) {
+                        int k = Math.min(n, debut.length - lus);
+                        System.arraycopy(buf, 0, debut, lus, k);
+                        lus += k;
+                    }
+                    md.update(buf, 0, n);
+                    out.write(buf, 0, n);
+                }
+            }
+            if (extension.equals("pdf") && !contientSignaturePdf(debut, lus)) {
+                throw new IllegalArgumentException("Fichier PDF invalide : " + nom);
+            }
+
+            // Deux fichiers de même nom dans la même milliseconde ne doivent pas partager la clé
+            String cle = BlobStorageService.cle("stages", stageId, UUID.randomUUID() + "_" + nom);
+            String ref = blobStorageService.refPrevue(BlobStorageService.DOCUMENT, cle, Empreintes.hex(md));
+            return new Piece(nom, type, fichier.getContentType(), tmp, ref);
+        } catch (IOException e) {
+            supprimer(tmp);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            supprimer(tmp);
+            throw e;
+        }
+    }
+
+    static boolean contientSignaturePdf(byte[] debut, int longueur) {
+        for (int i = 0; i + SIGNATURE_PDF.length <= longueur; i++) {
+            if (Arrays.equals(debut, i, i + SIGNATURE_PDF.length, SIGNATURE_PDF, 0, SIGNATURE_PDF.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Attend toutes les préparations ; en cas d'échec, supprime celles qui ont abouti
+    private List<Piece> attendre(List<CompletableFuture<Piece>> preparations) throws IOException {
+        try {
+            CompletableFuture.allOf(preparations.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            preparations.stream()
+                    .filter(f -> !f.isCompletedExceptionally())
+                    .forEach(f -> supprimer(f.join().fichier()));
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+        return preparations.stream().map(CompletableFuture::join).toList();
+    }
+
+    // Avant commit : une exception ici annule la transaction
+    private void publier(List<Piece> pieces, List<String> publies) {
+        for (Piece p : pieces) {
+            try {
+                blobStorageService.publier(p.ref(), p.fichier(), p.contentType());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            publies.add(p.ref());
+        }
+    }
+
+    // Transaction annulée : les fichiers déjà publiés n'ont plus de ligne
+    private void retirer(List<String> publies) {
+        for (String ref : publies) {
+            try {
+                blobStorageService.supprimer(ref);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Fichier {} publié sans document enregistré, non supprimé", ref, e);
+            }
+        }
+    }
+
+    private void nettoyer(List<Piece> pieces) {
+        pieces.forEach(p -> supprimer(p.fichier()));
+    }
+
+    private static void supprimer(Path p) {
+        if (p == null) return;
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            log.warn("Fichier de préparation {} non supprimé", p);
+        }
+    }
+}
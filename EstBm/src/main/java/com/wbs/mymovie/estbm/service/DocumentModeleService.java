@@ -4,7 +4,12 @@ import com.wbs.mymovie.estbm.model.DocumentModele;
 import com.wbs.mymovie.estbm.repository.DocumentModeleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Optional;
 
 @Service
@@ -12,7 +17,42 @@ public class DocumentModeleService {
     @Autowired
     private DocumentModeleRepository docRepo;
 
+    @Autowired
+    private BlobStorageService blobStorageService;
+
     public Optional<DocumentModele> getParType(String type) {
         return docRepo.findByType(type);
     }
-}
\ No newline at end of file
+
+    /** Remplace (ou crée) le modèle d'un type ; l'ancien fichier est supprimé du stockage. */
+    public DocumentModele enregistrer(String type, MultipartFile file) throws IOException {
+        DocumentModele modele = docRepo.findByType(type).orElseGet(DocumentModele::new);
+        String ancienneRef = modele.getBlobRef();
+
+        String cle = BlobStorageService.cle("modeles", type, System.currentTimeMillis() + "_" + file.getOriginalFilename());
+        BlobStorageService.Stocke stocke;
+        try (InputStream in = file.getInputStream()) {
+            stocke = blobStorageService.put(BlobStorageService.MODELE, cle, in, file.getContentType());
+        }
+
+        modele.setType(type);
+        modele.setBlobRef(stocke.ref());
+        DocumentModele saved = docRepo.save(modele);
+
+        if (ancienneRef != null) {
+            blobStorageService.supprimer(ancienneRef);
+        }
+        return saved;
+    }
+
+    /** Contenu du modèle : référence de stockage, ou ancien chemin disque. */
+    public InputStream ouvrir(DocumentModele modele) throws IOException {
+        if (modele.getBlobRef() != null) {
+            return blobStorageService.ouvrir(modele.getBlobRef());
+        }
+        if (modele.getTemplatePath() == null) {
+            throw new IOException("Aucun fichier pour le modèle " + modele.getType());
+        }
+        return Files.newInputStream(Paths.get(modele.getTemplatePath()));
+    }
+}
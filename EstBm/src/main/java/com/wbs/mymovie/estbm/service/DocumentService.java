@@ -1,17 +1,18 @@
 package com.wbs.mymovie.estbm.service;
 
+import com.wbs.mymovie.estbm.dto.DocumentDto;
 import com.wbs.mymovie.estbm.model.Document;
 import com.wbs.mymovie.estbm.model.Etudiant;
 import com.wbs.mymovie.estbm.repository.DocumentRepository;
 import com.wbs.mymovie.estbm.repository.EtudiantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -21,18 +22,27 @@ public class DocumentService {
 
     private final DocumentRepository documentRepository;
     private final EtudiantRepository etudiantRepository;
+    private final BlobStorageService blobStorageService;
 
     @Autowired
     public DocumentService(DocumentRepository documentRepository,
-                           EtudiantRepository etudiantRepository) {
+                           EtudiantRepository etudiantRepository,
+                           BlobStorageService blobStorageService) {
         this.documentRepository = documentRepository;
         this.etudiantRepository = etudiantRepository;
+        this.blobStorageService = blobStorageService;
     }
 
-    public List<Document> getDocumentsByStudentEmail(String email) {
+    public List<DocumentDto> getDocumentsByStudentEmail(String email) {
         Etudiant etudiant = etudiantRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Étudiant non trouvé"));
-        return documentRepository.findByEtudiantId(etudiant.getId());
+        return documentRepository.findDtosByEtudiantId(etudiant.getId());
+    }
+
+    public DocumentDto toDto(Document d) {
+        return new DocumentDto(d.getId(), d.getNom(), d.getType(),
+                d.getStage() != null ? d.getStage().getId() : null,
+                d.getEtudiant() != null ? d.getEtudiant().getId() : null);
     }
 
     public Document getDocumentById(Long id) {
@@ -44,24 +54,50 @@ public class DocumentService {
         Etudiant etudiant = etudiantRepository.findById(etudiantId)
                 .orElseThrow(() -> new RuntimeException("Étudiant non trouvé"));
 
-        // Créer le dossier s'il n'existe pas
-        Path uploadPath = Paths.get("uploads/documents");
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        // Nom de fichier unique, stocké sur le backend des documents (storage.backend.document)
+        String cle = BlobStorageService.cle("documents", etudiantId,
+                System.currentTimeMillis() + "_" + file.getOriginalFilename());
+        BlobStorageService.Stocke stocke;
+        try (InputStream in = file.getInputStream()) {
+            stocke = blobStorageService.put(BlobStorageService.DOCUMENT, cle, in, file.getContentType());
         }
 
-        // Générer un nom de fichier unique
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath);
-
         // Créer et sauvegarder le document
         Document document = new Document();
         document.setNom(file.getOriginalFilename());
         document.setType(type);
-        document.setCheminFichier(filePath.toString());
+        document.setBlobRef(stocke.ref());
         document.setEtudiant(etudiant);
 
         return documentRepository.save(document);
     }
-}
\ No newline at end of file
+
+    /**
+     * Fichier local d'un document (lecture directe, sans copie), ou null s'il est sur un backend distant.
+     * Les documents enregistrés avant le stockage par référence sont lus via cheminFichier.
+     */
+    public Path cheminLocal(Document document) throws IOException {
+        if (document.getBlobRef() == null) {
+            Path chemin = Paths.get(document.getCheminFichier());
+            if (!Files.isRegularFile(chemin)) {
+                throw new NoSuchFileException(chemin.toString());
+            }
+            return chemin;
+        }
+        return blobStorageService.cheminLocal(document.getBlobRef());
+    }
+
+    /** Flux du document depuis son backend (quand {@link #cheminLocal} renvoie null). */
+    public InputStream ouvrirFlux(Document document) throws IOException {
+        return blobStorageService.ouvrir(document.getBlobRef());
+    }
+
+    /** SHA-256 du contenu quand la référence le contient déjà (stockage adressé par contenu), sinon null. */
+    public String empreinte(Document document) {
+        String ref = document.getBlobRef();
+        if (ref == null || !ref.startsWith(ContentAddressedBlobStore.NOM + ":")) {
+            return null;
+        }
+        return ref.substring(ref.lastIndexOf('/') + 1);
+    }
+}
@@ -4,6 +4,7 @@ import com.wbs.mymovie.estbm.dto.DecisionDto;
 import com.wbs.mymovie.estbm.dto.DepartementDto;
 import com.wbs.mymovie.estbm.dto.EncadrantProfileDto;
 import com.wbs.mymovie.estbm.dto.NoteDto;
+import com.wbs.mymovie.estbm.dto.StageDto;
 import com.wbs.mymovie.estbm.model.Departement;
 import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Stage;
@@ -26,6 +27,9 @@ public class EncadrantService {
     @Autowired
     private StageRepository stageRepository;
 
+    @Autowired
+    private StageStatistiquesService stageStatistiquesService;
+
     /**
      * Valider un stage par l'encadrant.
      */
@@ -39,8 +43,10 @@ public class EncadrantService {
         if (stageOpt.isPresent()) {
             Stage stage = stageOpt.get();
             if (stage.getEncadrant() != null && stage.getEncadrant().getId().equals(idEncadrant)) {
+                EtatStage ancienEtat = stage.getEtat();
                 stage.setEtat(EtatStage.valueOf("REFUSE"));
                 stageRepository.save(stage);
+                stageStatistiquesService.transition(stage, ancienEtat);
                 return true;
             }
         }
@@ -63,8 +69,10 @@ public class EncadrantService {
 
     public String decisionStage(DecisionDto dto) {
         Stage s = stageRepository.findById(dto.getIdStage()).orElseThrow();
+        EtatStage ancienEtat = s.getEtat();
         s.setEtat(dto.isApprouver() ? EtatStage.ACCEPTE : EtatStage.REFUSE);
         stageRepository.save(s);
+        stageStatistiquesService.transition(s, ancienEtat);
         return "OK";
     }
 
@@ -90,17 +98,16 @@ public class EncadrantService {
             throw new RuntimeException("Vous n'êtes pas l'encadrant de ce stage");
         }
 
+        EtatStage ancienEtat = stage.getEtat();
         stage.setEtat(EtatStage.ACCEPTE);
         stageRepository.save(stage);
+        stageStatistiquesService.transition(stage, ancienEtat);
         return true;
     }
 
     // Ajouter cette méthode
-    public List<Stage> listerDemandesPourEncadrant(Long idEncadrant, String filiere) {
-        if (filiere != null) {
-            return stageRepository.findByFiliereAndEtat(filiere, EtatStage.DEMANDE);
-        }
-        return stageRepository.findByEtat(EtatStage.DEMANDE);
+    public List<StageDto> listerDemandesPourEncadrant(Long idEncadrant, String filiere) {
+        return stageRepository.findDtosByEtat(EtatStage.DEMANDE, filiere);
     }
 
 
@@ -29,8 +29,8 @@ public class EtudiantService {
         return etudiantRepository.save(e);
     }
 
-    public Optional<Etudiant> getById(Long id) {
-        return etudiantRepository.findById(id);
+    public Optional<EtudiantProfileDto> getById(Long id) {
+        return etudiantRepository.findAvecGroupeById(id).map(this::map);
     }
 
 
@@ -49,10 +49,11 @@ public class EtudiantService {
 
 
     public EtudiantProfileDto getProfile(Long id) {
-        Etudiant e = etudiantRepository.findById(id).orElseThrow();
+        Etudiant e = etudiantRepository.findAvecGroupeById(id).orElseThrow();
         return map(e);
     }
-    private EtudiantProfileDto map(Etudiant e) {
+
+    public EtudiantProfileDto map(Etudiant e) {
         Departement d = e.getDepartement();
         ClasseGroupe c = e.getClasseGroupe();
         AnneeScolaire a = e.getAnneeScolaire();
@@ -61,9 +62,10 @@ public class EtudiantService {
         dto.setEmail(e.getEmail()); dto.setTelephone(e.getTelephone());
         dto.setCodeApogee(e.getCodeApogee()); dto.setCodeMassar(e.getCodeMassar());
         dto.setDateNaissance(e.getDateNaissance());
-        dto.setDepartement(new DepartementDto(d.getId(), d.getNom()));
-        dto.setClasseGroupe(new ClasseGroupeDto(c.getId(), c.getNom()));
-        dto.setAnneeScolaire(new AnneeScolaireDto(a.getId(), a.getLibelle()));
+        // Étudiant pas encore affecté à un groupe : champs laissés vides
+        if (d != null) dto.setDepartement(new DepartementDto(d.getId(), d.getNom()));
+        if (c != null) dto.setClasseGroupe(new ClasseGroupeDto(c.getId(), c.getNom()));
+        if (a != null) dto.setAnneeScolaire(new AnneeScolaireDto(a.getId(), a.getLibelle()));
         return dto;
     }
     public void assignAttributes(AssignmentDto dto) {
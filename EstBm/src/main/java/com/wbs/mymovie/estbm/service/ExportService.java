@@ -0,0 +1,130 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.util.ExportWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Exports des listes (stages, étudiants, affectations, rapports) en CSV / XLSX / PDF.
+ *
+ * Les lignes sont lues par un curseur serveur (projection scalaire, donc rien dans le
+ * contexte de persistance) et écrites au fil de l'eau dans la réponse : la mémoire
+ * utilisée ne dépend pas du nombre de lignes.
+ */
+@Service
+public class ExportService {
+
+    private record Liste(String titre, String[] colonnes, String jpql) {}
+
+    private static final Map<String, Liste> LISTES = Map.of(
+            "stages", new Liste("Stages",
+                    new String[]{"Id", "Sujet", "Entreprise", "Filière", "État", "Début", "Fin",
+                            "Nom étudiant", "Prénom étudiant", "Code Apogée", "Nom encadrant", "Prénom encadrant"},
+                    "SELECT s.id, s.sujet, s.entreprise, s.filiere, s.etat, s.dateDebut, s.dateFin, "
+                            + "e.nom, e.prenom, e.codeApogee, enc.nom, enc.prenom "
+                            + "FROM Stage s LEFT JOIN s.etudiant e LEFT JOIN s.encadrant enc ORDER BY s.id"),
+            "etudiants", new Liste("Etudiants",
+                    new String[]{"Id", "Code Apogée", "Code Massar", "Nom", "Prénom", "Email", "Téléphone",
+                            "Département", "Classe", "Année"},
+                    "SELECT e.id, e.codeApogee, e.codeMassar, e.nom, e.prenom, e.email, e.telephone, "
+                            + "d.nom, cg.nom, a.libelle "
+                            + "FROM Etudiant e LEFT JOIN e.departement d LEFT JOIN e.classeGroupe cg "
+                            + "LEFT JOIN e.anneeScolaire a ORDER BY e.id"),
+            "affectations", new Liste("Affectations",
+                    new String[]{"Id étudiant", "Nom étudiant", "Prénom étudiant", "Id encadrant",
+                            "Nom encadrant", "Prénom encadrant"},
+                    "SELECT e.id, e.nom, e.prenom, enc.id, enc.nom, enc.prenom "
+                            + "FROM Etudiant e JOIN e.encadrant enc ORDER BY e.id"),
+            "rapports", new Liste("Rapports",
+                    new String[]{"Id", "Fichier", "Date de dépôt", "Nom étudiant", "Prénom étudiant", "Sujet", "URL"},
+                    "SELECT r.id, r.nomFichier, r.dateDepot, e.nom, e.prenom, s.sujet, r.cloudinaryUrl "
+                            + "FROM Rapport r LEFT JOIN r.etudiant e LEFT JOIN r.stage s ORDER BY r.id")
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${export.xlsx.window:100}")
+    private int fenetreXlsx;
+
+    @Value("${export.pdf.rows-per-block:200}")
+    private int lignesParBlocPdf;
+
+    public ResponseEntity<?> exporter(String type, String format) {
+        Liste liste = LISTES.get(type == null ? "" : type.toLowerCase());
+        if (liste == null) {
+            return ResponseEntity.badRequest().body("Liste inconnue : " + type);
+        }
+        if (!ExportWriter.estSupporte(format)) {
+            return ResponseEntity.badRequest().body("Format non supporté : " + format);
+        }
+
+        String fmt = format.toLowerCase();
+        StreamingResponseBody body = flux(fmt, liste.titre(), liste.colonnes(), liste.jpql(), Map.of());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=" + liste.titre().toLowerCase() + "." + fmt)
+                .contentType(ExportWriter.mediaType(fmt))
+                .body(body);
+    }
+
+    /**
+     * Corps de réponse en flux pour une requête JPQL à projection scalaire
+     * (une ligne Object[] par ligne exportée, dans l'ordre des colonnes).
+     */
+    public StreamingResponseBody flux(String format, String titre, String[] colonnes,
+                                      String jpql, Map<String, Object> params) {
+        return out -> ecrire(format, titre, colonnes, jpql, params, out);
+    }
+
+    /**
+     * Exécuté sur le thread asynchrone de la réponse : le curseur PostgreSQL exige
+     * une transaction (autocommit désactivé), d'où la transaction en lecture seule.
+     */
+    private void ecrire(String format, String titre, String[] colonnes, String jpql,
+                        Map<String, Object> params, OutputStream out) throws IOException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        try {
+            tx.executeWithoutResult(status -> {
+                TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class)
+                        .setHint("org.hibernate.fetchSize", fetchSize)
+                        .setHint("org.hibernate.readOnly", true);
+                params.forEach(query::setParameter);
+                try (ExportWriter writer = ExportWriter.pour(format, titre, out, fenetreXlsx, lignesParBlocPdf);
+                     Stream<Object[]> lignes = query.getResultStream()) {
+                    writer.entete(colonnes);
+                    for (Object[] ligne : (Iterable<Object[]>) lignes::iterator) {
+                        writer.ligne(ligne);
+                    }
+                    writer.terminer();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
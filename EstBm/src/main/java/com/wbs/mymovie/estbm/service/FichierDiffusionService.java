@@ -0,0 +1,414 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.util.Empreintes;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Envoi de fichiers en HTTP : ETag fort (empreinte SHA-256 du contenu), réponses 304
+ * (If-None-Match / If-Modified-Since), plages simples et multiples (206, multipart/byteranges, 416).
+ *
+ * Les fichiers disque partent sans copie en mémoire : sendfile de Tomcat quand le
+ * connecteur le propose, sinon {@link FileChannel#transferTo} vers le flux de la réponse.
+ */
+@Service
+public class FichierDiffusionService {
+
+    private static final int MAX_PLAGES = 16;
+    private static final int MAX_EMPREINTES = 10_000;
+
+    // Attributs de requête de Tomcat pour l'envoi par sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHIER = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_DEBUT = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    /** Empreintes déjà calculées, indexées par chemin + taille + date de modification. */
+    private final Map<String, String> empreintes = new ConcurrentHashMap<>();
+
+    private record Plage(long debut, long fin) {
+        long longueur() {
+            return fin - debut + 1;
+        }
+    }
+
+    /** Source des octets : fichier disque ou tableau en mémoire. */
+    private interface Source {
+        long taille();
+
+        void ecrire(long debut, long longueur, OutputStream out) throws IOException;
+    }
+
+    /**
+     * Sert un fichier disque.
+     *
+     * @param empreinte SHA-256 du contenu s'il est déjà connu (stockage adressé par contenu), sinon null
+     */
+    public void servirFichier(HttpServletRequest request, HttpServletResponse response, Path fichier,
+                              String nomFichier, String contentType, String empreinte) throws IOException {
+        long taille = Files.size(fichier);
+        Instant modif = Files.getLastModifiedTime(fichier).toInstant();
+        String etag = "\"" + (empreinte != null ? empreinte : empreinte(fichier, taille, modif)) + "\"";
+
+        Source source = new Source() {
+            @Override
+            public long taille() {
+                return taille;
+            }
+
+            @Override
+            public void ecrire(long debut, long longueur, OutputStream out) throws IOException {
+                try (FileChannel channel = FileChannel.open(fichier, StandardOpenOption.READ)) {
+                    transferer(channel, debut, longueur, out);
+                }
+            }
+        };
+        servir(request, response, source, fichier, nomFichier, contentType, etag, modif);
+    }
+
+    /**
+     * Sert un fichier déjà ouvert par l'appelant (cache disque dont l'entrée peut être évincée
+     * pendant l'envoi). Sans sendfile : Tomcat rouvrirait le fichier par son chemin.
+     *
+     * @param version identifiant de version déjà connu du contenu, utilisé comme ETag
+     */
+    public void servirCanal(HttpServletRequest request, HttpServletResponse response, FileChannel canal,
+                            String nomFichier, String contentType, String version) throws IOException {
+        long taille = canal.size();
+        Source source = new Source() {
+            @Override
+            public long taille() {
+                return taille;
+            }
+
+            @Override
+            public void ecrire(long debut, long longueur, OutputStream out) throws IOException {
+                transferer(canal, debut, longueur, out);
+            }
+        };
+        servir(request, response, source, null, nomFichier, contentType, "\"" + version + "\"", null);
+    }
+
+    /** Sert un contenu déjà en mémoire (document généré), avec les mêmes règles de cache et de plages. */
+    public void servirOctets(HttpServletRequest request, HttpServletResponse response, byte[] contenu,
+                             String nomFichier, String contentType, Instant modif) throws IOException {
+        servirOctets(request, response, contenu, nomFichier, contentType, modif, Empreintes.sha256Hex(contenu));
+    }
+
+    /** @param version identifiant de version déjà connu du contenu, utilisé comme ETag */
+    public void servirOctets(HttpServletRequest request, HttpServletResponse response, byte[] contenu,
+                             String nomFichier, String contentType, Instant modif, String version) throws IOException {
+        String etag = "\"" + version + "\"";
+        Source source = new Source() {
+            @Override
+            public long taille() {
+                return contenu.length;
+            }
+
+            @Override
+            public void ecrire(long debut, long longueur, OutputStream out) throws IOException {
+                out.write(contenu, (int) debut, (int) longueur);
+            }
+        };
+        servir(request, response, source, null, nomFichier, contentType, etag, modif);
+    }
+
+    /**
+     * Répond 304 si le client a déjà cette version, avant que le contenu ne soit produit
+     * (document généré à la demande).
+     *
+     * @return true si la réponse 304 est envoyée
+     */
+    public boolean repondreSiNonModifie(HttpServletRequest request, HttpServletResponse response, String version) {
+        String etag = "\"" + version + "\"";
+        if (!nonModifie(request, etag, null)) {
+            return false;
+        }
+        entetesValidation(response, etag, null);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    /**
+     * Prépare une réponse complète dont l'appelant écrit le corps au fil de l'eau (taille
+     * inconnue d'avance), avec l'ETag de la version pour les revalidations suivantes.
+     */
+    public OutputStream ouvrirFlux(HttpServletResponse response, String nomFichier, String contentType,
+                                   String version) throws IOException {
+        entetesValidation(response, "\"" + version + "\"", null);
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition(nomFichier));
+        return response.getOutputStream();
+    }
+
+    /** Sert un flux distant sans plage ni validation (taille et contenu inconnus d'avance). */
+    public void servirFlux(HttpServletResponse response, InputStream contenu, String nomFichier,
+                           String contentType) throws IOException {
+        try (InputStream in = contenu) {
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition(nomFichier));
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    private void servir(HttpServletRequest request, HttpServletResponse response, Source source, Path fichier,
+                        String nomFichier, String contentType, String etag, Instant modif) throws IOException {
+        long taille = source.taille();
+        boolean head = "HEAD".equals(request.getMethod());
+
+        entetesValidation(response, etag, modif);
+
+        if (nonModifie(request, etag, modif)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition(nomFichier));
+
+        List<Plage> plages = plagesDemandees(request, etag, modif, taille);
+        if (plages != null && plages.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + taille);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        if (plages == null || plages.size() == 1) {
+            Plage plage = plages == null ? new Plage(0, taille - 1) : plages.get(0);
+            if (plages != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + plage.debut() + "-" + plage.fin() + "/" + taille);
+            }
+            response.setContentType(contentType);
+            response.setContentLengthLong(taille == 0 ? 0 : plage.longueur());
+            if (head || taille == 0) {
+                return;
+            }
+            if (fichier != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat envoie le fichier lui-même après le retour du contrôleur
+                request.setAttribute(SENDFILE_FICHIER, fichier.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_DEBUT, plage.debut());
+                request.setAttribute(SENDFILE_FIN, plage.fin() + 1);
+                return;
+            }
+            source.ecrire(plage.debut(), plage.longueur(), response.getOutputStream());
+            return;
+        }
+
+        // Plusieurs plages : multipart/byteranges
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> entetes = new ArrayList<>(plages.size());
+        long longueur = 0;
+        for (Plage p : plages) {
+            byte[] entete = ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + p.debut() + "-" + p.fin() + "/" + taille + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            entetes.add(entete);
+            longueur += entete.length + p.longueur();
+        }
+        byte[] fin = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        longueur += fin.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(longueur);
+        if (head) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        for (int i = 0; i < plages.size(); i++) {
+            out.write(entetes.get(i));
+            source.ecrire(plages.get(i).debut(), plages.get(i).longueur(), out);
+        }
+        out.write(fin);
+    }
+
+    private static void transferer(FileChannel channel, long debut, long longueur, OutputStream out)
+            throws IOException {
+        WritableByteChannel cible = Channels.newChannel(out);
+        long pos = debut;
+        long restant = longueur;
+        while (restant > 0) {
+            long n = channel.transferTo(pos, restant, cible);
+            if (n <= 0) {
+                throw new IOException("Fichier tronqué");
+            }
+            pos += n;
+            restant -= n;
+        }
+    }
+
+    private static void entetesValidation(HttpServletResponse response, String etag, Instant modif) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (modif != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, modif.toEpochMilli());
+        }
+    }
+
+    // If-None-Match prime sur If-Modified-Since (RFC 9110 §13.2.2)
+    private static boolean nonModifie(HttpServletRequest request, String etag, Instant modif) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidat : ifNoneMatch.split(",")) {
+                String c = candidat.trim();
+                if (c.startsWith("W/")) {
+                    c = c.substring(2);
+                }
+                if (c.equals("*") || c.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (modif == null) {
+            return false;
+        }
+        long ifModifiedSince = dateEntete(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && modif.getEpochSecond() <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Plages triées, celles qui se chevauchent ou se touchent fusionnées : le total
+     * envoyé ne dépasse jamais la taille du fichier (RFC 9110 §14.2).
+     *
+     * @return null pour une réponse complète, une liste vide si aucune plage n'est satisfaisable
+     */
+    private static List<Plage> plagesDemandees(HttpServletRequest request, String etag, Instant modif, long taille) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !range.startsWith("bytes=")) {
+            return null;
+        }
+        // If-Range : plage servie seulement si la version du client est toujours la bonne
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals(etag)) {
+                    return null;
+                }
+            } else {
+                long date = dateEntete(request, HttpHeaders.IF_RANGE);
+                if (modif == null || date < 0 || modif.getEpochSecond() != date / 1000) {
+                    return null;
+                }
+            }
+        }
+
+        String[] specs = range.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_PLAGES) {
+            return null;
+        }
+        List<Plage> plages = new ArrayList<>();
+        for (String spec : specs) {
+            String s = spec.trim();
+            int tiret = s.indexOf('-');
+            if (tiret < 0) {
+                return null;
+            }
+            try {
+                long debut;
+                long fin;
+                if (tiret == 0) {
+                    // Suffixe : les N derniers octets
+                    long n = Long.parseLong(s.substring(1));
+                    if (n <= 0) {
+                        continue;
+                    }
+                    debut = Math.max(0, taille - n);
+                    fin = taille - 1;
+                } else {
+                    debut = Long.parseLong(s.substring(0, tiret));
+                    fin = tiret == s.length() - 1 ? taille - 1 : Math.min(Long.parseLong(s.substring(tiret + 1)), taille - 1);
+                }
+                if (debut > fin || debut >= taille) {
+                    continue;
+                }
+                plages.add(new Plage(debut, fin));
+            } catch (NumberFormatException e) {
+                // En-tête invalide : on l'ignore et on renvoie tout le fichier
+                return null;
+            }
+        }
+        return fusionner(plages);
+    }
+
+    private static List<Plage> fusionner(List<Plage> plages) {
+        if (plages.size() < 2) {
+            return plages;
+        }
+        plages.sort(Comparator.comparingLong(Plage::debut));
+        List<Plage> fusionnees = new ArrayList<>(plages.size());
+        Plage courante = plages.get(0);
+        for (Plage p : plages.subList(1, plages.size())) {
+            if (p.debut() <= courante.fin() + 1) {
+                courante = new Plage(courante.debut(), Math.max(courante.fin(), p.fin()));
+            } else {
+                fusionnees.add(courante);
+                courante = p;
+            }
+        }
+        fusionnees.add(courante);
+        return fusionnees;
+    }
+
+    private static long dateEntete(HttpServletRequest request, String nom) {
+        try {
+            return request.getDateHeader(nom);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private String empreinte(Path fichier, long taille, Instant modif) throws IOException {
+        String cle = fichier.toAbsolutePath() + "|" + taille + "|" + modif.toEpochMilli();
+        String connue = empreintes.get(cle);
+        if (connue != null) {
+            return connue;
+        }
+        MessageDigest md = Empreintes.sha256();
+        try (FileChannel channel = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buf) > 0) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+        }
+        String hash = Empreintes.hex(md);
+        if (empreintes.size() >= MAX_EMPREINTES) {
+            empreintes.clear();
+        }
+        empreintes.put(cle, hash);
+        return hash;
+    }
+
+    private static String disposition(String nomFichier) {
+        return ContentDisposition.attachment().filename(nomFichier, StandardCharsets.UTF_8).build().toString();
+    }
+}
@@ -0,0 +1,407 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.tool.xml.XMLWorkerHelper;
+import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
+import com.wbs.mymovie.estbm.model.DetailSoutenance;
+import com.wbs.mymovie.estbm.model.DocumentModele;
+import com.wbs.mymovie.estbm.model.Encadrant;
+import com.wbs.mymovie.estbm.model.Etudiant;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.repository.DetailSoutenanceRepository;
+import com.wbs.mymovie.estbm.repository.StageRepository;
+import com.wbs.mymovie.estbm.util.Empreintes;
+import com.wbs.mymovie.estbm.util.GabaritTexte;
+import com.wbs.mymovie.estbm.util.LruMemoire;
+import jakarta.annotation.PostConstruct;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFFooter;
+import org.apache.poi.xwpf.usermodel.XWPFHeader;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Génération de documents (conventions, attestations, convocations...) à partir des
+ * modèles DocumentModele : DOCX ou HTML contenant des variables {@code {{ stage.sujet }}}.
+ *
+ * Chaque modèle est compilé une fois par version (référence de stockage ou date du
+ * fichier) : le rendu ne fait plus que concaténer des segments pré-découpés.
+ * DOCX → DOCX ; HTML → PDF (XMLWorker) ou HTML.
+ *
+ * Le passage HTML → PDF reste une mise en page complète : les documents produits sont
+ * gardés dans un petit cache LRU (clé = version du modèle + empreinte des valeurs).
+ */
+@Service
+public class GenerationDocumentService {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter HEURE = DateTimeFormatter.ofPattern("HH:mm");
+
+    /** Document produit. */
+    public record DocumentGenere(byte[] contenu, String contentType, String extension) {}
+
+    /** Modèle compilé, valable pour une version donnée du fichier. */
+    private interface ModeleCompile {
+        String version();
+
+        DocumentGenere rendre(Map<String, String> valeurs, String format) throws IOException, DocumentException;
+    }
+
+    @Autowired
+    private DocumentModeleService documentModeleService;
+
+    @Autowired
+    private StageRepository stageRepository;
+
+    @Autowired
+    private DetailSoutenanceRepository detailSoutenanceRepository;
+
+    private final Map<String, ModeleCompile> compiles = new ConcurrentHashMap<>();
+
+    @Value("${document.generation.cache-entries:256}")
+    private int cacheEntrees;
+
+    private LruMemoire<String, DocumentGenere> generes;
+
+    @PostConstruct
+    public void init() {
+        generes = LruMemoire.parNombre(cacheEntrees);
+    }
+
+    /**
+     * @param format pdf ou html pour un modèle HTML ; ignoré pour un modèle DOCX
+     */
+    public DocumentGenere generer(String type, Long stageId, String format) throws IOException, DocumentException {
+        DocumentModele modele = documentModeleService.getParType(type)
+                .orElseThrow(() -> new ResourceNotFoundException("Aucun modèle de type " + type));
+        Stage stage = stageRepository.findById(stageId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stage introuvable"));
+        ModeleCompile compile = compile(modele);
+        String fmt = format == null ? "pdf" : format.toLowerCase(Locale.ROOT);
+        Map<String, String> valeurs = donnees(stage);
+
+        String cle = cleCache(modele.getType(), compile.version(), fmt, valeurs);
+        DocumentGenere deja = generes.get(cle);
+        if (deja != null) {
+            return deja;
+        }
+        DocumentGenere doc = compile.rendre(valeurs, fmt);
+        generes.put(cle, doc);
+        return doc;
+    }
+
+    private static String cleCache(String type, String version, String format, Map<String, String> valeurs) {
+        MessageDigest md = Empreintes.sha256();
+        for (String s : new String[]{type, version, format}) {
+            md.update(s.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+        for (Map.Entry<String, String> e : new TreeMap<>(valeurs).entrySet()) {
+            md.update(e.getKey().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '=');
+            md.update(String.valueOf(e.getValue()).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+        return Empreintes.hex(md);
+    }
+
+    /** Variables disponibles dans les modèles, renseignées pour un stage. */
+    public Map<String, String> donnees(Stage stage) {
+        Map<String, String> v = new HashMap<>();
+        v.put("date.jour", LocalDate.now().format(DATE));
+
+        v.put("stage.id", String.valueOf(stage.getId()));
+        v.put("stage.sujet", stage.getSujet());
+        v.put("stage.entreprise", stage.getEntreprise());
+        v.put("stage.adresseEntreprise", stage.getAdresseEntreprise());
+        v.put("stage.telephoneEntreprise", stage.getTelephoneEntreprise());
+        v.put("stage.representantEntreprise", stage.getRepresentantEntreprise());
+        v.put("stage.filiere", stage.getFiliere());
+        v.put("stage.dateDebut", date(stage.getDateDebut()));
+        v.put("stage.dateFin", date(stage.getDateFin()));
+        if (stage.getDateDebut() != null && stage.getDateFin() != null) {
+            v.put("stage.dureeSemaines", String.valueOf(ChronoUnit.WEEKS.between(stage.getDateDebut(), stage.getDateFin())));
+        }
+
+        Etudiant e = stage.getEtudiant();
+        if (e != null) {
+            v.put("etudiant.nom", e.getNom());
+            v.put("etudiant.prenom", e.getPrenom());
+            v.put("etudiant.email", e.getEmail());
+            v.put("etudiant.telephone", e.getTelephone());
+            v.put("etudiant.codeApogee", e.getCodeApogee());
+            v.put("etudiant.codeMassar", e.getCodeMassar());
+            v.put("etudiant.dateNaissance", date(e.getDateNaissance()));
+            if (e.getDepartement() != null) v.put("etudiant.departement", e.getDepartement().getNom());
+            if (e.getClasseGroupe() != null) v.put("etudiant.classe", e.getClasseGroupe().getNom());
+            if (e.getAnneeScolaire() != null) v.put("etudiant.anneeScolaire", e.getAnneeScolaire().getLibelle());
+
+            // Dernière soutenance planifiée de l'étudiant (convocations)
+            detailSoutenanceRepository.findByEtudiantId(e.getId()).stream()
+                    .filter(d -> d.getDateSoutenance() != null)
+                    .max(Comparator.comparing(DetailSoutenance::getDateSoutenance))
+                    .ifPresent(d -> {
+                        v.put("soutenance.date", date(d.getDateSoutenance()));
+                        if (d.getHeureDebut() != null) v.put("soutenance.heureDebut", d.getHeureDebut().format(HEURE));
+                        if (d.getHeureFin() != null) v.put("soutenance.heureFin", d.getHeureFin().format(HEURE));
+                        v.put("soutenance.sujet", d.getSujet());
+                    });
+        }
+
+        Encadrant enc = stage.getEncadrant();
+        if (enc != null) {
+            v.put("encadrant.nom", enc.getNom());
+            v.put("encadrant.prenom", enc.getPrenom());
+            v.put("encadrant.email", enc.getEmail());
+            v.put("encadrant.telephone", enc.getTelephone());
+            v.put("encadrant.specialite", enc.getSpecialite());
+        }
+        return v;
+    }
+
+    private ModeleCompile compile(DocumentModele modele) throws IOException {
+        String version = version(modele);
+        ModeleCompile c = compiles.get(modele.getType());
+        if (c != null && c.version().equals(version)) {
+            return c;
+        }
+        // Deux compilations simultanées du même modèle sont sans danger : la dernière l'emporte
+        String nom = (modele.getBlobRef() != null ? modele.getBlobRef() : modele.getTemplatePath()).toLowerCase(Locale.ROOT);
+        byte[] source;
+        try (InputStream in = documentModeleService.ouvrir(modele)) {
+            source = in.readAllBytes();
+        }
+        if (nom.endsWith(".docx")) {
+            c = compilerDocx(version, source);
+        } else if (nom.endsWith(".html") || nom.endsWith(".htm") || nom.endsWith(".xhtml")) {
+            c = compilerHtml(version, new String(source, StandardCharsets.UTF_8));
+        } else {
+            throw new IllegalArgumentException("Modèle non supporté (DOCX ou HTML attendu) : " + nom);
+        }
+        compiles.put(modele.getType(), c);
+        return c;
+    }
+
+    // Nouvelle référence à chaque dépôt ; pour un ancien chemin disque, la date du fichier
+    private static String version(DocumentModele modele) throws IOException {
+        if (modele.getBlobRef() != null) {
+            return modele.getBlobRef();
+        }
+        if (modele.getTemplatePath() == null) {
+            throw new ResourceNotFoundException("Aucun fichier pour le modèle " + modele.getType());
+        }
+        return modele.getTemplatePath() + "@" + Files.getLastModifiedTime(Paths.get(modele.getTemplatePath())).toMillis();
+    }
+
+    // ---------- HTML ----------
+
+    private static ModeleCompile compilerHtml(String version, String source) {
+        GabaritTexte gabarit = GabaritTexte.compiler(source);
+        return new ModeleCompile() {
+            @Override
+            public String version() {
+                return version;
+            }
+
+            @Override
+            public DocumentGenere rendre(Map<String, String> valeurs, String format) throws IOException, DocumentException {
+                String html = gabarit.rendre(valeurs, GabaritTexte::echapperXml);
+                if (format.equals("html")) {
+                    return new DocumentGenere(html.getBytes(StandardCharsets.UTF_8), "text/html;charset=UTF-8", "html");
+                }
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+                com.itextpdf.text.Document document = new com.itextpdf.text.Document(PageSize.A4);
+                PdfWriter writer = PdfWriter.getInstance(document, baos);
+                document.open();
+                XMLWorkerHelper.getInstance().parseXHtml(writer, document, new StringReader(html));
+                document.close();
+                return new DocumentGenere(baos.toByteArray(), "application/pdf", "pdf");
+            }
+        };
+    }
+
+    // ---------- DOCX ----------
+
+    /**
+     * Les variables d'un DOCX sont souvent coupées entre plusieurs "runs" par Word :
+     * elles sont d'abord recollées (POI), puis chaque partie XML est découpée en segments.
+     * Le rendu réécrit l'archive : parties fixes copiées, parties à variables remplies.
+     */
+    private static ModeleCompile compilerDocx(String version, byte[] source) throws IOException {
+        byte[] normalise;
+        try (XWPFDocument doc = new XWPFDocument(new ByteArrayInputStream(source));
+             ByteArrayOutputStream out = new ByteArrayOutputStream(source.length)) {
+            recollerCorps(doc.getBodyElements());
+            for (XWPFHeader h : doc.getHeaderList()) recollerCorps(h.getBodyElements());
+            for (XWPFFooter f : doc.getFooterList()) recollerCorps(f.getBodyElements());
+            doc.write(out);
+            normalise = out.toByteArray();
+        }
+
+        // Ordre d'origine conservé ([Content_Types].xml en tête)
+        Map<String, Object> parties = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(normalise))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                byte[] contenu = zip.readAllBytes();
+                String nom = entry.getName();
+                if (nom.startsWith("word/") && nom.endsWith(".xml")) {
+                    GabaritTexte gabarit = GabaritTexte.compiler(new String(contenu, StandardCharsets.UTF_8));
+                    if (gabarit.contientVariables()) {
+                        parties.put(nom, gabarit);
+                        continue;
+                    }
+                }
+                parties.put(nom, contenu);
+            }
+        }
+
+        return new ModeleCompile() {
+            @Override
+            public String version() {
+                return version;
+            }
+
+            @Override
+            public DocumentGenere rendre(Map<String, String> valeurs, String format) throws IOException {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(normalise.length + 4096);
+                try (ZipOutputStream zip = new ZipOutputStream(baos)) {
+                    UnaryOperator<String> echappement = GabaritTexte::echapperXml;
+                    for (Map.Entry<String, Object> p : parties.entrySet()) {
+                        zip.putNextEntry(new ZipEntry(p.getKey()));
+                        if (p.getValue() instanceof GabaritTexte g) {
+                            zip.write(g.rendre(valeurs, echappement).getBytes(StandardCharsets.UTF_8));
+                        } else {
+                            zip.write((byte[]) p.getValue());
+                        }
+                        zip.closeEntry();
+                    }
+                }
+                return new DocumentGenere(baos.toByteArray(),
+                        "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "docx");
+            }
+        };
+    }
+
+    private static void recollerCorps(List<IBodyElement> elements) {
+        for (IBodyElement el : elements) {
+            if (el instanceof XWPFParagraph p) {
+                recoller(p);
+            } else if (el instanceof XWPFTable t) {
+                for (XWPFTableRow row : t.getRows()) {
+                    for (XWPFTableCell cell : row.getTableCells()) {
+                        recollerCorps(cell.getBodyElements());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Ramène chaque variable {{...}} dans un seul run (celui où elle commence). */
+    private static void recoller(XWPFParagraph paragraphe) {
+        String texte = paragraphe.getText();
+        if (texte == null || !texte.contains("{{")) {
+            return;
+        }
+        List<XWPFRun> runs = paragraphe.getRuns();
+        // Une fusion déplace du texte : positions recalculées avant de chercher la suivante
+        boolean fusionne = true;
+        while (fusionne) {
+            fusionne = false;
+            int[] debuts = new int[runs.size() + 1];
+            StringBuilder concat = new StringBuilder();
+            for (int i = 0; i < runs.size(); i++) {
+                debuts[i] = concat.length();
+                concat.append(texte(runs.get(i)));
+            }
+            debuts[runs.size()] = concat.length();
+
+            Matcher m = GabaritTexte.VARIABLE.matcher(concat);
+            while (m.find()) {
+                int premier = runIndex(debuts, m.start());
+                int dernier = runIndex(debuts, m.end() - 1);
+                if (premier == dernier) {
+                    continue;
+                }
+                StringBuilder fusion = new StringBuilder();
+                for (int i = premier; i <= dernier; i++) {
+                    fusion.append(texte(runs.get(i)));
+                    if (i > premier) {
+                        remplacerTexte(runs.get(i), "");
+                    }
+                }
+                remplacerTexte(runs.get(premier), fusion.toString());
+                fusionne = true;
+                break;
+            }
+        }
+    }
+
+    // Texte complet d'un run : Word peut le répartir sur plusieurs <w:t> (autour d'une tabulation...)
+    private static String texte(XWPFRun run) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < run.getCTR().sizeOfTArray(); i++) {
+            String t = run.getText(i);
+            if (t != null) {
+                sb.append(t);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Tout le texte dans le premier <w:t>, les suivants vidés
+    private static void remplacerTexte(XWPFRun run, String texte) {
+        run.setText(texte, 0);
+        for (int i = 1; i < run.getCTR().sizeOfTArray(); i++) {
+            run.setText("", i);
+        }
+    }
+
+    private static int runIndex(int[] debuts, int position) {
+        for (int i = debuts.length - 2; i >= 0; i--) {
+            if (debuts[i] <= position && debuts[i + 1] > position) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static String date(LocalDate d) {
+        return d == null ? null : d.format(DATE);
+    }
+}
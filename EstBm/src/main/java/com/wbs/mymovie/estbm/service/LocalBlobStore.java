@@ -0,0 +1,140 @@
+package com.wbs.mymovie.estbm.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stockage sur le disque local (NIO). Écriture dans un fichier temporaire
+ * du même répertoire puis déplacement atomique.
+ */
+@Service
+public class LocalBlobStore implements BlobStore {
+
+    @Value("${storage.local.root:${upload.directory}}")
+    private String root;
+
+    private Path racine;
+
+    @PostConstruct
+    public void init() throws IOException {
+        racine = Paths.get(root).toAbsolutePath().normalize();
+        Files.createDirectories(racine);
+    }
+
+    @Override
+    public String nom() {
+        return "local";
+    }
+
+    @Override
+    public Blob put(String cle, InputStream contenu, String contentType) throws IOException {
+        Path cible = resoudre(cle);
+        Files.createDirectories(cible.getParent());
+        Path tmp = Files.createTempFile(cible.getParent(), ".put-", ".tmp");
+        try {
+            long taille = Files.copy(contenu, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Blob(cle, taille, null);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream get(String cle) throws IOException {
+        return Files.newInputStream(resoudre(cle));
+    }
+
+    @Override
+    public InputStream getRange(String cle, long debut, long longueur) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(resoudre(cle), StandardOpenOption.READ);
+        try {
+            channel.position(debut);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new PlageInputStream(Channels.newInputStream(channel), longueur);
+    }
+
+    @Override
+    public long taille(String cle) throws IOException {
+        return Files.size(resoudre(cle));
+    }
+
+    @Override
+    public boolean exists(String cle) {
+        return Files.isRegularFile(resoudre(cle));
+    }
+
+    @Override
+    public boolean delete(String cle) throws IOException {
+        return Files.deleteIfExists(resoudre(cle));
+    }
+
+    @Override
+    public Path cheminLocal(String cle) {
+        Path p = resoudre(cle);
+        return Files.isRegularFile(p) ? p : null;
+    }
+
+    // Refuse toute clé qui sortirait de la racine ("../", chemin absolu)
+    private Path resoudre(String cle) {
+        Path p = racine.resolve(cle).normalize();
+        if (!p.startsWith(racine) || p.equals(racine)) {
+            throw new IllegalArgumentException("Clé de stockage invalide : " + cle);
+        }
+        return p;
+    }
+
+    /** Flux limité à un nombre d'octets (lecture de plage). */
+    static class PlageInputStream extends InputStream {
+        private final InputStream in;
+        private long restant;
+
+        PlageInputStream(InputStream in, long limite) {
+            this.in = in;
+            this.restant = limite;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (restant <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                restant--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (restant <= 0) {
+                return -1;
+            }
+            int n = in.read(buf, off, (int) Math.min(len, restant));
+            if (n > 0) {
+                restant -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.wbs.mymovie.estbm.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exécute l'authentification (et donc le hash BCrypt) soit sur le thread
+ * de la requête (mode "inline"), soit sur le pool borné "loginExecutor"
+ * (mode "pooled", par défaut).
+ */
+@Service
+public class LoginService {
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    @Qualifier("loginExecutor")
+    private ThreadPoolTaskExecutor loginExecutor;
+
+    @Value("${auth.login.mode:pooled}")
+    private String mode;
+
+    /**
+     * @throws org.springframework.core.task.TaskRejectedException si la file du pool est pleine
+     */
+    public CompletableFuture<Authentication> authenticate(String email, String password) {
+        UsernamePasswordAuthenticationToken request = new UsernamePasswordAuthenticationToken(email, password);
+        if ("inline".equalsIgnoreCase(mode)) {
+            try {
+                return CompletableFuture.completedFuture(authenticationManager.authenticate(request));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> authenticationManager.authenticate(request), loginExecutor);
+    }
+}
@@ -5,19 +5,15 @@ import com.wbs.mymovie.estbm.model.*;
 import com.wbs.mymovie.estbm.repository.*;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -29,9 +25,8 @@ public class PlanificationSoutenanceService {
     private final DetailSoutenanceRepository detailRepo;
     private final EtudiantRepository etudiantRepo;
     private final EncadrantRepository encadrantRepository;
-    private final DepartementRepository departementRepository;
-    private final ClasseGroupeRepository classeGroupeRepository;
-    private final AnneeScolaireRepository anneeScolaireRepository;
+    private final ReferenceCacheService referenceCache;
+    private final ExportService exportService;
 
 
 
@@ -106,10 +101,10 @@ public class PlanificationSoutenanceService {
         p.setEncadrant(enc);
         // ----------------------------------------------------------------
 
-        // Other references use getReferenceById (still fine)
-        p.setDepartement(departementRepository.getReferenceById(req.getDepartementId()));
-        p.setClasseGroupe(classeGroupeRepository.getReferenceById(req.getClasseGroupeId()));
-        p.setAnneeScolaire(anneeScolaireRepository.getReferenceById(req.getAnneeScolaireId()));
+        // Autres références : ids vérifiés sur le cache des données de référence, sans requête
+        p.setDepartement(referenceCache.departement(req.getDepartementId()));
+        p.setClasseGroupe(referenceCache.classeGroupe(req.getClasseGroupeId()));
+        p.setAnneeScolaire(referenceCache.anneeScolaire(req.getAnneeScolaireId()));
 
         PlanificationSoutenance saved = planificationRepo.save(p);
 
@@ -119,8 +114,8 @@ public class PlanificationSoutenanceService {
         return mapToResponseDto(full);
     }
 
-    public List<DetailSoutenance> getDetailsByPlanification(Long planifId) {
-        return detailRepo.findByPlanificationId(planifId);
+    public List<DetailSoutenanceDto> getDetailsByPlanification(Long planifId) {
+        return detailRepo.findDtosByPlanificationId(planifId);
     }
 
 //    public DetailSoutenance addDetailToPlanification(Long planifId, DetailSoutenance detail) {
@@ -231,7 +226,7 @@ public class PlanificationSoutenanceService {
     }
 
 
-    public DetailSoutenance updateDetail(Long detailId, DetailSoutenance updatedDetail) {
+    public DetailSoutenanceDto updateDetail(Long detailId, DetailSoutenance updatedDetail) {
         DetailSoutenance existing = detailRepo.findById(detailId)
                 .orElseThrow(() -> new RuntimeException("Détail non trouvé"));
 
@@ -240,103 +235,60 @@ public class PlanificationSoutenanceService {
         existing.setHeureFin(updatedDetail.getHeureFin());
 
         // Ajouter validation chevauchement ici
-        return detailRepo.save(existing);
+        return toDetailDto(detailRepo.save(existing));
     }
 
 
     public List<PlanificationSoutenanceResponse> getAll() {
-        return planificationRepo.findAll().stream()
+        return planificationRepo.findAllByOrderByIdAsc().stream()
                 .map(this::mapToResponseDto)
                 .collect(Collectors.toList());
     }
 
-    public ByteArrayInputStream exportPlanificationsToExcel(List<PlanificationSoutenance> planifications) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Planifications");
-
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Date Soutenance");
-            header.createCell(1).setCellValue("Departement");
-            header.createCell(2).setCellValue("Classe Groupe");
-            header.createCell(3).setCellValue("Annee Scolaire");
-            header.createCell(4).setCellValue("Encadrant");
-
-            int rowIdx = 1;
-            for (PlanificationSoutenance p : planifications) {
-                Row row = sheet.createRow(rowIdx++);
-                row.createCell(0).setCellValue(p.getDateSoutenance().toString());
-                row.createCell(1).setCellValue(p.getDepartement().getNom());
-                row.createCell(2).setCellValue(p.getClasseGroupe().getNom());
-                row.createCell(3).setCellValue(p.getAnneeScolaire().getLibelle());
-                row.createCell(4).setCellValue(p.getEncadrant().getNom() + " " + p.getEncadrant().getPrenom());
-            }
-
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
-        }
+    public List<PlanificationSoutenanceResponse> getAll(Long apresId, Pageable pageable) {
+        return planificationRepo.findByIdGreaterThanOrderByIdAsc(apresId, pageable).stream()
+                .map(this::mapToResponseDto)
+                .collect(Collectors.toList());
     }
 
+    // Colonnes communes aux exports de planifications : date, département, classe, année, encadrant
+    private static final String COLONNES_PLANIF =
+            "p.dateSoutenance, d.nom, cg.nom, a.libelle, "
+                    + "CASE WHEN e.id IS NULL THEN '' ELSE CONCAT(e.nom, ' ', e.prenom) END ";
+    private static final String FROM_PLANIFS_ENCADRANT =
+            "FROM PlanificationSoutenance p LEFT JOIN p.departement d LEFT JOIN p.classeGroupe cg "
+                    + "LEFT JOIN p.anneeScolaire a LEFT JOIN p.encadrant e "
+                    + "WHERE e.id = :encadrantId ORDER BY p.dateSoutenance, p.id";
 
-
-    public ByteArrayInputStream exportPlanificationsForEncadrantToExcel(Long encadrantId) throws IOException {
-        List<PlanificationSoutenance> planifs = planificationRepo.findByEncadrantId(encadrantId);
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Planifications");
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Id");
-            header.createCell(1).setCellValue("Date");
-            header.createCell(2).setCellValue("Departement");
-            header.createCell(3).setCellValue("ClasseGroupe");
-            header.createCell(4).setCellValue("AnneeScolaire");
-            header.createCell(5).setCellValue("Encadrant");
-
-            int rowIdx = 1;
-            for (PlanificationSoutenance p : planifs) {
-                Row r = sheet.createRow(rowIdx++);
-                r.createCell(0).setCellValue(p.getId());
-                r.createCell(1).setCellValue(p.getDateSoutenance().toString());
-                r.createCell(2).setCellValue(p.getDepartement() != null ? p.getDepartement().getNom() : "");
-                r.createCell(3).setCellValue(p.getClasseGroupe() != null ? p.getClasseGroupe().getNom() : "");
-                r.createCell(4).setCellValue(p.getAnneeScolaire() != null ? p.getAnneeScolaire().getLibelle() : "");
-                r.createCell(5).setCellValue(p.getEncadrant() != null ? p.getEncadrant().getNom() + " " + p.getEncadrant().getPrenom() : "");
-            }
-
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
-        }
+    /**
+     * Export Excel des planifications d'un encadrant (id encadrant ou id utilisateur).
+     * Une seule requête à projection, écrite en flux (SXSSF) dans la réponse.
+     */
+    public StreamingResponseBody exportPlanificationsToExcel(Long encadrantOrUtilisateurId) {
+        Long encId = planificationRepo.existsByEncadrantId(encadrantOrUtilisateurId)
+                ? encadrantOrUtilisateurId
+                : encadrantRepository.findByUtilisateurId(encadrantOrUtilisateurId)
+                        .map(Encadrant::getId)
+                        .orElse(-1L);
+        return exportService.flux("xlsx", "Planifications",
+                new String[]{"Date Soutenance", "Departement", "Classe Groupe", "Annee Scolaire", "Encadrant"},
+                "SELECT " + COLONNES_PLANIF + FROM_PLANIFS_ENCADRANT, Map.of("encadrantId", encId));
     }
 
-    public ByteArrayInputStream exportPlanificationDetailsToExcel(Long planifId) throws IOException {
-        List<DetailSoutenance> details = detailRepo.findByPlanificationId(planifId);
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Créneaux Planif " + planifId);
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Id");
-            header.createCell(1).setCellValue("Date");
-            header.createCell(2).setCellValue("Heure Debut");
-            header.createCell(3).setCellValue("Heure Fin");
-            header.createCell(4).setCellValue("Sujet");
-            header.createCell(5).setCellValue("Etudiant Id");
-            header.createCell(6).setCellValue("Etudiant Nom");
-
-            int rowIdx = 1;
-            for (DetailSoutenance d : details) {
-                Row r = sheet.createRow(rowIdx++);
-                r.createCell(0).setCellValue(d.getId());
-                r.createCell(1).setCellValue(d.getDateSoutenance().toString());
-                r.createCell(2).setCellValue(d.getHeureDebut().toString());
-                r.createCell(3).setCellValue(d.getHeureFin().toString());
-                r.createCell(4).setCellValue(d.getSujet());
-                r.createCell(5).setCellValue(d.getEtudiant() != null ? d.getEtudiant().getId() : null);
-                r.createCell(6).setCellValue(d.getEtudiant() != null ? d.getEtudiant().getPrenom() + " " + d.getEtudiant().getNom() : "");
-            }
+    public StreamingResponseBody exportPlanificationsForEncadrantToExcel(Long encadrantId) {
+        return exportService.flux("xlsx", "Planifications",
+                new String[]{"Id", "Date", "Departement", "ClasseGroupe", "AnneeScolaire", "Encadrant"},
+                "SELECT p.id, " + COLONNES_PLANIF + FROM_PLANIFS_ENCADRANT, Map.of("encadrantId", encadrantId));
+    }
 
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            workbook.write(out);
-            return new ByteArrayInputStream(out.toByteArray());
-        }
+    public StreamingResponseBody exportPlanificationDetailsToExcel(Long planifId) {
+        return exportService.flux("xlsx", "Créneaux Planif " + planifId,
+                new String[]{"Id", "Date", "Heure Debut", "Heure Fin", "Sujet", "Etudiant Id", "Etudiant Nom"},
+                "SELECT d.id, d.dateSoutenance, d.heureDebut, d.heureFin, d.sujet, et.id, "
+                        + "CASE WHEN et.id IS NULL THEN '' ELSE CONCAT(et.prenom, ' ', et.nom) END "
+                        + "FROM DetailSoutenance d LEFT JOIN d.etudiant et "
+                        + "WHERE d.planification.id = :planifId ORDER BY d.dateSoutenance, d.heureDebut, d.id",
+                Map.of("planifId", planifId));
     }
 
 
@@ -439,7 +391,7 @@ public class PlanificationSoutenanceService {
 
 
 
-    public DetailSoutenance addDetailToPlanification(Long planifId, DetailSoutenance detail) {
+    public DetailSoutenanceDto addDetailToPlanification(Long planifId, DetailSoutenance detail) {
         PlanificationSoutenance planif = planificationRepo.findById(planifId)
                 .orElseThrow(() -> new RuntimeException("Planification non trouvée"));
 
@@ -460,9 +412,11 @@ public class PlanificationSoutenanceService {
             throw new IllegalArgumentException("Etudiant requis pour un détail de soutenance");
         }
 
-        return detailRepo.save(detail);
+        return toDetailDto(detailRepo.save(detail));
     }
 
-
+    private static DetailSoutenanceDto toDetailDto(DetailSoutenance d) {
+        return new DetailSoutenanceDto(d.getId(), d.getSujet(), d.getDateSoutenance(), d.getHeureDebut(), d.getHeureFin());
+    }
 
 }
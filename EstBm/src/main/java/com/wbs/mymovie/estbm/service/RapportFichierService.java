@@ -0,0 +1,230 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.model.Rapport;
+import com.wbs.mymovie.estbm.util.DiskLruCache;
+import com.wbs.mymovie.estbm.util.Empreintes;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Accès aux fichiers des rapports.
+ *
+ * Un rapport sur le stockage local est servi directement. Sinon le fichier est
+ * téléchargé une seule fois depuis le backend puis servi depuis un cache disque LRU
+ * borné. Sur un défaut de cache, le premier client reçoit les octets au fil du
+ * téléchargement, écrits en même temps dans le cache ; les requêtes simultanées du même
+ * rapport attendent ce téléchargement puis lisent le cache.
+ */
+@Service
+public class RapportFichierService {
+
+    @Value("${rapport.cache.dir:${java.io.tmpdir}/estbm-rapports}")
+    private String cacheDir;
+
+    @Value("${rapport.cache.max-bytes:1073741824}")
+    private long cacheMaxBytes;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private CloudinaryBlobStore cloudinaryBlobStore;
+
+    @Autowired
+    private FichierDiffusionService diffusion;
+
+    private static final int TAILLE_TAMPON = 64 * 1024;
+
+    private DiskLruCache cache;
+
+    private final Map<String, CompletableFuture<Void>> enCours = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        cache = new DiskLruCache(Paths.get(cacheDir), cacheMaxBytes);
+    }
+
+    /**
+     * Sert le fichier du rapport (plages, ETag / 304).
+     *
+     * @throws IOException backend injoignable ; si la réponse est déjà engagée, le
+     *                     téléchargement s'est interrompu en cours de recopie
+     */
+    public void servir(Rapport rapport, String nomFichier, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        if (rapport.getBlobRef() != null) {
+            Path direct = blobStorageService.cheminLocal(rapport.getBlobRef());
+            if (direct != null) {
+                diffusion.servirFichier(request, response, direct, nomFichier, MediaType.APPLICATION_PDF_VALUE, null);
+                return;
+            }
+        }
+
+        // La version suffit pour répondre 304 : ni cache ni backend
+        String version = versionCourte(rapport);
+        if (diffusion.repondreSiNonModifie(request, response, version)) {
+            return;
+        }
+        String cle = cle(rapport);
+        if (servirDepuisCache(cle, nomFichier, version, request, response)) {
+            return;
+        }
+
+        CompletableFuture<Void> nouveau = new CompletableFuture<>();
+        CompletableFuture<Void> existant = enCours.putIfAbsent(cle, nouveau);
+        if (existant != null) {
+            attendre(existant);
+        } else {
+            // Plage ou HEAD : le fichier complet est d'abord mis en cache
+            boolean recopie = "GET".equals(request.getMethod()) && request.getHeader(HttpHeaders.RANGE) == null;
+            try {
+                if (recopie) {
+                    recopier(cle, rapport, nomFichier, version, response);
+                } else {
+                    telecharger(cle, rapport);
+                }
+                nouveau.complete(null);
+            } catch (IOException | RuntimeException e) {
+                nouveau.completeExceptionally(e);
+                throw e;
+            } finally {
+                enCours.remove(cle, nouveau);
+            }
+            if (recopie) {
+                return;
+            }
+        }
+        if (!servirDepuisCache(cle, nomFichier, version, request, response)) {
+            throw new IOException("Rapport évincé du cache avant son envoi : " + cle);
+        }
+    }
+
+    /** À appeler quand le fichier d'un rapport est remplacé ou supprimé. */
+    public void invalider(Rapport rapport) {
+        if (version(rapport) != null) {
+            cache.remove(cle(rapport));
+        }
+    }
+
+    public Map<String, Object> getStatistiques() {
+        return cache.getStatistiques();
+    }
+
+    // Canal ouvert sous le verrou du cache : une éviction pendant l'envoi n'interrompt pas la lecture
+    private boolean servirDepuisCache(String cle, String nomFichier, String version,
+                                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (FileChannel canal = cache.ouvrir(cle)) {
+            if (canal == null) {
+                return false;
+            }
+            diffusion.servirCanal(request, response, canal, nomFichier, MediaType.APPLICATION_PDF_VALUE, version);
+            return true;
+        }
+    }
+
+    private void telecharger(String cle, Rapport rapport) throws IOException {
+        Path tmp = cache.fichierTemporaire();
+        try {
+            try (InputStream in = ouvrirSource(rapport)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            cache.put(cle, tmp);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Téléchargement vers le cache, recopié au client à mesure que les octets arrivent. */
+    private void recopier(String cle, Rapport rapport, String nomFichier, String version,
+                          HttpServletResponse response) throws IOException {
+        Path tmp = cache.fichierTemporaire();
+        try {
+            try (InputStream in = ouvrirSource(rapport); OutputStream fichier = Files.newOutputStream(tmp)) {
+                OutputStream client = diffusion.ouvrirFlux(response, nomFichier, MediaType.APPLICATION_PDF_VALUE, version);
+                byte[] tampon = new byte[TAILLE_TAMPON];
+                int n;
+                while ((n = in.read(tampon)) != -1) {
+                    fichier.write(tampon, 0, n);
+                    if (client != null) {
+                        try {
+                            client.write(tampon, 0, n);
+                        } catch (IOException e) {
+                            // Client parti : le téléchargement se termine pour le cache et les requêtes en attente
+                            client = null;
+                        }
+                    }
+                }
+            }
+            cache.put(cle, tmp);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private InputStream ouvrirSource(Rapport rapport) throws IOException {
+        return rapport.getBlobRef() != null
+                ? blobStorageService.ouvrir(rapport.getBlobRef())
+                : cloudinaryBlobStore.ouvrirUrl(decodeUrl(rapport.getCloudinaryUrl()));
+    }
+
+    private static void attendre(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Téléchargement interrompu", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Version du fichier, servie comme ETag fort : la référence de stockage (ou l'URL
+     * Cloudinary des anciens rapports) change à chaque nouveau dépôt.
+     */
+    private static String versionCourte(Rapport rapport) {
+        return Empreintes.sha256Hex(version(rapport)).substring(0, 32);
+    }
+
+    // publicId lisible + empreinte de la version : un nouveau dépôt ne sert jamais l'ancien fichier
+    private String cle(Rapport rapport) {
+        String base = rapport.getPublicId() != null ? rapport.getPublicId() : "rapport-" + rapport.getId();
+        return base.replaceAll("[^a-zA-Z0-9._-]", "_") + "-" + Empreintes.sha256Hex(version(rapport)).substring(0, 12);
+    }
+
+    private static String version(Rapport rapport) {
+        return rapport.getBlobRef() != null ? rapport.getBlobRef() : rapport.getCloudinaryUrl();
+    }
+
+    private static String decodeUrl(String url) {
+        if (url.startsWith("data:application/pdf;base64,")) {
+            String base64Data = url.substring(url.indexOf(",") + 1);
+            return new String(Base64.getDecoder().decode(base64Data), StandardCharsets.UTF_8);
+        }
+        return url;
+    }
+}
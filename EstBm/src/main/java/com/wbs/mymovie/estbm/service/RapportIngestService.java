@@ -0,0 +1,277 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.dto.RapportIngestStatusDto;
+import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
+import com.wbs.mymovie.estbm.model.RapportIngestJob;
+import com.wbs.mymovie.estbm.model.enums.StatutIngestRapport;
+import com.wbs.mymovie.estbm.repository.RapportIngestJobRepository;
+import com.wbs.mymovie.estbm.repository.StageRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pipeline d'ingestion des rapports.
+ *
+ * La requête HTTP ne fait qu'écrire le fichier sur disque et renvoyer un identifiant
+ * de job ; l'envoi vers le stockage, la mise à jour Rapport / Stage et la suppression
+ * de l'ancien fichier se font sur un pool borné, avec nouvelles tentatives espacées
+ * (backoff exponentiel).
+ *
+ * L'état des jobs est en base (table rapport_ingest_jobs) pendant {@code rapport.ingest.job-ttl-ms}
+ * après leur fin. Au démarrage, les jobs interrompus dont le fichier est encore dans le spool
+ * sont repris, les autres passent en échec, et les fichiers du spool sans job sont supprimés :
+ * le spool est donc propre à un nœud.
+ */
+@Service
+public class RapportIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(RapportIngestService.class);
+
+    private static final List<StatutIngestRapport> EN_COURS =
+            List.of(StatutIngestRapport.EN_ATTENTE, StatutIngestRapport.EN_COURS, StatutIngestRapport.NOUVELLE_TENTATIVE);
+    private static final List<StatutIngestRapport> TERMINES =
+            List.of(StatutIngestRapport.TERMINE, StatutIngestRapport.ECHEC);
+
+    @Autowired
+    private StageService stageService;
+
+    @Autowired
+    private StageRepository stageRepository;
+
+    @Autowired
+    private RapportIngestJobRepository jobRepository;
+
+    @Autowired
+    @Qualifier("rapportIngestExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${rapport.ingest.spool-dir:${java.io.tmpdir}/estbm-ingest}")
+    private String spoolDir;
+
+    @Value("${rapport.ingest.max-attempts:5}")
+    private int maxTentatives;
+
+    @Value("${rapport.ingest.backoff-initial-ms:2000}")
+    private long backoffInitialMs;
+
+    @Value("${rapport.ingest.backoff-max-ms:60000}")
+    private long backoffMaxMs;
+
+    @Value("${rapport.ingest.job-ttl-ms:3600000}")
+    private long jobTtlMs;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Paths.get(spoolDir));
+    }
+
+    /**
+     * Reprend les jobs interrompus par l'arrêt précédent et vide le spool des fichiers
+     * qu'aucun job n'attend plus.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reprendre() throws IOException {
+        Set<Path> attendus = new HashSet<>();
+        for (RapportIngestJob job : jobRepository.findByStatutIn(EN_COURS)) {
+            Path spool = Paths.get(job.getSpool());
+            if (Files.exists(spool)) {
+                attendus.add(spool.toAbsolutePath().normalize());
+                job.maj(StatutIngestRapport.NOUVELLE_TENTATIVE, job.getEtape(), "Repris après redémarrage");
+                job.setProchaineTentative(null);
+                enregistrer(job);
+                log.info("Rapport du stage {} : job {} repris à l'étape {}", job.getStageId(), job.getId(), job.getEtape());
+                relancer(job);
+            } else {
+                echec(job, new IllegalStateException("Fichier en attente perdu au redémarrage"));
+            }
+        }
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(Paths.get(spoolDir))) {
+            for (Path fichier : fichiers) {
+                if (!attendus.contains(fichier.toAbsolutePath().normalize())) {
+                    log.info("Fichier du spool sans job supprimé : {}", fichier);
+                    Files.deleteIfExists(fichier);
+                }
+            }
+        }
+    }
+
+    /**
+     * Écrit le fichier sur disque et planifie son traitement.
+     *
+     * @throws IllegalArgumentException si le fichier est vide ou n'est pas un PDF
+     * @throws TaskRejectedException si la file du pool est pleine
+     */
+    public RapportIngestStatusDto soumettre(Long idStage, MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Fichier vide");
+        }
+        if (!"application/pdf".equals(file.getContentType())) {
+            throw new IllegalArgumentException("Seuls les PDF sont acceptés");
+        }
+        if (!stageRepository.existsById(idStage)) {
+            throw new ResourceNotFoundException("Stage introuvable");
+        }
+
+        Path spool = Files.createTempFile(Paths.get(spoolDir), "rapport-" + idStage + "-", ".pdf");
+        file.transferTo(spool);
+
+        RapportIngestJob job = new RapportIngestJob(idStage, file.getOriginalFilename(), spool.toString());
+        try {
+            jobRepository.save(job);
+            executor.execute(() -> traiter(job));
+        } catch (RuntimeException e) {
+            jobRepository.deleteById(job.getId());
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        return toDto(job);
+    }
+
+    /**
+     * @param email utilisateur connecté : étudiant ou encadrant du stage du job
+     * @throws ResourceNotFoundException si le job est inconnu
+     * @throws AccessDeniedException si le stage du job n'est pas celui de l'utilisateur
+     */
+    public RapportIngestStatusDto getStatut(String jobId, String email) {
+        RapportIngestJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Job introuvable : " + jobId));
+        if (!stageRepository.estConcerne(job.getStageId(), email)) {
+            throw new AccessDeniedException("Job d'un autre stage");
+        }
+        return toDto(job);
+    }
+
+    /** Oublie les jobs terminés depuis plus de job-ttl-ms. */
+    @Scheduled(fixedDelayString = "${rapport.ingest.purge-ms:600000}")
+    public void purger() {
+        jobRepository.deleteTermines(TERMINES, LocalDateTime.now().minusNanos(jobTtlMs * 1_000_000));
+    }
+
+    private void traiter(RapportIngestJob job) {
+        job.setTentatives(job.getTentatives() + 1);
+        try {
+            if (job.getFichierStocke() == null) {
+                maj(job, StatutIngestRapport.EN_COURS, "UPLOAD", null);
+                job.setFichierStocke(stageService.uploaderRapport(job.getStageId(), Paths.get(job.getSpool())));
+            }
+
+            maj(job, StatutIngestRapport.EN_COURS, "ENREGISTREMENT", null);
+            String ancienneRef = stageService.enregistrerRapport(job.getStageId(), job.getNomFichier(), job.getFichierStocke());
+
+            // Le nouveau fichier est en place : l'échec du nettoyage ne fait pas échouer le job.
+            // Un job repris après l'enregistrement retrouve son propre fichier comme « ancien ».
+            if (ancienneRef != null && !ancienneRef.equals(job.getBlobRef())) {
+                maj(job, StatutIngestRapport.EN_COURS, "NETTOYAGE", null);
+                try {
+                    stageService.supprimerFichierRapport(ancienneRef);
+                } catch (Exception e) {
+                    log.warn("Ancien rapport {} non supprimé : {}", ancienneRef, e.getMessage());
+                }
+            }
+
+            maj(job, StatutIngestRapport.TERMINE, "TERMINE", "Rapport soumis avec succès");
+            supprimerSpool(job);
+        } catch (ResourceNotFoundException | IllegalArgumentException | IllegalStateException e) {
+            // Erreur définitive : inutile de réessayer
+            echec(job, e);
+        } catch (Exception e) {
+            if (job.getTentatives() >= maxTentatives) {
+                echec(job, e);
+                return;
+            }
+            long delai = Math.min(backoffMaxMs, backoffInitialMs << Math.min(job.getTentatives() - 1, 20));
+            job.setProchaineTentative(LocalDateTime.now().plusNanos(delai * 1_000_000));
+            maj(job, StatutIngestRapport.NOUVELLE_TENTATIVE, job.getEtape(), e.getMessage());
+            log.info("Rapport du stage {} : tentative {} échouée ({}), nouvel essai dans {} ms",
+                    job.getStageId(), job.getTentatives(), e.getMessage(), delai);
+            taskScheduler.schedule(() -> relancer(job), Instant.now().plusMillis(delai));
+        }
+    }
+
+    private void relancer(RapportIngestJob job) {
+        try {
+            executor.execute(() -> traiter(job));
+        } catch (TaskRejectedException e) {
+            // File pleine : on retente plus tard sans consommer de tentative
+            taskScheduler.schedule(() -> relancer(job), Instant.now().plusMillis(backoffInitialMs));
+        }
+    }
+
+    private void echec(RapportIngestJob job, Exception e) {
+        log.error("Échec de l'ingestion du rapport du stage {} après {} tentative(s)", job.getStageId(), job.getTentatives(), e);
+        maj(job, StatutIngestRapport.ECHEC, job.getEtape(), e.getMessage());
+        // Fichier envoyé mais jamais rattaché au stage (transaction annulée) : il serait orphelin
+        if (job.getFichierStocke() != null) {
+            try {
+                stageService.supprimerFichierRapport(job.getBlobRef());
+            } catch (Exception ex) {
+                log.warn("Fichier orphelin {} non supprimé : {}", job.getBlobRef(), ex.getMessage());
+            }
+        }
+        supprimerSpool(job);
+    }
+
+    private void maj(RapportIngestJob job, StatutIngestRapport statut, String etape, String message) {
+        job.maj(statut, etape, message);
+        enregistrer(job);
+    }
+
+    /** Le suivi ne doit pas interrompre le traitement : une écriture perdue sera remplacée par la suivante. */
+    private void enregistrer(RapportIngestJob job) {
+        try {
+            jobRepository.save(job);
+        } catch (RuntimeException e) {
+            log.warn("État du job {} non enregistré : {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private void supprimerSpool(RapportIngestJob job) {
+        try {
+            Files.deleteIfExists(Paths.get(job.getSpool()));
+        } catch (IOException e) {
+            log.warn("Fichier temporaire {} non supprimé", job.getSpool());
+        }
+    }
+
+    private static RapportIngestStatusDto toDto(RapportIngestJob job) {
+        RapportIngestStatusDto dto = new RapportIngestStatusDto();
+        dto.setJobId(job.getId());
+        dto.setStageId(job.getStageId());
+        dto.setNomFichier(job.getNomFichier());
+        dto.setStatut(job.getStatut());
+        dto.setEtape(job.getEtape());
+        dto.setTentatives(job.getTentatives());
+        dto.setMessage(job.getMessage());
+        dto.setProchaineTentative(job.getStatut() == StatutIngestRapport.NOUVELLE_TENTATIVE ? job.getProchaineTentative() : null);
+        dto.setDateCreation(job.getDateCreation());
+        dto.setDateMaj(job.getDateMaj());
+        return dto;
+    }
+}
@@ -0,0 +1,221 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wbs.mymovie.estbm.dto.ReferenceDto;
+import com.wbs.mymovie.estbm.dto.ReferencesDto;
+import com.wbs.mymovie.estbm.model.AnneeScolaire;
+import com.wbs.mymovie.estbm.model.ClasseGroupe;
+import com.wbs.mymovie.estbm.model.Departement;
+import com.wbs.mymovie.estbm.repository.AnneeScolaireRepository;
+import com.wbs.mymovie.estbm.repository.ClasseGroupeRepository;
+import com.wbs.mymovie.estbm.repository.DepartementRepository;
+import com.wbs.mymovie.estbm.util.Empreintes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache en mémoire des données de référence (départements, classes / groupes,
+ * années scolaires), qui ne changent que quelques fois par an.
+ *
+ * Chargé au démarrage et remplacé d'un bloc (instantané immuable). Une écriture
+ * incrémente reference_version puis recharge le cache local ; les autres nœuds
+ * relisent cette version toutes les references.verification-ms et rechargent si elle a changé,
+ * ou tout de suite quand on leur demande un id qu'ils ne connaissent pas encore.
+ */
+@Service
+public class ReferenceCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceCacheService.class);
+
+    /** Données, version de la base au chargement et ETag (SHA-256 du JSON). */
+    public record Instantane(ReferencesDto donnees, long version, String etag,
+                             Set<Long> departementIds, Set<Long> classeIds, Set<Long> anneeIds) {}
+
+    @Autowired
+    private DepartementRepository departementRepository;
+
+    @Autowired
+    private ClasseGroupeRepository classeGroupeRepository;
+
+    @Autowired
+    private AnneeScolaireRepository anneeScolaireRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile Instantane instantane;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prechauffer() {
+        recharger();
+    }
+
+    public Instantane instantane() {
+        Instantane i = instantane;
+        return i != null ? i : recharger();
+    }
+
+    public List<ReferenceDto> departements() {
+        return instantane().donnees().getDepartements();
+    }
+
+    public List<ReferenceDto> classesGroupes() {
+        return instantane().donnees().getClassesGroupes();
+    }
+
+    public List<ReferenceDto> classesGroupes(Long departementId) {
+        return instantane().donnees().getClassesParDepartement().getOrDefault(departementId, List.of());
+    }
+
+    public List<ReferenceDto> anneesScolaires() {
+        return instantane().donnees().getAnneesScolaires();
+    }
+
+    // Références sans requête : l'existence est vérifiée sur l'instantané
+    public Departement departement(Long id) {
+        verifierExistence(id, Instantane::departementIds, "Département introuvable : ");
+        return departementRepository.getReferenceById(id);
+    }
+
+    public ClasseGroupe classeGroupe(Long id) {
+        verifierExistence(id, Instantane::classeIds, "Classe / groupe introuvable : ");
+        return classeGroupeRepository.getReferenceById(id);
+    }
+
+    public AnneeScolaire anneeScolaire(Long id) {
+        verifierExistence(id, Instantane::anneeIds, "Année scolaire introuvable : ");
+        return anneeScolaireRepository.getReferenceById(id);
+    }
+
+    /**
+     * À appeler après toute écriture sur les tables de référence. Dans une transaction,
+     * la version n'est incrémentée et le cache rechargé qu'après le commit : un rollback
+     * ne laisse pas dans le cache une ligne qui n'existe pas.
+     */
+    public void modifiees() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publier();
+                }
+            });
+        } else {
+            publier();
+        }
+    }
+
+    /** Écritures faites sur un autre nœud. */
+    @Scheduled(fixedDelayString = "${references.verification-ms:30000}", initialDelayString = "${references.verification-ms:30000}")
+    public void verifierVersion() {
+        Instantane i = instantane;
+        if (i == null || versionBase() != i.version()) {
+            recharger();
+        }
+    }
+
+    // Id absent de l'instantané local : il vient peut-être d'être créé sur un autre nœud,
+    // on relit la version avant de le refuser
+    private void verifierExistence(Long id, Function<Instantane, Set<Long>> ids, String message) {
+        if (id != null && !ids.apply(instantane()).contains(id)) {
+            verifierVersion();
+        }
+        if (id == null || !ids.apply(instantane()).contains(id)) {
+            throw new IllegalArgumentException(message + id);
+        }
+    }
+
+    // Transaction propre : appelé aussi depuis afterCommit, où la transaction de l'appelant est terminée
+    private void publier() {
+        nouvelleTransaction().executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE reference_version SET version = version + 1 WHERE id = 1");
+            recharger();
+        });
+    }
+
+    private TransactionTemplate nouvelleTransaction() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return tx;
+    }
+
+    private synchronized Instantane recharger() {
+        // Version lue avant les données : une écriture concurrente sera vue au prochain contrôle
+        long version = versionBase();
+
+        List<ReferenceDto> departements = departementRepository.findAll(Sort.by("id")).stream()
+                .map(d -> new ReferenceDto(d.getId(), d.getNom(), null))
+                .toList();
+        List<ClasseGroupe> classes = classeGroupeRepository.findAll(Sort.by("id"));
+        List<ReferenceDto> classesGroupes = classes.stream()
+                .map(g -> new ReferenceDto(g.getId(), g.getNom(), null))
+                .toList();
+        // Ordre stable (LinkedHashMap) : même JSON, donc même ETag, sur tous les nœuds
+        Map<Long, List<ReferenceDto>> parDepartement = new LinkedHashMap<>();
+        for (ClasseGroupe g : classes) {
+            if (g.getDepartement() != null) {
+                parDepartement.computeIfAbsent(g.getDepartement().getId(), k -> new ArrayList<>())
+                        .add(new ReferenceDto(g.getId(), g.getNom(), null));
+            }
+        }
+        parDepartement.replaceAll((k, v) -> List.copyOf(v));
+        List<ReferenceDto> annees = anneeScolaireRepository.findAll(Sort.by("id")).stream()
+                .map(a -> new ReferenceDto(a.getId(), null, a.getLibelle()))
+                .toList();
+
+        ReferencesDto donnees = new ReferencesDto(departements, classesGroupes,
+                Collections.unmodifiableMap(parDepartement), annees);
+        Instantane nouveau = new Instantane(donnees, version, etag(donnees),
+                ids(departements), ids(classesGroupes), ids(annees));
+        instantane = nouveau;
+        log.info("Données de référence chargées (version {}) : {} départements, {} classes, {} années",
+                version, departements.size(), classesGroupes.size(), annees.size());
+        return nouveau;
+    }
+
+    private long versionBase() {
+        Long v = jdbcTemplate.queryForObject("SELECT version FROM reference_version WHERE id = 1", Long.class);
+        return v != null ? v : 0;
+    }
+
+    private static Set<Long> ids(List<ReferenceDto> refs) {
+        return refs.stream().map(ReferenceDto::getId).collect(Collectors.toUnmodifiableSet());
+    }
+
+    private String etag(ReferencesDto donnees) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(donnees);
+            return Empreintes.sha256Hex(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.model.RefreshToken;
+import com.wbs.mymovie.estbm.repository.RefreshTokenRepository;
+import com.wbs.mymovie.estbm.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Refresh tokens avec familles, rotation et détection de réutilisation.
+ *
+ * Chaque token émis est une ligne de refresh_tokens, seule source de vérité : la rotation
+ * le consomme par un UPDATE conditionnel, si bien qu'un token rejoué (ici ou sur un autre
+ * nœud) est détecté et fait consommer toute sa famille. Une famille révoquée n'a plus de
+ * token valide, la rotation suivante échoue donc comme une réutilisation.
+ *
+ * Rotation et révocation d'une même famille sont sérialisées par un verrou consultatif
+ * de transaction : un token émis par une rotation concurrente ne peut pas échapper à la
+ * révocation de sa famille.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    // Premier entier de pg_advisory_xact_lock(int, int) : espace de clés distinct de MigrationsSchema
+    private static final int VERROU_FAMILLES = 0x52544B;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /** Émet le premier refresh token d'une nouvelle famille (connexion). */
+    public String emettre(String email) {
+        return emettre(email, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Consomme un refresh token et en émet un nouveau dans la même famille, en une seule
+     * transaction : si l'émission échoue, le token présenté n'est pas consommé et reste
+     * utilisable. Le rejet d'un token rejoué est validé (noRollbackFor) pour que la
+     * révocation de sa famille soit enregistrée.
+     *
+     * @throws BadCredentialsException si le token est révoqué, réutilisé ou sans identifiant
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public String rotation(Claims claims) {
+        String jti = claims.getId();
+        String famille = claims.get(JwtUtil.CLAIM_FAMILLE, String.class);
+        if (jti == null || famille == null) {
+            throw new BadCredentialsException("Refresh token sans identifiant");
+        }
+
+        verrouillerFamille(famille);
+        if (refreshTokenRepository.consommer(jti, LocalDateTime.now()) == 0) {
+            // Token déjà consommé (ou famille révoquée) : quelqu'un rejoue un ancien token → on coupe toute la famille
+            log.warn("Réutilisation d'un refresh token détectée pour {} (famille {})", claims.getSubject(), famille);
+            refreshTokenRepository.consommerFamille(famille, LocalDateTime.now());
+            throw new BadCredentialsException("Refresh token réutilisé");
+        }
+
+        return emettre(claims.getSubject(), famille);
+    }
+
+    /** Déconnexion : révoque la famille du token présenté. */
+    @Transactional
+    public void revoquerFamille(Claims claims) {
+        String famille = claims.get(JwtUtil.CLAIM_FAMILLE, String.class);
+        if (famille != null) {
+            verrouillerFamille(famille);
+            refreshTokenRepository.consommerFamille(famille, LocalDateTime.now());
+        }
+    }
+
+    /** Purge horaire des tokens expirés. */
+    @Scheduled(fixedDelayString = "${auth.refresh.purge-ms:3600000}", initialDelayString = "${auth.refresh.purge-ms:3600000}")
+    @Transactional
+    public void purger() {
+        int tokens = refreshTokenRepository.deleteExpires(LocalDateTime.now());
+        log.debug("Purge des refresh tokens : {} tokens expirés supprimés", tokens);
+    }
+
+    private String emettre(String email, String famille) {
+        String jti = UUID.randomUUID().toString();
+        Date now = new Date();
+        Date expiration = new Date(now.getTime() + jwtUtil.getRefreshTokenExpirationMs());
+
+        RefreshToken rt = new RefreshToken();
+        rt.setJti(jti);
+        rt.setFamilleId(famille);
+        rt.setEmail(email);
+        rt.setDateEmission(toLocal(now));
+        rt.setDateExpiration(toLocal(expiration));
+        refreshTokenRepository.saveAndFlush(rt);
+
+        return jwtUtil.createRefreshToken(email, jti, famille, now, expiration);
+    }
+
+    /** Verrou libéré au commit (ou rollback) de la transaction courante. */
+    private void verrouillerFamille(String famille) {
+        jdbc.queryForList("SELECT pg_advisory_xact_lock(?, hashtext(?))", VERROU_FAMILLES, famille);
+    }
+
+    private static LocalDateTime toLocal(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+}
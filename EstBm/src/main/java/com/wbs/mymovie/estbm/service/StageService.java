@@ -1,29 +1,31 @@
 package com.wbs.mymovie.estbm.service;
 
 import com.wbs.mymovie.estbm.dto.*;
+import com.wbs.mymovie.estbm.exception.ResourceNotFoundException;
 import com.wbs.mymovie.estbm.model.*;
 import com.wbs.mymovie.estbm.model.enums.EtatStage;
 import com.wbs.mymovie.estbm.repository.*;
+import com.wbs.mymovie.estbm.util.Curseur;
+import com.wbs.mymovie.estbm.util.Pagination;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.Pageable;
 import org.springframework.core.io.Resource;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import com.itextpdf.text.DocumentException;
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,16 +44,22 @@ public class StageService {
     @Autowired
     private DocumentRepository documentRepository;
     @Autowired
-    private ConventionGeneratorService conventionGeneratorService;
-
-
+    private ConventionCacheService conventionCacheService;
+    @Autowired
+    private StageStatistiquesService stageStatistiquesService;
+    @Autowired
+    private ExportService exportService;
     @Autowired
-    private Cloudinary cloudinary;
+    private RapportFichierService rapportFichierService;
+    @Autowired
+    private BlobStorageService blobStorageService;
+    @Autowired
+    private DocumentIngestService documentIngestService;
 
-    @Value("${upload.directory}")
-    private String uploadDir;
+    @Autowired
+    private Pagination pagination;
 
-    public Stage creerDemande(DemandeStageDto dto) {
+    public StageDto creerDemande(DemandeStageDto dto) {
         Etudiant etu = etudiantRepository.findById(dto.getIdEtudiant())
                 .orElseThrow(() -> new RuntimeException("Étudiant introuvable"));
         Stage s = new Stage();
@@ -69,11 +77,13 @@ public class StageService {
             s.setEncadrant(etu.getEncadrant());
         }
         s.setDateCreation(LocalDateTime.now());
-        return stageRepository.save(s);
+        Stage saved = stageRepository.save(s);
+        stageStatistiquesService.stageCree(saved);
+        return toDto(saved);
     }
 
-    public List<Stage> getStagesParEtudiant(Long idEtudiant) {
-        return stageRepository.findByEtudiantId(idEtudiant);
+    public List<StageDto> getStagesParEtudiant(Long idEtudiant) {
+        return stageRepository.findDtosByEtudiantId(idEtudiant);
     }
 
 
@@ -82,8 +92,12 @@ public class StageService {
     }
 
 
-    public List<Stage> getStagesParEncadrant(Long idEncadrant) {
-        return stageRepository.findByEncadrantId(idEncadrant);
+    public List<StageDto> getStagesParEncadrant(Long idEncadrant) {
+        return stageRepository.findDtosByEncadrantId(idEncadrant);
+    }
+
+    public List<StageDto> getStagesParEncadrant(Long idEncadrant, Long apresId, Pageable pageable) {
+        return stageRepository.findDtosByEncadrantId(idEncadrant, apresId, pageable);
     }
 
     public String etatDemande(Long idEtudiant) {
@@ -167,98 +181,111 @@ public class StageService {
 //        }
 //    }
 
-    @Async
-    public String soumettreRapport(Long idStage, MultipartFile file) {
-        try {
-            // 1) Validation
-            if (file.isEmpty()) {
-                throw new IllegalArgumentException("Fichier vide");
-            }
-            if (!"application/pdf".equals(file.getContentType())) {
-                throw new IllegalArgumentException("Seuls les PDF sont acceptés");
-            }
+    /*
+     * Dépôt d'un rapport, découpé pour le pipeline d'ingestion (RapportIngestService) :
+     * 1) envoi du fichier vers le stockage des rapports, sans connexion base ouverte ;
+     * 2) mise à jour Rapport + Stage dans une transaction courte ;
+     * 3) suppression de l'ancien fichier une fois la base à jour.
+     */
+
+    /** Envoie le PDF déjà écrit sur disque vers le backend des rapports (storage.backend.rapport). */
+    public BlobStorageService.Stocke uploaderRapport(Long idStage, Path fichier) throws IOException {
+        String cle = BlobStorageService.cle("rapports", "stages",
+                "rapport_" + idStage + "_" + System.currentTimeMillis() + ".pdf");
+        return blobStorageService.put(BlobStorageService.RAPPORT, cle, fichier, "application/pdf");
+    }
 
-            // 2) Récupérer le stage (et via lui l'étudiant)
-            Stage stage = stageRepository.findById(idStage)
-                    .orElseThrow(() -> new RuntimeException("Stage introuvable"));
-            Etudiant etu = stage.getEtudiant();
-            if (etu == null) {
-                throw new RuntimeException("Aucun étudiant rattaché à ce stage");
-            }
+    /**
+     * Rattache le fichier envoyé au stage (création ou remplacement du rapport).
+     * @return la référence de l'ancien fichier à supprimer, ou null
+     */
+    @Transactional
+    public String enregistrerRapport(Long idStage, String nomFichier, BlobStorageService.Stocke fichier) {
+        // 1) Récupérer le stage (et via lui l'étudiant)
+        Stage stage = stageRepository.findById(idStage)
+                .orElseThrow(() -> new ResourceNotFoundException("Stage introuvable"));
+        Etudiant etu = stage.getEtudiant();
+        if (etu == null) {
+            throw new IllegalStateException("Aucun étudiant rattaché à ce stage");
+        }
 
-            // 3) Rechercher un rapport existant
-            Optional<Rapport> optOld = rapportRepository.findByStageId(idStage);
-            Rapport rapport;
-            if (optOld.isPresent()) {
-                // a) détruire l'ancien sur Cloudinary
-                Rapport old = optOld.get();
-                cloudinary.uploader().destroy(old.getPublicId(), ObjectUtils.emptyMap());
-                // b) réutiliser l'entité
-                rapport = old;
-            } else {
-                // pas de rapport existant : on crée une nouvelle instance
-                rapport = new Rapport();
-                rapport.setStage(stage);
-            }
+        // 2) Rechercher un rapport existant (réutilisé s'il existe)
+        Optional<Rapport> optOld = rapportRepository.findByStageId(idStage);
+        Rapport rapport;
+        String ancienneRef = null;
+        if (optOld.isPresent()) {
+            rapport = optOld.get();
+            ancienneRef = refRapport(rapport);
+            rapportFichierService.invalider(rapport);
+        } else {
+            rapport = new Rapport();
+            rapport.setStage(stage);
+        }
 
-            // 4) Configuration d'upload optimisée pour les PDF
-            Map<String, Object> uploadParams = ObjectUtils.asMap(
-                    "resource_type", "raw",
-                    "folder", "rapports/stages/",
-                    "public_id", "rapport_" + stage.getId() + "_" + System.currentTimeMillis(),
-                    "use_filename", false,
-                    "unique_filename", true,
-                    "overwrite", false,
-                    "invalidate", true,
-                    "quality", "auto:best",
-                    "type", "upload",
-                    "access_mode", "public",
-                    "allowed_formats", "pdf",
-                    "format", "pdf"
-            );
-
-            // 5) Upload vers Cloudinary
-            @SuppressWarnings("unchecked")
-            Map<String, Object> uploadResult = cloudinary.uploader().upload(
-                    file.getBytes(),
-                    uploadParams
-            );
-
-            // 6) Mettre à jour l'entité avec les nouvelles informations
-            rapport.setNomFichier(file.getOriginalFilename());
-            rapport.setCloudinaryUrl((String) uploadResult.get("secure_url"));
-            rapport.setPublicId((String) uploadResult.get("public_id"));
-            rapport.setDateDepot(LocalDate.now());
-
-            // 6bis) Peupler les relations pour qu'elles soient persistées
-            rapport.setEtudiant(etu);
-            rapport.setDepartement(etu.getDepartement());
-            rapport.setClasseGroupe(etu.getClasseGroupe());
-            rapport.setAnneeScolaire(etu.getAnneeScolaire());
-
-            // 7) Sauvegarder en base
-            rapportRepository.save(rapport);
-
-            // 8) Mettre à jour l'état du stage
-            stage.setEtat(EtatStage.RAPPORT_SOUMIS);
-            stageRepository.save(stage);
-
-            return "Rapport soumis avec succès";
+        // 3) Mettre à jour l'entité avec les nouvelles informations
+        rapport.setNomFichier(nomFichier);
+        rapport.setBlobRef(fichier.ref());
+        rapport.setCloudinaryUrl(fichier.url());
+        rapport.setPublicId(fichier.ref().substring(fichier.ref().indexOf(':') + 1));
+        rapport.setDateDepot(LocalDate.now());
+
+        // 3bis) Peupler les relations pour qu'elles soient persistées
+        rapport.setEtudiant(etu);
+        rapport.setDepartement(etu.getDepartement());
+        rapport.setClasseGroupe(etu.getClasseGroupe());
+        rapport.setAnneeScolaire(etu.getAnneeScolaire());
+
+        // 4) Sauvegarder en base
+        rapportRepository.save(rapport);
+
+        // 5) Mettre à jour l'état du stage
+        EtatStage ancienEtat = stage.getEtat();
+        stage.setEtat(EtatStage.RAPPORT_SOUMIS);
+        stageRepository.save(stage);
+        stageStatistiquesService.transition(stage, ancienEtat);
+
+        return ancienneRef;
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Erreur lors de l'upload: " + e.getMessage(), e);
+    /** Supprime un fichier de rapport remplacé. */
+    public void supprimerFichierRapport(String ref) throws IOException {
+        blobStorageService.supprimer(ref);
+    }
+
+    // Rapports déposés avant le stockage par référence : uniquement un publicId Cloudinary
+    private static String refRapport(Rapport rapport) {
+        if (rapport.getBlobRef() != null) {
+            return rapport.getBlobRef();
         }
+        return rapport.getPublicId() != null ? BlobStorageService.ref("cloudinary", rapport.getPublicId()) : null;
     }
 
 
 
-    public ResponseEntity<Resource> genererEtTelechargerConvention(Long idStage) {
+    /** Convention d'un stage, servie depuis le cache tant que les données imprimées n'ont pas changé. */
+    public ConventionCacheService.Convention genererConvention(Long idStage) throws DocumentException {
+        return genererConvention(idStage, revision -> false);
+    }
+
+    /**
+     * @param clientAJour reçoit la révision calculée sur les champs du stage ; s'il répond
+     *                    vrai (version déjà détenue par le client), ni le cache ni le générateur
+     *                    ne sont sollicités et la méthode renvoie null
+     */
+    public ConventionCacheService.Convention genererConvention(Long idStage, Predicate<String> clientAJour)
+            throws DocumentException {
         Stage stage = stageRepository.findById(idStage)
-                .orElseThrow(() -> new RuntimeException("Stage non trouvé"));
+                .orElseThrow(() -> new ResourceNotFoundException("Stage non trouvé"));
+        if (clientAJour.test(conventionCacheService.revision(stage))) {
+            return null;
+        }
+        return conventionCacheService.obtenir(stage);
+    }
 
+    public ResponseEntity<Resource> genererEtTelechargerConvention(Long idStage) {
         try {
-            byte[] pdfContent = conventionGeneratorService.generateConventionPdf(stage);
-            ByteArrayResource resource = new ByteArrayResource(pdfContent);
+            ConventionCacheService.Convention convention = genererConvention(idStage);
+            ByteArrayResource resource = new ByteArrayResource(convention.contenu());
 
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION,
@@ -273,14 +300,9 @@ public class StageService {
     }
 
 
-    public ResponseEntity<?> exporterListes(String format) {
-        // Implémentation réelle à compléter
-        String data = "Export " + format;
-        ByteArrayResource res = new ByteArrayResource(data.getBytes());
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=list." + format)
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(res);
+    /** Export en flux : type = stages | etudiants | affectations | rapports, format = csv | xlsx | pdf */
+    public ResponseEntity<?> exporterListes(String type, String format) {
+        return exportService.exporter(type, format);
     }
 
     public ResponseEntity<?> genererConventionAuto(Long idStage) {
@@ -302,19 +324,16 @@ public class StageService {
             Stage stage = stageRepository.findById(idStage)
                     .orElseThrow(() -> new RuntimeException("Stage introuvable"));
 
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            String cle = BlobStorageService.cle("stages", idStage, type + "_" + file.getOriginalFilename());
+            BlobStorageService.Stocke stocke;
+            try (InputStream in = file.getInputStream()) {
+                stocke = blobStorageService.put(BlobStorageService.DOCUMENT, cle, in, file.getContentType());
             }
 
-            String fileName = type + "_" + idStage + "_" + file.getOriginalFilename();
-            Path filePath = uploadPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
             Document document = new Document();
             document.setNom(file.getOriginalFilename());
             document.setType(type);
-            document.setCheminFichier(filePath.toString());
+            document.setBlobRef(stocke.ref());
             document.setStage(stage);
             document.setEtudiant(stage.getEtudiant());
             documentRepository.save(document);
@@ -339,8 +358,10 @@ public class StageService {
         Stage s = stageRepository.findById(dto.getIdStage())
                 .orElseThrow(() -> new RuntimeException("Stage introuvable"));
 
+        EtatStage ancienEtat = s.getEtat();
         s.setEtat(dto.isApprouver() ? EtatStage.ACCEPTE : EtatStage.REFUSE);
         stageRepository.save(s);
+        stageStatistiquesService.transition(s, ancienEtat);
 
         // Renvoyer un objet JSON
         Map<String, String> response = new HashMap<>();
@@ -356,12 +377,9 @@ public class StageService {
         return "Commentaire ajouté";
     }
 
-    public List<Stage> listerDemandesPourEncadrant(String filiere) {
+    public List<StageDto> listerDemandesPourEncadrant(String filiere) {
         EtatStage filtre = EtatStage.EN_ATTENTE_VALIDATION;  // ou DEMANDE
-        if (filiere == null) {
-            return stageRepository.findByEtat(filtre);
-        }
-        return stageRepository.findByFiliereAndEtat(filiere, filtre);
+        return stageRepository.findDtosByEtat(filtre, filiere);
     }
 
 //    public ResponseEntity<?> assignerEncadrantAEtudiant(AssignmentDto dto) {
@@ -375,41 +393,17 @@ public class StageService {
 //    }
 
     // Nouvelle méthode pour récupérer les documents d'un stage
-    public List<Document> getDocumentsByStageId(Long stageId) {
-        return documentRepository.findByStageId(stageId);
+    public List<DocumentDto> getDocumentsByStageId(Long stageId) {
+        return documentRepository.findDtosByStageId(stageId);
     }
 
-    public void ajouterDocuments(Long stageId,
-                                 List<MultipartFile> fichiers,
-                                 List<String> types) throws IOException {
+    /** Dépôt groupé : écriture parallèle, une seule transaction, tout ou rien (DocumentIngestService). */
+    public List<Document> ajouterDocuments(Long stageId,
+                                           List<MultipartFile> fichiers,
+                                           List<String> types) throws IOException {
         Stage stage = stageRepository.findById(stageId)
                 .orElseThrow(() -> new RuntimeException("Stage non trouvé avec ID: " + stageId));
-
-        // Créer le dossier uploads/stages/{stageId}
-        Path uploadDir = Paths.get("uploads/stages/" + stageId);
-        if (!Files.exists(uploadDir)) {
-            Files.createDirectories(uploadDir);
-        }
-
-        // Boucle sur chaque fichier + son type
-        for (int i = 0; i < fichiers.size(); i++) {
-            MultipartFile fichier = fichiers.get(i);
-            String type = types.get(i);
-
-            if (fichier == null || fichier.isEmpty()) continue;
-
-            String nomFichier = System.currentTimeMillis() + "_" + fichier.getOriginalFilename();
-            Path cible = uploadDir.resolve(nomFichier);
-            Files.copy(fichier.getInputStream(), cible, StandardCopyOption.REPLACE_EXISTING);
-
-            Document doc = new Document();
-            doc.setNom(fichier.getOriginalFilename());
-            doc.setType(type);
-            doc.setCheminFichier(cible.toString());
-            doc.setStage(stage);
-            // (optionnel) doc.setEtudiant(stage.getEtudiant());
-            documentRepository.save(doc);
-        }
+        return documentIngestService.ingerer(stage, fichiers, types);
     }
 
 
@@ -436,24 +430,9 @@ public class StageService {
 
 
 
-    @Cacheable("stageStats")
+    /** Compteurs maintenus en mémoire (plus de COUNT par chargement du tableau de bord). */
     public Map<String, Object> getStatistiques() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("total", stageRepository.count());
-        stats.put("enAttente", stageRepository.countByEtat(EtatStage.DEMANDE));
-
-        // Compter ACCEPTE + RAPPORT_SOUMIS comme "validés"
-        long valides = stageRepository.countByEtat(EtatStage.ACCEPTE)
-                + stageRepository.countByEtat(EtatStage.RAPPORT_SOUMIS);
-        stats.put("valides", valides);
-
-        stats.put("refuses", stageRepository.countByEtat(EtatStage.REFUSE));
-        stats.put("enCours", stageRepository.countByEtat(EtatStage.EN_COURS));
-        stats.put("rapportsSoumis", stageRepository.countByEtat(EtatStage.RAPPORT_SOUMIS));
-        stats.put("totalEtudiants", etudiantRepository.count());
-        stats.put("totalEncadrants", encadrantRepository.count());
-
-        return stats;
+        return stageStatistiquesService.getStatistiques();
     }
 
     public List<Stage> getAllStages() {
@@ -474,13 +453,18 @@ public class StageService {
                 .collect(Collectors.toList());
     }
 
-    public List<Stage> getDemandesParEncadrant(Long idEncadrant) {
-        List<EtatStage> etats = Arrays.asList(
-                EtatStage.DEMANDE,
-                EtatStage.EN_ATTENTE_VALIDATION,
-                EtatStage.VALIDATION_EN_COURS
-        );
-        return stageRepository.findByEncadrantIdAndEtatIn(idEncadrant, etats);
+    private static final List<EtatStage> ETATS_DEMANDE = Arrays.asList(
+            EtatStage.DEMANDE,
+            EtatStage.EN_ATTENTE_VALIDATION,
+            EtatStage.VALIDATION_EN_COURS
+    );
+
+    public List<StageDto> getDemandesParEncadrant(Long idEncadrant) {
+        return stageRepository.findDtosByEncadrantIdAndEtatIn(idEncadrant, ETATS_DEMANDE);
+    }
+
+    public List<StageDto> getDemandesParEncadrant(Long idEncadrant, Long apresId, Pageable pageable) {
+        return stageRepository.findDtosByEncadrantIdAndEtatIn(idEncadrant, ETATS_DEMANDE, apresId, pageable);
     }
 
 
@@ -513,44 +497,33 @@ public class StageService {
 
 
 
-    public List<StageDto> findAllDtos() {
-        return stageRepository.findAll().stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+    /**
+     * Liste admin filtrée, par pages de taille bornée.
+     *
+     * @param curseur curseurSuivant de la page précédente, null pour la première page
+     * @throws IllegalArgumentException si le curseur est invalide
+     */
+    public PageCurseurDto<StageDto> listerStagesAdmin(EtatStage etat, String filiere, Long encadrantId,
+                                                      Long departementId, Long classeGroupeId,
+                                                      Long anneeScolaireId, String curseur, Integer taille) {
+        Curseur.Position apres = Curseur.decoder(curseur);
+        int n = pagination.taille(taille);
+        List<StageDto> lus = stageRepository.findPageAdmin(etat, blancEnNull(filiere), encadrantId,
+                departementId, classeGroupeId, anneeScolaireId, apres, n + 1);
+        return Pagination.page(lus, n, s -> Curseur.encoder(s.getDateCreation(), s.getId()));
     }
 
+    /** Stage tout juste créé (sans rapport) : pas de lecture supplémentaire. */
     private StageDto toDto(Stage s) {
-        StageDto dto = new StageDto();
-        dto.setId(s.getId());
-        dto.setSujet(s.getSujet());
-        // … copy all simple fields …
-        dto.setEntreprise(s.getEntreprise());
-        dto.setAdresseEntreprise(s.getAdresseEntreprise());
-        dto.setTelephoneEntreprise(s.getTelephoneEntreprise());
-        dto.setRepresentantEntreprise(s.getRepresentantEntreprise());
-        dto.setFiliere(s.getFiliere());
-        dto.setDateDebut(s.getDateDebut());
-        dto.setDateFin(s.getDateFin());
-        dto.setEtat(s.getEtat());
-
-        dto.setDateCreation(s.getDateCreation());
-
-        if (s.getRapport() != null) {
-            Rapport r = s.getRapport();
-            RapportDto rd = new RapportDto(
-                    r.getId(),
-                    r.getNomFichier(),
-                    r.getDateDepot(),           // LocalDate
-                    r.getStage().getId(),       // Long stageId
-                    r.getCloudinaryUrl()        // String cloudinaryUrl
-            );
-            dto.setRapport(rd);
-        }
-
+        StageDto dto = new StageDto(s.getId(), s.getSujet(), s.getEntreprise(), s.getAdresseEntreprise(),
+                s.getTelephoneEntreprise(), s.getRepresentantEntreprise(), s.getFiliere(),
+                s.getDateDebut(), s.getDateFin(), s.getEtat(), s.getDateCreation());
+        dto.setNote(s.getNote());
         return dto;
     }
 
-
-
+    private static String blancEnNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
 
 }
\ No newline at end of file
@@ -0,0 +1,339 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.dto.StatistiqueGroupeDto;
+import com.wbs.mymovie.estbm.model.Etudiant;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import com.wbs.mymovie.estbm.repository.EncadrantRepository;
+import com.wbs.mymovie.estbm.repository.EtudiantRepository;
+import com.wbs.mymovie.estbm.repository.StageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs de stages maintenus en mémoire.
+ *
+ * Démarrage : un seul GROUP BY (état × département × classe × année).
+ * Ensuite chaque création / changement d'état validé en base ajuste les compteurs,
+ * et une réconciliation périodique relit l'agrégat pour corriger toute dérive
+ * (ex: étudiant changé de groupe, modifications faites hors application).
+ *
+ * Un incrément validé pendant la relecture est mis de côté puis rejoué après la remise à
+ * niveau, sauf si l'instantané de l'agrégat voyait déjà sa transaction : chaque incrément
+ * porte l'identifiant (xid) de la transaction qui l'a produit.
+ *
+ * Le nombre d'étudiants est compté à la lecture : ils sont importés hors application,
+ * aucun événement ne permet de le tenir à jour.
+ */
+@Service
+public class StageStatistiquesService {
+
+    private static final Logger log = LoggerFactory.getLogger(StageStatistiquesService.class);
+
+    private record Cle(EtatStage etat, Long departementId, Long classeGroupeId, Long anneeScolaireId) {}
+
+    /** Variation validée ; cle null = nombre d'encadrants, xid null = transaction inconnue. */
+    private record Increment(Cle cle, long delta, Long xid) {}
+
+    // Ressource de transaction : xid lu une seule fois par transaction
+    private static final Object CLE_XID = new Object();
+
+    @Autowired
+    private StageRepository stageRepository;
+    @Autowired
+    private EtudiantRepository etudiantRepository;
+    @Autowired
+    private EncadrantRepository encadrantRepository;
+
+    private final TransactionTemplate lecture;
+
+    private final Map<Cle, LongAdder> compteurs = new ConcurrentHashMap<>();
+    private volatile boolean charge;
+    private final AtomicLong totalEncadrants = new AtomicLong();
+
+    // Non nul pendant un rechargement : les incréments validés y attendent la remise à niveau
+    private final Object verrouIncrements = new Object();
+    private List<Increment> enAttente;
+
+    public StageStatistiquesService(PlatformTransactionManager transactionManager) {
+        // Instantané et agrégat lus dans une même transaction, à part de celle de l'appelant
+        lecture = new TransactionTemplate(transactionManager);
+        lecture.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        lecture.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        lecture.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        recharger();
+    }
+
+    /** Réconciliation avec la base (par défaut toutes les 5 minutes). */
+    @Scheduled(fixedDelayString = "${stats.reconciliation-ms:300000}", initialDelayString = "${stats.reconciliation-ms:300000}")
+    public void reconcilier() {
+        boolean dejaCharge = charge;
+        long ecart = recharger();
+        if (dejaCharge && ecart > 0) {
+            log.warn("Statistiques des stages réconciliées : écart de {} stage(s)", ecart);
+        }
+    }
+
+    public void stageCree(Stage stage) {
+        Increment increment = new Increment(cle(stage, stage.getEtat()), 1, xidCourant());
+        apresCommit(() -> appliquer(List.of(increment)));
+    }
+
+    /** À appeler après avoir modifié l'état du stage (ancien = état avant modification). */
+    public void transition(Stage stage, EtatStage ancien) {
+        EtatStage nouveau = stage.getEtat();
+        if (ancien == nouveau) {
+            return;
+        }
+        Long xid = xidCourant();
+        List<Increment> increments = List.of(
+                new Increment(cle(stage, ancien), -1, xid),
+                new Increment(cle(stage, nouveau), 1, xid));
+        apresCommit(() -> appliquer(increments));
+    }
+
+    public void encadrantAjoute(int delta) {
+        Increment increment = new Increment(null, delta, xidCourant());
+        apresCommit(() -> appliquer(List.of(increment)));
+    }
+
+    /** Même format que l'ancien StageService.getStatistiques. */
+    public Map<String, Object> getStatistiques() {
+        Map<EtatStage, Long> parEtat = parEtat(snapshot().entrySet());
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", total(snapshot()));
+        stats.put("enAttente", parEtat.getOrDefault(EtatStage.DEMANDE, 0L));
+
+        // Compter ACCEPTE + RAPPORT_SOUMIS comme "validés"
+        stats.put("valides", parEtat.getOrDefault(EtatStage.ACCEPTE, 0L)
+                + parEtat.getOrDefault(EtatStage.RAPPORT_SOUMIS, 0L));
+
+        stats.put("refuses", parEtat.getOrDefault(EtatStage.REFUSE, 0L));
+        stats.put("enCours", parEtat.getOrDefault(EtatStage.EN_COURS, 0L));
+        stats.put("rapportsSoumis", parEtat.getOrDefault(EtatStage.RAPPORT_SOUMIS, 0L));
+        stats.put("totalEtudiants", etudiantRepository.count());
+        stats.put("totalEncadrants", totalEncadrants.get());
+        return stats;
+    }
+
+    /** Répartition par département / classe / année, filtres optionnels. */
+    public List<StatistiqueGroupeDto> getRepartition(Long departementId, Long classeGroupeId, Long anneeScolaireId) {
+        Map<List<Long>, List<Map.Entry<Cle, LongAdder>>> parGroupe = new LinkedHashMap<>();
+        for (Map.Entry<Cle, LongAdder> e : snapshot().entrySet()) {
+            Cle c = e.getKey();
+            if ((departementId != null && !departementId.equals(c.departementId()))
+                    || (classeGroupeId != null && !classeGroupeId.equals(c.classeGroupeId()))
+                    || (anneeScolaireId != null && !anneeScolaireId.equals(c.anneeScolaireId()))) {
+                continue;
+            }
+            parGroupe.computeIfAbsent(Arrays.asList(c.departementId(), c.classeGroupeId(), c.anneeScolaireId()),
+                    k -> new ArrayList<>()).add(e);
+        }
+
+        List<StatistiqueGroupeDto> result = new ArrayList<>();
+        parGroupe.forEach((groupe, entrees) -> {
+            long total = entrees.stream().mapToLong(e -> e.getValue().sum()).sum();
+            if (total == 0) {
+                // Groupe vidé (compteurs conservés par la réconciliation)
+                return;
+            }
+            result.add(new StatistiqueGroupeDto(groupe.get(0), groupe.get(1), groupe.get(2),
+                    parEtat(entrees), total));
+        });
+        return result;
+    }
+
+    private record Agregat(Instantane instantane, Map<Cle, Long> stages, long encadrants) {}
+
+    /**
+     * Relit l'agrégat puis remet chaque compteur à niveau en place. Les incréments validés
+     * pendant la lecture sont rejoués ensuite s'ils n'y figurent pas encore.
+     *
+     * @return somme des écarts corrigés (hors incréments en attente)
+     */
+    private synchronized long recharger() {
+        synchronized (verrouIncrements) {
+            enAttente = new ArrayList<>();
+        }
+        Agregat agregat;
+        try {
+            agregat = lecture.execute(status -> lireBase());
+        } catch (RuntimeException e) {
+            synchronized (verrouIncrements) {
+                enAttente.forEach(this::ajouter);
+                enAttente = null;
+            }
+            throw e;
+        }
+
+        synchronized (verrouIncrements) {
+            // Déjà comptés par l'agrégat : appliqués avant la comparaison pour ne pas passer pour de la dérive
+            List<Increment> aRejouer = new ArrayList<>();
+            for (Increment i : enAttente) {
+                if (i.xid() != null && agregat.instantane().voit(i.xid())) {
+                    ajouter(i);
+                } else {
+                    aRejouer.add(i);
+                }
+            }
+            Set<Cle> cles = new HashSet<>(compteurs.keySet());
+            cles.addAll(agregat.stages().keySet());
+            long ecart = 0;
+            for (Cle c : cles) {
+                LongAdder compteur = compteurs.computeIfAbsent(c, k -> new LongAdder());
+                long delta = agregat.stages().getOrDefault(c, 0L) - compteur.sum();
+                if (delta != 0) {
+                    compteur.add(delta);
+                    ecart += Math.abs(delta);
+                }
+            }
+            totalEncadrants.set(agregat.encadrants());
+            aRejouer.forEach(this::ajouter);
+            enAttente = null;
+            charge = true;
+            return ecart;
+        }
+    }
+
+    private Agregat lireBase() {
+        // Première instruction de la transaction : fixe l'instantané partagé par les suivantes
+        Instantane instantane = Instantane.parse(stageRepository.instantaneCourant());
+        Map<Cle, Long> base = new HashMap<>();
+        for (Object[] row : stageRepository.countByEtatAndGroupe()) {
+            Cle c = new Cle((EtatStage) row[0], (Long) row[1], (Long) row[2], (Long) row[3]);
+            base.merge(c, (Long) row[4], Long::sum);
+        }
+        return new Agregat(instantane, base, encadrantRepository.count());
+    }
+
+    private Map<Cle, LongAdder> snapshot() {
+        if (!charge) {
+            // Appel avant ApplicationReadyEvent : chargement à la demande
+            synchronized (this) {
+                if (!charge) {
+                    recharger();
+                }
+            }
+        }
+        return compteurs;
+    }
+
+    private void appliquer(List<Increment> increments) {
+        // Chargement initial éventuel hors du verrou (recharger le prend aussi)
+        snapshot();
+        synchronized (verrouIncrements) {
+            if (enAttente != null) {
+                enAttente.addAll(increments);
+            } else {
+                increments.forEach(this::ajouter);
+            }
+        }
+    }
+
+    private void ajouter(Increment i) {
+        if (i.cle() == null) {
+            totalEncadrants.addAndGet(i.delta());
+        } else {
+            compteurs.computeIfAbsent(i.cle(), k -> new LongAdder()).add(i.delta());
+        }
+    }
+
+    /** xid de la transaction courante, null hors transaction. */
+    private Long xidCourant() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        Long xid = (Long) TransactionSynchronizationManager.getResource(CLE_XID);
+        if (xid == null) {
+            xid = Long.parseLong(stageRepository.transactionCourante());
+            TransactionSynchronizationManager.bindResource(CLE_XID, xid);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CLE_XID);
+                }
+            });
+        }
+        return xid;
+    }
+
+    /**
+     * pg_snapshot au format texte "xmin:xmax:xip,...". Pour une transaction validée :
+     * visible si antérieure à xmin, ou antérieure à xmax et absente des transactions en cours.
+     */
+    record Instantane(long xmin, long xmax, Set<Long> enCours) {
+
+        static Instantane parse(String texte) {
+            String[] parties = texte.split(":", -1);
+            Set<Long> enCours = new HashSet<>();
+            if (parties.length > 2 && !parties[2].isEmpty()) {
+                for (String xid : parties[2].split(",")) {
+                    enCours.add(Long.parseLong(xid));
+                }
+            }
+            return new Instantane(Long.parseLong(parties[0]), Long.parseLong(parties[1]), enCours);
+        }
+
+        boolean voit(long xid) {
+            return xid < xmin || (xid < xmax && !enCours.contains(xid));
+        }
+    }
+
+    private static Cle cle(Stage stage, EtatStage etat) {
+        Etudiant e = stage.getEtudiant();
+        if (e == null) {
+            return new Cle(etat, null, null, null);
+        }
+        return new Cle(etat,
+                e.getDepartement() != null ? e.getDepartement().getId() : null,
+                e.getClasseGroupe() != null ? e.getClasseGroupe().getId() : null,
+                e.getAnneeScolaire() != null ? e.getAnneeScolaire().getId() : null);
+    }
+
+    private static Map<EtatStage, Long> parEtat(Collection<Map.Entry<Cle, LongAdder>> entrees) {
+        Map<EtatStage, Long> parEtat = new EnumMap<>(EtatStage.class);
+        for (Map.Entry<Cle, LongAdder> e : entrees) {
+            if (e.getKey().etat() != null && e.getValue().sum() != 0) {
+                parEtat.merge(e.getKey().etat(), e.getValue().sum(), Long::sum);
+            }
+        }
+        return parEtat;
+    }
+
+    private static long total(Map<Cle, LongAdder> c) {
+        return c.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    // Les compteurs ne bougent qu'une fois la transaction validée
+    private static void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -2,12 +2,16 @@ package com.wbs.mymovie.estbm.service;
 
 import com.wbs.mymovie.estbm.dto.RegisterRequest;
 import com.wbs.mymovie.estbm.dto.UpdateProfileDto;
+import com.wbs.mymovie.estbm.dto.UtilisateurDto;
 import com.wbs.mymovie.estbm.model.Encadrant;
 import com.wbs.mymovie.estbm.model.Utilisateur;
 import com.wbs.mymovie.estbm.model.enums.Role;
 import com.wbs.mymovie.estbm.repository.EncadrantRepository;
 import com.wbs.mymovie.estbm.repository.UtilisateurRepository;
+import com.wbs.mymovie.estbm.util.UtilisateurPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,16 +22,30 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-public class UtilisateurService implements UserDetailsService {
+public class UtilisateurService implements UserDetailsService, UserDetailsPasswordService {
 
 
     private final UtilisateurRepository utilisateurRepository;
     private final PasswordEncoder passwordEncoder;
     private final EncadrantRepository encadrantRepository;
 
+    // Cache court des comptes par email (login + refresh = au plus une requête SQL).
+    // On met en cache la copie immuable et non le UserDetails : ProviderManager efface le mot de passe
+    // du principal après authentification.
+    private record CachedCompte(UtilisateurPrincipal.Compte compte, long expiresAtMs) {}
+    private final Map<String, CachedCompte> principalCache = new ConcurrentHashMap<>();
+
+    @Value("${auth.principal-cache.ttl-ms:60000}")
+    private long principalCacheTtlMs;
+
+    @Value("${auth.principal-cache.max-size:5000}")
+    private int principalCacheMaxSize;
+
     @Autowired
     public UtilisateurService(UtilisateurRepository utilisateurRepository,
                               PasswordEncoder passwordEncoder , EncadrantRepository encadrantRepository) {
@@ -38,27 +56,68 @@ public class UtilisateurService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        Utilisateur utilisateur = utilisateurRepository.findByEmail(email)
+        return new UtilisateurPrincipal(loadCached(email));
+    }
+
+    /**
+     * Retourne le compte depuis le cache principal, ou le charge (une requête) sinon.
+     */
+    public UtilisateurPrincipal.Compte loadCached(String email) throws UsernameNotFoundException {
+        long now = System.currentTimeMillis();
+        CachedCompte cached = principalCache.get(email);
+        if (cached != null && cached.expiresAtMs() > now) {
+            return cached.compte();
+        }
+
+        UtilisateurPrincipal.Compte compte = utilisateurRepository.findByEmail(email)
+                .map(UtilisateurPrincipal.Compte::de)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé"));
 
-        return new org.springframework.security.core.userdetails.User(
-                utilisateur.getEmail(),
-                utilisateur.getPassword(),
-                List.of(new SimpleGrantedAuthority("ROLE_" + utilisateur.getRole().name()))
-        );
+        if (principalCache.size() >= principalCacheMaxSize) {
+            principalCache.values().removeIf(c -> c.expiresAtMs() <= now);
+            if (principalCache.size() >= principalCacheMaxSize) {
+                principalCache.clear();
+            }
+        }
+        principalCache.put(email, new CachedCompte(compte, now + principalCacheTtlMs));
+        return compte;
     }
 
+    public void evictPrincipal(String email) {
+        if (email != null) {
+            principalCache.remove(email);
+        }
+    }
 
+    /**
+     * Appelé par DaoAuthenticationProvider après une connexion réussie
+     * lorsque le hash stocké utilise un facteur de coût inférieur à celui configuré.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Utilisateur utilisateur = utilisateurRepository.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé"));
+        utilisateur.setPassword(newPassword);
+        Utilisateur saved = utilisateurRepository.save(utilisateur);
+        evictPrincipal(saved.getEmail());
+        return new UtilisateurPrincipal(UtilisateurPrincipal.Compte.de(saved));
+    }
 
     public Utilisateur updateProfile(Long userId, UpdateProfileDto dto) {
         Utilisateur utilisateur = utilisateurRepository.findById(userId)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé"));
+        String ancienEmail = utilisateur.getEmail();
 
         utilisateur.setNom(dto.getNom());
         utilisateur.setPrenom(dto.getPrenom());
         utilisateur.setEmail(dto.getEmail());
         utilisateur.setTelephone(dto.getTelephone());
-        return utilisateurRepository.save(utilisateur);
+        Utilisateur saved = utilisateurRepository.save(utilisateur);
+
+        // L'email peut avoir changé : on invalide l'ancienne et la nouvelle clé
+        evictPrincipal(ancienEmail);
+        evictPrincipal(saved.getEmail());
+        return saved;
     }
 
 
@@ -103,4 +162,23 @@ public class UtilisateurService implements UserDetailsService {
         return utilisateurRepository.findByRole(role);
     }
 
+    /** Réponse sans mot de passe ni entité gérée. */
+    public UtilisateurDto toDto(Utilisateur u) {
+        return new UtilisateurDto(u.getId(), u.getEmail(), u.getNom(), u.getPrenom(), u.getTelephone(),
+                u.getRole() != null ? u.getRole().name() : null);
+    }
+
+    public UtilisateurDto toDto(UtilisateurPrincipal.Compte c) {
+        return new UtilisateurDto(c.id(), c.email(), c.nom(), c.prenom(), c.telephone(),
+                c.role() != null ? c.role().name() : null);
+    }
+
+    public List<Utilisateur> getAllUsers(Long apresId, Pageable pageable) {
+        return utilisateurRepository.findByIdGreaterThanOrderByIdAsc(apresId, pageable);
+    }
+
+    public List<Utilisateur> getByRole(Role role, Long apresId, Pageable pageable) {
+        return utilisateurRepository.findByRoleAndIdGreaterThanOrderByIdAsc(role, apresId, pageable);
+    }
+
 }
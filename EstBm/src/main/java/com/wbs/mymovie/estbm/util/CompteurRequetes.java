@@ -0,0 +1,107 @@
+package com.wbs.mymovie.estbm.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compte les requêtes SQL émises par Hibernate sur le thread courant.
+ *
+ * Branché par hibernate.session_factory.statement_inspector : Hibernate l'instancie
+ * lui-même, l'état est donc porté par un ThreadLocal. Rien n'est compté hors d'une
+ * mesure ({@link #demarrer} / {@link #arreter}).
+ *
+ * Les requêtes sont regroupées par forme (listes IN et littéraux ramenés à « ? ») :
+ * la même forme répétée au-delà du seuil signale un N+1, dont la pile d'appel
+ * (limitée au code de l'application) est conservée.
+ */
+public class CompteurRequetes implements StatementInspector {
+
+    private static final ThreadLocal<Mesure> MESURE = new ThreadLocal<>();
+
+    private static final Pattern LISTE_IN = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern LITTERAL = Pattern.compile("'(?:[^']|'')*'|\\b\\d+\\b");
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+    private static final String PACKAGE_APPLI = "com.wbs.mymovie.estbm.";
+
+    /** Mesures imbriquées (test autour d'une requête HTTP) : chaque requête compte pour toutes. */
+    public static final class Mesure {
+        private final Mesure englobante;
+        private final int seuilRepetitions;
+        private int total;
+        private final Map<String, Integer> parForme = new HashMap<>();
+        private final Map<String, Throwable> repetitions = new LinkedHashMap<>();
+
+        private Mesure(Mesure englobante, int seuilRepetitions) {
+            this.englobante = englobante;
+            this.seuilRepetitions = seuilRepetitions;
+        }
+
+        private void enregistrer(String sql) {
+            total++;
+            String forme = forme(sql);
+            int n = parForme.merge(forme, 1, Integer::sum);
+            if (n == seuilRepetitions + 1) {
+                repetitions.put(forme, pileAppli("Requête répétée plus de " + seuilRepetitions + " fois : " + forme));
+            }
+        }
+
+        public int total() {
+            return total;
+        }
+
+        public Map<String, Integer> parForme() {
+            return parForme;
+        }
+
+        /** Formes ayant dépassé le seuil, avec la pile de l'appel qui l'a franchi. */
+        public Map<String, Throwable> repetitions() {
+            return repetitions;
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        for (Mesure m = MESURE.get(); m != null; m = m.englobante) {
+            m.enregistrer(sql);
+        }
+        return sql;
+    }
+
+    public static void demarrer(int seuilRepetitions) {
+        MESURE.set(new Mesure(MESURE.get(), seuilRepetitions));
+    }
+
+    /** Termine la mesure courante et revient à la mesure englobante éventuelle. */
+    public static Mesure arreter() {
+        Mesure m = MESURE.get();
+        if (m == null) {
+            return null;
+        }
+        if (m.englobante != null) {
+            MESURE.set(m.englobante);
+        } else {
+            MESURE.remove();
+        }
+        return m;
+    }
+
+    static String forme(String sql) {
+        String s = LITTERAL.matcher(sql).replaceAll("?");
+        s = LISTE_IN.matcher(s).replaceAll("(?)");
+        return ESPACES.matcher(s).replaceAll(" ").trim();
+    }
+
+    private static Throwable pileAppli(String message) {
+        Throwable t = new Throwable(message);
+        t.setStackTrace(Arrays.stream(t.getStackTrace())
+                .filter(e -> e.getClassName().startsWith(PACKAGE_APPLI)
+                        && !e.getClassName().startsWith(CompteurRequetes.class.getName()))
+                .toArray(StackTraceElement[]::new));
+        return t;
+    }
+}
@@ -0,0 +1,149 @@
+package com.wbs.mymovie.estbm.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Nombre de requêtes SQL par requête HTTP (voir {@link CompteurRequetes}).
+ *
+ * - une même forme de requête répétée plus de requetes.surveillance.seuil-repetitions
+ *   fois : avertissement avec la pile d'appel (N+1 probable) ;
+ * - requetes.budgets : plafond par endpoint, sous la forme
+ *   {@code GET /stages/admin/stages=2, GET /stages/admin/assignments=1} (motif de la route Spring) ;
+ *   dépassement : avertissement, ou réponse 500 si requetes.budgets.strict (profil test).
+ *   En mode strict le corps est tenu en mémoire jusqu'à la fin du traitement, sinon la
+ *   réponse serait déjà partie (200) au moment où le dépassement est constaté.
+ *
+ * Désactivé par défaut ; activé par les profils dev et test.
+ *
+ * Seul le thread de la requête est compté. Les traitements asynchrones ne le sont pas :
+ * login (CompletableFuture sur le pool loginExecutor), réponses en flux
+ * (StreamingResponseBody : exports, conventions en lot) et pools dédiés. Pour ces
+ * endpoints aucun budget n'est appliqué ; leur nombre de requêtes se mesure dans un
+ * test avec {@link CompteurRequetes#demarrer} / {@link CompteurRequetes#arreter} autour
+ * de l'appel au service.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CompteurRequetesFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(CompteurRequetesFilter.class);
+
+    @Value("${requetes.surveillance.active:false}")
+    private boolean active;
+
+    @Value("${requetes.surveillance.seuil-repetitions:10}")
+    private int seuilRepetitions;
+
+    @Value("${requetes.budgets:}")
+    private String budgetsConfig;
+
+    @Value("${requetes.budgets.strict:false}")
+    private boolean budgetsStricts;
+
+    private final Map<String, Integer> budgets = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String entree : budgetsConfig.split(",")) {
+            int egal = entree.lastIndexOf('=');
+            if (egal > 0) {
+                budgets.put(entree.substring(0, egal).trim(), Integer.parseInt(entree.substring(egal + 1).trim()));
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !active;
+    }
+
+    /**
+     * En mode strict, la redistribution qui termine une réponse asynchrone repasse ici
+     * pour recopier le corps tenu en mémoire.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return !budgetsStricts;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper tampon = null;
+        if (budgetsStricts) {
+            tampon = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            if (tampon == null) {
+                tampon = new ContentCachingResponseWrapper(response);
+            }
+        }
+
+        CompteurRequetes.demarrer(seuilRepetitions);
+        CompteurRequetes.Mesure mesure;
+        try {
+            filterChain.doFilter(request, tampon != null ? tampon : response);
+        } finally {
+            mesure = CompteurRequetes.arreter();
+        }
+
+        if (request.isAsyncStarted()) {
+            // Suite du traitement sur un autre thread : le total ne couvre que la partie synchrone,
+            // le corps éventuellement tenu en mémoire est recopié par la redistribution finale
+            log.debug("{} : réponse asynchrone, {} requêtes SQL avant le passage en asynchrone",
+                    endpoint(request), mesure.total());
+            return;
+        }
+        if (isAsyncDispatch(request)) {
+            tampon.copyBodyToResponse();
+            return;
+        }
+
+        String endpoint = endpoint(request);
+        mesure.repetitions().values()
+                .forEach(pile -> log.warn("{} : {}", endpoint, pile.getMessage(), pile));
+
+        Integer budget = budgets.get(endpoint);
+        if (budget != null && mesure.total() > budget) {
+            String message = endpoint + " : " + mesure.total() + " requêtes SQL pour un budget de " + budget;
+            if (tampon != null) {
+                log.error(message);
+                // Rien n'est encore parti : le corps tenu en mémoire est remplacé par l'erreur
+                tampon.resetBuffer();
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            log.warn(message);
+        } else {
+            log.debug("{} : {} requêtes SQL", endpoint, mesure.total());
+        }
+        if (tampon != null) {
+            tampon.copyBodyToResponse();
+        }
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (motif != null ? motif : request.getRequestURI());
+    }
+}
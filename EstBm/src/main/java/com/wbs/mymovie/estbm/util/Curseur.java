@@ -0,0 +1,61 @@
+package com.wbs.mymovie.estbm.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Curseur opaque de pagination par clé (keyset) : position du dernier élément vu,
+ * (date, id) ou id seul, encodée en base64url pour que le client n'en dépende pas.
+ */
+public final class Curseur {
+
+    public record Position(LocalDateTime date, Long id) {}
+
+    private Curseur() {
+    }
+
+    public static String encoder(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null si aucun curseur n'est fourni (première page)
+     * @throws IllegalArgumentException si le curseur est illisible
+     */
+    public static Long decoderId(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+    }
+
+    public static String encoder(LocalDateTime date, Long id) {
+        // Date vide : stage sans date de création (rangé en fin de liste)
+        String brut = (date != null ? date.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null si aucun curseur n'est fourni (première page)
+     * @throws IllegalArgumentException si le curseur est illisible
+     */
+    public static Position decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return null;
+        }
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            int sep = brut.indexOf('|');
+            String date = brut.substring(0, sep);
+            return new Position(date.isEmpty() ? null : LocalDateTime.parse(date), Long.parseLong(brut.substring(sep + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.wbs.mymovie.estbm.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Cache de fichiers sur disque borné en taille, éviction LRU.
+ * Les fichiers sont d'abord écrits dans un fichier temporaire du même répertoire
+ * puis déplacés atomiquement : un lecteur ne voit jamais un fichier partiel.
+ *
+ * Un fichier en cache n'est livré qu'ouvert, sous le verrou qui protège aussi l'éviction :
+ * le canal reste lisible même si l'entrée est évincée pendant la lecture.
+ */
+public class DiskLruCache {
+
+    private static final String SUFFIXE_TMP = ".part";
+
+    private final Path dir;
+    private final long maxBytes;
+
+    // Ordre d'accès : le premier élément est le moins récemment utilisé
+    private final LinkedHashMap<String, Long> tailles = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public DiskLruCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(dir);
+            charger();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Répertoire de cache inaccessible : " + dir, e);
+        }
+    }
+
+    /** @return le fichier en cache ouvert en lecture (à fermer par l'appelant), ou null */
+    public synchronized FileChannel ouvrir(String cle) throws IOException {
+        if (tailles.get(cle) == null) {
+            misses.increment();
+            return null;
+        }
+        try {
+            FileChannel canal = FileChannel.open(dir.resolve(cle), StandardOpenOption.READ);
+            hits.increment();
+            return canal;
+        } catch (NoSuchFileException e) {
+            // Supprimé hors application
+            totalBytes -= tailles.remove(cle);
+            misses.increment();
+            return null;
+        }
+    }
+
+    public Path fichierTemporaire() throws IOException {
+        return Files.createTempFile(dir, "dl-", SUFFIXE_TMP);
+    }
+
+    /** Publie un fichier temporaire complet sous la clé donnée, puis applique l'éviction. */
+    public void put(String cle, Path tmp) throws IOException {
+        Path cible = dir.resolve(cle);
+        long taille = Files.size(tmp);
+        Files.move(tmp, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long ancienne = tailles.put(cle, taille);
+            totalBytes += taille - (ancienne != null ? ancienne : 0);
+            evincer(cle);
+        }
+    }
+
+    public synchronized void remove(String cle) {
+        Long taille = tailles.remove(cle);
+        if (taille != null) {
+            totalBytes -= taille;
+            supprimer(dir.resolve(cle));
+        }
+    }
+
+    public synchronized Map<String, Object> getStatistiques() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", tailles.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    // Le fichier qui vient d'être ajouté n'est jamais évincé, même s'il dépasse à lui seul la limite
+    private void evincer(String conserve) {
+        Iterator<Map.Entry<String, Long>> it = tailles.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            if (e.getKey().equals(conserve)) {
+                continue;
+            }
+            totalBytes -= e.getValue();
+            supprimer(dir.resolve(e.getKey()));
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    // Reprise après redémarrage : ordre LRU approché par la date de modification
+    private void charger() throws IOException {
+        try (Stream<Path> fichiers = Files.list(dir)) {
+            fichiers.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparingLong(DiskLruCache::dateModif))
+                    .forEach(p -> {
+                        String nom = p.getFileName().toString();
+                        if (nom.endsWith(SUFFIXE_TMP)) {
+                            supprimer(p);
+                            return;
+                        }
+                        long taille = p.toFile().length();
+                        tailles.put(nom, taille);
+                        totalBytes += taille;
+                    });
+        }
+        evincer(null);
+    }
+
+    private static long dateModif(Path p) {
+        return p.toFile().lastModified();
+    }
+
+    private static void supprimer(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+            // Fichier en cours de lecture (Windows) : il sera repris au prochain démarrage
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.wbs.mymovie.estbm.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Empreintes SHA-256 en hexadécimal (ETag, révisions, clés de cache, stockage adressé par contenu).
+ */
+public final class Empreintes {
+
+    private Empreintes() {
+    }
+
+    /** Nouveau condensé SHA-256, pour un calcul incrémental (flux, plusieurs champs). */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(MessageDigest md) {
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public static String sha256Hex(byte[] contenu) {
+        return HexFormat.of().formatHex(sha256().digest(contenu));
+    }
+
+    public static String sha256Hex(String valeur) {
+        return sha256Hex(valeur.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,252 @@
+package com.wbs.mymovie.estbm.util;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Écriture ligne à ligne d'un export tabulaire directement dans le flux de réponse.
+ * Aucune implémentation ne garde plus d'une fenêtre bornée de lignes en mémoire.
+ */
+public abstract class ExportWriter implements AutoCloseable {
+
+    protected final OutputStream out;
+
+    protected ExportWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public abstract void entete(String[] colonnes) throws IOException;
+
+    public abstract void ligne(Object[] valeurs) throws IOException;
+
+    /** Termine le document (pied de fichier, flush) sans fermer le flux HTTP. */
+    public abstract void terminer() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    public static ExportWriter pour(String format, String titre, OutputStream out,
+                                    int fenetreXlsx, int lignesParBlocPdf) throws IOException {
+        return switch (format.toLowerCase()) {
+            case "csv" -> new Csv(out);
+            case "xlsx" -> new Xlsx(out, titre, fenetreXlsx);
+            case "pdf" -> new Pdf(out, titre, lignesParBlocPdf);
+            default -> throw new IllegalArgumentException("Format d'export non supporté : " + format);
+        };
+    }
+
+    public static boolean estSupporte(String format) {
+        return format != null && switch (format.toLowerCase()) {
+            case "csv", "xlsx", "pdf" -> true;
+            default -> false;
+        };
+    }
+
+    public static MediaType mediaType(String format) {
+        return switch (format.toLowerCase()) {
+            case "csv" -> new MediaType("text", "csv", StandardCharsets.UTF_8);
+            case "xlsx" -> MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            case "pdf" -> MediaType.APPLICATION_PDF;
+            default -> MediaType.APPLICATION_OCTET_STREAM;
+        };
+    }
+
+    static String texte(Object valeur) {
+        return valeur == null ? "" : valeur.toString();
+    }
+
+    /** CSV (séparateur ';', BOM UTF-8 pour Excel). */
+    static class Csv extends ExportWriter {
+        private final Writer writer;
+
+        Csv(OutputStream out) throws IOException {
+            super(out);
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            writer.write('\uFEFF');
+        }
+
+        @Override
+        public void entete(String[] colonnes) throws IOException {
+            ligne(colonnes);
+        }
+
+        @Override
+        public void ligne(Object[] valeurs) throws IOException {
+            for (int i = 0; i < valeurs.length; i++) {
+                if (i > 0) {
+                    writer.write(';');
+                }
+                echapper(texte(valeurs[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        private void echapper(String v) throws IOException {
+            boolean quote = v.indexOf(';') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(v);
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < v.length(); i++) {
+                char c = v.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /** XLSX via SXSSF : seules les {@code fenetre} dernières lignes restent en mémoire. */
+    static class Xlsx extends ExportWriter {
+        private final SXSSFWorkbook workbook;
+        private final SXSSFSheet sheet;
+        private int rowIdx = 0;
+
+        Xlsx(OutputStream out, String titre, int fenetre) {
+            super(out);
+            this.workbook = new SXSSFWorkbook(fenetre);
+            this.workbook.setCompressTempFiles(true);
+            this.sheet = workbook.createSheet(titre);
+        }
+
+        @Override
+        public void entete(String[] colonnes) {
+            ligne(colonnes);
+        }
+
+        @Override
+        public void ligne(Object[] valeurs) {
+            Row row = sheet.createRow(rowIdx++);
+            for (int i = 0; i < valeurs.length; i++) {
+                Object v = valeurs[i];
+                if (v instanceof Number n) {
+                    row.createCell(i).setCellValue(n.doubleValue());
+                } else {
+                    row.createCell(i).setCellValue(texte(v));
+                }
+            }
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            workbook.write(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Supprime les fichiers temporaires de SXSSF
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * PDF via iText : le tableau est marqué incomplet et ajouté au document
+     * tous les {@code lignesParBloc}, ce qui libère les lignes déjà rendues.
+     */
+    static class Pdf extends ExportWriter {
+        private static final Font FONT = FontFactory.getFont(FontFactory.HELVETICA, 8);
+        private static final Font FONT_ENTETE = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8);
+
+        private final Document document;
+        private final String titre;
+        private final int lignesParBloc;
+        private PdfPTable table;
+        private int lignesEnAttente = 0;
+
+        Pdf(OutputStream out, String titre, int lignesParBloc) throws IOException {
+            super(out);
+            this.titre = titre;
+            this.lignesParBloc = lignesParBloc;
+            this.document = new Document(PageSize.A4.rotate(), 20, 20, 20, 20);
+            try {
+                PdfWriter.getInstance(document, out).setCloseStream(false);
+            } catch (DocumentException e) {
+                throw new IOException(e);
+            }
+            document.open();
+        }
+
+        @Override
+        public void entete(String[] colonnes) throws IOException {
+            table = new PdfPTable(colonnes.length);
+            table.setWidthPercentage(100);
+            table.setHeaderRows(1);
+            table.setComplete(false);
+            for (String c : colonnes) {
+                table.addCell(new Phrase(c, FONT_ENTETE));
+            }
+            try {
+                document.add(new Paragraph(titre));
+            } catch (DocumentException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void ligne(Object[] valeurs) throws IOException {
+            for (Object v : valeurs) {
+                table.addCell(new Phrase(texte(v), FONT));
+            }
+            if (++lignesEnAttente >= lignesParBloc) {
+                ajouterTable();
+            }
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            table.setComplete(true);
+            ajouterTable();
+            document.close();
+            out.flush();
+        }
+
+        private void ajouterTable() throws IOException {
+            try {
+                document.add(table);
+            } catch (DocumentException e) {
+                throw new IOException(e);
+            }
+            lignesEnAttente = 0;
+        }
+
+        @Override
+        public void close() {
+            if (document.isOpen()) {
+                try {
+                    document.close();
+                } catch (RuntimeException ignored) {
+                    // Export interrompu avant la première page : rien à terminer
+                }
+            }
+        }
+    }
+}
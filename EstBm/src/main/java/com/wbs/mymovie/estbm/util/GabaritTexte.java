@@ -0,0 +1,98 @@
+package com.wbs.mymovie.estbm.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Texte à variables {@code {{ objet.champ }}} compilé une fois en une suite de
+ * segments (texte fixe / variable) : le rendu n'est plus qu'une concaténation.
+ */
+public final class GabaritTexte {
+
+    public static final Pattern VARIABLE = Pattern.compile("\\{\\{\\s*([a-zA-Z0-9_.]+)\\s*}}");
+
+    // Segments pairs : texte fixe ; segments impairs : nom de variable
+    private final String[] segments;
+    private final int tailleFixe;
+
+    private GabaritTexte(String[] segments) {
+        this.segments = segments;
+        int n = 0;
+        for (int i = 0; i < segments.length; i += 2) {
+            n += segments[i].length();
+        }
+        this.tailleFixe = n;
+    }
+
+    public static GabaritTexte compiler(String source) {
+        List<String> segments = new ArrayList<>();
+        Matcher m = VARIABLE.matcher(source);
+        int pos = 0;
+        while (m.find()) {
+            segments.add(source.substring(pos, m.start()));
+            segments.add(m.group(1));
+            pos = m.end();
+        }
+        segments.add(source.substring(pos));
+        return new GabaritTexte(segments.toArray(new String[0]));
+    }
+
+    public boolean contientVariables() {
+        return segments.length > 1;
+    }
+
+    public Set<String> variables() {
+        Set<String> noms = new LinkedHashSet<>();
+        for (int i = 1; i < segments.length; i += 2) {
+            noms.add(segments[i]);
+        }
+        return Collections.unmodifiableSet(noms);
+    }
+
+    /** Variable inconnue ou nulle : chaîne vide. */
+    public String rendre(Map<String, String> valeurs, UnaryOperator<String> echappement) {
+        StringBuilder sb = new StringBuilder(tailleFixe + 64 * (segments.length / 2));
+        for (int i = 0; i < segments.length; i++) {
+            if (i % 2 == 0) {
+                sb.append(segments[i]);
+            } else {
+                String v = valeurs.get(segments[i]);
+                if (v != null) {
+                    sb.append(echappement.apply(v));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Échappement XML / HTML (contenu de balise et attributs). */
+    public static String echapperXml(String v) {
+        StringBuilder sb = null;
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            String r = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (r != null && sb == null) {
+                sb = new StringBuilder(v.length() + 16).append(v, 0, i);
+            }
+            if (sb != null) {
+                if (r != null) sb.append(r);
+                else sb.append(c);
+            }
+        }
+        return sb == null ? v : sb.toString();
+    }
+}
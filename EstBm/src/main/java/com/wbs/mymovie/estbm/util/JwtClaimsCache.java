@@ -0,0 +1,100 @@
+package com.wbs.mymovie.estbm.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache borné des tokens JWT déjà vérifiés.
+ * La clé est un condensé SHA-256 du token (le token brut n'est jamais conservé),
+ * chaque entrée expire à la date "exp" du token.
+ */
+@Component
+public class JwtClaimsCache {
+
+    /** Résultat d'une vérification : sujet + authorities déjà converties. */
+    public record VerifiedToken(String username, List<GrantedAuthority> authorities, long expiresAtMs) {
+        boolean isExpired(long now) {
+            return expiresAtMs <= now;
+        }
+    }
+
+    @Value("${jwt.cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+
+    public VerifiedToken get(String token) {
+        String key = digest(token);
+        VerifiedToken cached = entries.get(key);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (cached.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, cached);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached;
+    }
+
+    public void put(String token, VerifiedToken verified) {
+        if (verified.isExpired(System.currentTimeMillis())) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(digest(token), verified);
+    }
+
+    /** Enregistre la durée d'une vérification HMAC + parsing (cache miss). */
+    public void recordVerification(long nanos) {
+        verifications.increment();
+        verificationNanos.add(nanos);
+    }
+
+    public Map<String, Object> getStatistiques() {
+        long count = verifications.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("verifications", count);
+        stats.put("verificationMoyenneMicros", count == 0 ? 0 : verificationNanos.sum() / count / 1_000);
+        return stats;
+    }
+
+    // Supprime d'abord les tokens expirés, puis des entrées arbitraires si le cache est toujours plein
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(v -> v.isExpired(now));
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        byte[] hash = Empreintes.sha256().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+}
@@ -3,6 +3,7 @@ package com.wbs.mymovie.estbm.util;
 
 import com.wbs.mymovie.estbm.util.JwtUtil;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +26,9 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private JwtClaimsCache jwtClaimsCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -32,51 +36,63 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        logger.info(">>> Authorization header = " + authHeader);
-
-        String token = null;
-        String username = null;
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            logger.info(">>> Raw token = " + token);
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String token = authHeader.substring(7);
 
-            boolean valid = jwtUtil.validateJwtToken(token);
-            logger.info(">>> validateJwtToken(token) = " + valid);
+            JwtClaimsCache.VerifiedToken verified = verify(token);
+            if (verified != null) {
+                logger.debug("JWT valide pour user = " + verified.username());
 
-            if (valid) {
-                username = jwtUtil.getUsernameFromJwt(token);
-                logger.info("✅ JWT valide pour user = " + username);
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(verified.username(), null, verified.authorities());
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             } else {
-                logger.warn("❌ JWT invalide");
+                logger.debug("JWT invalide");
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Claims claims = jwtUtil.extractAllClaims(token);
-            logger.info(">>> Claims = " + claims);
-
-            Object rolesObj = claims.get("authorities");
-            logger.info(">>> rolesObj = " + rolesObj);
-
-            @SuppressWarnings("unchecked")
-            List<String> roles = ((List<?>) rolesObj).stream()
-                    .map(Object::toString)
-                    .collect(Collectors.toList());
-            logger.info(">>> roles (List<String>) = " + roles);
-
-            List<GrantedAuthority> authorities = roles.stream()
-                    .map(SimpleGrantedAuthority::new)
-                    .collect(Collectors.toList());
-            logger.info(">>> authorities = " + authorities);
-
-            UsernamePasswordAuthenticationToken authToken =
-                    new UsernamePasswordAuthenticationToken(username, null, authorities);
-            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authToken);
-            logger.info(">>> SecurityContextHolder updated with authentication");
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Vérifie le token une seule fois par requête : on consulte d'abord le cache,
+     * sinon on parse (signature + expiration) et on convertit les authorities.
+     */
+    private JwtClaimsCache.VerifiedToken verify(String token) {
+        JwtClaimsCache.VerifiedToken cached = jwtClaimsCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        Claims claims;
+        try {
+            claims = jwtUtil.extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        } finally {
+            jwtClaimsCache.recordVerification(System.nanoTime() - start);
         }
 
-        filterChain.doFilter(request, response);
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            return null;
+        }
+
+        // Un token sans authorities (ex: refresh token) n'authentifie pas la requête
+        if (!(claims.get("authorities") instanceof List<?> roles)) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(Object::toString)
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList());
+
+        JwtClaimsCache.VerifiedToken verified = new JwtClaimsCache.VerifiedToken(
+                claims.getSubject(), authorities, claims.getExpiration().getTime());
+        jwtClaimsCache.put(token, verified);
+        return verified;
     }
 }
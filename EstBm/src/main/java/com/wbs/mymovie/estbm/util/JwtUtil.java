@@ -1,6 +1,5 @@
 package com.wbs.mymovie.estbm.util;
 
-import com.wbs.mymovie.estbm.model.Utilisateur;
 import com.wbs.mymovie.estbm.service.UtilisateurService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
@@ -18,6 +17,8 @@ import java.util.Map;
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_FAMILLE = "fam";
+
     @Value("${jwt.refreshExpiration}")  // Add this property
     private long refreshTokenExpirationMs;  // Add this field
 
@@ -32,24 +33,33 @@ public class JwtUtil {
 
     private Key key;
 
+    // Le parser est immuable et thread-safe : on le construit une seule fois
+    private JwtParser parser;
+
     @PostConstruct
     public void init() {
         // Initialisation de la clé à partir du secret
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
     public String generateToken(String email) {
-        Utilisateur user = utilisateurService.findByEmail(email);
+        return generateToken(utilisateurService.loadCached(email));
+    }
 
+    /** Génère le token à partir d'un compte déjà chargé (aucun accès base). */
+    public String generateToken(UtilisateurPrincipal.Compte compte) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("userId", user.getId());
-        claims.put("email", user.getEmail());
-        claims.put("role", user.getRole().name());
+        claims.put("userId", compte.id());
+        claims.put("email", compte.email());
+        claims.put("role", compte.role().name());
 
         // Correction: Format correct pour les authorities
-        claims.put("authorities", List.of("ROLE_" + user.getRole().name()));
+        claims.put("authorities", List.of("ROLE_" + compte.role().name()));
 
-        return createToken(claims, user.getEmail());
+        return createToken(claims, compte.email());
     }
 
     // Ajouter cette méthode pour vérifier l'expiration
@@ -63,12 +73,12 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * Vérifie la signature et l'expiration puis retourne les claims.
+     * Lève une {@link JwtException} si le token est invalide.
+     */
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
 
@@ -87,34 +97,30 @@ public class JwtUtil {
     }
 
     public String getUsernameFromJwt(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return extractAllClaims(token).getSubject();
     }
 
     public boolean validateJwtToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
+            extractAllClaims(token);
             return true;
-        } catch (JwtException e) {
+        } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
 
 
-    public String createRefreshToken(String email) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + refreshTokenExpirationMs);
+    public long getRefreshTokenExpirationMs() {
+        return refreshTokenExpirationMs;
+    }
 
+    /** Refresh token identifié (jti) et rattaché à une famille de rotation. */
+    public String createRefreshToken(String email, String jti, String familleId, Date issuedAt, Date expiryDate) {
         return Jwts.builder()
                 .setSubject(email)
-                .setIssuedAt(now)
+                .setId(jti)
+                .claim(CLAIM_FAMILLE, familleId)
+                .setIssuedAt(issuedAt)
                 .setExpiration(expiryDate)
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
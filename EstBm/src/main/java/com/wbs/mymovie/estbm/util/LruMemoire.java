@@ -0,0 +1,57 @@
+package com.wbs.mymovie.estbm.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache LRU en mémoire, borné par un poids total : octets du contenu, ou 1 par
+ * entrée pour borner le nombre d'entrées ({@link #parNombre}). Thread-safe.
+ * L'entrée qui vient d'être ajoutée n'est jamais évincée, même seule au-delà de la borne.
+ */
+public class LruMemoire<K, V> {
+
+    private final long poidsMax;
+    private final ToLongFunction<V> poids;
+
+    // Ordre d'accès : le premier élément est le moins récemment utilisé
+    private final LinkedHashMap<K, V> entrees = new LinkedHashMap<>(64, 0.75f, true);
+    private long poidsTotal = 0;
+
+    public LruMemoire(long poidsMax, ToLongFunction<V> poids) {
+        this.poidsMax = poidsMax;
+        this.poids = poids;
+    }
+
+    public static <K, V> LruMemoire<K, V> parNombre(long maxEntrees) {
+        return new LruMemoire<>(maxEntrees, v -> 1);
+    }
+
+    /** @return la valeur (devenue la plus récemment utilisée), ou null */
+    public synchronized V get(K cle) {
+        return entrees.get(cle);
+    }
+
+    public synchronized void put(K cle, V valeur) {
+        V ancienne = entrees.put(cle, valeur);
+        poidsTotal += poids.applyAsLong(valeur) - (ancienne != null ? poids.applyAsLong(ancienne) : 0);
+        Iterator<Map.Entry<K, V>> it = entrees.entrySet().iterator();
+        while (poidsTotal > poidsMax && it.hasNext()) {
+            Map.Entry<K, V> e = it.next();
+            if (e.getKey().equals(cle)) {
+                continue;
+            }
+            poidsTotal -= poids.applyAsLong(e.getValue());
+            it.remove();
+        }
+    }
+
+    public synchronized int taille() {
+        return entrees.size();
+    }
+
+    public synchronized long poidsTotal() {
+        return poidsTotal;
+    }
+}
@@ -0,0 +1,86 @@
+package com.wbs.mymovie.estbm.util;
+
+import com.wbs.mymovie.estbm.dto.PageCurseurDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Contrat commun des listes paginées par curseur.
+ *
+ * Requête : ?curseur=...&taille=... (taille bornée par pagination.taille-max).
+ * Réponse : {@link PageCurseurDto} + en-tête {@code Link: <...>; rel="next"} s'il reste une page.
+ * Tant que pagination.listes-completes est actif, une requête sans curseur ni taille
+ * reçoit encore l'ancienne liste complète (compatibilité des clients existants).
+ */
+@Component
+public class Pagination {
+
+    @Value("${pagination.taille-defaut:50}")
+    private int tailleDefaut;
+
+    @Value("${pagination.taille-max:200}")
+    private int tailleMax;
+
+    @Value("${pagination.listes-completes:true}")
+    private boolean listesCompletes;
+
+    public int taille(Integer demandee) {
+        return demandee == null || demandee <= 0 ? tailleDefaut : Math.min(demandee, tailleMax);
+    }
+
+    /** Un élément de plus que la page, pour savoir s'il en reste une autre. */
+    public static Pageable limite(int taille) {
+        return PageRequest.of(0, taille + 1);
+    }
+
+    /** Page triée par id croissant : {@code pageSuivante(apresId, limite)} lit les ids > apresId. */
+    public <T> ResponseEntity<?> lister(String curseur, Integer taille,
+                                        Supplier<List<T>> listeComplete,
+                                        BiFunction<Long, Pageable, List<T>> pageSuivante,
+                                        Function<T, Long> id) {
+        if (listesCompletes && curseur == null && taille == null) {
+            return ResponseEntity.ok(listeComplete.get());
+        }
+        Long apres;
+        try {
+            apres = Curseur.decoderId(curseur);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        int n = taille(taille);
+        List<T> lus = pageSuivante.apply(apres != null ? apres : 0L, limite(n));
+        return repondre(page(lus, n, t -> Curseur.encoder(id.apply(t))));
+    }
+
+    /** Coupe la lecture à la taille demandée et calcule le curseur du dernier élément. */
+    public static <T> PageCurseurDto<T> page(List<T> lus, int taille, Function<T, String> curseur) {
+        boolean suite = lus.size() > taille;
+        List<T> elements = suite ? new ArrayList<>(lus.subList(0, taille)) : lus;
+        String suivant = suite ? curseur.apply(elements.get(elements.size() - 1)) : null;
+        return new PageCurseurDto<>(elements, suivant, suite);
+    }
+
+    /** Réponse 200 avec l'en-tête Link vers la page suivante. */
+    public static ResponseEntity<?> repondre(PageCurseurDto<?> page) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.getCurseurSuivant() != null) {
+            String suivante = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("curseur", page.getCurseurSuivant())
+                    .build()
+                    .toUriString();
+            ok.header(HttpHeaders.LINK, "<" + suivante + ">; rel=\"next\"");
+        }
+        return ok.body(page);
+    }
+}
@@ -0,0 +1,43 @@
+package com.wbs.mymovie.estbm.util;
+
+import com.wbs.mymovie.estbm.model.Utilisateur;
+import com.wbs.mymovie.estbm.model.enums.Role;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+
+/**
+ * Principal Spring Security qui transporte le compte déjà chargé,
+ * pour que login / refresh n'aient pas à le relire en base.
+ */
+public class UtilisateurPrincipal extends User {
+
+    /**
+     * Copie immuable d'un Utilisateur, partageable entre requêtes (cache des comptes) :
+     * l'entité détachée, elle, peut être modifiée par l'appelant.
+     * Le modèle ne connaît pas de compte désactivé : actif tant qu'il existe.
+     */
+    public record Compte(Long id, String email, Role role, String motDePasse, boolean actif,
+                         String nom, String prenom, String telephone) {
+
+        public static Compte de(Utilisateur u) {
+            return new Compte(u.getId(), u.getEmail(), u.getRole(), u.getPassword(), true,
+                    u.getNom(), u.getPrenom(), u.getTelephone());
+        }
+    }
+
+    private final Compte compte;
+
+    public UtilisateurPrincipal(Compte compte) {
+        super(compte.email(),
+                compte.motDePasse(),
+                compte.actif(), true, true, true,
+                List.of(new SimpleGrantedAuthority("ROLE_" + compte.role().name())));
+        this.compte = compte;
+    }
+
+    public Compte getCompte() {
+        return compte;
+    }
+}
@@ -0,0 +1,22 @@
+-- Jobs d'ingestion des rapports (RapportIngestService) : gardés en base pour que leur suivi
+-- et leur reprise survivent à un redémarrage.
+create table if not exists rapport_ingest_jobs (
+    id varchar(36) primary key,
+    stage_id bigint not null references stages (id) on delete cascade,
+    nom_fichier varchar(255),
+    spool varchar(1024) not null,
+    statut varchar(32) not null,
+    etape varchar(32) not null,
+    tentatives integer not null,
+    message text,
+    prochaine_tentative timestamp(6),
+    date_creation timestamp(6) not null,
+    date_maj timestamp(6) not null,
+    -- Fichier déjà envoyé au stockage : une reprise ne le renvoie pas
+    blob_ref varchar(255),
+    blob_url varchar(1024),
+    blob_taille bigint
+);
+
+-- Reprise au démarrage (jobs non terminés) et purge des jobs terminés
+create index if not exists idx_rapport_ingest_jobs_statut on rapport_ingest_jobs (statut, date_maj);
@@ -0,0 +1,269 @@
+-- Schéma initial : celui que ddl-auto=update créait avant les migrations versionnées
+-- (ids IDENTITY, ni jetons de rafraîchissement, ni références de stockage, ni index).
+-- Une base déjà créée par ddl-auto=update est enregistrée en V1 sans exécuter ce script :
+-- tout ajout ultérieur au modèle va dans un script V2 et suivants, jamais ici.
+
+create table annees_scolaires (
+    id bigint generated by default as identity,
+    libelle varchar(255) not null,
+    primary key (id)
+);
+
+create table classes_groupes (
+    id bigint generated by default as identity,
+    id_departemen bigint not null,
+    nom varchar(255) not null,
+    primary key (id)
+);
+
+create table commentaires_rapport (
+    date_creation timestamp(6) not null,
+    encadrant_id bigint not null,
+    id bigint generated by default as identity,
+    rapport_id bigint not null,
+    texte varchar(255) not null,
+    primary key (id)
+);
+
+create table departements (
+    id bigint generated by default as identity,
+    nom varchar(255) not null unique,
+    primary key (id)
+);
+
+create table detail_soutenance (
+    date_soutenance date,
+    heure_debut time(6),
+    heure_fin time(6),
+    etudiant_id bigint,
+    id bigint generated by default as identity,
+    planification_id bigint,
+    sujet varchar(255),
+    primary key (id)
+);
+
+create table document (
+    etudiant_id bigint,
+    id bigint generated by default as identity,
+    stage_id bigint,
+    chemin_fichier varchar(255),
+    nom varchar(255),
+    type varchar(255),
+    primary key (id)
+);
+
+create table documents_modeles (
+    id bigint generated by default as identity,
+    template_path varchar(255),
+    type varchar(255),
+    primary key (id)
+);
+
+create table encadrants (
+    departement_id bigint,
+    id bigint generated by default as identity,
+    utilisateur_id bigint unique,
+    email varchar(255),
+    nom varchar(255),
+    prenom varchar(255),
+    specialite varchar(255),
+    telephone varchar(255),
+    primary key (id)
+);
+
+create table etudiants (
+    date_naissance date not null,
+    annee_scolaire_id bigint,
+    classe_groupe_id bigint,
+    departement_id bigint,
+    encadrant_id bigint,
+    id bigint generated by default as identity,
+    utilisateur_id bigint unique,
+    code_apogee varchar(255) not null unique,
+    code_massar varchar(255) not null unique,
+    email varchar(255),
+    nom varchar(255),
+    password varchar(255),
+    prenom varchar(255),
+    role varchar(255) check (role in ('ETUDIANT','ENCADRANT','ADMIN')),
+    telephone varchar(255),
+    primary key (id)
+);
+
+create table planification_soutenance (
+    date_soutenance date,
+    annee_scolaire_id bigint,
+    classe_groupe_id bigint,
+    departement_id bigint,
+    encadrant_id bigint,
+    id bigint generated by default as identity,
+    primary key (id)
+);
+
+create table rapport (
+    date_depot date,
+    annee_scolaire_id bigint,
+    classe_groupe_id bigint,
+    departement_id bigint,
+    etudiant_id bigint,
+    id bigint generated by default as identity,
+    stage_id bigint unique,
+    cloudinary_url varchar(255),
+    nom_fichier varchar(255),
+    public_id varchar(255),
+    primary key (id)
+);
+
+create table stages (
+    date_debut date,
+    date_fin date,
+    date_creation timestamp(6),
+    encadrant_id bigint,
+    etudiant_id bigint,
+    id bigint generated by default as identity,
+    adresse_entreprise varchar(255),
+    entreprise varchar(255),
+    etat varchar(255) check (etat in ('DEMANDE','EN_ATTENTE_VALIDATION','VALIDATION_EN_COURS','ACCEPTE','REFUSE','EN_COURS','TERMINE','RAPPORT_SOUMIS')),
+    filiere varchar(255),
+    note varchar(255),
+    representant_entreprise varchar(255),
+    sujet varchar(255),
+    telephone_entreprise varchar(255),
+    primary key (id)
+);
+
+create table utilisateurs (
+    id bigint generated by default as identity,
+    email varchar(255) not null unique,
+    nom varchar(255),
+    password varchar(255) not null,
+    prenom varchar(255),
+    role varchar(255) check (role in ('ETUDIANT','ENCADRANT','ADMIN')),
+    telephone varchar(255),
+    primary key (id)
+);
+
+alter table if exists classes_groupes
+   add constraint FK5v6glmx9urym3pysopedpwes1
+   foreign key (id_departemen)
+   references departements;
+
+alter table if exists commentaires_rapport
+   add constraint FKe4pkb822f3vplkyhi7tn2q83b
+   foreign key (encadrant_id)
+   references encadrants;
+
+alter table if exists commentaires_rapport
+   add constraint FK1digd4ccgm3wbqki5g1ex1qhk
+   foreign key (rapport_id)
+   references rapport;
+
+alter table if exists detail_soutenance
+   add constraint FKp51sy75a32lf7work34fwpmd4
+   foreign key (etudiant_id)
+   references etudiants;
+
+alter table if exists detail_soutenance
+   add constraint FKj7mt54vkmf4r4tcrqu9s67gj
+   foreign key (planification_id)
+   references planification_soutenance;
+
+alter table if exists document
+   add constraint FK8vnny6affbunfhoi1vstayvwq
+   foreign key (etudiant_id)
+   references etudiants;
+
+alter table if exists document
+   add constraint FK56kv5m7hbfrfb4v0qd8ydj72v
+   foreign key (stage_id)
+   references stages;
+
+alter table if exists encadrants
+   add constraint FKmrgeast66p91rorx9b0arltgr
+   foreign key (departement_id)
+   references departements;
+
+alter table if exists encadrants
+   add constraint FK9g5cl2l9k91dr5f0hoyil9qln
+   foreign key (utilisateur_id)
+   references utilisateurs;
+
+alter table if exists etudiants
+   add constraint FKbngo1l9k93hwqeq28fnbcmeki
+   foreign key (annee_scolaire_id)
+   references annees_scolaires;
+
+alter table if exists etudiants
+   add constraint FKqv7jl199bl32x5xbjnjp0pypu
+   foreign key (classe_groupe_id)
+   references classes_groupes;
+
+alter table if exists etudiants
+   add constraint FKg1xv4vg55nhevjayfwutefim4
+   foreign key (departement_id)
+   references departements;
+
+alter table if exists etudiants
+   add constraint FKms787s0cujqw8gblmxip3h594
+   foreign key (encadrant_id)
+   references encadrants;
+
+alter table if exists etudiants
+   add constraint FKpeotkq2muyhl6xriwk8ldb4oe
+   foreign key (utilisateur_id)
+   references utilisateurs;
+
+alter table if exists planification_soutenance
+   add constraint FKi9glq4d61adx97tfdv7ydxc4l
+   foreign key (annee_scolaire_id)
+   references annees_scolaires;
+
+alter table if exists planification_soutenance
+   add constraint FKgl9ios2dnvtemgroc7fkc2g6w
+   foreign key (classe_groupe_id)
+   references classes_groupes;
+
+alter table if exists planification_soutenance
+   add constraint FKmu7r6v2cp2y562nusvvxccv9m
+   foreign key (departement_id)
+   references departements;
+
+alter table if exists planification_soutenance
+   add constraint FKnlpuha1h406sd6qc43qpojwpm
+   foreign key (encadrant_id)
+   references encadrants;
+
+alter table if exists rapport
+   add constraint FK3l4fn64t88lqfha4kx4moxhwm
+   foreign key (annee_scolaire_id)
+   references annees_scolaires;
+
+alter table if exists rapport
+   add constraint FKp3tvuvhhck5gcelq59ncohfbi
+   foreign key (classe_groupe_id)
+   references classes_groupes;
+
+alter table if exists rapport
+   add constraint FKc4e028m0cwip4ixfb2h94al3l
+   foreign key (departement_id)
+   references departements;
+
+alter table if exists rapport
+   add constraint FKl0jrw306kbx67kwr1ue2pihis
+   foreign key (etudiant_id)
+   references etudiants;
+
+alter table if exists rapport
+   add constraint FK5hsu4v2syrtc3p1hmw9h5y41v
+   foreign key (stage_id)
+   references stages;
+
+alter table if exists stages
+   add constraint FK35enmgbvb5tlylncs10qttgjy
+   foreign key (encadrant_id)
+   references encadrants;
+
+alter table if exists stages
+   add constraint FKpxxk1lmoryg0yqjxjic15b0s6
+   foreign key (etudiant_id)
+   references etudiants;
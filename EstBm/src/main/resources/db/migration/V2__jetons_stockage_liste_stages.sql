@@ -0,0 +1,40 @@
+-- Ajouts au modèle postérieurs au schéma initial (V1).
+-- Écrit en IF NOT EXISTS : une base de développement déjà mise à jour par ddl-auto=update
+-- passe ce script sans erreur.
+
+-- Jetons de rafraîchissement : familles de rotation et journal des révocations
+create table if not exists refresh_tokens (
+    date_emission timestamp(6) not null,
+    date_expiration timestamp(6) not null,
+    id bigint not null,
+    famille_id varchar(36) not null,
+    jti varchar(36) not null unique,
+    email varchar(255) not null,
+    primary key (id)
+);
+
+create table if not exists refresh_token_revocations (
+    date_expiration timestamp(6) not null,
+    date_revocation timestamp(6) not null,
+    id bigint not null,
+    cle varchar(48) not null unique,
+    primary key (id)
+);
+
+-- Références de stockage "backend:clé" (BlobStorageService)
+alter table document add column if not exists blob_ref varchar(255);
+alter table documents_modeles add column if not exists blob_ref varchar(255);
+alter table rapport add column if not exists blob_ref varchar(255);
+
+-- Liste admin paginée par (date_creation, id) : les anciens stages sans date de création
+-- sont rangés en fin de liste pour que l'ordre soit total.
+update stages set date_creation = timestamp '1970-01-01 00:00:00' where date_creation is null;
+
+create index if not exists idx_stages_creation on stages (date_creation, id);
+create index if not exists idx_stages_etat_creation on stages (etat, date_creation, id);
+create index if not exists idx_stages_filiere_creation on stages (filiere, date_creation, id);
+create index if not exists idx_stages_encadrant_creation on stages (encadrant_id, date_creation, id);
+
+create index if not exists idx_etudiants_groupe on etudiants (departement_id, classe_groupe_id, annee_scolaire_id);
+create index if not exists idx_etudiants_classe on etudiants (classe_groupe_id);
+create index if not exists idx_etudiants_annee on etudiants (annee_scolaire_id);
@@ -0,0 +1,94 @@
+-- Passage des clés IDENTITY aux séquences (optimiseur pooled-lo, pas de 50).
+-- Pour chaque table : la colonne id perd son IDENTITY (les ids viennent tous de Hibernate)
+-- et la séquence est placée après le plus grand id existant. Une séquence déjà en avance
+-- (base de développement) n'est jamais reculée.
+
+create sequence if not exists annees_scolaires_seq start with 1 increment by 50;
+alter table annees_scolaires alter column id drop identity if exists;
+select setval('annees_scolaires_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from annees_scolaires),
+        (select case when is_called then last_value + 50 else last_value end from annees_scolaires_seq)), false);
+
+create sequence if not exists classes_groupes_seq start with 1 increment by 50;
+alter table classes_groupes alter column id drop identity if exists;
+select setval('classes_groupes_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from classes_groupes),
+        (select case when is_called then last_value + 50 else last_value end from classes_groupes_seq)), false);
+
+create sequence if not exists commentaires_rapport_seq start with 1 increment by 50;
+alter table commentaires_rapport alter column id drop identity if exists;
+select setval('commentaires_rapport_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from commentaires_rapport),
+        (select case when is_called then last_value + 50 else last_value end from commentaires_rapport_seq)), false);
+
+create sequence if not exists departements_seq start with 1 increment by 50;
+alter table departements alter column id drop identity if exists;
+select setval('departements_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from departements),
+        (select case when is_called then last_value + 50 else last_value end from departements_seq)), false);
+
+create sequence if not exists detail_soutenance_seq start with 1 increment by 50;
+alter table detail_soutenance alter column id drop identity if exists;
+select setval('detail_soutenance_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from detail_soutenance),
+        (select case when is_called then last_value + 50 else last_value end from detail_soutenance_seq)), false);
+
+create sequence if not exists document_seq start with 1 increment by 50;
+alter table document alter column id drop identity if exists;
+select setval('document_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from document),
+        (select case when is_called then last_value + 50 else last_value end from document_seq)), false);
+
+create sequence if not exists documents_modeles_seq start with 1 increment by 50;
+alter table documents_modeles alter column id drop identity if exists;
+select setval('documents_modeles_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from documents_modeles),
+        (select case when is_called then last_value + 50 else last_value end from documents_modeles_seq)), false);
+
+create sequence if not exists encadrants_seq start with 1 increment by 50;
+alter table encadrants alter column id drop identity if exists;
+select setval('encadrants_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from encadrants),
+        (select case when is_called then last_value + 50 else last_value end from encadrants_seq)), false);
+
+create sequence if not exists etudiants_seq start with 1 increment by 50;
+alter table etudiants alter column id drop identity if exists;
+select setval('etudiants_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from etudiants),
+        (select case when is_called then last_value + 50 else last_value end from etudiants_seq)), false);
+
+create sequence if not exists planification_soutenance_seq start with 1 increment by 50;
+alter table planification_soutenance alter column id drop identity if exists;
+select setval('planification_soutenance_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from planification_soutenance),
+        (select case when is_called then last_value + 50 else last_value end from planification_soutenance_seq)), false);
+
+create sequence if not exists rapport_seq start with 1 increment by 50;
+alter table rapport alter column id drop identity if exists;
+select setval('rapport_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from rapport),
+        (select case when is_called then last_value + 50 else last_value end from rapport_seq)), false);
+
+create sequence if not exists refresh_token_revocations_seq start with 1 increment by 50;
+alter table refresh_token_revocations alter column id drop identity if exists;
+select setval('refresh_token_revocations_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from refresh_token_revocations),
+        (select case when is_called then last_value + 50 else last_value end from refresh_token_revocations_seq)), false);
+
+create sequence if not exists refresh_tokens_seq start with 1 increment by 50;
+alter table refresh_tokens alter column id drop identity if exists;
+select setval('refresh_tokens_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from refresh_tokens),
+        (select case when is_called then last_value + 50 else last_value end from refresh_tokens_seq)), false);
+
+create sequence if not exists stages_seq start with 1 increment by 50;
+alter table stages alter column id drop identity if exists;
+select setval('stages_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from stages),
+        (select case when is_called then last_value + 50 else last_value end from stages_seq)), false);
+
+create sequence if not exists utilisateurs_seq start with 1 increment by 50;
+alter table utilisateurs alter column id drop identity if exists;
+select setval('utilisateurs_seq', greatest(
+        (select coalesce(max(id), 0) + 1 from utilisateurs),
+        (select case when is_called then last_value + 50 else last_value end from utilisateurs_seq)), false);
@@ -0,0 +1,68 @@
+-- Index tirés de l'inventaire des requêtes de com.wbs.mymovie.estbm.repository
+-- (méthodes dérivées et @Query). Déjà couverts par une contrainte unique :
+-- etudiants(code_apogee), etudiants(code_massar), etudiants(utilisateur_id),
+-- encadrants(utilisateur_id), rapport(stage_id), utilisateurs(email), refresh_tokens(jti).
+-- Les bases de développement créées par ddl-auto=update portent encore idx_rapport_stage,
+-- doublon de la contrainte unique sur rapport(stage_id).
+drop index if exists idx_rapport_stage;
+
+-- StageRepository
+-- findTopByEtudiantIdOrderByDateCreationDesc, findDtosByEtudiantId, existsByIdAndEtudiantId
+create index if not exists idx_stages_etudiant_creation on stages (etudiant_id, date_creation);
+drop index if exists idx_stages_etudiant;
+-- findDtosByEncadrantIdAndEtatIn (liste et page par id)
+create index if not exists idx_stages_encadrant_etat on stages (encadrant_id, etat, id);
+-- findDtosByEtat(etat, filiere), countByEtat
+create index if not exists idx_stages_filiere_etat on stages (filiere, etat);
+-- findStagesExpiringSoon, findStagesWithMissingReports
+create index if not exists idx_stages_date_fin on stages (date_fin);
+-- findByDateDebutBetween
+create index if not exists idx_stages_date_debut on stages (date_debut);
+
+-- EtudiantRepository
+-- findByEncadrantIsNotNull, countByGroupeAndEncadrant
+create index if not exists idx_etudiants_encadrant on etudiants (encadrant_id);
+-- findByEmail
+create index if not exists idx_etudiants_email on etudiants (email);
+
+-- DetailSoutenanceRepository
+-- findByEtudiantId, findByEtudiantIdWithPlanification
+create index if not exists idx_detail_soutenance_etudiant on detail_soutenance (etudiant_id);
+-- findByPlanificationId, findDtosByPlanificationId (tri par heure de début)
+create index if not exists idx_detail_soutenance_planif on detail_soutenance (planification_id, heure_debut);
+
+-- DocumentRepository
+-- findDtosByStageId, findByStageId, jointure des documents d'un encadrant
+create index if not exists idx_document_stage on document (stage_id);
+-- findDtosByEtudiantId, findByEtudiantId
+create index if not exists idx_document_etudiant on document (etudiant_id);
+
+-- CommentaireRapportRepository : jointure commentaire -> rapport
+create index if not exists idx_commentaires_rapport on commentaires_rapport (rapport_id);
+
+-- PlanificationSoutenanceRepository
+-- findByEncadrantId, existsByEncadrantId
+create index if not exists idx_planif_encadrant on planification_soutenance (encadrant_id);
+-- findByClasseGroupeIdAndDepartementIdAndAnneeScolaireId, findByClasseGroupeId
+create index if not exists idx_planif_groupe on planification_soutenance (classe_groupe_id, departement_id, annee_scolaire_id);
+
+-- ClasseGroupeRepository.findByDepartement_Id
+create index if not exists idx_classes_groupes_departement on classes_groupes (id_departemen);
+
+-- EncadrantRepository
+-- findByDepartementId
+create index if not exists idx_encadrants_departement on encadrants (departement_id);
+-- findByEmail
+create index if not exists idx_encadrants_email on encadrants (email);
+
+-- UtilisateurRepository.findByRole, findByRoleAndIdGreaterThanOrderByIdAsc
+create index if not exists idx_utilisateurs_role on utilisateurs (role, id);
+
+-- RefreshTokenRepository.findByFamilleId
+create index if not exists idx_refresh_tokens_famille on refresh_tokens (famille_id);
+
+-- RefreshTokenRevocationRepository.deleteExpirees
+create index if not exists idx_revocations_expiration on refresh_token_revocations (date_expiration);
+
+-- DocumentModeleRepository.findByType
+create index if not exists idx_documents_modeles_type on documents_modeles (type);
@@ -0,0 +1,9 @@
+-- Version des données de référence (départements, classes, années scolaires) :
+-- incrémentée à chaque écriture, relue périodiquement par chaque nœud pour recharger son cache.
+
+create table if not exists reference_version (
+    id integer primary key,
+    version bigint not null
+);
+
+insert into reference_version (id, version) values (1, 0) on conflict do nothing;
@@ -0,0 +1,7 @@
+-- Refresh tokens : consommation posée en base à la rotation (détection de réutilisation
+-- sur tous les nœuds) et purge planifiée des tokens expirés.
+
+alter table refresh_tokens add column if not exists date_consommation timestamp(6);
+
+-- RefreshTokenRepository.deleteExpires
+create index if not exists idx_refresh_tokens_expiration on refresh_tokens (date_expiration);
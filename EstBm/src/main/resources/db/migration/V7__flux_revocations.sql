@@ -0,0 +1,3 @@
+-- Flux des révocations de refresh tokens relu par position (date_revocation, id) :
+-- RefreshTokenRevocationRepository.findSuivantes
+create index if not exists idx_revocations_date on refresh_token_revocations (date_revocation, id);
@@ -0,0 +1,5 @@
+-- Les révocations de familles sont portées par refresh_tokens.date_consommation :
+-- le journal refresh_token_revocations et son flux ne servent plus.
+
+drop table if exists refresh_token_revocations;
+drop sequence if exists refresh_token_revocations_seq;
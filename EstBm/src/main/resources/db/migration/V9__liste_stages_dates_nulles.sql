@@ -0,0 +1,13 @@
+-- Liste admin triée par (date_creation DESC NULLS LAST, id DESC) : les stages sans date de
+-- création n'ont plus besoin d'une date fictive. V2 leur avait donné le 1970-01-01.
+update stages set date_creation = null where date_creation = timestamp '1970-01-01 00:00:00';
+
+-- Index dans l'ordre exact de la liste (findPageAdmin), avec et sans filtre
+drop index if exists idx_stages_creation;
+drop index if exists idx_stages_etat_creation;
+drop index if exists idx_stages_filiere_creation;
+drop index if exists idx_stages_encadrant_creation;
+create index idx_stages_creation on stages (date_creation desc nulls last, id desc);
+create index idx_stages_etat_creation on stages (etat, date_creation desc nulls last, id desc);
+create index idx_stages_filiere_creation on stages (filiere, date_creation desc nulls last, id desc);
+create index idx_stages_encadrant_creation on stages (encadrant_id, date_creation desc nulls last, id desc);
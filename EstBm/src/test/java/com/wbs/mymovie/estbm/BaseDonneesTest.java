@@ -0,0 +1,44 @@
+package com.wbs.mymovie.estbm;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Contexte Spring complet sur un PostgreSQL embarqué, démarré une fois pour toute la
+ * campagne de tests. Le schéma est posé par les migrations (MigrationsSchema) comme en
+ * production ; chaque classe de test insère et retire ses propres données.
+ *
+ * Les annotations sont portées ici pour que toutes les classes partagent le même contexte.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public abstract class BaseDonneesTest {
+
+    private static EmbeddedPostgres postgres;
+
+    public static synchronized EmbeddedPostgres postgres() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return postgres;
+    }
+
+    @DynamicPropertySource
+    static void baseDeDonnees(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres().getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+}
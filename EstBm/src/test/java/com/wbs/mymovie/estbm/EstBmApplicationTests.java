@@ -1,10 +1,8 @@
 package com.wbs.mymovie.estbm;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
-class EstBmApplicationTests {
+class EstBmApplicationTests extends BaseDonneesTest {
 
     @Test
     void contextLoads() {
@@ -0,0 +1,116 @@
+package com.wbs.mymovie.estbm.config;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Migrations de db/migration-test sur une base neuve par test. */
+class MigrationsSchemaTest {
+
+    private static final AtomicInteger BASES = new AtomicInteger();
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void creerBase() {
+        String nom = "migrations_" + BASES.incrementAndGet();
+        new JdbcTemplate(BaseDonneesTest.postgres().getPostgresDatabase()).execute("CREATE DATABASE " + nom);
+        dataSource = BaseDonneesTest.postgres().getDatabase("postgres", nom);
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    private MigrationsSchema migrations() {
+        MigrationsSchema migrations = new MigrationsSchema();
+        ReflectionTestUtils.setField(migrations, "dataSource", dataSource);
+        ReflectionTestUtils.setField(migrations, "emplacement", "classpath:db/migration-test/");
+        return migrations;
+    }
+
+    @Test
+    void appliqueUnScriptAvecBlocsProceduraux() throws Exception {
+        migrations().migrer();
+
+        assertThat(jdbc.queryForObject("SELECT n FROM compteur", Integer.class)).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT incrementer()", Integer.class)).isEqualTo(2);
+        assertThat(jdbc.queryForList("SELECT version FROM schema_version WHERE empreinte IS NOT NULL ORDER BY version", Integer.class))
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    void baseExistanteEnregistreeEnV1SansExecution() throws Exception {
+        jdbc.execute("CREATE TABLE utilisateurs (id bigint primary key, email varchar(255) not null unique)");
+
+        migrations().migrer();
+
+        assertThat(jdbc.queryForObject("SELECT description FROM schema_version WHERE version = 1", String.class))
+                .endsWith("(base existante)");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM compteur", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void scriptModifieApresApplicationFaitEchouerLeDemarrage() throws Exception {
+        migrations().migrer();
+        jdbc.update("UPDATE schema_version SET empreinte = 'autre' WHERE version = 2");
+
+        assertThatThrownBy(() -> migrations().migrer())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("V2");
+    }
+
+    @Test
+    void demarragesSimultanesSurUneBaseNeuve() throws Exception {
+        demarrerEnsemble(4);
+
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM schema_version", Integer.class)).isEqualTo(2);
+        assertThat(jdbc.queryForObject("SELECT n FROM compteur", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void demarragesSimultanesSurUneBaseExistante() throws Exception {
+        jdbc.execute("CREATE TABLE utilisateurs (id bigint primary key, email varchar(255) not null unique)");
+
+        demarrerEnsemble(4);
+
+        assertThat(jdbc.queryForList("SELECT description FROM schema_version ORDER BY version", String.class))
+                .hasSize(2)
+                .first().asString().endsWith("(base existante)");
+    }
+
+    private void demarrerEnsemble(int noeuds) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(noeuds);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<?>> demarrages = new ArrayList<>();
+        try {
+            for (int i = 0; i < noeuds; i++) {
+                MigrationsSchema noeud = migrations();
+                demarrages.add(pool.submit(() -> {
+                    depart.await();
+                    noeud.migrer();
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> demarrage : demarrages) {
+                demarrage.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.wbs.mymovie.estbm.config;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import com.wbs.mymovie.estbm.util.JwtUtil;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_CLASS;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_CLASS;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Les exports en StreamingResponseBody écrivent leur corps pendant un second passage
+ * (DispatcherType.ASYNC) que le filtre JWT ne ré-authentifie pas : la chaîne de sécurité
+ * doit le laisser passer, l'autorisation ayant été décidée au premier passage.
+ */
+@Sql(scripts = "/donnees/stages.sql", executionPhase = BEFORE_TEST_CLASS)
+@Sql(scripts = "/donnees/nettoyage.sql", executionPhase = AFTER_TEST_CLASS)
+class SecuriteDispatchAsynchroneTest extends BaseDonneesTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/stages/planification/planifications/encadrant/9001/export",
+            "/stages/planification/encadrant/9001/export",
+            "/stages/planification/9001/export"
+    })
+    void exportEcritApresLeDispatchAsynchrone(String url) throws Exception {
+        // Vrai jeton : le contexte de sécurité vient de JwtRequestFilter, comme en production
+        String jeton = jwtUtil.generateToken("enc1.test@estbm.ma");
+        MvcResult demarre = mvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, "Bearer " + jeton))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult termine = mvc.perform(asyncDispatch(demarre))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Classeur xlsx : archive zip
+        byte[] corps = termine.getResponse().getContentAsByteArray();
+        assertThat(new String(corps, 0, 2, StandardCharsets.US_ASCII)).isEqualTo("PK");
+    }
+}
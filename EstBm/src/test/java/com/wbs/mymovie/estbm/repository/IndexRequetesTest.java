@@ -0,0 +1,101 @@
+package com.wbs.mymovie.estbm.repository;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_CLASS;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_CLASS;
+
+/**
+ * Plans des requêtes couvertes par les index des migrations (V2, V4), sur une base peuplée.
+ *
+ * Le parcours séquentiel est désactivé pour la session : le planificateur ne le garde que
+ * si aucun index ne permet la requête. Un « Seq Scan » sur stages, etudiants ou document
+ * signale donc un index manquant ou inutilisable.
+ */
+@Sql(scripts = "/donnees/volume.sql", executionPhase = BEFORE_TEST_CLASS)
+@Sql(scripts = "/donnees/nettoyage.sql", executionPhase = AFTER_TEST_CLASS)
+class IndexRequetesTest extends BaseDonneesTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // StageRepository
+            "SELECT * FROM stages WHERE etudiant_id = 20042 ORDER BY date_creation DESC LIMIT 1",
+            "SELECT * FROM stages WHERE encadrant_id = 20007 AND etat IN ('DEMANDE', 'EN_ATTENTE_VALIDATION') AND id > 0 ORDER BY id LIMIT 51",
+            "SELECT * FROM stages WHERE filiere = 'GI' AND etat = 'ACCEPTE'",
+            "SELECT count(*) FROM stages WHERE etat = 'ACCEPTE'",
+            "SELECT * FROM stages WHERE date_fin BETWEEN date '2025-06-01' AND date '2025-06-15'",
+            "SELECT * FROM stages WHERE date_debut BETWEEN date '2025-06-01' AND date '2025-06-15'",
+            // Liste admin paginée par (date_creation, id), avec et sans filtre
+            "SELECT * FROM stages ORDER BY date_creation DESC NULLS LAST, id DESC LIMIT 51",
+            "SELECT * FROM stages WHERE etat = 'EN_COURS' ORDER BY date_creation DESC NULLS LAST, id DESC LIMIT 51",
+            "SELECT * FROM stages WHERE filiere = 'TM' ORDER BY date_creation DESC NULLS LAST, id DESC LIMIT 51",
+            "SELECT * FROM stages WHERE encadrant_id = 20003 ORDER BY date_creation DESC NULLS LAST, id DESC LIMIT 51",
+            // EtudiantRepository
+            "SELECT * FROM etudiants WHERE encadrant_id IS NOT NULL",
+            "SELECT * FROM etudiants WHERE email = 'vol.etu12@estbm.ma'",
+            "SELECT * FROM etudiants WHERE departement_id = 20002 AND classe_groupe_id = 20002 AND annee_scolaire_id = 20001",
+            // DocumentRepository
+            "SELECT * FROM document WHERE stage_id = 20042",
+            "SELECT * FROM document WHERE etudiant_id = 20042",
+            "SELECT d.* FROM document d JOIN stages s ON s.id = d.stage_id WHERE s.encadrant_id = 20005"
+    })
+    void aucunParcoursSequentielSurLesGrandesTables(String requete) {
+        List<String> plan = expliquer(requete);
+
+        assertThat(plan)
+                .as("plan de %s", requete)
+                .noneMatch(ligne -> ligne.matches(".*Seq Scan on (stages|etudiants|document)\\b.*"));
+    }
+
+    /**
+     * Requêtes de findPageAdmin (un seul filtre, curseur posé) : chaque filtre passe par son
+     * index (filtre, date_creation, id), ce que le « (:x IS NULL OR ...) » empêchait.
+     */
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "                              | idx_stages_creation",
+            "WHERE etat = 'EN_COURS' AND   | idx_stages_etat_creation",
+            "WHERE filiere = 'TM' AND      | idx_stages_filiere_creation",
+            "WHERE encadrant_id = 20003 AND | idx_stages_encadrant_creation"
+    })
+    void listeAdminParIndexDuFiltre(String filtre, String index) {
+        String suite = "(date_creation < timestamp '2025-06-01' OR (date_creation = timestamp '2025-06-01' AND id < 21000)"
+                + " OR date_creation IS NULL)";
+        String requete = "SELECT * FROM stages " + (filtre == null ? "WHERE " : filtre + " ") + suite
+                + " ORDER BY date_creation DESC NULLS LAST, id DESC LIMIT 51";
+
+        List<String> plan = expliquer(requete);
+
+        assertThat(plan).as("plan de %s", requete).anyMatch(ligne -> ligne.contains(index));
+    }
+
+    private List<String> expliquer(String requete) {
+        return jdbc.execute((Statement st) -> {
+            st.execute("SET enable_seqscan = off");
+            try (ResultSet rs = st.executeQuery("EXPLAIN " + requete)) {
+                List<String> lignes = new ArrayList<>();
+                while (rs.next()) {
+                    lignes.add(rs.getString(1));
+                }
+                return lignes;
+            } finally {
+                st.execute("RESET enable_seqscan");
+            }
+        });
+    }
+}
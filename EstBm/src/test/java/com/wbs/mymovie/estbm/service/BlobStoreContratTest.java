@@ -0,0 +1,138 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.util.Empreintes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Contrat commun des backends {@link BlobStore}, rejoué par une sous-classe par backend.
+ *
+ * Les lectures se font toujours sur la clé renvoyée par l'écriture : un backend peut
+ * ranger le fichier ailleurs que sous la clé proposée (stockage adressé par contenu).
+ */
+abstract class BlobStoreContratTest {
+
+    @TempDir
+    Path dossier;
+
+    protected BlobStore store;
+
+    protected abstract BlobStore creer(Path dossier) throws Exception;
+
+    /** false pour un backend dont {@link BlobStore#delete} laisse le fichier au compactage. */
+    protected boolean supprimeImmediatement() {
+        return true;
+    }
+
+    @BeforeEach
+    void preparer() throws Exception {
+        store = creer(dossier);
+    }
+
+    protected static byte[] contenu(int taille, long graine) {
+        byte[] octets = new byte[taille];
+        new Random(graine).nextBytes(octets);
+        return octets;
+    }
+
+    private static byte[] lire(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void putPuisGetRendLeMemeContenu() throws Exception {
+        byte[] octets = contenu(200_000, 1);
+
+        BlobStore.Blob blob = store.put("documents/1/convention.pdf", new ByteArrayInputStream(octets), "application/pdf");
+
+        assertThat(blob.taille()).isEqualTo(octets.length);
+        assertThat(lire(store.get(blob.cle()))).isEqualTo(octets);
+        assertThat(store.taille(blob.cle())).isEqualTo(octets.length);
+        assertThat(store.exists(blob.cle())).isTrue();
+    }
+
+    @Test
+    void putRemplaceUnContenuExistant() throws Exception {
+        store.put("documents/2/rapport.pdf", new ByteArrayInputStream(contenu(1000, 2)), "application/pdf");
+        byte[] nouveau = contenu(500, 3);
+
+        BlobStore.Blob blob = store.put("documents/2/rapport.pdf", new ByteArrayInputStream(nouveau), "application/pdf");
+
+        assertThat(lire(store.get(blob.cle()))).isEqualTo(nouveau);
+    }
+
+    @Test
+    void getRangeLitLaPlageDemandee() throws Exception {
+        byte[] octets = contenu(100_000, 4);
+        BlobStore.Blob blob = store.put("documents/3/annexe.bin", new ByteArrayInputStream(octets), "application/octet-stream");
+
+        assertThat(lire(store.getRange(blob.cle(), 0, 10)))
+                .isEqualTo(Arrays.copyOfRange(octets, 0, 10));
+        assertThat(lire(store.getRange(blob.cle(), 40_000, 25_000)))
+                .isEqualTo(Arrays.copyOfRange(octets, 40_000, 65_000));
+        assertThat(lire(store.getRange(blob.cle(), 99_990, 10)))
+                .isEqualTo(Arrays.copyOfRange(octets, 99_990, 100_000));
+    }
+
+    @Test
+    void cleAbsente() throws Exception {
+        String cle = store.clePrevue("documents/absent.pdf", Empreintes.sha256Hex("absent".getBytes()));
+
+        assertThat(store.exists(cle)).isFalse();
+        assertThatThrownBy(() -> lire(store.get(cle))).isInstanceOf(NoSuchFileException.class);
+        assertThatThrownBy(() -> lire(store.getRange(cle, 0, 1))).isInstanceOf(NoSuchFileException.class);
+        assertThatThrownBy(() -> store.taille(cle)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void delete() throws Exception {
+        BlobStore.Blob blob = store.put("documents/4/a-supprimer.pdf", new ByteArrayInputStream(contenu(100, 5)), "application/pdf");
+
+        boolean supprime = store.delete(blob.cle());
+
+        if (supprimeImmediatement()) {
+            assertThat(supprime).isTrue();
+            assertThat(store.exists(blob.cle())).isFalse();
+            assertThat(store.delete(blob.cle())).isFalse();
+        } else {
+            assertThat(supprime).isFalse();
+            assertThat(store.exists(blob.cle())).isTrue();
+        }
+    }
+
+    @Test
+    void publierRangeSousLaClePrevue() throws Exception {
+        byte[] octets = contenu(50_000, 6);
+        Path prepare = Files.write(dossier.resolve("prepare.tmp"), octets);
+        String cle = store.clePrevue("documents/5/convention.pdf", Empreintes.sha256Hex(octets));
+
+        BlobStore.Blob blob = store.publier(cle, prepare, "application/pdf");
+
+        assertThat(blob.cle()).isEqualTo(cle);
+        assertThat(blob.taille()).isEqualTo(octets.length);
+        assertThat(lire(store.get(cle))).isEqualTo(octets);
+    }
+
+    @Test
+    void clePrevueNeDependQueDeSesArguments() {
+        String empreinte = Empreintes.sha256Hex("x".getBytes());
+
+        assertThat(store.clePrevue("documents/6/a.pdf", empreinte))
+                .isEqualTo(store.clePrevue("documents/6/a.pdf", empreinte));
+    }
+}
@@ -0,0 +1,157 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Contrat rejoué contre un serveur HTTP local qui imite les API utilisées de Cloudinary :
+ * envoi et suppression (POST multipart), livraison des ressources raw (GET / HEAD, Range).
+ */
+class CloudinaryBlobStoreTest extends BlobStoreContratTest {
+
+    private static final String CLOUD = "estbm-test";
+
+    private HttpServer serveur;
+    private final Map<String, byte[]> ressources = new ConcurrentHashMap<>();
+
+    @Override
+    protected BlobStore creer(Path dossier) throws Exception {
+        serveur = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serveur.createContext("/", this::traiter);
+        serveur.start();
+        String hote = "localhost:" + serveur.getAddress().getPort();
+
+        CloudinaryBlobStore cloudinary = new CloudinaryBlobStore();
+        ReflectionTestUtils.setField(cloudinary, "cloudinary", new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", CLOUD,
+                "api_key", "cle",
+                "api_secret", "secret",
+                "secure", false,
+                "cname", hote,
+                "upload_prefix", "http://" + hote)));
+        ReflectionTestUtils.setField(cloudinary, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(cloudinary, "readTimeoutMs", 5000L);
+        cloudinary.init();
+        return cloudinary;
+    }
+
+    @AfterEach
+    void arreter() {
+        serveur.stop(0);
+    }
+
+    private static final Pattern LIVRAISON = Pattern.compile("/" + CLOUD + "/raw/upload/(?:v\\d+/)?(.+)");
+    private static final Pattern FRONTIERE = Pattern.compile("boundary=\"?([^\";]+)");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private void traiter(HttpExchange echange) throws IOException {
+        try (echange) {
+            String chemin = echange.getRequestURI().getPath();
+            if (chemin.equals("/v1_1/" + CLOUD + "/raw/upload")) {
+                Map<String, byte[]> parties = multipart(echange);
+                String publicId = new String(parties.get("public_id"), StandardCharsets.UTF_8);
+                byte[] fichier = parties.get("file");
+                ressources.put(publicId, fichier);
+                repondreJson(echange, "{\"public_id\":\"" + publicId + "\",\"bytes\":" + fichier.length
+                        + ",\"secure_url\":\"https://res.example/" + publicId + "\"}");
+            } else if (chemin.equals("/v1_1/" + CLOUD + "/raw/destroy")) {
+                String publicId = new String(multipart(echange).get("public_id"), StandardCharsets.UTF_8);
+                repondreJson(echange, "{\"result\":\"" + (ressources.remove(publicId) != null ? "ok" : "not found") + "\"}");
+            } else {
+                Matcher m = LIVRAISON.matcher(chemin);
+                byte[] octets = m.matches() ? ressources.get(m.group(1)) : null;
+                if (octets == null) {
+                    echange.sendResponseHeaders(404, -1);
+                } else if (echange.getRequestMethod().equals("HEAD")) {
+                    echange.getResponseHeaders().set("Content-Length", String.valueOf(octets.length));
+                    echange.sendResponseHeaders(200, -1);
+                } else {
+                    livrer(echange, octets);
+                }
+            }
+        }
+    }
+
+    private static void livrer(HttpExchange echange, byte[] octets) throws IOException {
+        String range = echange.getRequestHeaders().getFirst("Range");
+        Matcher m = range != null ? RANGE.matcher(range) : null;
+        if (m != null && m.matches()) {
+            int debut = Integer.parseInt(m.group(1));
+            int fin = Math.min(Integer.parseInt(m.group(2)), octets.length - 1);
+            echange.getResponseHeaders().set("Content-Range", "bytes " + debut + "-" + fin + "/" + octets.length);
+            octets = Arrays.copyOfRange(octets, debut, fin + 1);
+            echange.sendResponseHeaders(206, octets.length);
+        } else {
+            echange.sendResponseHeaders(200, octets.length);
+        }
+        try (OutputStream out = echange.getResponseBody()) {
+            out.write(octets);
+        }
+    }
+
+    private static void repondreJson(HttpExchange echange, String json) throws IOException {
+        byte[] octets = json.getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().set("Content-Type", "application/json");
+        echange.sendResponseHeaders(200, octets.length);
+        try (OutputStream out = echange.getResponseBody()) {
+            out.write(octets);
+        }
+    }
+
+    /** Parties d'un corps multipart/form-data, par nom. */
+    private static Map<String, byte[]> multipart(HttpExchange echange) throws IOException {
+        Matcher frontiere = FRONTIERE.matcher(echange.getRequestHeaders().getFirst("Content-Type"));
+        if (!frontiere.find()) {
+            throw new IOException("Corps multipart sans frontière");
+        }
+        byte[] separateur = ("--" + frontiere.group(1)).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] corps = echange.getRequestBody().readAllBytes();
+        Map<String, byte[]> parties = new HashMap<>();
+        int debut = indexDe(corps, separateur, 0);
+        while (debut >= 0) {
+            int entete = debut + separateur.length + 2;
+            int suivant = indexDe(corps, separateur, entete);
+            if (suivant < 0) {
+                break;
+            }
+            int finEntete = indexDe(corps, "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1), entete);
+            String entetes = new String(corps, entete, finEntete - entete, StandardCharsets.ISO_8859_1);
+            Matcher nom = Pattern.compile("name=\"([^\"]+)\"").matcher(entetes);
+            if (nom.find()) {
+                parties.put(nom.group(1), Arrays.copyOfRange(corps, finEntete + 4, suivant - 2));
+            }
+            debut = suivant;
+        }
+        return parties;
+    }
+
+    private static int indexDe(byte[] dans, byte[] motif, int depuis) {
+        for (int i = depuis; i <= dans.length - motif.length; i++) {
+            int j = 0;
+            while (j < motif.length && dans[i + j] == motif[j]) {
+                j++;
+            }
+            if (j == motif.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
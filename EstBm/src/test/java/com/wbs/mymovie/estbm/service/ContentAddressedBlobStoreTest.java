@@ -0,0 +1,62 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.util.Empreintes;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentAddressedBlobStoreTest extends BlobStoreContratTest {
+
+    @Override
+    protected BlobStore creer(Path dossier) throws Exception {
+        ContentAddressedBlobStore cas = new ContentAddressedBlobStore();
+        ReflectionTestUtils.setField(cas, "root", dossier.resolve("cas").toString());
+        cas.init();
+        return cas;
+    }
+
+    @Override
+    protected boolean supprimeImmediatement() {
+        return false;
+    }
+
+    @Test
+    void laCleEstLEmpreinteDuContenu() throws Exception {
+        byte[] octets = contenu(1000, 8);
+        String empreinte = Empreintes.sha256Hex(octets);
+
+        BlobStore.Blob blob = store.put("ignoree.pdf", new ByteArrayInputStream(octets), "application/pdf");
+
+        assertThat(blob.cle()).isEqualTo(empreinte.substring(0, 2) + "/" + empreinte.substring(2, 4) + "/" + empreinte);
+        assertThat(store.clePrevue("autre.pdf", empreinte)).isEqualTo(blob.cle());
+    }
+
+    @Test
+    void unDoublonNEstPasReecrit() throws Exception {
+        byte[] octets = contenu(1000, 9);
+        ContentAddressedBlobStore cas = (ContentAddressedBlobStore) store;
+
+        BlobStore.Blob premier = cas.put("a.pdf", new ByteArrayInputStream(octets), "application/pdf");
+        BlobStore.Blob second = cas.put("b.pdf", new ByteArrayInputStream(octets), "application/pdf");
+
+        assertThat(second.cle()).isEqualTo(premier.cle());
+        assertThat(cas.getStatistiques()).containsEntry("doublons", 1L).containsEntry("octetsEconomises", 1000L);
+    }
+
+    @Test
+    void compacterRetireLesBlobsNonReferences() throws Exception {
+        ContentAddressedBlobStore cas = (ContentAddressedBlobStore) store;
+        BlobStore.Blob garde = cas.put("a.pdf", new ByteArrayInputStream(contenu(100, 10)), "application/pdf");
+        BlobStore.Blob orphelin = cas.put("b.pdf", new ByteArrayInputStream(contenu(100, 11)), "application/pdf");
+
+        cas.compacter(Set.of(garde.cle()), -1000);
+
+        assertThat(cas.exists(garde.cle())).isTrue();
+        assertThat(cas.exists(orphelin.cle())).isFalse();
+    }
+}
@@ -0,0 +1,97 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.model.Document;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.repository.DocumentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DocumentIngestServiceTest {
+
+    @TempDir
+    Path dossier;
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private DocumentIngestService service;
+    private Stage stage;
+
+    @BeforeEach
+    void preparer() throws IOException {
+        DocumentRepository documents = mock(DocumentRepository.class);
+        when(documents.saveAll(any())).thenAnswer(i -> i.getArgument(0));
+        BlobStorageService stockage = mock(BlobStorageService.class);
+        // Stockage par nom (local, cloudinary) : la référence est la clé
+        when(stockage.refPrevue(anyString(), anyString(), anyString())).thenAnswer(i -> "local:" + i.getArgument(1));
+        PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+        when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        executor.initialize();
+
+        service = new DocumentIngestService();
+        ReflectionTestUtils.setField(service, "documentRepository", documents);
+        ReflectionTestUtils.setField(service, "blobStorageService", stockage);
+        ReflectionTestUtils.setField(service, "executor", executor);
+        ReflectionTestUtils.setField(service, "transactionManager", transactions);
+        ReflectionTestUtils.setField(service, "stagingDir", dossier.toString());
+        ReflectionTestUtils.setField(service, "maxFileBytes", 1024L * 1024);
+        ReflectionTestUtils.setField(service, "extensions", "pdf,docx");
+        service.init();
+
+        stage = new Stage();
+        stage.setId(7L);
+    }
+
+    @AfterEach
+    void arreter() {
+        executor.shutdown();
+    }
+
+    @Test
+    void fichiersDeMemeNomSousDesClesDistinctes() throws IOException {
+        List<Document> docs = service.ingerer(stage,
+                List.of(pdf("convention.pdf", "%PDF-1.4 a"), pdf("convention.pdf", "%PDF-1.4 b")),
+                List.of("CONVENTION", "CONVENTION"));
+
+        assertThat(docs).extracting(Document::getBlobRef).doesNotHaveDuplicates().hasSize(2);
+    }
+
+    @Test
+    void signaturePdfApresQuelquesOctets() throws IOException {
+        // Octets parasites avant l'en-tête, tolérés par les lecteurs PDF
+        List<Document> docs = service.ingerer(stage, List.of(pdf("rapport.pdf", "\r\n\r\n%PDF-1.7 corps")), List.of("RAPPORT"));
+
+        assertThat(docs).hasSize(1);
+    }
+
+    @Test
+    void signaturePdfAuDelaDuPremierKiloOctet() {
+        MultipartFile tardif = pdf("rapport.pdf", " ".repeat(1024) + "%PDF-1.7");
+
+        assertThatThrownBy(() -> service.ingerer(stage, List.of(tardif), List.of("RAPPORT")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("PDF invalide");
+    }
+
+    private static MultipartFile pdf(String nom, String contenu) {
+        return new MockMultipartFile("fichiers", nom, "application/pdf", contenu.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
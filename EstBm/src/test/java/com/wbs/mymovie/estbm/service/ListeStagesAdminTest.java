@@ -0,0 +1,55 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import com.wbs.mymovie.estbm.dto.PageCurseurDto;
+import com.wbs.mymovie.estbm.dto.StageDto;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_CLASS;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_CLASS;
+
+/**
+ * Liste admin paginée (StageService.listerStagesAdmin) : les stages sans date de création
+ * viennent après les autres et restent atteignables page après page.
+ */
+@Sql(scripts = "/donnees/stages.sql", executionPhase = BEFORE_TEST_CLASS)
+@Sql(statements = "update stages set date_creation = null where id in (9004, 9006)", executionPhase = BEFORE_TEST_CLASS)
+@Sql(scripts = "/donnees/nettoyage.sql", executionPhase = AFTER_TEST_CLASS)
+class ListeStagesAdminTest extends BaseDonneesTest {
+
+    @Autowired
+    private StageService stageService;
+
+    @Test
+    void parcourtLesStagesSansDateEnDernier() {
+        // Encadrant 9001 : stages 9002 (daté), 9004 et 9006 (sans date)
+        assertThat(parcourir(null, 9001L, 1)).containsExactly(9002L, 9006L, 9004L);
+        assertThat(parcourir(null, 9001L, 2)).containsExactly(9002L, 9006L, 9004L);
+    }
+
+    @Test
+    void combineLesFiltres() {
+        // ACCEPTE : i % 3 == 1, soit 9001 et 9004 ; l'encadrant 9001 ne garde que 9004
+        assertThat(parcourir(EtatStage.ACCEPTE, 9001L, 1)).containsExactly(9004L);
+        assertThat(parcourir(EtatStage.ACCEPTE, null, 1)).containsExactly(9001L, 9004L);
+    }
+
+    private List<Long> parcourir(EtatStage etat, Long encadrantId, int taille) {
+        List<Long> ids = new ArrayList<>();
+        String curseur = null;
+        do {
+            PageCurseurDto<StageDto> page = stageService.listerStagesAdmin(etat, null, encadrantId,
+                    null, null, null, curseur, taille);
+            page.getElements().forEach(s -> ids.add(s.getId()));
+            curseur = page.getCurseurSuivant();
+        } while (curseur != null);
+        return ids;
+    }
+}
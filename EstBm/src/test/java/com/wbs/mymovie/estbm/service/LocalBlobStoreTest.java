@@ -0,0 +1,35 @@
+package com.wbs.mymovie.estbm.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalBlobStoreTest extends BlobStoreContratTest {
+
+    @Override
+    protected BlobStore creer(Path dossier) throws Exception {
+        LocalBlobStore local = new LocalBlobStore();
+        ReflectionTestUtils.setField(local, "root", dossier.resolve("local").toString());
+        local.init();
+        return local;
+    }
+
+    @Test
+    void cleEtCheminSontCeuxDemandes() throws Exception {
+        BlobStore.Blob blob = store.put("documents/7/a.pdf", new ByteArrayInputStream(contenu(10, 7)), "application/pdf");
+
+        assertThat(blob.cle()).isEqualTo("documents/7/a.pdf");
+        assertThat(store.clePrevue("documents/7/a.pdf", "abcd")).isEqualTo("documents/7/a.pdf");
+        assertThat(store.cheminLocal(blob.cle())).isEqualTo(dossier.resolve("local/documents/7/a.pdf").toAbsolutePath());
+    }
+
+    @Test
+    void refuseUneCleHorsDeLaRacine() {
+        assertThatThrownBy(() -> store.get("../secret")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,130 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.model.Rapport;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RapportFichierServiceTest {
+
+    private static final String URL = "https://res.cloudinary.com/estbm/raw/upload/v1/rapport-7.pdf";
+
+    @TempDir
+    Path dossier;
+
+    private final byte[] contenu = new byte[300 * 1024];
+    private final CloudinaryBlobStore cloudinary = mock(CloudinaryBlobStore.class);
+    private RapportFichierService service;
+    private Rapport rapport;
+
+    @BeforeEach
+    void preparer() throws IOException {
+        Arrays.fill(contenu, (byte) 'r');
+        when(cloudinary.ouvrirUrl(anyString())).thenAnswer(i -> new ByteArrayInputStream(contenu));
+
+        service = new RapportFichierService();
+        ReflectionTestUtils.setField(service, "cacheDir", dossier.toString());
+        ReflectionTestUtils.setField(service, "cacheMaxBytes", 10L * 1024 * 1024);
+        ReflectionTestUtils.setField(service, "blobStorageService", mock(BlobStorageService.class));
+        ReflectionTestUtils.setField(service, "cloudinaryBlobStore", cloudinary);
+        ReflectionTestUtils.setField(service, "diffusion", new FichierDiffusionService());
+        service.init();
+
+        rapport = new Rapport();
+        rapport.setId(7L);
+        rapport.setCloudinaryUrl(URL);
+    }
+
+    private MockHttpServletResponse telecharger(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.servir(rapport, "Rapport_7.pdf", request, response);
+        return response;
+    }
+
+    @Test
+    void defautRecopieAuClientPuisServiDepuisLeCache() throws IOException {
+        MockHttpServletResponse premiere = telecharger(new MockHttpServletRequest("GET", "/"));
+
+        assertThat(premiere.getStatus()).isEqualTo(200);
+        assertThat(premiere.getContentAsByteArray()).isEqualTo(contenu);
+        assertThat(premiere.getHeader(HttpHeaders.ETAG)).isNotBlank();
+
+        MockHttpServletResponse seconde = telecharger(new MockHttpServletRequest("GET", "/"));
+        assertThat(seconde.getContentAsByteArray()).isEqualTo(contenu);
+        assertThat(seconde.getContentLengthLong()).isEqualTo(contenu.length);
+        assertThat(seconde.getHeader(HttpHeaders.ETAG)).isEqualTo(premiere.getHeader(HttpHeaders.ETAG));
+        verify(cloudinary, times(1)).ouvrirUrl(URL);
+    }
+
+    /** Le client coupe dès le premier bloc : le téléchargement va quand même au bout du cache. */
+    @Test
+    void clientPartiLeCacheEstComplete() throws IOException {
+        MockHttpServletResponse coupee = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Connexion fermée par le client");
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+                };
+            }
+        };
+        service.servir(rapport, "Rapport_7.pdf", new MockHttpServletRequest("GET", "/"), coupee);
+
+        assertThat(telecharger(new MockHttpServletRequest("GET", "/")).getContentAsByteArray()).isEqualTo(contenu);
+        verify(cloudinary, times(1)).ouvrirUrl(URL);
+    }
+
+    @Test
+    void plageSurUnDefautDeCache() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+
+        MockHttpServletResponse response = telecharger(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsByteArray()).hasSize(100);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 100-199/" + contenu.length);
+    }
+
+    @Test
+    void revalidationSansBackend() throws IOException {
+        String etag = telecharger(new MockHttpServletRequest("GET", "/")).getHeader(HttpHeaders.ETAG);
+        service.invalider(rapport);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = telecharger(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        verify(cloudinary, times(1)).ouvrirUrl(URL);
+    }
+}
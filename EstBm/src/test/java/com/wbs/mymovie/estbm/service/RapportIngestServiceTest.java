@@ -0,0 +1,111 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import com.wbs.mymovie.estbm.model.RapportIngestJob;
+import com.wbs.mymovie.estbm.model.enums.StatutIngestRapport;
+import com.wbs.mymovie.estbm.repository.RapportIngestJobRepository;
+import com.wbs.mymovie.estbm.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_CLASS;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_CLASS;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Jobs d'ingestion des rapports : état gardé en base, reprise au démarrage, nettoyage
+ * du spool et suivi réservé à l'étudiant et à l'encadrant du stage.
+ */
+@Sql(scripts = "/donnees/stages.sql", executionPhase = BEFORE_TEST_CLASS)
+@Sql(scripts = "/donnees/nettoyage.sql", executionPhase = AFTER_TEST_CLASS)
+class RapportIngestServiceTest extends BaseDonneesTest {
+
+    @Autowired
+    private RapportIngestService service;
+
+    @Autowired
+    private RapportIngestJobRepository jobRepository;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${rapport.ingest.spool-dir}")
+    private String spoolDir;
+
+    @Test
+    void repriseAuDemarrage() throws Exception {
+        // Job interrompu pendant l'envoi, fichier encore dans le spool
+        Path spool = Files.createTempFile(Paths.get(spoolDir), "rapport-9001-", ".pdf");
+        Files.writeString(spool, "%PDF-1.4 rapport", StandardCharsets.US_ASCII);
+        RapportIngestJob interrompu = job(9001L, spool, StatutIngestRapport.EN_COURS, "UPLOAD");
+        // Job dont le fichier a disparu avec le disque temporaire
+        RapportIngestJob perdu = job(9003L, Paths.get(spoolDir, "absent.pdf"), StatutIngestRapport.NOUVELLE_TENTATIVE, "UPLOAD");
+        Path orphelin = Files.createTempFile(Paths.get(spoolDir), "rapport-9002-", ".pdf");
+
+        service.reprendre();
+
+        assertThat(orphelin).doesNotExist();
+        assertThat(jobRepository.findById(perdu.getId()).orElseThrow().getStatut()).isEqualTo(StatutIngestRapport.ECHEC);
+        RapportIngestJob repris = attendreFin(interrompu.getId());
+        assertThat(repris.getStatut()).as(repris.getMessage()).isEqualTo(StatutIngestRapport.TERMINE);
+        assertThat(repris.getTentatives()).isEqualTo(2);
+        assertThat(spool).doesNotExist();
+    }
+
+    @ParameterizedTest(name = "{0} : {1}")
+    @CsvSource({
+            "etu1.test@estbm.ma, 200",
+            "enc2.test@estbm.ma, 200",
+            "etu2.test@estbm.ma, 403",
+            "enc1.test@estbm.ma, 403"
+    })
+    void suiviReserveAuxParticipantsDuStage(String email, int attendu) throws Exception {
+        // Stage 9001 : étudiant etu1, encadrant enc2
+        RapportIngestJob termine = job(9001L, Paths.get(spoolDir, "termine.pdf"), StatutIngestRapport.TERMINE, "TERMINE");
+
+        mvc.perform(get("/stages/rapports/ingest/" + termine.getId())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(email)))
+                .andExpect(status().is(attendu));
+    }
+
+    @Test
+    void jobInconnu() throws Exception {
+        mvc.perform(get("/stages/rapports/ingest/inconnu")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken("etu1.test@estbm.ma")))
+                .andExpect(status().isNotFound());
+    }
+
+    private RapportIngestJob job(Long stageId, Path spool, StatutIngestRapport statut, String etape) {
+        RapportIngestJob job = new RapportIngestJob(stageId, "rapport.pdf", spool.toString());
+        job.setTentatives(1);
+        job.maj(statut, etape, null);
+        return jobRepository.save(job);
+    }
+
+    private RapportIngestJob attendreFin(String id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            RapportIngestJob job = jobRepository.findById(id).orElseThrow();
+            if (job.getStatut() == StatutIngestRapport.TERMINE || job.getStatut() == StatutIngestRapport.ECHEC) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Job " + id + " non terminé");
+    }
+}
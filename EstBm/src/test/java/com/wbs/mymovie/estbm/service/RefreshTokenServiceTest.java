@@ -0,0 +1,118 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import com.wbs.mymovie.estbm.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenServiceTest extends BaseDonneesTest {
+
+    private static final String EMAIL = "rotation@estbm.test";
+
+    @Autowired
+    private RefreshTokenService service;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void nettoyer() {
+        jdbc.update("DELETE FROM refresh_tokens WHERE email = ?", EMAIL);
+    }
+
+    private Claims claims(String token) {
+        return jwtUtil.extractAllClaims(token);
+    }
+
+    @Test
+    void rotationPuisRejeuRevoqueLaFamille() {
+        String premier = service.emettre(EMAIL);
+        String second = service.rotation(claims(premier));
+
+        assertThatThrownBy(() -> service.rotation(claims(premier))).isInstanceOf(BadCredentialsException.class);
+        // Le rejet est validé : le token légitime de la famille est révoqué lui aussi
+        assertThatThrownBy(() -> service.rotation(claims(second))).isInstanceOf(BadCredentialsException.class);
+    }
+
+    /** Une émission qui échoue annule la consommation : l'utilisateur garde son token. */
+    @Test
+    void echecDEmissionNeConsommePasLeToken() {
+        String premier = service.emettre(EMAIL);
+        Claims sansSujet = Jwts.claims(new HashMap<>(claims(premier)));
+        sansSujet.setSubject(null);
+
+        // refresh_tokens.email est NOT NULL : l'insertion du nouveau token échoue
+        assertThatThrownBy(() -> service.rotation(sansSujet)).isNotInstanceOf(BadCredentialsException.class);
+
+        assertThat(service.rotation(claims(premier))).isNotBlank();
+    }
+
+    @Test
+    void deconnexionRevoqueLaFamille() {
+        String premier = service.emettre(EMAIL);
+        String second = service.rotation(claims(premier));
+
+        service.revoquerFamille(claims(second));
+
+        assertThatThrownBy(() -> service.rotation(claims(second))).isInstanceOf(BadCredentialsException.class);
+    }
+
+    /**
+     * Le même token présenté deux fois en même temps : une rotation gagne, l'autre révoque
+     * la famille, et le token émis par la gagnante ne doit pas y échapper.
+     */
+    @Test
+    void rejeuConcurrentNeLaissePasDeTokenValide() throws Exception {
+        for (int essai = 0; essai < 20; essai++) {
+            Claims presente = claims(service.emettre(EMAIL));
+            CountDownLatch depart = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            try {
+                Callable<String> rotation = () -> {
+                    depart.await();
+                    try {
+                        return service.rotation(presente);
+                    } catch (BadCredentialsException e) {
+                        return null;
+                    }
+                };
+                List<Future<String>> resultats = new ArrayList<>();
+                resultats.add(pool.submit(rotation));
+                resultats.add(pool.submit(rotation));
+                depart.countDown();
+
+                List<String> emis = new ArrayList<>();
+                for (Future<String> r : resultats) {
+                    if (r.get() != null) {
+                        emis.add(r.get());
+                    }
+                }
+                assertThat(emis).hasSize(1);
+                assertThatThrownBy(() -> service.rotation(claims(emis.get(0))))
+                        .isInstanceOf(BadCredentialsException.class);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+}
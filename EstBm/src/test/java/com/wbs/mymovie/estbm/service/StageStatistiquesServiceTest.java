@@ -0,0 +1,104 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import com.wbs.mymovie.estbm.model.Stage;
+import com.wbs.mymovie.estbm.model.enums.EtatStage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StageStatistiquesServiceTest extends BaseDonneesTest {
+
+    private static final long ID = 9900;
+
+    @Autowired
+    private StageStatistiquesService statistiques;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void nettoyer() {
+        jdbc.update("DELETE FROM stages WHERE id = ?", ID);
+        statistiques.reconcilier();
+    }
+
+    private long totalEnBase() {
+        return jdbc.queryForObject("SELECT count(*) FROM stages", Long.class);
+    }
+
+    @Test
+    void instantaneVoitLesTransactionsValidees() {
+        StageStatistiquesService.Instantane instantane = StageStatistiquesService.Instantane.parse("100:105:101,103");
+
+        assertThat(instantane.voit(99)).isTrue();
+        assertThat(instantane.voit(102)).isTrue();
+        assertThat(instantane.voit(101)).isFalse();
+        assertThat(instantane.voit(105)).isFalse();
+        assertThat(StageStatistiquesService.Instantane.parse("100:100:").voit(99)).isTrue();
+    }
+
+    /**
+     * Un stage validé pendant la relecture de l'agrégat, après la prise de son instantané :
+     * son incrément est mis de côté puis rejoué, il n'est ni perdu ni compté deux fois.
+     */
+    @Test
+    void incrementValidePendantLaReconciliationEstRejoue() throws Exception {
+        statistiques.reconcilier();
+        CountDownLatch verrouPose = new CountDownLatch(1);
+        CountDownLatch valider = new CountDownLatch(1);
+
+        // Transaction qui crée un stage et garde la table verrouillée jusqu'au signal
+        CompletableFuture<Void> creation = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbc.execute("LOCK TABLE stages IN ACCESS EXCLUSIVE MODE");
+                    jdbc.update("INSERT INTO stages (id, etat, sujet) VALUES (?, 'DEMANDE', 'Concurrent')", ID);
+                    Stage stage = new Stage();
+                    stage.setEtat(EtatStage.DEMANDE);
+                    statistiques.stageCree(stage);
+                    verrouPose.countDown();
+                    try {
+                        valider.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertThat(verrouPose.await(30, TimeUnit.SECONDS)).isTrue();
+
+        // La réconciliation prend son instantané puis attend le verrou sur stages
+        CompletableFuture<Void> reconciliation = CompletableFuture.runAsync(statistiques::reconcilier);
+        attendreLecteurBloque();
+
+        valider.countDown();
+        creation.get(30, TimeUnit.SECONDS);
+        reconciliation.get(30, TimeUnit.SECONDS);
+
+        assertThat(statistiques.getStatistiques().get("total")).isEqualTo(totalEnBase());
+    }
+
+    private void attendreLecteurBloque() throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            Integer bloques = jdbc.queryForObject("""
+                    SELECT count(*) FROM pg_stat_activity
+                    WHERE wait_event_type = 'Lock' AND query LIKE '%stages%'
+                    """, Integer.class);
+            if (bloques != null && bloques > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("La réconciliation n'a pas atteint le verrou");
+    }
+}
@@ -0,0 +1,62 @@
+package com.wbs.mymovie.estbm.service;
+
+import com.wbs.mymovie.estbm.model.Utilisateur;
+import com.wbs.mymovie.estbm.model.enums.Role;
+import com.wbs.mymovie.estbm.repository.EncadrantRepository;
+import com.wbs.mymovie.estbm.repository.UtilisateurRepository;
+import com.wbs.mymovie.estbm.util.UtilisateurPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UtilisateurServiceTest {
+
+    private final UtilisateurRepository utilisateurs = mock(UtilisateurRepository.class);
+    private UtilisateurService service;
+    private Utilisateur entite;
+
+    @BeforeEach
+    void preparer() {
+        entite = new Utilisateur(7L, "etu@estbm.ma", "{bcrypt}hash", "Nom", "Prenom", "0600", Role.ETUDIANT);
+        when(utilisateurs.findByEmail("etu@estbm.ma")).thenReturn(Optional.of(entite));
+
+        service = new UtilisateurService(utilisateurs, mock(PasswordEncoder.class), mock(EncadrantRepository.class));
+        ReflectionTestUtils.setField(service, "principalCacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(service, "principalCacheMaxSize", 10);
+    }
+
+    @Test
+    void leCacheNePartagePasLEntite() {
+        UtilisateurPrincipal.Compte premier = service.loadCached("etu@estbm.ma");
+        // Entité détachée modifiée par un appelant après le chargement
+        entite.setRole(Role.ADMIN);
+        entite.setPassword("{noop}autre");
+
+        UtilisateurPrincipal.Compte second = service.loadCached("etu@estbm.ma");
+
+        assertThat(second).isSameAs(premier);
+        assertThat(second.role()).isEqualTo(Role.ETUDIANT);
+        assertThat(second.motDePasse()).isEqualTo("{bcrypt}hash");
+        verify(utilisateurs, times(1)).findByEmail("etu@estbm.ma");
+    }
+
+    @Test
+    void principalConstruitDepuisLeCompte() {
+        UtilisateurPrincipal principal = (UtilisateurPrincipal) service.loadUserByUsername("etu@estbm.ma");
+        principal.eraseCredentials();
+
+        assertThat(principal.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ETUDIANT");
+        assertThat(principal.isEnabled()).isTrue();
+        // Le mot de passe effacé du principal reste dans le compte en cache
+        assertThat(service.loadCached("etu@estbm.ma").motDePasse()).isEqualTo("{bcrypt}hash");
+    }
+}
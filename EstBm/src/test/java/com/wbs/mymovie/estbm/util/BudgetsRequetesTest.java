@@ -0,0 +1,49 @@
+package com.wbs.mymovie.estbm.util;
+
+import com.wbs.mymovie.estbm.BaseDonneesTest;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_CLASS;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_CLASS;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Budgets de requêtes SQL (requetes.budgets) des listes admin, sur un jeu de données où
+ * chaque ligne a ses associations renseignées : un N+1 s'y verrait aussitôt.
+ *
+ * Le profil test active le mode strict : un dépassement rend aussi la réponse en 500.
+ */
+@Sql(scripts = "/donnees/stages.sql", executionPhase = BEFORE_TEST_CLASS)
+@Sql(scripts = "/donnees/nettoyage.sql", executionPhase = AFTER_TEST_CLASS)
+class BudgetsRequetesTest extends BaseDonneesTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @ParameterizedTest(name = "{0} : {1} requête(s) au plus")
+    @CsvSource({
+            "/stages/admin/stages, 2",
+            "/stages/admin/stages?taille=2, 2",
+            "/stages/admin/stages?etat=ACCEPTE&filiere=GI, 2",
+            "/stages/admin/assignments, 1",
+            "/stages/planification/all, 1",
+            "/stages/planification/all?taille=1, 1"
+    })
+    void respecteLeBudget(String url, int budget) throws Exception {
+        CompteurRequetes.Mesure mesure = MesureRequetes.mesurer(() ->
+                mvc.perform(get(url).with(user("admin.test@estbm.ma").roles("ADMIN")))
+                        .andExpect(status().isOk()));
+
+        assertThat(mesure.total())
+                .as("requêtes SQL de %s : %s", url, mesure.parForme().keySet())
+                .isBetween(1, budget);
+        assertThat(mesure.repetitions()).isEmpty();
+    }
+}
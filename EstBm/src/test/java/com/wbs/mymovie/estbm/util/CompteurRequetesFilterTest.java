@@ -0,0 +1,81 @@
+package com.wbs.mymovie.estbm.util;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompteurRequetesFilterTest {
+
+    private final CompteurRequetes inspecteur = new CompteurRequetes();
+
+    private CompteurRequetesFilter filtre(boolean strict) {
+        CompteurRequetesFilter filtre = new CompteurRequetesFilter();
+        ReflectionTestUtils.setField(filtre, "active", true);
+        ReflectionTestUtils.setField(filtre, "seuilRepetitions", 10);
+        ReflectionTestUtils.setField(filtre, "budgetsConfig", "GET /stages/admin/stages=2");
+        ReflectionTestUtils.setField(filtre, "budgetsStricts", strict);
+        filtre.init();
+        return filtre;
+    }
+
+    /** Route /stages/admin/stages qui émet {@code requetes} requêtes puis écrit sa réponse. */
+    private MockFilterChain chaine(int requetes) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/stages/admin/stages");
+                for (int i = 0; i < requetes; i++) {
+                    inspecteur.inspect("select s.id from stages s where s.id = " + i);
+                }
+                resp.setContentType("application/json");
+                resp.getWriter().write("[]");
+                resp.flushBuffer();
+            }
+        });
+    }
+
+    private static MockHttpServletRequest requete() {
+        return new MockHttpServletRequest("GET", "/stages/admin/stages");
+    }
+
+    @Test
+    void strictDepassementRepondEn500AvantQueLaReponseNeParte() throws Exception {
+        MockHttpServletResponse reponse = new MockHttpServletResponse();
+
+        filtre(true).doFilter(requete(), reponse, chaine(3));
+
+        assertThat(reponse.getStatus()).isEqualTo(500);
+        assertThat(reponse.getContentAsString()).contains("3 requêtes SQL pour un budget de 2");
+    }
+
+    @Test
+    void strictDansLeBudgetRecopieLaReponse() throws Exception {
+        MockHttpServletResponse reponse = new MockHttpServletResponse();
+
+        filtre(true).doFilter(requete(), reponse, chaine(2));
+
+        assertThat(reponse.getStatus()).isEqualTo(200);
+        assertThat(reponse.getContentAsString()).isEqualTo("[]");
+        assertThat(reponse.getContentType()).isEqualTo("application/json");
+    }
+
+    @Test
+    void horsModeStrictLeDepassementEstSeulementJournalise() throws Exception {
+        MockHttpServletResponse reponse = new MockHttpServletResponse();
+
+        filtre(false).doFilter(requete(), reponse, chaine(3));
+
+        assertThat(reponse.getStatus()).isEqualTo(200);
+        assertThat(reponse.getContentAsString()).isEqualTo("[]");
+    }
+}
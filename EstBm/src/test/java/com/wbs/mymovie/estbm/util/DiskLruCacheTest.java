@@ -0,0 +1,78 @@
+package com.wbs.mymovie.estbm.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskLruCacheTest {
+
+    @TempDir
+    Path dossier;
+
+    private void publier(DiskLruCache cache, String cle, byte[] contenu) throws IOException {
+        Path tmp = cache.fichierTemporaire();
+        Files.write(tmp, contenu);
+        cache.put(cle, tmp);
+    }
+
+    private static byte[] contenu(int taille, int graine) {
+        byte[] octets = new byte[taille];
+        Arrays.fill(octets, (byte) graine);
+        return octets;
+    }
+
+    private static byte[] lire(FileChannel canal) throws IOException {
+        ByteBuffer tampon = ByteBuffer.allocate((int) canal.size());
+        while (tampon.hasRemaining() && canal.read(tampon) >= 0) {
+            // jusqu'à la fin
+        }
+        return tampon.array();
+    }
+
+    /** L'entrée est évincée entre l'ouverture et la lecture : le canal ouvert reste lisible. */
+    @Test
+    void evictionPendantUneLecture() throws IOException {
+        DiskLruCache cache = new DiskLruCache(dossier, 150);
+        publier(cache, "a", contenu(100, 1));
+
+        try (FileChannel canal = cache.ouvrir("a")) {
+            publier(cache, "b", contenu(100, 2));
+            assertThat(Files.exists(dossier.resolve("a"))).isFalse();
+
+            assertThat(lire(canal)).isEqualTo(contenu(100, 1));
+        }
+        assertThat(cache.ouvrir("a")).isNull();
+        assertThat(cache.getStatistiques()).containsEntry("evictions", 1L);
+    }
+
+    @Test
+    void suppressionPendantUneLecture() throws IOException {
+        DiskLruCache cache = new DiskLruCache(dossier, 1000);
+        publier(cache, "a", contenu(100, 1));
+
+        try (FileChannel canal = cache.ouvrir("a")) {
+            cache.remove("a");
+
+            assertThat(lire(canal)).isEqualTo(contenu(100, 1));
+        }
+        assertThat(cache.ouvrir("a")).isNull();
+    }
+
+    @Test
+    void fichierSupprimeHorsApplication() throws IOException {
+        DiskLruCache cache = new DiskLruCache(dossier, 1000);
+        publier(cache, "a", contenu(100, 1));
+        Files.delete(dossier.resolve("a"));
+
+        assertThat(cache.ouvrir("a")).isNull();
+        assertThat(cache.getStatistiques()).containsEntry("entries", 0).containsEntry("bytes", 0L);
+    }
+}
@@ -0,0 +1,52 @@
+package com.wbs.mymovie.estbm.util;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportWriterTest {
+
+    private static byte[] exporter(String format, int lignes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ExportWriter writer = ExportWriter.pour(format, "Stages", out, 10, 20)) {
+            writer.entete(new String[]{"Id", "Sujet"});
+            for (int i = 0; i < lignes; i++) {
+                writer.ligne(new Object[]{i, "Sujet " + i});
+            }
+            writer.terminer();
+        }
+        return out.toByteArray();
+    }
+
+    /** La fenêtre (10 lignes) est dépassée : les feuilles temporaires SXSSF sont relues. */
+    @Test
+    void xlsxAuDelaDeLaFenetre() throws Exception {
+        byte[] contenu = exporter("xlsx", 250);
+
+        try (XSSFWorkbook classeur = new XSSFWorkbook(new ByteArrayInputStream(contenu))) {
+            Sheet feuille = classeur.getSheetAt(0);
+            assertThat(feuille.getLastRowNum()).isEqualTo(250);
+            assertThat(feuille.getRow(250).getCell(1).getStringCellValue()).isEqualTo("Sujet 249");
+        }
+    }
+
+    @Test
+    void csvAvecBomEtSeparateur() throws Exception {
+        String contenu = new String(exporter("csv", 2), StandardCharsets.UTF_8);
+
+        assertThat(contenu).startsWith("\uFEFF").contains("Sujet 1");
+    }
+
+    @Test
+    void pdfBienForme() throws Exception {
+        byte[] contenu = exporter("pdf", 50);
+
+        assertThat(new String(contenu, 0, 5, StandardCharsets.ISO_8859_1)).isEqualTo("%PDF-");
+    }
+}
@@ -0,0 +1,30 @@
+package com.wbs.mymovie.estbm.util;
+
+/**
+ * Requêtes SQL émises par une action exécutée sur le thread du test, par exemple
+ * {@code MesureRequetes.mesurer(() -> mvc.perform(get("/stages/admin/stages"))).total()}.
+ *
+ * Les mesures s'imbriquent : autour d'un appel MockMvc, le filtre de comptage ouvre la
+ * sienne et chaque requête compte pour les deux.
+ */
+public final class MesureRequetes {
+
+    @FunctionalInterface
+    public interface Appel {
+        void executer() throws Exception;
+    }
+
+    private MesureRequetes() {
+    }
+
+    public static CompteurRequetes.Mesure mesurer(Appel appel) throws Exception {
+        CompteurRequetes.demarrer(Integer.MAX_VALUE);
+        try {
+            appel.executer();
+        } catch (Exception e) {
+            CompteurRequetes.arreter();
+            throw e;
+        }
+        return CompteurRequetes.arreter();
+    }
+}
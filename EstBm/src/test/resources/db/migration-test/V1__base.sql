@@ -0,0 +1,4 @@
+create table utilisateurs (
+    id bigint primary key,
+    email varchar(255) not null unique
+);
@@ -0,0 +1,17 @@
+-- Les « ; » des corps procéduraux ne doivent pas couper le script
+create table compteur (n integer not null);
+
+do $$
+begin
+    if not exists (select 1 from compteur) then
+        insert into compteur values (1);
+    end if;
+end
+$$;
+
+create or replace function incrementer() returns integer language plpgsql as $corps$
+begin
+    update compteur set n = n + 1;
+    return (select n from compteur);
+end;
+$corps$;
@@ -0,0 +1,12 @@
+-- Retire les jeux de données des tests (stages.sql, volume.sql : ids 9000 et plus)
+delete from detail_soutenance where id >= 9000;
+delete from planification_soutenance where id >= 9000;
+delete from document where stage_id >= 9000 or etudiant_id >= 9000;
+delete from rapport where stage_id >= 9000;
+delete from stages where id >= 9000;
+delete from etudiants where id >= 9000;
+delete from encadrants where id >= 9000;
+delete from utilisateurs where id >= 9000;
+delete from annees_scolaires where id >= 9000;
+delete from classes_groupes where id >= 9000;
+delete from departements where id >= 9000;
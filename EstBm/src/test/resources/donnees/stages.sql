@@ -0,0 +1,37 @@
+-- Jeu de données des tests d'endpoints : 2 encadrants, 6 étudiants affectés avec compte,
+-- un stage par étudiant (états et filières variés), 2 planifications avec détails.
+insert into departements (id, nom) values (9001, 'Informatique'), (9002, 'Gestion');
+insert into classes_groupes (id, id_departemen, nom) values (9001, 9001, 'GI1'), (9002, 9002, 'TM1');
+insert into annees_scolaires (id, libelle) values (9001, '2025-2026');
+
+insert into utilisateurs (id, email, nom, password, prenom, role) values
+    (9001, 'admin.test@estbm.ma', 'Admin', '{noop}x', 'Test', 'ADMIN'),
+    (9002, 'enc1.test@estbm.ma', 'Alaoui', '{noop}x', 'Karim', 'ENCADRANT'),
+    (9003, 'enc2.test@estbm.ma', 'Bennani', '{noop}x', 'Sara', 'ENCADRANT');
+insert into utilisateurs (id, email, nom, password, prenom, role)
+select 9010 + i, 'etu' || i || '.test@estbm.ma', 'Etudiant' || i, '{noop}x', 'Prenom' || i, 'ETUDIANT'
+from generate_series(1, 6) i;
+
+insert into encadrants (id, departement_id, utilisateur_id, email, nom, prenom, specialite) values
+    (9001, 9001, 9002, 'enc1.test@estbm.ma', 'Alaoui', 'Karim', 'Réseaux'),
+    (9002, 9002, 9003, 'enc2.test@estbm.ma', 'Bennani', 'Sara', 'Finance');
+
+insert into etudiants (id, date_naissance, annee_scolaire_id, classe_groupe_id, departement_id, encadrant_id,
+                       utilisateur_id, code_apogee, code_massar, email, nom, prenom, role)
+select 9000 + i, date '2003-01-01' + i, 9001, 9001 + i % 2, 9001 + i % 2, 9001 + i % 2,
+       9010 + i, 'APO' || i, 'MAS' || i, 'etu' || i || '.test@estbm.ma', 'Etudiant' || i, 'Prenom' || i, 'ETUDIANT'
+from generate_series(1, 6) i;
+
+insert into stages (id, date_debut, date_fin, date_creation, encadrant_id, etudiant_id, entreprise, etat, filiere, sujet)
+select 9000 + i, date '2026-02-01', date '2026-06-30', timestamp '2026-01-01 08:00:00' + i * interval '1 hour',
+       9001 + i % 2, 9000 + i, 'Entreprise' || i,
+       (array['DEMANDE','ACCEPTE','EN_COURS'])[1 + i % 3], (array['GI','TM'])[1 + i % 2], 'Sujet ' || i
+from generate_series(1, 6) i;
+
+insert into planification_soutenance (id, date_soutenance, annee_scolaire_id, classe_groupe_id, departement_id, encadrant_id)
+values (9001, date '2026-07-01', 9001, 9001, 9001, 9001),
+       (9002, date '2026-07-02', 9001, 9002, 9002, 9002);
+insert into detail_soutenance (id, date_soutenance, heure_debut, heure_fin, etudiant_id, planification_id, sujet)
+select 9000 + i, date '2026-07-01' + i % 2, time '09:00' + i * interval '30 minutes', time '09:30' + i * interval '30 minutes',
+       9000 + i, 9001 + i % 2, 'Sujet ' || i
+from generate_series(1, 6) i;
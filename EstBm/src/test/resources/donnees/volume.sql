@@ -0,0 +1,32 @@
+-- Volume pour les plans d'exécution : 3 000 étudiants, stages et documents (ids 20000 et plus),
+-- répartis sur 30 encadrants et 3 groupes, puis statistiques à jour.
+insert into departements (id, nom) values (20001, 'Volume D1'), (20002, 'Volume D2'), (20003, 'Volume D3');
+insert into classes_groupes (id, id_departemen, nom) values (20001, 20001, 'V1'), (20002, 20002, 'V2'), (20003, 20003, 'V3');
+insert into annees_scolaires (id, libelle) values (20001, 'Volume');
+
+insert into encadrants (id, departement_id, email, nom, prenom)
+select 20000 + i, 20001 + i % 3, 'vol.enc' || i || '@estbm.ma', 'Enc' || i, 'P' || i
+from generate_series(1, 30) i;
+
+insert into etudiants (id, date_naissance, annee_scolaire_id, classe_groupe_id, departement_id, encadrant_id,
+                       code_apogee, code_massar, email, nom, prenom, role)
+select 20000 + i, date '2003-01-01' + i % 365, 20001, 20001 + i % 3, 20001 + i % 3,
+       case when i % 10 = 0 then null else 20001 + i % 30 end,
+       'VAPO' || i, 'VMAS' || i, 'vol.etu' || i || '@estbm.ma', 'Etu' || i, 'P' || i, 'ETUDIANT'
+from generate_series(1, 3000) i;
+
+insert into stages (id, date_debut, date_fin, date_creation, encadrant_id, etudiant_id, entreprise, etat, filiere, sujet)
+select 20000 + i, date '2025-01-01' + i % 500, date '2025-03-01' + i % 500,
+       timestamp '2025-01-01 00:00:00' + i * interval '7 minutes',
+       20001 + i % 30, 20000 + i, 'Ent' || i,
+       (array['DEMANDE','EN_ATTENTE_VALIDATION','VALIDATION_EN_COURS','ACCEPTE','REFUSE','EN_COURS','TERMINE','RAPPORT_SOUMIS'])[1 + i % 8],
+       (array['GI','TM','GE','TC','ID'])[1 + i % 5], 'Sujet ' || i
+from generate_series(1, 3000) i;
+
+insert into document (id, etudiant_id, stage_id, chemin_fichier, nom, type)
+select 20000 + i, 20000 + i, 20000 + i, 'cas:00/00/' || i, 'convention.pdf', 'CONVENTION'
+from generate_series(1, 3000) i;
+
+analyze stages;
+analyze etudiants;
+analyze document;
@@ -287,6 +287,20 @@ export interface Rapport {
   cloudinaryUrl?: string; // Ajouter cette propriété
 }
 
+// Suivi d'un dépôt de rapport (pipeline asynchrone côté serveur)
+export interface RapportIngestStatus {
+  jobId: string;
+  stageId: number;
+  nomFichier: string;
+  statut: "EN_ATTENTE" | "EN_COURS" | "NOUVELLE_TENTATIVE" | "TERMINE" | "ECHEC";
+  etape: string;
+  tentatives: number;
+  message?: string;
+  prochaineTentative?: string;
+  dateCreation: string;
+  dateMaj: string;
+}
+
 // export interface AssignmentRequest {
 //   encadrantId: number;
 //   departementId: number;
@@ -455,4 +469,9 @@ const planifColumns: DataTableColumn<PlanificationSoutenanceResponse>[] = [
   }
 ];
 
-
+/** Page d'une liste parcourue par curseur (curseurSuivant opaque, null en fin de liste). */
+export interface PageCurseur<T> {
+  elements: T[];
+  curseurSuivant: string | null;
+  suite: boolean;
+}
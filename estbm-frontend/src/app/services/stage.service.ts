@@ -670,8 +670,8 @@
 
 import { Injectable } from "@angular/core"
 import { HttpClient, HttpParams, HttpResponse } from "@angular/common/http"
-import { Observable, throwError, timer } from "rxjs"
-import { catchError, tap, switchMap, map } from "rxjs/operators"
+import { EMPTY, Observable, throwError, timer } from "rxjs"
+import { catchError, tap, switchMap, map, filter, take, expand, reduce } from "rxjs/operators"
 import { NotificationService } from "./notification.service"
 import { environment } from "../../app/environement"
 import {
@@ -686,6 +686,8 @@ import {
   PlanificationSoutenanceResponse,
   DetailSoutenance,
   SoutenanceEtudiantSlotDto,
+  RapportIngestStatus,
+  PageCurseur,
 } from "../models/stage.model"
 
 @Injectable({
@@ -759,10 +761,35 @@ listEncadrants(): Observable<Array<{ id: number; utilisateurId: number; nom?: st
 }
 
 
+  getStagesPage(
+    filtres: {
+      etat?: string
+      filiere?: string
+      encadrantId?: number
+      departementId?: number
+      classeGroupeId?: number
+      anneeScolaireId?: number
+    } = {},
+    curseur?: string,
+    taille = 50,
+  ): Observable<PageCurseur<Stage>> {
+    let params = new HttpParams().set("taille", String(taille))
+    Object.entries(filtres).forEach(([k, v]) => {
+      if (v !== undefined && v !== null && v !== "") params = params.set(k, String(v))
+    })
+    if (curseur) params = params.set("curseur", curseur)
+    return this.http.get<PageCurseur<Stage>>(`${this.baseUrl}/admin/stages`, { params })
+  }
+
   getAllStages(): Observable<Stage[]> {
     const loadingId = this.notificationService.loading("Chargement de tous les stages...", "Récupération complète")
 
-    return this.http.get<Stage[]>(`${this.baseUrl}/admin/stages`).pipe(
+    // La liste admin est paginée par curseur : on suit les pages jusqu'à la dernière
+    const page = (curseur?: string) => this.getStagesPage({}, curseur, 200)
+
+    return page().pipe(
+      expand((p) => (p.suite && p.curseurSuivant ? page(p.curseurSuivant) : EMPTY)),
+      reduce((stages: Stage[], p) => stages.concat(p.elements), []),
       switchMap((stages) => timer(500).pipe(switchMap(() => [stages]))),
       tap((stages) => {
         this.notificationService.operationSuccess(
@@ -993,7 +1020,7 @@ return this.http.post<PlanificationSoutenanceResponse>(
     )
   }
 
-  submitRapport(stageId: number, file: File): Observable<string> {
+  submitRapport(stageId: number, file: File): Observable<RapportIngestStatus> {
     const formData = new FormData()
     formData.append("file", file)
 
@@ -1002,9 +1029,13 @@ return this.http.post<PlanificationSoutenanceResponse>(
       `Upload de ${file.name} (${(file.size / 1024 / 1024).toFixed(2)} MB)`,
     )
 
-    return this.http.post<string>(`${this.baseUrl}/rapports/${stageId}`, formData).pipe(
-      switchMap((response) => timer(1000).pipe(switchMap(() => [response]))),
-      tap((response) => {
+    // Le serveur répond 202 avec un job : on suit son statut jusqu'à la fin du traitement
+    return this.http.post<RapportIngestStatus>(`${this.baseUrl}/rapports/${stageId}`, formData).pipe(
+      switchMap((job) => this.suivreDepotRapport(job.jobId)),
+      tap((status) => {
+        if (status.statut === "ECHEC") {
+          throw new Error(status.message || "Échec du dépôt")
+        }
         this.notificationService.operationSuccess(
           loadingId,
           "Rapport soumis",
@@ -1018,6 +1049,14 @@ return this.http.post<PlanificationSoutenanceResponse>(
     )
   }
 
+  private suivreDepotRapport(jobId: string): Observable<RapportIngestStatus> {
+    return timer(0, 1500).pipe(
+      switchMap(() => this.http.get<RapportIngestStatus>(`${this.baseUrl}/rapports/ingest/${jobId}`)),
+      filter((status) => status.statut === "TERMINE" || status.statut === "ECHEC"),
+      take(1),
+    )
+  }
+
   downloadRapport(stageId: number): Observable<HttpResponse<Blob>> {
     const loadingId = this.notificationService.loading("Téléchargement du rapport...", "Préparation du fichier")
 